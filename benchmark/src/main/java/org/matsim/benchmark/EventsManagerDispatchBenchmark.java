@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the handler dispatch modes of {@link EventsManagerImpl}. {@link LinkEnterEvent}s are handled by the
+ * hard-coded fast path of the reflective mode, {@link VehicleLeavesTrafficEvent}s by {@link java.lang.reflect.Method#invoke}.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark-*.jar:libs/* org.openjdk.jmh.Main EventsManagerDispatchBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerDispatchBenchmark {
+
+	@Param({"1", "10", "50"})
+	public int handlers;
+
+	@Param({"reflective", "generated"})
+	public EventsManagerImpl.HandlerDispatch dispatch;
+
+	private EventsManagerImpl events;
+	private LinkEnterEvent linkEnterEvent;
+	private VehicleLeavesTrafficEvent vehicleLeavesTrafficEvent;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		this.events = new EventsManagerImpl(this.dispatch);
+		for (int i = 0; i < this.handlers; i++) {
+			this.events.addHandler(new ConsumingHandler(blackhole));
+		}
+		Id<Link> linkId = Id.createLinkId("1");
+		Id<Vehicle> vehicleId = Id.createVehicleId("1");
+		this.linkEnterEvent = new LinkEnterEvent(3600.0, vehicleId, linkId);
+		this.vehicleLeavesTrafficEvent = new VehicleLeavesTrafficEvent(3600.0, Id.createPersonId("1"), linkId, vehicleId, "car", 1.0);
+	}
+
+	@Benchmark
+	public void linkEnterEvent() {
+		this.events.processEvent(this.linkEnterEvent);
+	}
+
+	@Benchmark
+	public void vehicleLeavesTrafficEvent() {
+		this.events.processEvent(this.vehicleLeavesTrafficEvent);
+	}
+
+	private static final class ConsumingHandler implements LinkEnterEventHandler, VehicleLeavesTrafficEventHandler {
+
+		private final Blackhole blackhole;
+
+		ConsumingHandler(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.blackhole.consume(event);
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			this.blackhole.consume(event);
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdDoubleMap;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the maps used by event handlers to store a value per agent, like the departure time of the current leg.
+ * Each benchmark iteration stores a value for every agent and then reads and removes it again, like a handler does
+ * between departure and arrival events.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark-*.jar:libs/* org.openjdk.jmh.Main IdMapBenchmark -prof gc</code> to also
+ * see the allocation rate of each map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdMapBenchmark {
+
+	@Param({"10000", "1000000"})
+	public int agents;
+
+	private Id<Person>[] ids;
+	private Map<Id<Person>, Double> hashMap;
+	private IdMap<Person, Double> idMap;
+	private IdDoubleMap<Person> idDoubleMap;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		this.ids = new Id[this.agents];
+		for (int i = 0; i < this.agents; i++) {
+			this.ids[i] = Id.createPersonId(i);
+		}
+		this.hashMap = new HashMap<>();
+		this.idMap = new IdMap<>(Person.class);
+		this.idDoubleMap = new IdDoubleMap<>(Person.class);
+	}
+
+	@Benchmark
+	public double hashMap() {
+		for (int i = 0; i < this.ids.length; i++) {
+			this.hashMap.put(this.ids[i], (double) i);
+		}
+		double sum = 0;
+		for (Id<Person> id : this.ids) {
+			sum += this.hashMap.remove(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double idMap() {
+		for (int i = 0; i < this.ids.length; i++) {
+			this.idMap.put(this.ids[i], (double) i);
+		}
+		double sum = 0;
+		for (Id<Person> id : this.ids) {
+			sum += this.idMap.remove(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double idDoubleMap() {
+		for (int i = 0; i < this.ids.length; i++) {
+			this.idDoubleMap.put(this.ids[i], i);
+		}
+		double sum = 0;
+		for (Id<Person> id : this.ids) {
+			sum += this.idDoubleMap.remove(id);
+		}
+		return sum;
+	}
+
+}
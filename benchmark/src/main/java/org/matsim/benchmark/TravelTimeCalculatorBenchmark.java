@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the event handling of {@link TravelTimeCalculator} on the network of the benchmark scenario. The vehicles
+ * drive random routes through the network; the events are created once and then replayed to the calculator, with or
+ * without link-to-link travel times. Run it on two versions of the code to compare them.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark-*.jar:libs/* org.openjdk.jmh.Main TravelTimeCalculatorBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	private static final int VEHICLES = 10000;
+	private static final int LINKS_PER_ROUTE = 50;
+
+	@Param({"false", "true"})
+	public boolean linkToLink;
+
+	private Event[] events;
+	private TravelTimeCalculator calculator;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(config.network().getInputFileURL(config.getContext()));
+		Network network = scenario.getNetwork();
+
+		List<Event> events = new ArrayList<>();
+		Random random = new Random(4711);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		for (int v = 0; v < VEHICLES; v++) {
+			Id<Vehicle> vehicleId = Id.createVehicleId(v);
+			Id<Person> personId = Id.createPersonId(v);
+			double time = random.nextInt(24 * 3600);
+			Link link = links.get(random.nextInt(links.size()));
+			events.add(new VehicleEntersTrafficEvent(time, personId, link.getId(), vehicleId, "car", 1.0));
+			for (int i = 0; i < LINKS_PER_ROUTE && !link.getToNode().getOutLinks().isEmpty(); i++) {
+				time += 1 + link.getLength() / link.getFreespeed() * (1 + random.nextDouble());
+				events.add(new LinkLeaveEvent(time, vehicleId, link.getId()));
+				List<Link> outLinks = new ArrayList<>(link.getToNode().getOutLinks().values());
+				link = outLinks.get(random.nextInt(outLinks.size()));
+				events.add(new LinkEnterEvent(time, vehicleId, link.getId()));
+			}
+			events.add(new VehicleLeavesTrafficEvent(time, personId, link.getId(), vehicleId, "car", 1.0));
+		}
+		// the calculator expects the events of all vehicles in temporal order
+		events.sort((e1, e2) -> Double.compare(e1.getTime(), e2.getTime()));
+		this.events = events.toArray(new Event[0]);
+
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setCalculateLinkToLinkTravelTimes(this.linkToLink);
+		builder.configure(config.travelTimeCalculator());
+		this.calculator = builder.build();
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		this.calculator.reset(0);
+	}
+
+	@Benchmark
+	public TravelTimeCalculator handleEvents() {
+		for (Event event : this.events) {
+			if (event instanceof LinkEnterEvent) {
+				this.calculator.handleEvent((LinkEnterEvent)event);
+			} else if (event instanceof LinkLeaveEvent) {
+				this.calculator.handleEvent((LinkLeaveEvent)event);
+			} else if (event instanceof VehicleEntersTrafficEvent) {
+				this.calculator.handleEvent((VehicleEntersTrafficEvent)event);
+			} else {
+				this.calculator.handleEvent((VehicleLeavesTrafficEvent)event);
+			}
+		}
+		return this.calculator;
+	}
+
+}
@@ -19,21 +19,28 @@
 
 package org.matsim.contrib.drt.optimizer;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.schedule.DrtStopTask;
 import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.contrib.util.distance.DistanceUtils;
 import org.matsim.core.utils.misc.OptionalTime;
 
 import com.google.common.collect.ImmutableList;
@@ -202,26 +209,128 @@ public class VehicleData {
 		Entry create(DvrpVehicle vehicle, double currentTime);
 	}
 
+	/**
+	 * Grid of vehicle entries, keyed on the links of all waypoints (i.e. the current or diversion link, and the links
+	 * of the planned stops, the last of which is where the schedule ends). Since a pickup can only be inserted directly
+	 * after one of these waypoints, a vehicle that has none of them within a given distance to the pickup cannot reach
+	 * it within the corresponding time.
+	 */
+	private static class SpatialIndex {
+		private final double cellSize;
+		private final Map<Long, List<Entry>> cells = new HashMap<>();
+
+		private SpatialIndex(double cellSize) {
+			this.cellSize = cellSize;
+		}
+
+		private void add(Entry entry) {
+			for (long cell : getCells(entry)) {
+				cells.computeIfAbsent(cell, c -> new ArrayList<>()).add(entry);
+			}
+		}
+
+		private void remove(Entry entry) {
+			for (long cell : getCells(entry)) {
+				List<Entry> cellEntries = cells.get(cell);
+				cellEntries.remove(entry);
+				if (cellEntries.isEmpty()) {
+					cells.remove(cell);
+				}
+			}
+		}
+
+		private Collection<Entry> getEntriesWithinDistance(Coord coord, double distance) {
+			long minX = getCellIndex(coord.getX() - distance);
+			long maxX = getCellIndex(coord.getX() + distance);
+			long minY = getCellIndex(coord.getY() - distance);
+			long maxY = getCellIndex(coord.getY() + distance);
+
+			Set<Entry> candidates = new HashSet<>();
+			if ((maxX - minX + 1.) * (maxY - minY + 1.) > cells.size()) {
+				// fewer non-empty cells than cells within the distance
+				cells.values().forEach(candidates::addAll);
+			} else {
+				for (long x = minX; x <= maxX; x++) {
+					for (long y = minY; y <= maxY; y++) {
+						List<Entry> cellEntries = cells.get(getCell(x, y));
+						if (cellEntries != null) {
+							candidates.addAll(cellEntries);
+						}
+					}
+				}
+			}
+
+			double squaredDistance = distance * distance;
+			List<Entry> entriesWithinDistance = new ArrayList<>(candidates.size());
+			for (Entry entry : candidates) {
+				for (int i = 0; i <= entry.stops.size(); i++) {
+					if (DistanceUtils.calculateSquaredDistance(coord, entry.getWaypoint(i).getLink().getCoord())
+							<= squaredDistance) {
+						entriesWithinDistance.add(entry);
+						break;
+					}
+				}
+			}
+			return entriesWithinDistance;
+		}
+
+		private Set<Long> getCells(Entry entry) {
+			Set<Long> entryCells = new HashSet<>();
+			for (int i = 0; i <= entry.stops.size(); i++) {
+				Coord coord = entry.getWaypoint(i).getLink().getCoord();
+				entryCells.add(getCell(getCellIndex(coord.getX()), getCellIndex(coord.getY())));
+			}
+			return entryCells;
+		}
+
+		private long getCellIndex(double coordinate) {
+			return (long)Math.floor(coordinate / cellSize);
+		}
+
+		private static long getCell(long x, long y) {
+			return (x << 32) ^ (y & 0xffffffffL);
+		}
+	}
+
 	private final double currentTime;
 	private final EntryFactory entryFactory;
 	private final Map<Id<DvrpVehicle>, Entry> entries;
+	private final SpatialIndex spatialIndex;// null if not used
 
 	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
 			ForkJoinPool forkJoinPool) {
+		this(currentTime, vehicles, entryFactory, forkJoinPool, 0);
+	}
+
+	/**
+	 * @param spatialIndexCellSize cell size [m] of the spatial index used by {@link #getEntriesWithinDistance};
+	 *                             no index is maintained if not positive
+	 */
+	public VehicleData(double currentTime, Stream<? extends DvrpVehicle> vehicles, EntryFactory entryFactory,
+			ForkJoinPool forkJoinPool, double spatialIndexCellSize) {
 		this.currentTime = currentTime;
 		this.entryFactory = entryFactory;
 		entries = forkJoinPool.submit(() -> vehicles.parallel()
 				.map(v -> entryFactory.create(v, currentTime))
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
+
+		spatialIndex = spatialIndexCellSize > 0 ? new SpatialIndex(spatialIndexCellSize) : null;
+		if (spatialIndex != null) {
+			entries.values().forEach(spatialIndex::add);
+		}
 	}
 
 	public void updateEntry(DvrpVehicle vehicle) {
 		Entry e = entryFactory.create(vehicle, currentTime);
-		if (e != null) {
-			entries.put(vehicle.getId(), e);
-		} else {
-			entries.remove(vehicle.getId());
+		Entry oldEntry = e != null ? entries.put(vehicle.getId(), e) : entries.remove(vehicle.getId());
+		if (spatialIndex != null) {
+			if (oldEntry != null) {
+				spatialIndex.remove(oldEntry);
+			}
+			if (e != null) {
+				spatialIndex.add(e);
+			}
 		}
 	}
 
@@ -232,4 +341,16 @@ public class VehicleData {
 	public Collection<Entry> getEntries() {
 		return Collections.unmodifiableCollection(entries.values());
 	}
+
+	/**
+	 * Entries of vehicles that are currently at (or will divert from), or have a planned stop at a link within the
+	 * given beeline distance. All entries are returned if no spatial index is maintained.
+	 * <p>
+	 * Can be called concurrently, as long as no entries are updated at the same time.
+	 */
+	public Collection<Entry> getEntriesWithinDistance(Coord coord, double distance) {
+		return spatialIndex == null || Double.isInfinite(distance) ?
+				getEntries() :
+				spatialIndex.getEntriesWithinDistance(coord, distance);
+	}
 }
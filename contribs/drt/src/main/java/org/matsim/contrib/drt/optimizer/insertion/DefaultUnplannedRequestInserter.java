@@ -19,27 +19,37 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.fleet.Fleet;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 /**
  * @author michalm
  */
-public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter {
+public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter, MobsimBeforeCleanupListener {
 	private static final Logger log = Logger.getLogger(DefaultUnplannedRequestInserter.class);
 	public static final String NO_INSERTION_FOUND_CAUSE = "no_insertion_found";
 
@@ -53,6 +63,12 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 	private final ForkJoinPool forkJoinPool;
 	private final DrtInsertionSearch<PathData> insertionSearch;
 
+	// pre-selection of vehicles that may reach the pickup in time (see: DrtConfigGroup.vehicleIndexCellSize)
+	private final double vehicleIndexCellSize;
+	private final double pickupBeelineSpeed;
+
+	private final LongSummaryStatistics candidateVehicleStats = new LongSummaryStatistics();
+
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleData.EntryFactory vehicleDataEntryFactory, DrtInsertionSearch<PathData> insertionSearch,
@@ -65,6 +81,13 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		this.vehicleDataEntryFactory = vehicleDataEntryFactory;
 		this.forkJoinPool = forkJoinPool;
 		this.insertionSearch = insertionSearch;
+
+		// beyond the latest pickup time, insertions are only penalised (and not rejected) with soft constraints
+		vehicleIndexCellSize = drtCfg.isRejectRequestIfMaxWaitOrTravelTimeViolated() ?
+				drtCfg.getVehicleIndexCellSize() :
+				0;
+		pickupBeelineSpeed = drtCfg.getDrtInsertionSearchParams().getPickupBeelineSpeedFactor()
+				* drtCfg.getEstimatedDrtSpeed() / drtCfg.getEstimatedBeelineDistanceFactor();
 	}
 
 	@Override
@@ -74,33 +97,118 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		}
 
 		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
-				vehicleDataEntryFactory, forkJoinPool);
+				vehicleDataEntryFactory, forkJoinPool, vehicleIndexCellSize);
+
+		if (drtCfg.getRequestInsertionBatchSize() > 1) {
+			scheduleUnplannedRequestsInBatches(unplannedRequests, vData);
+			return;
+		}
 
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
 			Optional<InsertionWithDetourData<PathData>> best = insertionSearch.findBestInsertion(req,
-					vData.getEntries());
-			if (best.isEmpty()) {
-				eventsManager.processEvent(
-						new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								req.getPassengerId(), NO_INSERTION_FOUND_CAUSE));
-				log.debug("No insertion found for drt request "
-						+ req
-						+ " from passenger id="
-						+ req.getPassengerId()
-						+ " fromLinkId="
-						+ req.getFromLink().getId());
-			} else {
-				InsertionWithDetourData<PathData> insertion = best.get();
-				insertionScheduler.scheduleRequest(req, insertion);
-				vData.updateEntry(insertion.getVehicleEntry().vehicle);
-				eventsManager.processEvent(
-						new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								req.getPassengerId(), insertion.getVehicleEntry().vehicle.getId(),
-								req.getPickupTask().getEndTime(), req.getDropoffTask().getBeginTime()));
-			}
+					selectCandidateVehicles(req, vData));
+			scheduleOrReject(req, best, vData);
 			reqIter.remove();
 		}
 	}
+
+	/**
+	 * Speculative insertion: the best insertions for all requests of a batch are searched concurrently against the
+	 * same vehicle data. Then the requests are scheduled in their original order. If the vehicle chosen for a request
+	 * has already got another request of the same batch, the speculative insertion is outdated and the search is
+	 * repeated for this request only (against the updated vehicle data). Insertions into vehicles that have not been
+	 * modified remain valid, as their schedules have not changed.
+	 * <p>
+	 * Requests without any insertion are rejected without repeating the search; scheduling other requests only adds
+	 * stops, so it is (very) unlikely that a feasible insertion appears in the meantime.
+	 */
+	private void scheduleUnplannedRequestsInBatches(Collection<DrtRequest> unplannedRequests, VehicleData vData) {
+		int batchSize = drtCfg.getRequestInsertionBatchSize();
+		List<DrtRequest> batch = new ArrayList<>(batchSize);
+		Set<Id<DvrpVehicle>> modifiedVehicles = new HashSet<>();
+		int repeatedSearches = 0;
+
+		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
+		while (reqIter.hasNext()) {
+			batch.clear();
+			while (reqIter.hasNext() && batch.size() < batchSize) {
+				batch.add(reqIter.next());
+				reqIter.remove();
+			}
+
+			List<Optional<InsertionWithDetourData<PathData>>> speculativeInsertions = forkJoinPool.submit(
+					() -> batch.parallelStream()
+							.map(req -> insertionSearch.findBestInsertion(req, selectCandidateVehicles(req, vData)))
+							.collect(Collectors.toList())).join();
+
+			modifiedVehicles.clear();
+			for (int i = 0; i < batch.size(); i++) {
+				DrtRequest req = batch.get(i);
+				Optional<InsertionWithDetourData<PathData>> best = speculativeInsertions.get(i);
+				if (best.isPresent() && modifiedVehicles.contains(best.get().getVehicleEntry().vehicle.getId())) {
+					best = insertionSearch.findBestInsertion(req, selectCandidateVehicles(req, vData));
+					repeatedSearches++;
+				}
+				scheduleOrReject(req, best, vData).ifPresent(modifiedVehicles::add);
+			}
+		}
+
+		if (repeatedSearches > 0) {
+			log.debug("Insertion search repeated for " + repeatedSearches + " drt requests due to conflicts");
+		}
+	}
+
+	/**
+	 * Vehicles that are not able to reach the pickup link before the latest pickup time (given the beeline speed
+	 * estimate of the insertion search) are skipped, if the spatial index is used.
+	 */
+	private Collection<VehicleData.Entry> selectCandidateVehicles(DrtRequest req, VehicleData vData) {
+		double maxDistanceToPickup = (req.getLatestStartTime() - mobsimTimer.getTimeOfDay()) * pickupBeelineSpeed;
+		Collection<VehicleData.Entry> candidates = vData.getEntriesWithinDistance(req.getFromLink().getCoord(),
+				Math.max(maxDistanceToPickup, 0));
+		synchronized (candidateVehicleStats) {
+			candidateVehicleStats.accept(candidates.size());
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return id of the vehicle the request has been inserted into (empty if the request has been rejected)
+	 */
+	private Optional<Id<DvrpVehicle>> scheduleOrReject(DrtRequest req, Optional<InsertionWithDetourData<PathData>> best,
+			VehicleData vData) {
+		if (best.isEmpty()) {
+			eventsManager.processEvent(
+					new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+							req.getPassengerId(), NO_INSERTION_FOUND_CAUSE));
+			log.debug("No insertion found for drt request "
+					+ req
+					+ " from passenger id="
+					+ req.getPassengerId()
+					+ " fromLinkId="
+					+ req.getFromLink().getId());
+			return Optional.empty();
+		}
+
+		InsertionWithDetourData<PathData> insertion = best.get();
+		DvrpVehicle vehicle = insertion.getVehicleEntry().vehicle;
+		insertionScheduler.scheduleRequest(req, insertion);
+		vData.updateEntry(vehicle);
+		eventsManager.processEvent(
+				new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+						req.getPassengerId(), vehicle.getId(), req.getPickupTask().getEndTime(),
+						req.getDropoffTask().getBeginTime()));
+		return Optional.of(vehicle.getId());
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (candidateVehicleStats.getCount() > 0) {
+			log.info(String.format("%s: candidate vehicles per request: mean=%.1f, min=%d, max=%d (%d searches)",
+					drtCfg.getMode(), candidateVehicleStats.getAverage(), candidateVehicleStats.getMin(),
+					candidateVehicleStats.getMax(), candidateVehicleStats.getCount()));
+		}
+	}
 }
@@ -29,4 +29,10 @@ public abstract class DrtInsertionSearchParams extends ReflectiveConfigGroup {
 	public DrtInsertionSearchParams(String paramSetName) {
 		super(paramSetName);
 	}
+
+	/**
+	 * @return factor applied to the estimated beeline speed when estimating the time needed to drive to the pickup;
+	 * insertions that are infeasible given this estimate are not considered by the insertion search
+	 */
+	public abstract double getPickupBeelineSpeedFactor();
 }
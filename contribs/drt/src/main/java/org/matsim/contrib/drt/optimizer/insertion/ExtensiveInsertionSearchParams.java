@@ -60,4 +60,9 @@ public class ExtensiveInsertionSearchParams extends DrtInsertionSearchParams {
 	public void setAdmissibleBeelineSpeedFactor(double admissibleBeelineSpeedFactor) {
 		this.admissibleBeelineSpeedFactor = admissibleBeelineSpeedFactor;
 	}
+
+	@Override
+	public double getPickupBeelineSpeedFactor() {
+		return admissibleBeelineSpeedFactor;
+	}
 }
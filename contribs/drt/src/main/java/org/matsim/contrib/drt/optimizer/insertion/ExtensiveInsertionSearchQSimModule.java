@@ -24,7 +24,10 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.path.PathDataCache;
+import org.matsim.contrib.dvrp.path.PathDataCacheStats;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeQSimModule;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.run.ModalProviders;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -55,6 +58,11 @@ public class ExtensiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 						getter.get(MobsimTimer.class), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool(),
 						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class))));
 
+		// the cached paths depend on the travel disutility of this mode, so each mode has its own cache
+		addModalComponent(PathDataCache.class, modalProvider(
+				getter -> new PathDataCache(getMode(), getter.get(DvrpConfigGroup.class),
+						getter.getModal(PathDataCacheStats.class))));
+
 		addModalComponent(MultiInsertionDetourPathCalculator.class, new ModalProviders.AbstractProvider<>(getMode()) {
 			@Inject
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
@@ -63,9 +71,11 @@ public class ExtensiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 			@Override
 			public MultiInsertionDetourPathCalculator get() {
 				Network network = getModalInstance(Network.class);
+				PathDataCache pathDataCache = getModalInstance(PathDataCache.class);
 				TravelDisutility travelDisutility = getModalInstance(
 						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
-				return new MultiInsertionDetourPathCalculator(network, travelTime, travelDisutility, drtCfg);
+				return new MultiInsertionDetourPathCalculator(network, travelTime, travelDisutility, drtCfg,
+						pathDataCache.isEnabled() ? pathDataCache : null);
 			}
 		});
 		bindModal(DetourPathCalculator.class).to(modalKey(MultiInsertionDetourPathCalculator.class));
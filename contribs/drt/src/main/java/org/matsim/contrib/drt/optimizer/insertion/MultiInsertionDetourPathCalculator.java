@@ -23,11 +23,14 @@ import static org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Inse
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import javax.annotation.Nullable;
 import javax.inject.Named;
 
 import org.matsim.api.core.v01.Id;
@@ -37,6 +40,7 @@ import org.matsim.contrib.drt.passenger.DrtRequest;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.path.PathDataCache;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
@@ -75,12 +79,36 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 		}
 	}
 
+	private static class PathSearches {
+		final OneToManyPathSearch toPickupPathSearch;
+		final OneToManyPathSearch fromPickupPathSearch;
+		final OneToManyPathSearch toDropoffPathSearch;
+		final OneToManyPathSearch fromDropoffPathSearch;
+
+		PathSearches(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+				@Nullable PathDataCache pathDataCache) {
+			toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility,
+					pathDataCache);
+			fromPickupPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+					pathDataCache);
+			toDropoffPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility,
+					pathDataCache);
+			fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+					pathDataCache);
+		}
+	}
+
 	public static final int MAX_THREADS = 4;
 
-	private final OneToManyPathSearch toPickupPathSearch;
-	private final OneToManyPathSearch fromPickupPathSearch;
-	private final OneToManyPathSearch toDropoffPathSearch;
-	private final OneToManyPathSearch fromDropoffPathSearch;
+	private final Network network;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	@Nullable
+	private final PathDataCache pathDataCache;
+
+	// path searches are not thread safe; more sets are created if paths are calculated for several requests
+	// concurrently (see: DrtConfigGroup.requestInsertionBatchSize)
+	private final Queue<PathSearches> idlePathSearches = new ConcurrentLinkedQueue<>();
 
 	private final double stopDuration;
 
@@ -89,10 +117,17 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 	public MultiInsertionDetourPathCalculator(Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
 			DrtConfigGroup drtCfg) {
-		toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
-		fromPickupPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
-		toDropoffPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
-		fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+		this(network, travelTime, travelDisutility, drtCfg, null);
+	}
+
+	public MultiInsertionDetourPathCalculator(Network network,
+			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
+			DrtConfigGroup drtCfg, @Nullable PathDataCache pathDataCache) {
+		this.network = network;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.pathDataCache = pathDataCache;
+		idlePathSearches.add(new PathSearches(network, travelTime, travelDisutility, pathDataCache));
 		stopDuration = drtCfg.getStopDuration();
 		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
@@ -112,6 +147,15 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 		//TODO move extraction of links from filteredInsertions to each Callable task
 		DetourLinksSet detourLinksSet = new DetourLinksSet(filteredInsertions);
 
+		PathSearches pathSearches = idlePathSearches.poll();
+		if (pathSearches == null) {
+			pathSearches = new PathSearches(network, travelTime, travelDisutility, pathDataCache);
+		}
+		OneToManyPathSearch toPickupPathSearch = pathSearches.toPickupPathSearch;
+		OneToManyPathSearch fromPickupPathSearch = pathSearches.fromPickupPathSearch;
+		OneToManyPathSearch toDropoffPathSearch = pathSearches.toDropoffPathSearch;
+		OneToManyPathSearch fromDropoffPathSearch = pathSearches.fromDropoffPathSearch;
+
 		// calc backward dijkstra from pickup to ends of selected stops + starts
 		// highest computation time (approx. 45% total CPU time)
 		Future<Map<Link, PathData>> pathsToPickupFuture = executorService.submit(
@@ -137,8 +181,10 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 						earliestDropoffTime));
 
 		try {
-			return new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(), pathsToDropoffFuture.get(),
-					pathsFromDropoffFuture.get());
+			DetourData<PathData> detourData = new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(),
+					pathsToDropoffFuture.get(), pathsFromDropoffFuture.get());
+			idlePathSearches.add(pathSearches);
+			return detourData;
 		} catch (InterruptedException | ExecutionException e) {
 			throw new RuntimeException(e);
 		}
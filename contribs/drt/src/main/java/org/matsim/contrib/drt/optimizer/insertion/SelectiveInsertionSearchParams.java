@@ -47,4 +47,9 @@ public class SelectiveInsertionSearchParams extends DrtInsertionSearchParams {
 	public void setRestrictiveBeelineSpeedFactor(double restrictiveBeelineSpeedFactor) {
 		this.restrictiveBeelineSpeedFactor = restrictiveBeelineSpeedFactor;
 	}
+
+	@Override
+	public double getPickupBeelineSpeedFactor() {
+		return restrictiveBeelineSpeedFactor;
+	}
 }
@@ -65,7 +65,8 @@ public class SelectiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 				Network network = getModalInstance(Network.class);
 				TravelDisutility travelDisutility = getModalInstance(
 						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
-				return new SingleInsertionDetourPathCalculator(network, travelTime, travelDisutility, drtCfg);
+				return new SingleInsertionDetourPathCalculator(network, travelTime, travelDisutility, drtCfg,
+						getConfig().controler().getLandmarksCacheDirectory());
 			}
 		});
 		bindModal(DetourPathCalculator.class).to(modalKey(SingleInsertionDetourPathCalculator.class));
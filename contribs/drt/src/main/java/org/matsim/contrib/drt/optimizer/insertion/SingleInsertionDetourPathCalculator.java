@@ -27,6 +27,8 @@ import static org.matsim.contrib.dvrp.path.VrpPaths.FIRST_LINK_TT;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -58,12 +60,31 @@ import com.google.common.util.concurrent.Futures;
  */
 public class SingleInsertionDetourPathCalculator implements DetourPathCalculator, MobsimBeforeCleanupListener {
 
+	private static class PathSearches {
+		final LeastCostPathCalculator toPickupPathSearch;
+		final LeastCostPathCalculator fromPickupPathSearch;
+		final LeastCostPathCalculator toDropoffPathSearch;
+		final LeastCostPathCalculator fromDropoffPathSearch;
+
+		PathSearches(LeastCostPathCalculatorFactory pathCalculatorFactory, Network network,
+				TravelTime travelTime, TravelDisutility travelDisutility) {
+			toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+		}
+	}
+
 	public static final int MAX_THREADS = 4;
 
-	private final LeastCostPathCalculator toPickupPathSearch;
-	private final LeastCostPathCalculator fromPickupPathSearch;
-	private final LeastCostPathCalculator toDropoffPathSearch;
-	private final LeastCostPathCalculator fromDropoffPathSearch;
+	private final LeastCostPathCalculatorFactory pathCalculatorFactory;
+	private final Network network;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+
+	// path searches are not thread safe; more sets are created if paths are calculated for several requests
+	// concurrently (see: DrtConfigGroup.requestInsertionBatchSize)
+	private final Queue<PathSearches> idlePathSearches = new ConcurrentLinkedQueue<>();
 
 	private final double stopDuration;
 
@@ -71,13 +92,13 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 
 	public SingleInsertionDetourPathCalculator(Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
-			DrtConfigGroup drtCfg) {
-		LeastCostPathCalculatorFactory pathCalculatorFactory = new FastAStarLandmarksFactory(
-				drtCfg.getNumberOfThreads());
-		toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			DrtConfigGroup drtCfg, String landmarksCacheDirectory) {
+		// created for each QSim, the landmarks are only computed once if they are cached
+		pathCalculatorFactory = new FastAStarLandmarksFactory(drtCfg.getNumberOfThreads(), landmarksCacheDirectory);
+		this.network = network;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		idlePathSearches.add(new PathSearches(pathCalculatorFactory, network, travelTime, travelDisutility));
 		stopDuration = drtCfg.getStopDuration();
 		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
 	}
@@ -97,6 +118,15 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 		// TODO use times from InsertionWithDetourData<Double> as approximate departure times for Dijkstra (will require
 		//  passing it as an argument, instead of Insertion)
 
+		PathSearches pathSearches = idlePathSearches.poll();
+		if (pathSearches == null) {
+			pathSearches = new PathSearches(pathCalculatorFactory, network, travelTime, travelDisutility);
+		}
+		LeastCostPathCalculator toPickupPathSearch = pathSearches.toPickupPathSearch;
+		LeastCostPathCalculator fromPickupPathSearch = pathSearches.fromPickupPathSearch;
+		LeastCostPathCalculator toDropoffPathSearch = pathSearches.toDropoffPathSearch;
+		LeastCostPathCalculator fromDropoffPathSearch = pathSearches.fromDropoffPathSearch;
+
 		Future<Map<Link, PathData>> pathsToPickupFuture = executorService.submit(
 				() -> Map.of(insertion.pickup.previousLink,
 						calcPathData(toPickupPathSearch, insertion.pickup.previousLink, pickup, earliestPickupTime)));
@@ -117,8 +147,10 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 						calcPathData(fromDropoffPathSearch, dropoff, insertion.dropoff.nextLink, earliestDropoffTime)));
 
 		try {
-			return new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(), pathsToDropoffFuture.get(),
-					pathsFromDropoffFuture.get());
+			DetourData<PathData> detourData = new DetourData<>(pathsToPickupFuture.get(), pathsFromPickupFuture.get(),
+					pathsToDropoffFuture.get(), pathsFromDropoffFuture.get());
+			idlePathSearches.add(pathSearches);
+			return detourData;
 		} catch (InterruptedException | ExecutionException e) {
 			throw new RuntimeException(e);
 		}
@@ -146,6 +146,23 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String REQUEST_INSERTION_BATCH_SIZE = "requestInsertionBatchSize";
+	static final String REQUEST_INSERTION_BATCH_SIZE_EXP =
+			"Number of unplanned requests for which the best insertion is searched concurrently, all against the same"
+					+ " state of the vehicle schedules. The insertions are then scheduled in the order of the requests,"
+					+ " and only requests whose chosen vehicle has been modified in the meantime are searched again."
+					+ " Speeds up the optimisation of large fleets if many requests are submitted at the same time."
+					+ " Default value is 1, i.e. requests are inserted one after another.";
+
+	public static final String VEHICLE_INDEX_CELL_SIZE = "vehicleIndexCellSize";
+	static final String VEHICLE_INDEX_CELL_SIZE_EXP =
+			"Cell size [m] of the spatial index of vehicles (keyed on the vehicle's current or diversion link and the"
+					+ " links of its planned stops, including the end of its schedule). If positive, the insertion search"
+					+ " considers only vehicles that are able to reach the pickup link before the latest pickup time,"
+					+ " given the beeline speed estimate of the insertion search. Only used if "
+					+ REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED
+					+ " is true. Default value is 0, i.e. all vehicles are considered.";
+
 	public static final String DRT_SPEED_UP_MODE = "drtSpeedUpMode";
 	static final String DRT_SPEED_UP_MODE_EXP = "For PreviousIterationZonalDemandAggregator in rebalancing to work properly with the drt-speed-up module, also departures of the speed-up mode must be considered as drt mode departures. Set to the empty String \"\" if not using drt-speed-up (the default). Drt-speed-up module should set this automatically if used.";
 
@@ -201,6 +218,12 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 	@Positive
 	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
 
+	@Positive
+	private int requestInsertionBatchSize = 1;
+
+	@PositiveOrZero
+	private double vehicleIndexCellSize = 0;// [m]
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -321,6 +344,8 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(REQUEST_INSERTION_BATCH_SIZE, REQUEST_INSERTION_BATCH_SIZE_EXP);
+		map.put(VEHICLE_INDEX_CELL_SIZE, VEHICLE_INDEX_CELL_SIZE_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -654,6 +679,40 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #REQUEST_INSERTION_BATCH_SIZE_EXP}
+	 */
+	@StringGetter(REQUEST_INSERTION_BATCH_SIZE)
+	public int getRequestInsertionBatchSize() {
+		return requestInsertionBatchSize;
+	}
+
+	/**
+	 * @param -- {@value #REQUEST_INSERTION_BATCH_SIZE_EXP}
+	 */
+	@StringSetter(REQUEST_INSERTION_BATCH_SIZE)
+	public DrtConfigGroup setRequestInsertionBatchSize(final int requestInsertionBatchSize) {
+		this.requestInsertionBatchSize = requestInsertionBatchSize;
+		return this;
+	}
+
+	/**
+	 * @return -- {@value #VEHICLE_INDEX_CELL_SIZE_EXP}
+	 */
+	@StringGetter(VEHICLE_INDEX_CELL_SIZE)
+	public double getVehicleIndexCellSize() {
+		return vehicleIndexCellSize;
+	}
+
+	/**
+	 * @param -- {@value #VEHICLE_INDEX_CELL_SIZE_EXP}
+	 */
+	@StringSetter(VEHICLE_INDEX_CELL_SIZE)
+	public DrtConfigGroup setVehicleIndexCellSize(final double vehicleIndexCellSize) {
+		this.vehicleIndexCellSize = vehicleIndexCellSize;
+		return this;
+	}
+
 	public String getDrtSpeedUpMode() {
 		return drtSpeedUpMode;
 	}
@@ -30,6 +30,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.contrib.drt.analysis.zonal.DrtModeZonalSystemModule;
 import org.matsim.contrib.drt.fare.DrtFareHandler;
+import org.matsim.contrib.drt.optimizer.insertion.ExtensiveInsertionSearchParams;
 import org.matsim.contrib.drt.optimizer.rebalancing.Feedforward.DrtModeFeedforwardRebalanceModule;
 import org.matsim.contrib.drt.optimizer.rebalancing.Feedforward.FeedforwardRebalancingStrategyParams;
 import org.matsim.contrib.drt.optimizer.rebalancing.NoRebalancingStrategy;
@@ -46,6 +47,8 @@ import org.matsim.contrib.drt.routing.DrtStopFacility;
 import org.matsim.contrib.drt.routing.DrtStopFacilityImpl;
 import org.matsim.contrib.drt.routing.DrtStopNetwork;
 import org.matsim.contrib.dvrp.fleet.FleetModule;
+import org.matsim.contrib.dvrp.path.PathDataCacheStats;
+import org.matsim.contrib.dvrp.path.PathDataCacheStatsWriter;
 import org.matsim.contrib.dvrp.router.ClosestAccessEgressFacilityFinder;
 import org.matsim.contrib.dvrp.router.DecideOnLinkAccessEgressFacilityFinder;
 import org.matsim.contrib.dvrp.router.DefaultMainLegRouter;
@@ -55,11 +58,13 @@ import org.matsim.contrib.dvrp.router.DvrpRoutingModule.AccessEgressFacilityFind
 import org.matsim.contrib.dvrp.router.DvrpRoutingModuleProvider;
 import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.run.DvrpModes;
 import org.matsim.contrib.dvrp.run.ModalProviders;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.router.FastAStarLandmarksFactory;
 import org.matsim.core.router.RoutingModule;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
@@ -156,6 +161,15 @@ public final class DrtModeModule extends AbstractDvrpModeModule {
 
 		addControlerListenerBinding().to(modalKey(DrtRouteUpdater.class));
 
+		// collects the stats of the path data caches of the extensive insertion search of this mode
+		bindModal(PathDataCacheStats.class).toInstance(new PathDataCacheStats());
+		if (drtCfg.getDrtInsertionSearchParams() instanceof ExtensiveInsertionSearchParams
+				&& DvrpConfigGroup.get(getConfig()).getPathDataCacheSize() > 0) {
+			addControlerListenerBinding().toProvider(modalProvider(
+					getter -> new PathDataCacheStatsWriter(getMode(), getter.get(OutputDirectoryHierarchy.class),
+							getter.getModal(PathDataCacheStats.class))));
+		}
+
 		drtCfg.getDrtFareParams()
 				.ifPresent(params -> addEventHandlerBinding().toInstance(new DrtFareHandler(getMode(), params)));
 	}
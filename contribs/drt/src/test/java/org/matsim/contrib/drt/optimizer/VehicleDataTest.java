@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Start;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleDataTest {
+	private static final double CELL_SIZE = 1000;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(1);
+
+	private final Link link0 = link("0", 0, 0);
+	private final Link link1 = link("1", 100, 100);
+	private final Link link2 = link("2", 5000, 0);
+	private final Link link3 = link("3", 10000, 10000);
+	private final Link link4 = link("4", 20000, 0);
+
+	private final DvrpVehicle v1 = vehicle("v1", link0);
+	private final DvrpVehicle v2 = vehicle("v2", link2);
+	private final DvrpVehicle v3 = vehicle("v3", link3);
+
+	private final Map<DvrpVehicle, Entry> entries = new HashMap<>();
+
+	@After
+	public void shutdown() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void getEntriesWithinDistance_noIndex() {
+		entries.put(v1, entry(v1, link0));
+		entries.put(v2, entry(v2, link2));
+		VehicleData vData = new VehicleData(0, Stream.of(v1, v2), (v, time) -> entries.get(v), forkJoinPool);
+
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 10)).containsExactlyInAnyOrder(entries.get(v1),
+				entries.get(v2));
+	}
+
+	@Test
+	public void getEntriesWithinDistance_startAndStops() {
+		entries.put(v1, entry(v1, link0));
+		entries.put(v2, entry(v2, link2, link1));// stop near link0
+		entries.put(v3, entry(v3, link3));
+		VehicleData vData = vehicleData();
+
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 10)).containsExactly(entries.get(v1));
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 1000)).containsExactlyInAnyOrder(entries.get(v1),
+				entries.get(v2));
+		assertThat(vData.getEntriesWithinDistance(link3.getCoord(), 4000)).containsExactly(entries.get(v3));
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 1e6)).containsExactlyInAnyOrder(entries.get(v1),
+				entries.get(v2), entries.get(v3));
+		assertThat(vData.getEntriesWithinDistance(link4.getCoord(), 1000)).isEmpty();
+	}
+
+	@Test
+	public void getEntriesWithinDistance_updatedEntries() {
+		entries.put(v1, entry(v1, link0));
+		entries.put(v2, entry(v2, link2));
+		VehicleData vData = vehicleData();
+
+		entries.put(v1, entry(v1, link0, link4));
+		vData.updateEntry(v1);
+		assertThat(vData.getEntriesWithinDistance(link4.getCoord(), 10)).containsExactly(entries.get(v1));
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 10)).containsExactly(entries.get(v1));
+
+		entries.put(v1, entry(v1, link4));
+		vData.updateEntry(v1);
+		assertThat(vData.getEntriesWithinDistance(link0.getCoord(), 10)).isEmpty();
+
+		entries.remove(v1);
+		vData.updateEntry(v1);
+		assertThat(vData.getEntriesWithinDistance(link4.getCoord(), 10)).isEmpty();
+		assertThat(vData.getEntries()).containsExactly(entries.get(v2));
+	}
+
+	private VehicleData vehicleData() {
+		return new VehicleData(0, entries.keySet().stream(), (v, time) -> entries.get(v), forkJoinPool, CELL_SIZE);
+	}
+
+	private Link link(String id, double x, double y) {
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_from"), new Coord(x - 1, y));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_to"), new Coord(x + 1, y));
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, 2, 10, 1000, 1);
+	}
+
+	private DvrpVehicle vehicle(String id, Link startLink) {
+		return new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(Id.create(id, DvrpVehicle.class))
+				.capacity(4)
+				.startLinkId(startLink.getId())
+				.serviceBeginTime(0)
+				.serviceEndTime(24 * 3600)
+				.build(), startLink);
+	}
+
+	private Entry entry(DvrpVehicle vehicle, Link startLink, Link... stopLinks) {
+		ImmutableList.Builder<VehicleData.Stop> stops = ImmutableList.builder();
+		for (Link stopLink : stopLinks) {
+			stops.add(new VehicleData.Stop(new DrtStopTask(0, 0, stopLink), 0));
+		}
+		return new Entry(vehicle, new Start(null, startLink, 0, 0), stops.build());
+	}
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Start;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Insertion;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Each vehicle can take only one request. The fake insertion search chooses the first vehicle of the preferences of a
+ * request that has no request yet (according to the vehicle entries passed to the search).
+ */
+public class DefaultUnplannedRequestInserterTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+	private final Link link = link("link");
+
+	private final DvrpVehicle v1 = vehicle("v1");
+	private final DvrpVehicle v2 = vehicle("v2");
+	private final Fleet fleet = () -> ImmutableMap.of(v1.getId(), v1, v2.getId(), v2);
+
+	private final DrtRequest r1 = request("r1");
+	private final DrtRequest r2 = request("r2");
+
+	private final Map<DrtRequest, List<DvrpVehicle>> preferences = new HashMap<>();
+	private final Map<DrtRequest, DvrpVehicle> assignments = new ConcurrentHashMap<>();
+	private final AtomicInteger searchCount = new AtomicInteger();
+	private final Set<Thread> searchThreads = ConcurrentHashMap.newKeySet();
+
+	private final VehicleData.EntryFactory entryFactory = (vehicle, time) -> new Entry(vehicle,
+			new Start(null, link, time, (int)assignments.values().stream().filter(vehicle::equals).count()),
+			ImmutableList.of());
+
+	private final DrtInsertionSearch<PathData> insertionSearch = this::findBestInsertion;
+
+	private final RequestInsertionScheduler insertionScheduler = mock(RequestInsertionScheduler.class);
+
+	@After
+	public void shutdown() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void scheduleUnplannedRequests_noConflict_batchSameAsSequential() {
+		preferences.put(r1, List.of(v1, v2));
+		preferences.put(r2, List.of(v2, v1));
+
+		assertThat(insert(1)).isEqualTo(Map.of(r1, v1, r2, v2));
+		assertThat(searchCount).hasValue(2);
+
+		assertThat(insert(2)).isEqualTo(Map.of(r1, v1, r2, v2));
+		assertThat(searchCount).hasValue(2);
+	}
+
+	@Test
+	public void scheduleUnplannedRequests_conflict_searchRepeated() {
+		preferences.put(r1, List.of(v1, v2));
+		preferences.put(r2, List.of(v1, v2));
+
+		// both speculative insertions go into v1, so the search is repeated for r2
+		assertThat(insert(2)).isEqualTo(Map.of(r1, v1, r2, v2));
+		assertThat(searchCount).hasValue(3);
+
+		assertThat(insert(1)).isEqualTo(Map.of(r1, v1, r2, v2));
+		assertThat(searchCount).hasValue(2);
+	}
+
+	@Test
+	public void scheduleUnplannedRequests_batchSizeOne_sequentialInsertion() {
+		preferences.put(r1, List.of(v1, v2));
+		preferences.put(r2, List.of(v1, v2));
+
+		// r2 sees the updated entry of v1, so no search is repeated, and all searches run in the calling thread
+		assertThat(insert(1)).isEqualTo(Map.of(r1, v1, r2, v2));
+		assertThat(searchCount).hasValue(2);
+		assertThat(searchThreads).containsExactly(Thread.currentThread());
+	}
+
+	private Map<DrtRequest, DvrpVehicle> insert(int batchSize) {
+		assignments.clear();
+		searchCount.set(0);
+		searchThreads.clear();
+
+		doAnswer(invocation -> {
+			DrtRequest request = invocation.getArgument(0);
+			InsertionWithDetourData<PathData> insertion = invocation.getArgument(1);
+			request.setPickupTask(new DrtStopTask(0, 0, link));
+			request.setDropoffTask(new DrtStopTask(0, 0, link));
+			assignments.put(request, insertion.getVehicleEntry().vehicle);
+			return null;
+		}).when(insertionScheduler).scheduleRequest(any(), any());
+
+		DrtConfigGroup drtCfg = new DrtConfigGroup().setRequestInsertionBatchSize(batchSize);
+		drtCfg.addParameterSet(new ExtensiveInsertionSearchParams());
+		DefaultUnplannedRequestInserter inserter = new DefaultUnplannedRequestInserter(drtCfg, fleet,
+				new MobsimTimer(), mock(EventsManager.class), insertionScheduler, entryFactory, insertionSearch,
+				forkJoinPool);
+
+		Collection<DrtRequest> unplannedRequests = new ArrayList<>(List.of(r1, r2));
+		inserter.scheduleUnplannedRequests(unplannedRequests);
+		assertThat(unplannedRequests).isEmpty();
+		return new HashMap<>(assignments);
+	}
+
+	private Optional<InsertionWithDetourData<PathData>> findBestInsertion(DrtRequest request,
+			Collection<Entry> vEntries) {
+		searchCount.incrementAndGet();
+		searchThreads.add(Thread.currentThread());
+		for (DvrpVehicle vehicle : preferences.get(request)) {
+			for (Entry entry : vEntries) {
+				if (entry.vehicle == vehicle && entry.start.occupancy == 0) {
+					return Optional.of(
+							new InsertionWithDetourData<>(new Insertion(request, entry, 0, 0), null, null, null, null));
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+	private Link link(String id) {
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_from"), new Coord(0, 0));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_to"), new Coord(100, 0));
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, 100, 10, 1000, 1);
+	}
+
+	private DvrpVehicle vehicle(String id) {
+		return new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(Id.create(id, DvrpVehicle.class))
+				.capacity(1)
+				.startLinkId(link.getId())
+				.serviceBeginTime(0)
+				.serviceEndTime(24 * 3600)
+				.build(), link);
+	}
+
+	private DrtRequest request(String id) {
+		return DrtRequest.newBuilder()
+				.id(Id.create(id, Request.class))
+				.passengerId(Id.createPersonId(id))
+				.fromLink(link)
+				.toLink(link)
+				.latestStartTime(3600)
+				.latestArrivalTime(7200)
+				.build();
+	}
+}
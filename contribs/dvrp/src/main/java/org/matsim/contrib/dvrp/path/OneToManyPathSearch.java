@@ -21,11 +21,14 @@ package org.matsim.contrib.dvrp.path;
 
 import static org.matsim.contrib.dvrp.path.VrpPaths.FIRST_LINK_TT;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
@@ -47,19 +50,38 @@ import com.google.common.collect.Maps;
 public class OneToManyPathSearch {
 	public static OneToManyPathSearch createForwardSearch(Network network, TravelTime travelTime,
 			TravelDisutility travelDisutility) {
+		return createForwardSearch(network, travelTime, travelDisutility, null);
+	}
+
+	public static OneToManyPathSearch createForwardSearch(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, @Nullable PathDataCache pathDataCache) {
 		return create((MultiNodePathCalculator)new FastMultiNodeDijkstraFactory(true).createPathCalculator(network,
-				travelDisutility, travelTime));
+				travelDisutility, travelTime), pathDataCache);
 	}
 
 	public static OneToManyPathSearch createBackwardSearch(Network network, TravelTime travelTime,
 			TravelDisutility travelDisutility) {
+		return createBackwardSearch(network, travelTime, travelDisutility, null);
+	}
+
+	public static OneToManyPathSearch createBackwardSearch(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, @Nullable PathDataCache pathDataCache) {
 		return create(
 				(BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(true).createPathCalculator(
-						network, travelDisutility, travelTime));
+						network, travelDisutility, travelTime), pathDataCache);
 	}
 
 	public static OneToManyPathSearch create(MultiNodePathCalculator multiNodeDijkstra) {
-		return new OneToManyPathSearch(multiNodeDijkstra);
+		return create(multiNodeDijkstra, null);
+	}
+
+	/**
+	 * @param pathDataCache if not null, path data is looked up in (and added to) the cache, and paths are calculated
+	 *                      for the beginning of the cache time bins (see {@link PathDataCache})
+	 */
+	public static OneToManyPathSearch create(MultiNodePathCalculator multiNodeDijkstra,
+			@Nullable PathDataCache pathDataCache) {
+		return new OneToManyPathSearch(multiNodeDijkstra, pathDataCache);
 	}
 
 	public static class PathData {
@@ -86,20 +108,80 @@ public class OneToManyPathSearch {
 
 	private final MultiNodePathCalculator multiNodeDijkstra;// forward or backward
 	private final boolean forward;
+	@Nullable
+	private final PathDataCache pathDataCache;
 
-	private OneToManyPathSearch(MultiNodePathCalculator multiNodeDijkstra) {
+	private OneToManyPathSearch(MultiNodePathCalculator multiNodeDijkstra, @Nullable PathDataCache pathDataCache) {
 		this.multiNodeDijkstra = multiNodeDijkstra;
 		this.forward = !(multiNodeDijkstra instanceof BackwardFastMultiNodeDijkstra);
+		this.pathDataCache = pathDataCache;
 	}
 
 	public PathData[] calcPathDataArray(Link fromLink, List<Link> toLinks, double startTime) {
+		if (pathDataCache == null) {
+			return calcPathDataArrayWithoutCache(fromLink, toLinks, startTime);
+		}
+
+		int timeBin = pathDataCache.getTimeBin(startTime);
+		PathData[] pathDataArray = new PathData[toLinks.size()];
+		List<Link> missingToLinks = new ArrayList<>();
+		for (int i = 0; i < pathDataArray.length; i++) {
+			pathDataArray[i] = pathDataCache.get(fromLink, toLinks.get(i), forward, timeBin);
+			if (pathDataArray[i] == null) {
+				missingToLinks.add(toLinks.get(i));
+			}
+		}
+
+		if (!missingToLinks.isEmpty()) {
+			Map<Link, PathData> calculatedPathData = calcPathDataMapWithoutCache(fromLink, missingToLinks,
+					pathDataCache.getTimeBinStart(timeBin));
+			calculatedPathData.forEach(
+					(toLink, pathData) -> pathDataCache.put(fromLink, toLink, forward, timeBin, pathData));
+			for (int i = 0; i < pathDataArray.length; i++) {
+				if (pathDataArray[i] == null) {
+					pathDataArray[i] = calculatedPathData.get(toLinks.get(i));
+				}
+			}
+		}
+		return pathDataArray;
+	}
+
+	public Map<Link, PathData> calcPathDataMap(Link fromLink, Collection<Link> toLinks, double startTime) {
+		if (pathDataCache == null) {
+			return calcPathDataMapWithoutCache(fromLink, toLinks, startTime);
+		}
+
+		int timeBin = pathDataCache.getTimeBin(startTime);
+		Map<Link, PathData> pathDataMap = Maps.newHashMapWithExpectedSize(toLinks.size());
+		List<Link> missingToLinks = new ArrayList<>();
+		for (Link toLink : toLinks) {
+			PathData pathData = pathDataCache.get(fromLink, toLink, forward, timeBin);
+			if (pathData != null) {
+				pathDataMap.put(toLink, pathData);
+			} else {
+				missingToLinks.add(toLink);
+			}
+		}
+
+		if (!missingToLinks.isEmpty()) {
+			Map<Link, PathData> calculatedPathData = calcPathDataMapWithoutCache(fromLink, missingToLinks,
+					pathDataCache.getTimeBinStart(timeBin));
+			calculatedPathData.forEach(
+					(toLink, pathData) -> pathDataCache.put(fromLink, toLink, forward, timeBin, pathData));
+			pathDataMap.putAll(calculatedPathData);
+		}
+		return pathDataMap;
+	}
+
+	private PathData[] calcPathDataArrayWithoutCache(Link fromLink, List<Link> toLinks, double startTime) {
 		Node fromNode = getStartNode(fromLink);
 		Map<Id<Node>, ToNode> toNodes = createToNodes(fromLink, toLinks);
 		calculatePaths(fromNode, toNodes, startTime);
 		return createPathDataArray(fromLink, toLinks, startTime, toNodes);
 	}
 
-	public Map<Link, PathData> calcPathDataMap(Link fromLink, Collection<Link> toLinks, double startTime) {
+	private Map<Link, PathData> calcPathDataMapWithoutCache(Link fromLink, Collection<Link> toLinks,
+			double startTime) {
 		Node fromNode = getStartNode(fromLink);
 		Map<Id<Node>, ToNode> toNodes = createToNodes(fromLink, toLinks);
 		calculatePaths(fromNode, toNodes, startTime);
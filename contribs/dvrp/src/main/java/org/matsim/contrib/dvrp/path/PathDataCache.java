@@ -0,0 +1,173 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Link-to-link path data (paths and travel times) calculated by {@link OneToManyPathSearch}, shared by all threads of
+ * one DVRP mode. Path data is stored per start time bin, and the searches that use the cache calculate the paths for the
+ * beginning of the bin, so each entry is valid for the whole bin. Separate entries are kept for forward and backward
+ * searches (in backward searches, the time is the arrival time). The number of entries is bounded, and the least
+ * recently used entries are evicted first.
+ * <p>
+ * The paths depend on the travel disutility of the mode, so each mode must have its own cache (bound as a modal QSim
+ * component). Links are compared by identity.
+ * <p>
+ * The cache is cleared whenever the DVRP travel time estimates change: after each mobsim (when
+ * {@link org.matsim.contrib.dvrp.trafficmonitoring.DvrpOfflineTravelTimeEstimator} updates), and, if online travel
+ * time estimation is used ({@link org.matsim.contrib.dvrp.trafficmonitoring.DvrpOnlineTravelTimeEstimator}), every
+ * time the simulation enters the next time bin.
+ */
+public class PathDataCache implements MobsimBeforeSimStepListener, MobsimBeforeCleanupListener {
+	private static final Logger log = Logger.getLogger(PathDataCache.class);
+
+	private static final class Key {
+		private final Link fromLink;
+		private final Link toLink;
+		private final boolean forward;
+		private final int timeBin;
+
+		private Key(Link fromLink, Link toLink, boolean forward, int timeBin) {
+			this.fromLink = fromLink;
+			this.toLink = toLink;
+			this.forward = forward;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key)o;
+			return fromLink == key.fromLink && toLink == key.toLink && forward == key.forward
+					&& timeBin == key.timeBin;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = fromLink.getId().index();
+			hash = 31 * hash + toLink.getId().index();
+			hash = 31 * hash + timeBin;
+			return forward ? hash : ~hash;
+		}
+	}
+
+	private final String mode;
+	private final long maximumSize;
+	private final Cache<Key, PathData> cache;
+	private final int timeBinSize;
+	private final boolean onlineEstimation;
+	private final PathDataCacheStats pathDataCacheStats;
+
+	private int currentTimeBin = Integer.MIN_VALUE;
+	private CacheStats lastStats;
+
+	public PathDataCache(String mode, DvrpConfigGroup dvrpCfg, PathDataCacheStats pathDataCacheStats) {
+		this(mode, dvrpCfg.getPathDataCacheSize(), dvrpCfg.getPathDataCacheTimeBinSize(),
+				dvrpCfg.getTravelTimeEstimationBeta() > 0, pathDataCacheStats);
+	}
+
+	public PathDataCache(String mode, long maximumSize, int timeBinSize, boolean onlineEstimation,
+			PathDataCacheStats pathDataCacheStats) {
+		this.mode = mode;
+		this.maximumSize = maximumSize;
+		this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+		this.timeBinSize = timeBinSize;
+		this.onlineEstimation = onlineEstimation;
+		this.pathDataCacheStats = pathDataCacheStats;
+		this.lastStats = cache.stats();
+	}
+
+	/**
+	 * @return false if the maximum size is 0, i.e. nothing would be cached
+	 */
+	public boolean isEnabled() {
+		return maximumSize > 0;
+	}
+
+	int getTimeBin(double time) {
+		return (int)Math.floor(time / timeBinSize);
+	}
+
+	double getTimeBinStart(int timeBin) {
+		return (double)timeBin * timeBinSize;
+	}
+
+	PathData get(Link fromLink, Link toLink, boolean forward, int timeBin) {
+		return cache.getIfPresent(new Key(fromLink, toLink, forward, timeBin));
+	}
+
+	void put(Link fromLink, Link toLink, boolean forward, int timeBin, PathData pathData) {
+		cache.put(new Key(fromLink, toLink, forward, timeBin), pathData);
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return stats (hits, misses, evictions) accumulated since the creation of this cache
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+		if (onlineEstimation && isEnabled()) {
+			int timeBin = getTimeBin(e.getSimulationTime());
+			if (timeBin != currentTimeBin) {
+				currentTimeBin = timeBin;
+				invalidateAll();
+			}
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		CacheStats stats = cache.stats().minus(lastStats);
+		lastStats = cache.stats();
+		if (isEnabled()) {
+			pathDataCacheStats.updateStats(this);
+		}
+		if (stats.requestCount() > 0) {
+			log.info(String.format("PathDataCache (mode %s): hits=%d, misses=%d, hitRate=%.3f, evictions=%d", mode,
+					stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount()));
+		}
+		currentTimeBin = Integer.MIN_VALUE;
+		invalidateAll();
+	}
+}
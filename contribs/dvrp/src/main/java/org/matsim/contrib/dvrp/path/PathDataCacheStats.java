@@ -0,0 +1,56 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import java.io.PrintWriter;
+
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Same as {@link org.matsim.contrib.dvrp.router.LeastCostPathCalculatorCacheStats}, but for {@link PathDataCache}.
+ * There is one instance per DVRP mode, which collects the stats of the caches of all mobsims of the mode (a cache
+ * lives for one mobsim), see {@link PathDataCacheStatsWriter}.
+ */
+public class PathDataCacheStats {
+	private final SummaryStatistics hitStats = new SummaryStatistics();
+	private final SummaryStatistics missStats = new SummaryStatistics();
+	private final SummaryStatistics hitRateStats = new SummaryStatistics();
+
+	public void updateStats(PathDataCache pathDataCache) {
+		CacheStats stats = pathDataCache.getStats();
+		hitStats.addValue(stats.hitCount());
+		missStats.addValue(stats.missCount());
+		hitRateStats.addValue(stats.hitRate());
+	}
+
+	public static final String HEADER = "cfg\tHits\tMisses\tHitRate";
+
+	public void printStats(PrintWriter pw, String id) {
+		pw.printf("%10s\t%f\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean(), hitRateStats.getMean());
+	}
+
+	public void clearStats() {
+		hitStats.clear();
+		missStats.clear();
+		hitRateStats.clear();
+	}
+}
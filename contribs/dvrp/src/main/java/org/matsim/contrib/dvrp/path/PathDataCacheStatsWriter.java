@@ -0,0 +1,54 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import java.io.PrintWriter;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Writes the {@link PathDataCacheStats} of one DVRP mode (the mean over all iterations) at the end of the run.
+ */
+public class PathDataCacheStatsWriter implements ShutdownListener {
+	private static final String OUTPUT_FILE_NAME = "path_data_cache_stats.txt";
+
+	private final String mode;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final PathDataCacheStats pathDataCacheStats;
+
+	public PathDataCacheStatsWriter(String mode, OutputDirectoryHierarchy controlerIO,
+			PathDataCacheStats pathDataCacheStats) {
+		this.mode = mode;
+		this.controlerIO = controlerIO;
+		this.pathDataCacheStats = pathDataCacheStats;
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try (PrintWriter pw = new PrintWriter(
+				IOUtils.getBufferedWriter(controlerIO.getOutputFilename(mode + "_" + OUTPUT_FILE_NAME)))) {
+			pw.println(PathDataCacheStats.HEADER);
+			pathDataCacheStats.printStats(pw, mode);
+		}
+	}
+}
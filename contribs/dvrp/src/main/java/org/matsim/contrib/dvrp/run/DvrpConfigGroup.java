@@ -90,6 +90,19 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 			+ " whereas if 'time < currentTime' it is 1."
 			////
 			+ " If beta is sufficiently large, 'beta >> 0', only the currently observed TT is used.";
+	private static final String PATH_DATA_CACHE_SIZE = "pathDataCacheSize";
+	private static final String PATH_DATA_CACHE_SIZE_EXP =
+			"Maximum number of link-to-link path data entries kept in the path data cache of each DVRP mode."
+					+ " If the cache is full, the least recently used entries are evicted."
+					+ " 0 (default) means the path data is not cached."
+					+ " Used by the one-to-many path searches of DRT insertion (if insertion search is extensive).";
+
+	private static final String PATH_DATA_CACHE_TIME_BIN_SIZE = "pathDataCacheTimeBinSize";
+	private static final String PATH_DATA_CACHE_TIME_BIN_SIZE_EXP =
+			"Size [s] of the time bins of the path data cache. All paths starting within a bin are calculated"
+					+ " for the beginning of the bin. With online travel time estimation, the cache is cleared"
+					+ " at the beginning of each bin. Default is 900 s.";
+
 	// In DVRP 'time < currentTime' may only happen for backward path search, a adding proper search termination
 	// criterion should prevent this from happening
 
@@ -107,6 +120,12 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 	@PositiveOrZero
 	private double travelTimeEstimationBeta = 0; // [s], 0 ==> only offline TT estimation
 
+	@PositiveOrZero
+	private int pathDataCacheSize = 0; // 0 ==> no caching
+
+	@Positive
+	private int pathDataCacheTimeBinSize = 900; // [s]
+
 	public DvrpConfigGroup() {
 		super(GROUP_NAME);
 	}
@@ -141,6 +160,8 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 		map.put(MOBSIM_MODE, MOBSIM_MODE_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_ALPHA, TRAVEL_TIME_ESTIMATION_ALPHA_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_BETA, TRAVEL_TIME_ESTIMATION_BETA_EXP);
+		map.put(PATH_DATA_CACHE_SIZE, PATH_DATA_CACHE_SIZE_EXP);
+		map.put(PATH_DATA_CACHE_TIME_BIN_SIZE, PATH_DATA_CACHE_TIME_BIN_SIZE_EXP);
 		return map;
 	}
 
@@ -220,4 +241,38 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 		this.travelTimeEstimationBeta = travelTimeEstimationBeta;
 		return this;
 	}
+
+	/**
+	 * @return {@value #PATH_DATA_CACHE_SIZE_EXP}
+	 */
+	@StringGetter(PATH_DATA_CACHE_SIZE)
+	public int getPathDataCacheSize() {
+		return pathDataCacheSize;
+	}
+
+	/**
+	 * @param pathDataCacheSize {@value #PATH_DATA_CACHE_SIZE_EXP}
+	 */
+	@StringSetter(PATH_DATA_CACHE_SIZE)
+	public DvrpConfigGroup setPathDataCacheSize(int pathDataCacheSize) {
+		this.pathDataCacheSize = pathDataCacheSize;
+		return this;
+	}
+
+	/**
+	 * @return {@value #PATH_DATA_CACHE_TIME_BIN_SIZE_EXP}
+	 */
+	@StringGetter(PATH_DATA_CACHE_TIME_BIN_SIZE)
+	public int getPathDataCacheTimeBinSize() {
+		return pathDataCacheTimeBinSize;
+	}
+
+	/**
+	 * @param pathDataCacheTimeBinSize {@value #PATH_DATA_CACHE_TIME_BIN_SIZE_EXP}
+	 */
+	@StringSetter(PATH_DATA_CACHE_TIME_BIN_SIZE)
+	public DvrpConfigGroup setPathDataCacheTimeBinSize(int pathDataCacheTimeBinSize) {
+		this.pathDataCacheTimeBinSize = pathDataCacheTimeBinSize;
+		return this;
+	}
 }
@@ -0,0 +1,136 @@
+/*
+ * *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** *
+ */
+
+package org.matsim.contrib.dvrp.path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+public class PathDataCacheTest {
+	// links get slower after 900 s
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (
+			time < 900 ? 1 : 2);
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node n0 = node("0", 0);
+	private final Node n1 = node("1", 100);
+	private final Node n2 = node("2", 200);
+	private final Node n3 = node("3", 300);
+	private final Node n4 = node("4", 400);
+	private final Link a = link("a", n0, n1);
+	private final Link b = link("b", n1, n2);
+	private final Link c = link("c", n2, n3);
+	private final Link d = link("d", n3, n4);
+
+	private final PathDataCacheStats stats = new PathDataCacheStats();
+	private final PathDataCache cache = new PathDataCache("drt", 100, 900, false, stats);
+
+	@Test
+	public void calcPathDataMap_forward() {
+		OneToManyPathSearch search = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				cache);
+		OneToManyPathSearch reference = OneToManyPathSearch.createForwardSearch(network, travelTime,
+				travelDisutility);
+
+		// paths are calculated for the beginning of the time bin
+		Map<Link, PathData> pathData = search.calcPathDataMap(a, List.of(c, d), 100);
+		Map<Link, PathData> expected = reference.calcPathDataMap(a, List.of(c, d), 0);
+		assertThat(pathData.get(c).getTravelTime()).isEqualTo(expected.get(c).getTravelTime());
+		assertThat(pathData.get(d).getTravelTime()).isEqualTo(expected.get(d).getTravelTime());
+		assertThat(cache.getStats().missCount()).isEqualTo(2);
+
+		// same time bin
+		Map<Link, PathData> cachedPathData = search.calcPathDataMap(a, List.of(b, c, d), 800);
+		assertThat(cachedPathData.get(c)).isSameAs(pathData.get(c));
+		assertThat(cachedPathData.get(d)).isSameAs(pathData.get(d));
+		assertThat(cache.getStats().hitCount()).isEqualTo(2);
+		assertThat(cache.getStats().missCount()).isEqualTo(3);
+
+		// next time bin
+		PathData[] pathDataArray = search.calcPathDataArray(a, List.of(d), 1000);
+		assertThat(pathDataArray[0].getTravelTime()).isEqualTo(
+				reference.calcPathDataArray(a, List.of(d), 900)[0].getTravelTime());
+		assertThat(pathDataArray[0].getTravelTime()).isGreaterThan(pathData.get(d).getTravelTime());
+		assertThat(cache.getStats().missCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void calcPathDataMap_forwardAndBackward() {
+		OneToManyPathSearch forward = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				cache);
+		OneToManyPathSearch backward = OneToManyPathSearch.createBackwardSearch(network, travelTime,
+				travelDisutility, cache);
+
+		forward.calcPathDataMap(a, List.of(d), 0);
+		backward.calcPathDataMap(a, List.of(d), 0);// d->a, different from a->d
+		assertThat(cache.getStats().hitCount()).isEqualTo(0);
+		assertThat(cache.getStats().missCount()).isEqualTo(2);
+
+		backward.calcPathDataMap(a, List.of(d), 0);
+		assertThat(cache.getStats().hitCount()).isEqualTo(1);
+
+		cache.invalidateAll();
+		backward.calcPathDataMap(a, List.of(d), 0);
+		assertThat(cache.getStats().hitCount()).isEqualTo(1);
+		assertThat(cache.getStats().missCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void notifyMobsimBeforeCleanup_updatesStats() {
+		OneToManyPathSearch search = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				cache);
+		search.calcPathDataMap(a, List.of(d), 0);
+		search.calcPathDataMap(a, List.of(d), 0);
+		cache.notifyMobsimBeforeCleanup(null);
+
+		StringWriter writer = new StringWriter();
+		stats.printStats(new PrintWriter(writer), "drt");
+		assertThat(writer.toString()).isEqualTo(String.format("%10s\t%f\t%f\t%f\n", "drt", 1., 1., 0.5));
+		// the cache is cleared after each mobsim
+		assertThat(cache.get(a, d, true, 0)).isNull();
+	}
+
+	private Node node(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, 0));
+	}
+
+	private Link link(String id, Node from, Node to) {
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(id + "_back"), to, from, 100, 10, 1000, 1);
+		return link;
+	}
+}
@@ -74,6 +74,15 @@ final class ColdEmissionAnalysisModule {
 
 	private final Set<Pollutant> coldPollutants;
 
+	/**
+	 * Memorizes looked-up factors by vehicle, for each parking time, distance and pollutant.  There are no road types for
+	 * cold emissions, so every vehicle has one row.
+	 */
+	private final CompiledHbefaTable compiledTable;
+	private static final int N_PARKING_TIMES = 13;
+	private static final int N_DISTANCES = 2;
+	private static final int N_POLLUTANTS = Pollutant.values().length;
+
 	private int detailedReadingInfoCnt = 0;
 	private int detailedTransformToHbefa4Cnt = 0;
 	private int detailedFallbackTechAverageWarnCnt = 0;
@@ -82,6 +91,9 @@ final class ColdEmissionAnalysisModule {
 	private int vehInfoWarnHDVCnt = 0;
 	private static final int maxWarnCnt = 3;
 
+	/**
+	 * The tables must not be modified afterwards, since looked-up factors are memorized (see {@link CompiledHbefaTable}).
+	 */
 	/*package-private*/ ColdEmissionAnalysisModule( Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable,
 													Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable, EmissionsConfigGroup ecg,
 													Set<Pollutant> coldPollutants, EventsManager eventsManager ){
@@ -90,27 +102,34 @@ final class ColdEmissionAnalysisModule {
 		this.eventsManager = eventsManager;
 		this.ecg = ecg;
 		this.coldPollutants = coldPollutants;
+		this.compiledTable = new CompiledHbefaTable( N_PARKING_TIMES * N_DISTANCES * N_POLLUTANTS, Collections.emptyList() );
 	}
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWColdEmissions(
 			VehicleType vehicleType, Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId,
 			double eventTime, double parkingDuration, int distance_km) {
 
-		{
-			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
-			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
-			Gbl.assertNotNull( hbefaVehicleTypeDescription );
-		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
-		Gbl.assertNotNull( vehicleInformationTuple );
+		this.compiledTable.discardIfConfigChanged( this.ecg );
+		int vehicle = this.compiledTable.getVehicleIndex( vehicleType );
+		if ( vehicle < 0 ) {
+			{
+				String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
+				// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
+				Gbl.assertNotNull( hbefaVehicleTypeDescription );
+			}
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
+			Gbl.assertNotNull( vehicleInformationTuple );
 
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " +
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " +
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			// the vehicle information is checked only once per vehicle type:
+			vehicle = this.compiledTable.addVehicleType( vehicleType, vehicleInformationTuple );
 		}
 
-		Map<Pollutant, Double> coldEmissions = calculateColdEmissions( vehicleId, parkingDuration, vehicleInformationTuple, distance_km );
+		Map<Pollutant, Double> coldEmissions = calculateColdEmissions( vehicleId, parkingDuration, vehicle, distance_km );
 
 		throwColdEmissionEvent(vehicleId, coldEmissionEventLinkId, eventTime, coldEmissions);
 
@@ -123,8 +142,9 @@ final class ColdEmissionAnalysisModule {
 	}
 
 	private static int cnt =10;
-	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km ) {
+	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, int vehicle, int distance_km ) {
 
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = this.compiledTable.getVehicleInformation( vehicle );
 		final Map<Pollutant, Double> coldEmissionsOfEvent = new EnumMap<>( Pollutant.class );
 
 		logger.debug("VehId: " + vehicleId + " ; Tuple.first = " +vehicleInformationTuple.getFirst());
@@ -145,9 +165,7 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-		key.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
+		HbefaVehicleCategory lookupCategory = vehicleInformationTuple.getFirst();
 
 		//HBEFA 3 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
 		//HBEFA 4.1 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
@@ -155,7 +173,7 @@ final class ColdEmissionAnalysisModule {
 		//Mapping everything except "motorcycle" to "pass.car", since this was done in the last years for HGV.
 		//This may can be improved: What should be better set to LGV or zero???? kturner, may'20
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			lookupCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -165,7 +183,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.URBAN_BUS)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			lookupCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -175,7 +193,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.COACH)){
-			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			lookupCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -201,31 +219,47 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		if(this.detailedHbefaColdTable != null){
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-		}
-
 		int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
 		if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-		key.setHbefaParkingTime(parkingDuration_h);
+		// factors that were looked up before are memorized in the row of this vehicle:
+		double[] row = this.compiledTable.getRow( vehicle, 0 );
+		if ( row == null ) {
+			row = this.compiledTable.createRow( vehicle, 0 );
+		}
 
 		for ( Pollutant coldPollutant : coldPollutants) {
 			double generatedEmissions;
 			if (distance_km == 1) {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getColdEmissionFactor();
+				generatedEmissions = getEmissionsFactor(row, vehicleInformationTuple, lookupCategory, parkingDuration_h, 1, coldPollutant);
 			} else {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 2, key, coldPollutant).getColdEmissionFactor() - getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getColdEmissionFactor();
+				generatedEmissions = getEmissionsFactor(row, vehicleInformationTuple, lookupCategory, parkingDuration_h, 2, coldPollutant) - getEmissionsFactor(row, vehicleInformationTuple, lookupCategory, parkingDuration_h, 1, coldPollutant);
 			}
 			coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
 		}
 		return coldEmissionsOfEvent;
 	}
 
+	private double getEmissionsFactor(double[] row, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, HbefaVehicleCategory lookupCategory,
+									  int parkingDuration_h, int distance_km, Pollutant coldPollutant) {
+		int index = (((parkingDuration_h - 1) * N_DISTANCES) + (distance_km - 1)) * N_POLLUTANTS + coldPollutant.ordinal();
+		if ( Double.isNaN( row[index] ) ) {
+			// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+			HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+			key.setHbefaVehicleCategory( lookupCategory );
+			if(this.detailedHbefaColdTable != null){
+				HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+				hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+				hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+				hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+				key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+			}
+			key.setHbefaParkingTime(parkingDuration_h);
+			row[index] = getEmissionsFactor(vehicleInformationTuple, distance_km, key, coldPollutant).getColdEmissionFactor();
+		}
+		return row[index];
+	}
+
 	private HbefaColdEmissionFactor getEmissionsFactor(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey efkey, Pollutant coldPollutant) {
 
 		efkey.setHbefaDistance(distance_km);
@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions;
+
+import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
+import org.matsim.core.utils.collections.Tuple;
+import org.matsim.vehicles.VehicleType;
+
+import java.util.*;
+
+/**
+ * Dense integer indices for the vehicle types and road types looked up in the HBEFA tables, and one flat row of doubles
+ * per (vehicle, road type) combination.  The emission analysis modules lay out the remaining key dimensions (traffic
+ * situation, parking time, distance, pollutant) within a row and memorize the results of their table look-ups there,
+ * including all fallbacks.  After the first look-up of a combination, emission factors are thus read from a double
+ * array instead of building a factor key and looking it up in a map.
+ * <p>
+ * Vehicle types with the same HBEFA vehicle category and attributes share an index.  Rows are filled with
+ * {@link Double#NaN}, which marks entries that were not looked up yet.
+ * <p>
+ * Memorized values are only valid as long as the HBEFA tables do not change, so the tables must not be modified after
+ * the analysis modules were created ({@link EmissionModule} makes them unmodifiable after reading them).  The values
+ * also depend on the lookup behavior and on how vehicle types are mapped to HBEFA, so everything is discarded by
+ * {@link #discardIfConfigChanged(EmissionsConfigGroup)} if these were changed in the config in the meantime.
+ * <p>
+ * Not thread-safe, as the analysis modules themselves.
+ */
+final class CompiledHbefaTable {
+
+	private final int rowLength;
+
+	private final Map<VehicleType, Integer> vehicleTypeIndices = new IdentityHashMap<>();
+	private final Map<Tuple<HbefaVehicleCategory, HbefaVehicleAttributes>, Integer> vehicleIndices = new HashMap<>();
+	private final List<Tuple<HbefaVehicleCategory, HbefaVehicleAttributes>> vehicleInformation = new ArrayList<>();
+	private final Map<String, Integer> roadTypeIndices = new HashMap<>();
+
+	private double[][][] rows = new double[0][][];
+
+	private EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior;
+	private EmissionsConfigGroup.HbefaVehicleDescriptionSource vehicleDescriptionSource;
+
+	/**
+	 * @param rowLength the number of doubles per (vehicle, road type) combination
+	 * @param roadTypes the road types known at startup, usually those of the tables
+	 */
+	CompiledHbefaTable(int rowLength, Collection<String> roadTypes) {
+		this.rowLength = rowLength;
+		for (String roadType : roadTypes) {
+			getRoadTypeIndex(roadType);
+		}
+	}
+
+	/**
+	 * Discards all vehicle indices and rows if the lookup behavior or the vehicle description source of the config
+	 * differ from those the values were memorized with.  Road type indices are kept.
+	 */
+	void discardIfConfigChanged(EmissionsConfigGroup ecg) {
+		if (ecg.getDetailedVsAverageLookupBehavior() != this.lookupBehavior
+				|| ecg.getHbefaVehicleDescriptionSource() != this.vehicleDescriptionSource) {
+			this.vehicleTypeIndices.clear();
+			this.vehicleIndices.clear();
+			this.vehicleInformation.clear();
+			this.rows = new double[0][][];
+			this.lookupBehavior = ecg.getDetailedVsAverageLookupBehavior();
+			this.vehicleDescriptionSource = ecg.getHbefaVehicleDescriptionSource();
+		}
+	}
+
+	/**
+	 * @return the index of the vehicle type, or -1 if it was not added yet
+	 */
+	int getVehicleIndex(VehicleType vehicleType) {
+		Integer index = this.vehicleTypeIndices.get(vehicleType);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Adds a vehicle type whose vehicle information was checked by the caller.
+	 */
+	int addVehicleType(VehicleType vehicleType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+		Integer index = this.vehicleIndices.get(vehicleInformationTuple);
+		if (index == null) {
+			index = this.vehicleInformation.size();
+			this.vehicleIndices.put(vehicleInformationTuple, index);
+			this.vehicleInformation.add(vehicleInformationTuple);
+			this.rows = Arrays.copyOf(this.rows, index + 1);
+			this.rows[index] = new double[this.roadTypeIndices.size()][];
+		}
+		this.vehicleTypeIndices.put(vehicleType, index);
+		return index;
+	}
+
+	Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> getVehicleInformation(int vehicle) {
+		return this.vehicleInformation.get(vehicle);
+	}
+
+	int getRoadTypeIndex(String roadType) {
+		Integer index = this.roadTypeIndices.get(roadType);
+		if (index == null) {
+			index = this.roadTypeIndices.size();
+			this.roadTypeIndices.put(roadType, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the row of the vehicle and road type, or <code>null</code> if it was not created yet
+	 */
+	double[] getRow(int vehicle, int roadType) {
+		double[][] vehicleRows = this.rows[vehicle];
+		return roadType < vehicleRows.length ? vehicleRows[roadType] : null;
+	}
+
+	/**
+	 * @return a new row of the vehicle and road type, filled with {@link Double#NaN}
+	 */
+	double[] createRow(int vehicle, int roadType) {
+		double[][] vehicleRows = this.rows[vehicle];
+		if (roadType >= vehicleRows.length) {
+			vehicleRows = Arrays.copyOf(vehicleRows, Math.max(roadType + 1, this.roadTypeIndices.size()));
+			this.rows[vehicle] = vehicleRows;
+		}
+		double[] row = new double[this.rowLength];
+		Arrays.fill(row, Double.NaN);
+		vehicleRows[roadType] = row;
+		return row;
+	}
+
+}
@@ -30,6 +30,7 @@ import org.matsim.core.utils.io.IOUtils;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -171,6 +172,17 @@ public final class EmissionModule {
 		} else {
 			throw new RuntimeException("hbefaRoadTrafficSpeed table not created");		//Is table mandatory? -> If yes throw exception
 		}
+
+		// the analysis modules memorize their look-ups, so the tables must not be changed any more:
+		avgHbefaWarmTable = unmodifiable( avgHbefaWarmTable );
+		avgHbefaColdTable = unmodifiable( avgHbefaColdTable );
+		detailedHbefaWarmTable = unmodifiable( detailedHbefaWarmTable );
+		detailedHbefaColdTable = unmodifiable( detailedHbefaColdTable );
+		hbefaRoadTrafficSpeeds = unmodifiable( hbefaRoadTrafficSpeeds );
+	}
+
+	private static <K, V> Map<K, V> unmodifiable( Map<K, V> table ) {
+		return table == null ? null : Collections.unmodifiableMap( table );
 	}
 
 	private void createEmissionHandler() {
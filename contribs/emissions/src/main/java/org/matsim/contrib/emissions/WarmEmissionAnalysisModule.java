@@ -53,6 +53,14 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
 	private final Set<Pollutant> warmPollutants;
 
+	/**
+	 * Memorizes looked-up factors by (vehicle, road type).  A row holds the speeds of the traffic situations for the road
+	 * and vehicle category, followed by factor and speed for each traffic situation and pollutant.
+	 */
+	private final CompiledHbefaTable compiledTable;
+	private static final int N_TRAFFIC_SITUATIONS = HbefaTrafficSituation.values().length;
+	private static final int N_POLLUTANTS = Pollutant.values().length;
+
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup ecg;
 
@@ -79,6 +87,9 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 	private double saturatedKmCounter = 0.0;
 	private double stopGoKmCounter = 0.0;
 
+	/**
+	 * The tables must not be modified afterwards, since looked-up factors are memorized (see {@link CompiledHbefaTable}).
+	 */
 	public WarmEmissionAnalysisModule(
 			Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable,
 			Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable,
@@ -95,6 +106,16 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		Gbl.assertNotNull( eventsManager );
 		this.eventsManager = eventsManager;
 
+		Set<String> tableRoadCategories = new LinkedHashSet<>();
+		for( Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table : Arrays.asList( avgHbefaWarmTable, detailedHbefaWarmTable ) ){
+			if( table != null ){
+				for( HbefaWarmEmissionFactorKey key : table.keySet() ){
+					tableRoadCategories.add( key.getHbefaRoadCategory() );
+				}
+			}
+		}
+		this.compiledTable = new CompiledHbefaTable( N_TRAFFIC_SITUATIONS + 2 * N_TRAFFIC_SITUATIONS * N_POLLUTANTS, tableRoadCategories );
+
 		if ( detailedHbefaWarmTable!=null ){
 			// The following tests if the detailed table is consistent, i.e. if there exist all combinations of entries.  There used to be some test
 			// cases where this was deliberately not the case, implying that this was assumed as plausible also for studies.  This is now forbidding it.
@@ -197,24 +218,30 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions( VehicleType vehicleType, Id<Vehicle> vehicleId,
 																						  Link link, double travelTime ) {
-		{
-			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
-			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
-			Gbl.assertNotNull( hbefaVehicleTypeDescription );
-		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
-		Gbl.assertNotNull( vehicleInformationTuple );
+		this.compiledTable.discardIfConfigChanged( this.ecg );
+		int vehicle = this.compiledTable.getVehicleIndex( vehicleType );
+		if ( vehicle < 0 ) {
+			{
+				String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
+				// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
+				Gbl.assertNotNull( hbefaVehicleTypeDescription );
+			}
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = EmissionUtils.convertVehicleDescription2VehicleInformationTuple(vehicleType );
+			Gbl.assertNotNull( vehicleInformationTuple );
 
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " +
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicleType + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " +
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			// the vehicle information is checked only once per vehicle type:
+			vehicle = this.compiledTable.addVehicleType( vehicleType, vehicleInformationTuple );
 		}
 
 		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
 
 		Map<Pollutant, Double> warmEmissions
-				= calculateWarmEmissions( vehicleId, travelTime, EmissionUtils.getHbefaRoadType( link ), freeVelocity, link.getLength(), vehicleInformationTuple );
+				= calculateWarmEmissions( vehicleId, travelTime, EmissionUtils.getHbefaRoadType( link ), freeVelocity, link.getLength(), vehicle );
 
 		return warmEmissions;
 	}
@@ -222,8 +249,9 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	private static int cnt =10;
 	private Map<Pollutant, Double> calculateWarmEmissions( Id<Vehicle> vehicleId, double travelTime_sec, String roadType, double freeVelocity_ms,
-														   double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+														   double linkLength_m, int vehicle ) {
 
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = this.compiledTable.getVehicleInformation( vehicle );
 		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>( Pollutant.class );
 
 		// fallback vehicle types that we cannot or do not want to map onto a hbefa vehicle type:
@@ -243,19 +271,13 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			return warmEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-		efkey.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
-		efkey.setHbefaRoadCategory( roadType );
-		if(this.detailedHbefaWarmTable != null){
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+		// factors that were looked up before are memorized in the row of this vehicle and road type:
+		int roadTypeIndex = this.compiledTable.getRoadTypeIndex( roadType );
+		double[] row = this.compiledTable.getRow( vehicle, roadTypeIndex );
+		if ( row == null ) {
+			row = createRow( vehicle, roadTypeIndex, roadType, vehicleInformationTuple );
 		}
 
-
 		double averageSpeed_kmh = (linkLength_m / 1000) / (travelTime_sec / 3600);
 
 		// hedge against odd average speeds:
@@ -272,10 +294,10 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		}
 
 		// for the average speed method, the traffic situation is already known here:
+		HbefaTrafficSituation trafficSituation = null;
 		if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			final HbefaTrafficSituation trafficSituation = getTrafficSituation( efkey, averageSpeed_kmh, freeVelocity_ms * 3.6 );
+			trafficSituation = getTrafficSituation( row, roadType, vehicleInformationTuple, averageSpeed_kmh, freeVelocity_ms * 3.6 );
 //			logger.warn( "trafficSituation=" + trafficSituation );
-			efkey.setHbefaTrafficSituation( trafficSituation );
 		}
 
 		double fractionStopGo = 0;
@@ -284,28 +306,25 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		for ( Pollutant warmPollutant : warmPollutants) {
 			double generatedEmissions;
 
-			efkey.setHbefaComponent(warmPollutant);
-
 			double ef_gpkm;
 			if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
 
-				// compute faction.  This cannot be done earlier since efkey.component is needed.
-				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, vehicleInformationTuple, efkey );
+				// compute faction.  This cannot be done earlier since the pollutant is needed.
+				double stopGoSpeedFromTable_kmh = getEfSpeed( row, STOPANDGO, warmPollutant, roadType, vehicleInformationTuple );
+				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, stopGoSpeedFromTable_kmh );
 				logger.info("fractionStopGo is: " + fractionStopGo);
 
 				double efStopGo_gpkm = 0. ;
 				if ( fractionStopGo>0 ){
 					// compute emissions from stop-go fraction:
-					efkey.setHbefaTrafficSituation( STOPANDGO );
-					efStopGo_gpkm = getEf(vehicleInformationTuple, efkey ).getWarmEmissionFactor();
+					efStopGo_gpkm = getEfFactor( row, STOPANDGO, warmPollutant, roadType, vehicleInformationTuple );
 					logger.warn( "pollutant=" + warmPollutant + "; efStopGo=" + efStopGo_gpkm );
 				}
 
 				double efFreeFlow_gpkm = 0. ;
 				if ( fractionStopGo<1.){
 					// compute emissions for free-flow fraction:
-					efkey.setHbefaTrafficSituation( FREEFLOW );
-					efFreeFlow_gpkm = getEf(vehicleInformationTuple, efkey ).getWarmEmissionFactor();
+					efFreeFlow_gpkm = getEfFactor( row, FREEFLOW, warmPollutant, roadType, vehicleInformationTuple );
 					logger.warn( "pollutant=" + warmPollutant + "; efFreeFlow=" + efFreeFlow_gpkm );
 				}
 
@@ -314,7 +333,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 				ef_gpkm = (fractionFreeFlow * efFreeFlow_gpkm) + (fractionStopGo * efStopGo_gpkm);
 
 			} else if (ecg.getEmissionsComputationMethod() == AverageSpeed){
-				ef_gpkm = getEf(vehicleInformationTuple, efkey).getWarmEmissionFactor();
+				ef_gpkm = getEfFactor( row, trafficSituation, warmPollutant, roadType, vehicleInformationTuple );
 			} else {
 				throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 			}
@@ -329,7 +348,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			incrementCountersFractional( linkLength_m / 1000, fractionStopGo );
 		}
 		else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			incrementCountersAverage(efkey.getHbefaTrafficSituation(), linkLength_m / 1000 );
+			incrementCountersAverage(trafficSituation, linkLength_m / 1000 );
 		} else {
 			throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 		}
@@ -337,12 +356,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return warmEmissionsOfEvent;
 	}
 
-	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh,
-										Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
-										HbefaWarmEmissionFactorKey efkey) {
-
-		efkey.setHbefaTrafficSituation(STOPANDGO);
-		double stopGoSpeedFromTable_kmh = getEf(vehicleInformationTuple, efkey).getSpeed();
+	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh, double stopGoSpeedFromTable_kmh) {
 
 		double fractionStopGo;
 
@@ -357,6 +371,65 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return fractionStopGo;
 	}
 
+	/**
+	 * Creates the row of a vehicle and road type, with the speeds of the traffic situations from the road traffic speeds
+	 * table.  Factors are looked up later, when they are needed.
+	 */
+	private double[] createRow( int vehicle, int roadTypeIndex, String roadType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+		double[] row = this.compiledTable.createRow( vehicle, roadTypeIndex );
+		HbefaRoadVehicleCategoryKey roadTrafficKey = new HbefaRoadVehicleCategoryKey( createEfKey( roadType, vehicleInformationTuple ) );
+		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get( roadTrafficKey );
+		if ( trafficSpeeds != null ) {
+			for ( Map.Entry<HbefaTrafficSituation, Double> entry : trafficSpeeds.entrySet() ) {
+				row[entry.getKey().ordinal()] = entry.getValue();
+			}
+		}
+		return row;
+	}
+
+	private double getEfFactor( double[] row, HbefaTrafficSituation trafficSituation, Pollutant pollutant, String roadType,
+								Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+		int index = N_TRAFFIC_SITUATIONS + 2 * (trafficSituation.ordinal() * N_POLLUTANTS + pollutant.ordinal());
+		if ( Double.isNaN( row[index] ) ) {
+			lookUpEf( row, index, trafficSituation, pollutant, roadType, vehicleInformationTuple );
+		}
+		return row[index];
+	}
+
+	private double getEfSpeed( double[] row, HbefaTrafficSituation trafficSituation, Pollutant pollutant, String roadType,
+							   Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+		int index = N_TRAFFIC_SITUATIONS + 2 * (trafficSituation.ordinal() * N_POLLUTANTS + pollutant.ordinal());
+		if ( Double.isNaN( row[index] ) ) {
+			lookUpEf( row, index, trafficSituation, pollutant, roadType, vehicleInformationTuple );
+		}
+		return row[index + 1];
+	}
+
+	private void lookUpEf( double[] row, int index, HbefaTrafficSituation trafficSituation, Pollutant pollutant, String roadType,
+						   Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+		HbefaWarmEmissionFactorKey efkey = createEfKey( roadType, vehicleInformationTuple );
+		efkey.setHbefaTrafficSituation( trafficSituation );
+		efkey.setHbefaComponent( pollutant );
+		HbefaWarmEmissionFactor ef = getEf( vehicleInformationTuple, efkey );
+		row[index] = ef.getWarmEmissionFactor();
+		row[index + 1] = ef.getSpeed();
+	}
+
+	// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+	private HbefaWarmEmissionFactorKey createEfKey( String roadType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple ) {
+		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+		efkey.setHbefaVehicleCategory( vehicleInformationTuple.getFirst() );
+		efkey.setHbefaRoadCategory( roadType );
+		if(this.detailedHbefaWarmTable != null){
+			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+			efkey.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+		}
+		return efkey;
+	}
+
 	private HbefaWarmEmissionFactor getEf(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, HbefaWarmEmissionFactorKey efkey) {
 
 		switch (ecg.getDetailedVsAverageLookupBehavior()) {
@@ -541,25 +614,24 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 
 	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey roadTrafficKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(roadTrafficKey);
-
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
+	private HbefaTrafficSituation getTrafficSituation(double[] row, String roadType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+													  double averageSpeed_kmh, double freeFlowSpeed_kmh) {
+		// the speeds of the traffic situations are at the start of the row, NaN if not specified
+		double freeFlowSpeedFromTable = row[FREEFLOW.ordinal()];
+		if (Double.isNaN(freeFlowSpeedFromTable)) {
 			throw new RuntimeException("At least the FREEFLOW condition must be specifed for all emission factor keys. " +
-					"It was not found for " + efkey);
+					"It was not found for " + createEfKey(roadType, vehicleInformationTuple));
 		}
 
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
-		if (trafficSpeeds.containsKey(HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(HEAVY)) {
+		if (!Double.isNaN(row[HEAVY.ordinal()]) && averageSpeed_kmh <= row[HEAVY.ordinal()]) {
 			trafficSituation = HEAVY;
 		}
-		if (trafficSpeeds.containsKey(SATURATED) && averageSpeed_kmh <= trafficSpeeds.get(SATURATED)) {
+		if (!Double.isNaN(row[SATURATED.ordinal()]) && averageSpeed_kmh <= row[SATURATED.ordinal()]) {
 			trafficSituation = SATURATED;
 		}
-		if (trafficSpeeds.containsKey(STOPANDGO) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO)) {
-			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+		if (!Double.isNaN(row[STOPANDGO.ordinal()]) && averageSpeed_kmh <= row[STOPANDGO.ordinal()]) {
+			if (averageSpeed_kmh != freeFlowSpeedFromTable) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 				trafficSituation = STOPANDGO;
 			}
 		}
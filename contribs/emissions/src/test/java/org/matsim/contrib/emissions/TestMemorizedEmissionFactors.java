@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.EngineInformation;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The analysis modules memorize their table look-ups (see {@link CompiledHbefaTable}).  These tests check that
+ * repeated look-ups, including those that fall back to the technology average or to the average table, give the same
+ * emissions as the first look-up in a fresh module, i.e. as the look-up in the HBEFA tables themselves.
+ */
+public class TestMemorizedEmissionFactors {
+
+	private static final double[] travelTimes = { 21., 40., 100. };
+	private static final double[] parkingDurations = { 1., 5 * 3600., 20 * 3600. };
+	private static final int[] distances = { 1, 2 };
+
+	private final Link link = generateLink();
+	private final List<Vehicle> vehicles = List.of( generateVehicle( "dieselCarFullSpecified", "diesel", "PC-D-Euro-3" ),
+			generateVehicle( "dieselCarFallbackToTechnology", "diesel", "PC-D-Euro-3_NotInTable" ),
+			generateVehicle( "dieselCarFallbackToAverage", "diesel_NotInTable", "PC-D-Euro-3" ) );
+
+	@Test
+	public void testWarmRepeatedLookUps() {
+		EmissionModule emissionModule = setUpScenario( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable );
+
+		for ( int repetition = 0; repetition < 2; repetition++ ) {
+			for ( Vehicle vehicle : vehicles ) {
+				for ( double travelTime : travelTimes ) {
+					Map<Pollutant, Double> expected = setUpScenario( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable )
+							.getWarmEmissionAnalysisModule().checkVehicleInfoAndCalculateWarmEmissions( vehicle, link, travelTime );
+					Map<Pollutant, Double> actual = emissionModule.getWarmEmissionAnalysisModule().checkVehicleInfoAndCalculateWarmEmissions( vehicle, link, travelTime );
+					Assert.assertEquals( vehicle.getId() + ", travel time " + travelTime, expected, actual );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testColdRepeatedLookUps() {
+		EmissionModule emissionModule = setUpScenario( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable );
+
+		for ( int repetition = 0; repetition < 2; repetition++ ) {
+			for ( Vehicle vehicle : vehicles ) {
+				for ( double parkingDuration : parkingDurations ) {
+					for ( int distance : distances ) {
+						Map<Pollutant, Double> expected = setUpScenario( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable )
+								.getColdEmissionAnalysisModule().checkVehicleInfoAndCalculateWColdEmissions( vehicle.getType(), vehicle.getId(),
+										link.getId(), 0., parkingDuration, distance );
+						Map<Pollutant, Double> actual = emissionModule.getColdEmissionAnalysisModule().checkVehicleInfoAndCalculateWColdEmissions(
+								vehicle.getType(), vehicle.getId(), link.getId(), 0., parkingDuration, distance );
+						Assert.assertEquals( vehicle.getId() + ", parking duration " + parkingDuration + ", distance " + distance, expected, actual );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The memorized fallback must not be used any more once the lookup behavior does not allow the fallback.
+	 */
+	@Test(expected = RuntimeException.class)
+	public void testWarmLookUpBehaviorChangedAfterLookUp() {
+		Config config = createConfig( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable );
+		EmissionModule emissionModule = setUpScenario( config );
+		Vehicle vehicle = vehicles.get( 2 );
+		emissionModule.getWarmEmissionAnalysisModule().checkVehicleInfoAndCalculateWarmEmissions( vehicle, link, travelTimes[0] );
+
+		ConfigUtils.addOrGetModule( config, EmissionsConfigGroup.class )
+				.setDetailedVsAverageLookupBehavior( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.onlyTryDetailedElseAbort );
+		emissionModule.getWarmEmissionAnalysisModule().checkVehicleInfoAndCalculateWarmEmissions( vehicle, link, travelTimes[0] );
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testColdLookUpBehaviorChangedAfterLookUp() {
+		Config config = createConfig( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.tryDetailedThenTechnologyAverageThenAverageTable );
+		EmissionModule emissionModule = setUpScenario( config );
+		Vehicle vehicle = vehicles.get( 2 );
+		emissionModule.getColdEmissionAnalysisModule().checkVehicleInfoAndCalculateWColdEmissions( vehicle.getType(), vehicle.getId(),
+				link.getId(), 0., parkingDurations[0], distances[0] );
+
+		ConfigUtils.addOrGetModule( config, EmissionsConfigGroup.class )
+				.setDetailedVsAverageLookupBehavior( EmissionsConfigGroup.DetailedVsAverageLookupBehavior.onlyTryDetailedElseAbort );
+		emissionModule.getColdEmissionAnalysisModule().checkVehicleInfoAndCalculateWColdEmissions( vehicle.getType(), vehicle.getId(),
+				link.getId(), 0., parkingDurations[0], distances[0] );
+	}
+
+	private EmissionModule setUpScenario( EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior ) {
+		return setUpScenario( createConfig( lookupBehavior ) );
+	}
+
+	private EmissionModule setUpScenario( Config config ) {
+		Scenario scenario = ScenarioUtils.loadScenario( config );
+		return new EmissionModule( scenario, new HandlerToTestEmissionAnalysisModules() );
+	}
+
+	private Config createConfig( EmissionsConfigGroup.DetailedVsAverageLookupBehavior lookupBehavior ) {
+		Config config = ConfigUtils.createConfig();
+		EmissionsConfigGroup emissionsConfig = ConfigUtils.addOrGetModule( config, EmissionsConfigGroup.class );
+		emissionsConfig.setDetailedVsAverageLookupBehavior( lookupBehavior );
+		emissionsConfig.setHbefaRoadTypeSource( EmissionsConfigGroup.HbefaRoadTypeSource.fromLinkAttributes );
+		emissionsConfig.setAverageColdEmissionFactorsFile( "./scenarios/sampleScenario/sample_41_EFA_ColdStart_vehcat_2020average.txt" );
+		emissionsConfig.setDetailedColdEmissionFactorsFile( "./scenarios/sampleScenario/sample_41_EFA_ColdStart_SubSegm_2020detailed.txt" );
+		emissionsConfig.setAverageWarmEmissionFactorsFile( "./scenarios/sampleScenario/sample_41_EFA_HOT_vehcat_2020average.txt" );
+		emissionsConfig.setDetailedWarmEmissionFactorsFile( "./scenarios/sampleScenario/sample_41_EFA_HOT_SubSegm_2020detailed.txt" );
+		return config;
+	}
+
+	private Link generateLink() {
+		Link link = TestWarmEmissionAnalysisModule.createMockLink( "link1", 200, 9.72 );
+		EmissionUtils.setHbefaRoadType( link, "URB/Local/50" );
+		return link;
+	}
+
+	private Vehicle generateVehicle( String id, String technology, String emissionsConcept ) {
+		VehicleType vehicleType = VehicleUtils.createVehicleType( Id.create( id, VehicleType.class ) );
+		EngineInformation engineInformation = vehicleType.getEngineInformation();
+		VehicleUtils.setHbefaVehicleCategory( engineInformation, "PASSENGER_CAR" );
+		VehicleUtils.setHbefaTechnology( engineInformation, technology );
+		VehicleUtils.setHbefaEmissionsConcept( engineInformation, emissionsConcept );
+		VehicleUtils.setHbefaSizeClass( engineInformation, ">1,4L" );
+
+		return VehicleUtils.createVehicle( Id.createVehicleId( id ), vehicleType );
+	}
+
+}
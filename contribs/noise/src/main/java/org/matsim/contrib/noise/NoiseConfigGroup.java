@@ -87,6 +87,7 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	private static final String NOISE_BARRIERS_SOURCE_CRS = "source coordinate reference system of noise barriers geojson file";
 	private static final String NETWORK_MODES_TO_IGNORE = "networkModesToIgnore";
 	private static final String NOISE_COMPUTATION_METHOD = "noiseComputationMethod";
+	private static final String RECEIVER_POINT_PROCESSING = "receiverPointProcessing";
 
 	public NoiseConfigGroup() {
 		super(GROUP_NAME);
@@ -149,6 +150,12 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
     }
 
     private NoiseComputationMethod noiseComputationMethod = NoiseComputationMethod.RLS90;
+
+    public enum ReceiverPointProcessing {
+        ParallelStream, TimeSlicedChunks
+    }
+
+    private ReceiverPointProcessing receiverPointProcessing = ReceiverPointProcessing.ParallelStream;
     
     // ########################################################################################################
 	
@@ -206,6 +213,10 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
         comments.put(NETWORK_MODES_TO_IGNORE, "Specifies the network modes to be excluded from the noise computation, e.g. 'bike'.");
 
         comments.put(NOISE_COMPUTATION_METHOD, "Specifies the computation method of different guidelines: " + Arrays.toString(NoiseComputationMethod.values()));
+        comments.put(RECEIVER_POINT_PROCESSING, "Specifies how immissions, affected agent units and damages are computed for the receiver points in each time bin: "
+                + "'ParallelStream' processes the receiver points one by one in a parallel stream; "
+                + "'TimeSlicedChunks' processes them in chunks on global.numberOfThreads threads, using receiver point to link correction tables "
+                + "and link emissions in primitive arrays (faster for many receiver points). Both give the same results.");
 
 		return comments;
 	}
@@ -773,4 +784,14 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	public void setNoiseComputationMethod(NoiseComputationMethod noiseComputationMethod) {
 		this.noiseComputationMethod = noiseComputationMethod;
 	}
+
+	@StringGetter(RECEIVER_POINT_PROCESSING)
+	public ReceiverPointProcessing getReceiverPointProcessing() {
+		return this.receiverPointProcessing;
+	}
+
+	@StringSetter(RECEIVER_POINT_PROCESSING)
+	public void setReceiverPointProcessing(ReceiverPointProcessing receiverPointProcessing) {
+		this.receiverPointProcessing = receiverPointProcessing;
+	}
 }
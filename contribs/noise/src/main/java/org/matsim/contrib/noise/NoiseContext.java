@@ -25,6 +25,13 @@ public interface NoiseContext {
 
     Map<Id<Link>, NoiseLink> getNoiseLinks();
 
+    /**
+     * Removes the noise links of the current time bin, without touching those stored by {@link #storeTimeInterval()}.
+     */
+    default void clearNoiseLinks() {
+        getNoiseLinks().clear();
+    }
+
     Map<Double, Map<Id<Link>, NoiseLink>> getTimeInterval2linkId2noiseLinks();
 
     void setEventTime(double time);
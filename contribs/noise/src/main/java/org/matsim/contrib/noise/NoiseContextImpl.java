@@ -78,7 +78,8 @@ final class NoiseContextImpl implements NoiseContext {
 	// time interval specific information
 	
 	private double currentTimeBinEndTime;
-	private final Map<Id<Link>, NoiseLink> noiseLinks;
+	private Map<Id<Link>, NoiseLink> noiseLinks;
+	private boolean noiseLinksStored = false;
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
@@ -167,11 +168,11 @@ final class NoiseContextImpl implements NoiseContext {
 	@Override
 	public final void storeTimeInterval() {
 
-		Map<Id<Link>, NoiseLink> noiseLinksThisTimeBinCopy = new HashMap<>(this.noiseLinks);
-
+		// no copy: the map is handed over and replaced by a new one when the noise links are cleared
 		double currentTimeIntervalCopy = this.currentTimeBinEndTime;
 
-		this.timeInterval2linkId2noiseLinks.put(currentTimeIntervalCopy, noiseLinksThisTimeBinCopy);
+		this.timeInterval2linkId2noiseLinks.put(currentTimeIntervalCopy, this.noiseLinks);
+		this.noiseLinksStored = true;
 	}
 
 	private void checkConsistency() {
@@ -329,6 +330,16 @@ final class NoiseContextImpl implements NoiseContext {
 		return noiseLinks;
 	}
 
+	@Override
+	public final void clearNoiseLinks() {
+		if (this.noiseLinksStored) {
+			this.noiseLinks = new HashMap<>(this.noiseLinks.size());
+			this.noiseLinksStored = false;
+		} else {
+			this.noiseLinks.clear();
+		}
+	}
+
 	@Override
 	public final Map<Double, Map<Id<Link>, NoiseLink>> getTimeInterval2linkId2noiseLinks() {
 		return timeInterval2linkId2noiseLinks;
@@ -376,7 +387,7 @@ final class NoiseContextImpl implements NoiseContext {
 
 	@Override
 	public void reset() {
-		this.getNoiseLinks().clear();
+		this.clearNoiseLinks();
 		this.getTimeInterval2linkId2noiseLinks().clear();
 		this.getLinkId2vehicleId2lastEnterTime().clear();
 		this.setCurrentTimeBinEndTime(this.getNoiseParams().getTimeBinSizeNoiseComputation());
@@ -10,6 +10,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class NoiseDamageCalculation {
@@ -40,7 +41,7 @@ public class NoiseDamageCalculation {
     @Inject
     private Set<NoiseVehicleType> vehicleTypes;
 
-    private int cWarn3 = 0;
+    private final AtomicInteger cWarn3 = new AtomicInteger();
     private int cWarn4 = 0;
 
     private List<NoiseEventCaused> noiseEventsCaused = new ArrayList<>();
@@ -73,6 +74,43 @@ public class NoiseDamageCalculation {
         }
     }
 
+    /**
+     * Array-based variant of {@link #calculateDamages(NoiseReceiverPoint)} used by {@link TimeSlicedReceiverPointProcessing},
+     * which does not store the isolated immissions in the receiver point.
+     *
+     * @param links the noise links of the relevant (non-tunnel) links of the receiver point
+     * @param isolatedImmissions the isolated immission of each link
+     * @param types the vehicle types, in the order of the first index of <code>isolatedImmissionsPlusOneVehicle</code>
+     * @param isolatedImmissionsPlusOneVehicle the isolated immission plus one vehicle by vehicle type and link
+     */
+    void calculateDamages(NoiseReceiverPoint rp, int linkCount, NoiseLink[] links, double[] isolatedImmissions,
+                          NoiseVehicleType[] types, double[][] isolatedImmissionsPlusOneVehicle) {
+        if (this.noiseContext.getNoiseParams().isComputePopulationUnits()) {
+            calculateAffectedAgentUnits(rp);
+            if (this.noiseContext.getNoiseParams().isComputeNoiseDamages()) {
+                calculateDamagePerReceiverPoint(rp);
+            }
+            if (this.noiseContext.getNoiseParams().isComputeCausingAgents()) {
+                if (rp.getDamageCosts() != 0.) {
+                    for (int i = 0; i < linkCount; i++) {
+                        if (!(isolatedImmissions[i] == 0.)) {
+                            double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(isolatedImmissions[i], rp.getCurrentImmission());
+                            links[i].addDamageCost(costShare * rp.getDamageCosts());
+                        }
+                    }
+                }
+                if (rp.getAffectedAgentUnits() != 0.) {
+                    for (int t = 0; t < types.length; t++) {
+                        for (int i = 0; i < linkCount; i++) {
+                            double marginalDamageCost = calculateMarginalDamageCost(rp, links[i].getId(), isolatedImmissions[i], isolatedImmissionsPlusOneVehicle[t][i]);
+                            links[i].addMarginalDamageCostPerVehicle(types[t], marginalDamageCost);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void calculateAffectedAgentUnits(NoiseReceiverPoint rp) {
 
         double affectedAgentUnits = 0.;
@@ -292,25 +330,7 @@ public class NoiseDamageCalculation {
                 for (Id<Link> thisLink : rp.getLinkId2IsolatedImmission().keySet()) {
                     final double isolatedPlusOne = link2ImmissionPlusOne.get(thisLink);
                     final double isolated = rp.getLinkId2IsolatedImmission().get(thisLink);
-                    double noiseImmissionPlusOneVehicleThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getCurrentImmission(), isolated, isolatedPlusOne);
-                    double damageCostsPlusOneVehicleThisLink = calculateDamageCosts(noiseImmissionPlusOneVehicleThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-                    double marginalDamageCostVehicleThisLink = (damageCostsPlusOneVehicleThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-
-                    if (marginalDamageCostVehicleThisLink < 0.0) {
-                        if (Math.abs(marginalDamageCostVehicleThisLink) < 0.0000000001) {
-                            marginalDamageCostVehicleThisLink = 0.;
-                        } else {
-                            if (cWarn3 == 0) {
-                                log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostVehicleThisLink + ".");
-                                log.warn("final immission: " + rp.getCurrentImmission() + " - immission plus one car " + noiseImmissionPlusOneVehicleThisLink + " - marginal damage cost car: " + marginalDamageCostVehicleThisLink);
-                                log.warn("Setting the marginal damage cost per car to 0.");
-                                log.warn("This message is only given once.");
-                                cWarn3++;
-                            }
-
-                            marginalDamageCostVehicleThisLink = 0.;
-                        }
-                    }
+                    double marginalDamageCostVehicleThisLink = calculateMarginalDamageCost(rp, thisLink, isolated, isolatedPlusOne);
                     NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(thisLink);
                     noiseLink.addMarginalDamageCostPerVehicle(type, marginalDamageCostVehicleThisLink);
                 }
@@ -318,6 +338,28 @@ public class NoiseDamageCalculation {
         }
     }
 
+    private double calculateMarginalDamageCost(NoiseReceiverPoint rp, Id<Link> thisLink, double isolated, double isolatedPlusOne) {
+        double noiseImmissionPlusOneVehicleThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getCurrentImmission(), isolated, isolatedPlusOne);
+        double damageCostsPlusOneVehicleThisLink = calculateDamageCosts(noiseImmissionPlusOneVehicleThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+        double marginalDamageCostVehicleThisLink = (damageCostsPlusOneVehicleThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+
+        if (marginalDamageCostVehicleThisLink < 0.0) {
+            if (Math.abs(marginalDamageCostVehicleThisLink) < 0.0000000001) {
+                marginalDamageCostVehicleThisLink = 0.;
+            } else {
+                if (cWarn3.compareAndSet(0, 1)) {
+                    log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostVehicleThisLink + ".");
+                    log.warn("final immission: " + rp.getCurrentImmission() + " - immission plus one car " + noiseImmissionPlusOneVehicleThisLink + " - marginal damage cost car: " + marginalDamageCostVehicleThisLink);
+                    log.warn("Setting the marginal damage cost per car to 0.");
+                    log.warn("This message is only given once.");
+                }
+
+                marginalDamageCostVehicleThisLink = 0.;
+            }
+        }
+        return marginalDamageCostVehicleThisLink;
+    }
+
     private void throwNoiseEventsCaused() {
         double eventTime = this.noiseContext.getEventTime();
         double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
@@ -17,6 +17,27 @@ public interface NoiseImmission {
      */
     void calculateImmission(NoiseReceiverPoint rp, double currentTimeBinEndTime);
 
+    /**
+     * Array-based variant of {@link #calculateImmission(NoiseReceiverPoint, double)} used by
+     * {@link TimeSlicedReceiverPointProcessing}. Computes the isolated immission of each of the first
+     * <code>linkCount</code> links of a receiver point and returns the resulting immission.
+     * @param linkCount The number of (non-tunnel) relevant links of the receiver point.
+     * @param emissions The emission of each link in dB(A).
+     * @param corrections The correction term of each link, see {@link #calculateCorrection}.
+     * @param isolatedImmissions Output: the isolated immission of each link in dB(A).
+     * @return the resulting immission in dB(A)
+     */
+    double calculateImmission(int linkCount, double[] emissions, double[] corrections, double[] isolatedImmissions);
+
+    /**
+     * Returns the isolated immission of a link at a receiver point if there was one more vehicle of some type on the link.
+     * @param emission The emission of the link in dB(A).
+     * @param emissionPlusOneVehicle The emission of the link with one more vehicle in dB(A).
+     * @param correction The correction term of the link-receiver point relation.
+     * @return the isolated immission plus one vehicle in dB(A), not yet truncated at 0
+     */
+    double calculateIsolatedLinkImmissionPlusOneVehicle(double emission, double emissionPlusOneVehicle, double correction);
+
     /**
      * Returns the correction term for a given link-receiver point relation.
      * @param projectedDistance The orthogonal projected distance from receiver point to link.
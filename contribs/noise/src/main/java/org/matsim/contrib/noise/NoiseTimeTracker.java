@@ -70,6 +70,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	private final NoiseDamageCalculation damageCalculation;
     private final NoiseVehicleIdentifier vehicleIdentifier;
 	private final Set<NoiseVehicleType> vehicleTypes;
+	private final TimeSlicedReceiverPointProcessing timeSlicedProcessing;
 	private String networkModesToIgnore;
 
 	@Inject
@@ -84,6 +85,11 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		this.vehicleTypes = vehicleTypes;
 		networkModesToIgnore = this.noiseContext.getNoiseParams().getNetworkModesToIgnore();
 		setRelevantLinkInfo();
+		if (this.noiseContext.getNoiseParams().getReceiverPointProcessing() == NoiseConfigGroup.ReceiverPointProcessing.TimeSlicedChunks) {
+			this.timeSlicedProcessing = new TimeSlicedReceiverPointProcessing(context, immissionModule, damageCalculation, vehicleTypes);
+		} else {
+			this.timeSlicedProcessing = null;
+		}
 	}
 
 	private void setRelevantLinkInfo() {
@@ -139,7 +145,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	}
 	
 	private void resetCurrentTimeIntervalInfo() {
-		this.noiseContext.getNoiseLinks().clear();
+		this.noiseContext.clearNoiseLinks();
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
 			rp.resetTimeInterval();
 		}
@@ -244,17 +250,21 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	 * Immissions and damages
 	 */
 	private void calculateNoiseImmissionsAndDamages() {
-		Counter cnt = new Counter("process noise receiver point # ");
-		this.noiseContext.getReceiverPoints().values().parallelStream().forEach( rp -> {
-			immissionModule.calculateImmission(rp, this.noiseContext.getCurrentTimeBinEndTime());
-			damageCalculation.calculateDamages(rp);
-            cnt.incCounter();
-
-            //free up memory
-            rp.setLinkId2IsolatedImmission(null);
-            rp.setLinkId2IsolatedImmissionPlusOneVehicle(null);
-		});
-		cnt.printCounter();
+		if (this.timeSlicedProcessing != null) {
+			this.timeSlicedProcessing.processTimeBin();
+		} else {
+			Counter cnt = new Counter("process noise receiver point # ");
+			this.noiseContext.getReceiverPoints().values().parallelStream().forEach( rp -> {
+				immissionModule.calculateImmission(rp, this.noiseContext.getCurrentTimeBinEndTime());
+				damageCalculation.calculateDamages(rp);
+				cnt.incCounter();
+
+				//free up memory
+				rp.setLinkId2IsolatedImmission(null);
+				rp.setLinkId2IsolatedImmissionPlusOneVehicle(null);
+			});
+			cnt.printCounter();
+		}
 		log.info("Done processing receiver points.");
 		damageCalculation.finishNoiseDamageCosts();
 	}
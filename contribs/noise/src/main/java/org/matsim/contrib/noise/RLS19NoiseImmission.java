@@ -169,9 +169,28 @@ public class RLS19NoiseImmission implements NoiseImmission {
     }
 
 
+    @Override
+    public double calculateImmission(int linkCount, double[] emissions, double[] corrections, double[] isolatedImmissions) {
+        double sumTmp = 0.;
+        for (int i = 0; i < linkCount; i++) {
+            double noiseImmission = calculateLinkImmission(emissions[i], corrections[i]);
+            if (noiseImmission > 0) {
+                isolatedImmissions[i] = 10 * Math.log10(noiseImmission);
+                sumTmp += noiseImmission;
+            } else {
+                isolatedImmissions[i] = 0;
+            }
+        }
+        return sumTmp > 0 ? 10 * Math.log10(sumTmp) : 0.;
+    }
+
     private double calculateLinkImmission(NoiseReceiverPoint rp, NoiseLink noiseLink) {
-        if (!(noiseLink.getEmission() == 0.)) {
-            double noiseImmission = Math.pow(10, 0.1 * noiseLink.getEmission()) * rp.getLinkCorrection(noiseLink.getId());
+        return calculateLinkImmission(noiseLink.getEmission(), rp.getLinkCorrection(noiseLink.getId()));
+    }
+
+    private static double calculateLinkImmission(double emission, double correction) {
+        if (!(emission == 0.)) {
+            double noiseImmission = Math.pow(10, 0.1 * emission) * correction;
             if (noiseImmission < 0.) {
                 noiseImmission = 0.;
             }
@@ -182,8 +201,14 @@ public class RLS19NoiseImmission implements NoiseImmission {
     }
 
     private double calculateIsolatedLinkImmissionPlusOneVehicle(NoiseReceiverPoint rp, NoiseLink noiseLink, NoiseVehicleType type) {
-        if (!(noiseLink.getEmission() == 0.)) {
-            double noiseImmission = 10 * Math.log10(Math.pow(10, 0.1 * noiseLink.getEmissionPlusOneVehicle(type)) * rp.getLinkCorrection(noiseLink.getId()));
+        return calculateIsolatedLinkImmissionPlusOneVehicle(noiseLink.getEmission(), noiseLink.getEmissionPlusOneVehicle(type),
+                rp.getLinkCorrection(noiseLink.getId()));
+    }
+
+    @Override
+    public double calculateIsolatedLinkImmissionPlusOneVehicle(double emission, double emissionPlusOneVehicle, double correction) {
+        if (!(emission == 0.)) {
+            double noiseImmission = 10 * Math.log10(Math.pow(10, 0.1 * emissionPlusOneVehicle) * correction);
 
             if (noiseImmission < 0.) {
                 noiseImmission = 0.;
@@ -77,13 +77,27 @@ class RLS90NoiseImmission implements NoiseImmission {
 
     }
 
-    private double calculateIsolatedLinkImmission(NoiseReceiverPoint rp, NoiseLink noiseLink) {
+    @Override
+    public double calculateImmission(int linkCount, double[] emissions, double[] corrections, double[] isolatedImmissions) {
+        double sumTmp = 0.;
+        for (int i = 0; i < linkCount; i++) {
+            double noiseImmission = calculateIsolatedLinkImmission(emissions[i], corrections[i]);
+            isolatedImmissions[i] = noiseImmission;
+            if (noiseImmission > 0.) {
+                sumTmp += (Math.pow(10, (0.1 * noiseImmission)));
+            }
+        }
+        return sumTmp > 0 ? 10 * Math.log10(sumTmp) : 0.;
+    }
 
-        double correction = rp.getLinkCorrection(noiseLink.getId());
+    private double calculateIsolatedLinkImmission(NoiseReceiverPoint rp, NoiseLink noiseLink) {
+        return calculateIsolatedLinkImmission(noiseLink.getEmission(), rp.getLinkCorrection(noiseLink.getId()));
+    }
 
+    private static double calculateIsolatedLinkImmission(double emission, double correction) {
         double noiseImmission = 0.;
-        if (!(noiseLink.getEmission() == 0.)) {
-            noiseImmission = noiseLink.getEmission() + correction;
+        if (!(emission == 0.)) {
+            noiseImmission = emission + correction;
             if (noiseImmission < 0.) {
                 noiseImmission = 0.;
             }
@@ -111,11 +125,15 @@ class RLS90NoiseImmission implements NoiseImmission {
 
 
     private double calculateIsolatedLinkImmissionPlusOneVehicle(NoiseReceiverPoint rp, NoiseLink noiseLink, NoiseVehicleType type) {
+        return calculateIsolatedLinkImmissionPlusOneVehicle(noiseLink.getEmission(), noiseLink.getEmissionPlusOneVehicle(type),
+                rp.getLinkCorrection(noiseLink.getId()));
+    }
+
+    @Override
+    public double calculateIsolatedLinkImmissionPlusOneVehicle(double emission, double emissionPlusOneVehicle, double correction) {
         double plusOne = 0;
-        if (!(noiseLink.getEmissionPlusOneVehicle(type) == 0.)) {
-            double correction = rp.getLinkCorrection(noiseLink.getId());
-            plusOne = noiseLink.getEmissionPlusOneVehicle(type)
-                    + correction;
+        if (!(emissionPlusOneVehicle == 0.)) {
+            plusOne = emissionPlusOneVehicle + correction;
         }
         return plusOne;
     }
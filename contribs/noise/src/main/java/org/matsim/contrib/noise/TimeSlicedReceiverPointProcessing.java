@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.misc.Counter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes noise immissions, affected agent units and damages of all receiver points for a time bin, in chunks of
+ * receiver points on a fixed number of threads.
+ * <p>
+ * The relevant links and correction terms of the receiver points are compiled once into primitive arrays, indexed by
+ * {@link Id#index()} of the links. For each time bin, the emissions of the links are copied into arrays as well, so
+ * that the receiver points are processed without map look-ups and without storing maps of isolated immissions in the
+ * receiver points. The results are the same as with {@link NoiseImmission#calculateImmission(NoiseReceiverPoint, double)}
+ * and {@link NoiseDamageCalculation#calculateDamages(NoiseReceiverPoint)}.
+ *
+ * @see NoiseConfigGroup.ReceiverPointProcessing#TimeSlicedChunks
+ */
+final class TimeSlicedReceiverPointProcessing {
+
+	private static final Logger log = Logger.getLogger(TimeSlicedReceiverPointProcessing.class);
+
+	private static final int CHUNK_SIZE = 256;
+
+	private final NoiseContext noiseContext;
+	private final NoiseImmission immissionModule;
+	private final NoiseDamageCalculation damageCalculation;
+	private final NoiseVehicleType[] vehicleTypes;
+	private final int numberOfThreads;
+
+	// receiver point to link tables, compiled once
+	private NoiseReceiverPoint[] receiverPoints = null;
+	private int[][] linkIndices;
+	private double[][] corrections;
+	private int maxLinkCount;
+
+	// link information of the current time bin, by link index
+	private NoiseLink[] noiseLinks;
+	private double[] emissions;
+	private double[][] emissionsPlusOneVehicle;
+
+	TimeSlicedReceiverPointProcessing(NoiseContext noiseContext, NoiseImmission immissionModule,
+									  NoiseDamageCalculation damageCalculation, Set<NoiseVehicleType> vehicleTypes) {
+		this.noiseContext = noiseContext;
+		this.immissionModule = immissionModule;
+		this.damageCalculation = damageCalculation;
+		this.vehicleTypes = vehicleTypes.toArray(new NoiseVehicleType[0]);
+		this.numberOfThreads = Math.max(1, noiseContext.getScenario().getConfig().global().getNumberOfThreads());
+		log.info("Processing the receiver points in chunks of " + CHUNK_SIZE + " on " + numberOfThreads + " threads.");
+	}
+
+	/**
+	 * Must be called after the emissions of the current time bin are computed.
+	 */
+	void processTimeBin() {
+		if (this.receiverPoints == null) {
+			compileTables();
+		}
+		fillLinkArrays();
+
+		Counter cnt = new Counter("process noise receiver point # ");
+		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		List<Callable<Void>> chunks = new ArrayList<>();
+		for (int start = 0; start < this.receiverPoints.length; start += CHUNK_SIZE) {
+			final int from = start;
+			final int to = Math.min(start + CHUNK_SIZE, this.receiverPoints.length);
+			chunks.add(() -> {
+				processChunk(from, to, currentTimeBinEndTime, cnt);
+				return null;
+			});
+		}
+		// one pool per time bin, so that no threads are left behind when the noise computation is done
+		ForkJoinPool pool = new ForkJoinPool(this.numberOfThreads);
+		try {
+			for (Future<Void> future : pool.invokeAll(chunks)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+		cnt.printCounter();
+	}
+
+	private void compileTables() {
+		Set<Id<Link>> tunnelLinkIds = this.noiseContext.getNoiseParams().getTunnelLinkIDsSet();
+		Collection<NoiseReceiverPoint> points = this.noiseContext.getReceiverPoints().values();
+		this.receiverPoints = points.toArray(new NoiseReceiverPoint[0]);
+		this.linkIndices = new int[this.receiverPoints.length][];
+		this.corrections = new double[this.receiverPoints.length][];
+		this.maxLinkCount = 0;
+		for (int r = 0; r < this.receiverPoints.length; r++) {
+			NoiseReceiverPoint rp = this.receiverPoints[r];
+			int[] indices = new int[rp.getRelevantLinks().size()];
+			double[] linkCorrections = new double[indices.length];
+			int n = 0;
+			for (Id<Link> linkId : rp.getRelevantLinks()) {
+				// tunnel links never contribute to the immission
+				if (!tunnelLinkIds.contains(linkId)) {
+					indices[n] = linkId.index();
+					linkCorrections[n] = rp.getLinkCorrection(linkId);
+					n++;
+				}
+			}
+			this.linkIndices[r] = n == indices.length ? indices : Arrays.copyOf(indices, n);
+			this.corrections[r] = n == linkCorrections.length ? linkCorrections : Arrays.copyOf(linkCorrections, n);
+			this.maxLinkCount = Math.max(this.maxLinkCount, n);
+		}
+	}
+
+	private void fillLinkArrays() {
+		int linkCount = Id.getNumberOfIds(Link.class);
+		if (this.noiseLinks == null || this.noiseLinks.length < linkCount) {
+			this.noiseLinks = new NoiseLink[linkCount];
+			this.emissions = new double[linkCount];
+			this.emissionsPlusOneVehicle = new double[this.vehicleTypes.length][linkCount];
+		} else {
+			Arrays.fill(this.noiseLinks, null);
+		}
+		for (NoiseLink noiseLink : this.noiseContext.getNoiseLinks().values()) {
+			int index = noiseLink.getId().index();
+			this.noiseLinks[index] = noiseLink;
+			this.emissions[index] = noiseLink.getEmission();
+			for (int t = 0; t < this.vehicleTypes.length; t++) {
+				this.emissionsPlusOneVehicle[t][index] = noiseLink.getEmissionPlusOneVehicle(this.vehicleTypes[t]);
+			}
+		}
+	}
+
+	private void processChunk(int from, int to, double currentTimeBinEndTime, Counter cnt) {
+		boolean computeCausingAgents = this.noiseContext.getNoiseParams().isComputeCausingAgents();
+
+		NoiseLink[] links = new NoiseLink[this.maxLinkCount];
+		double[] linkEmissions = new double[this.maxLinkCount];
+		double[] linkCorrections = new double[this.maxLinkCount];
+		double[] isolatedImmissions = new double[this.maxLinkCount];
+		double[][] isolatedImmissionsPlusOneVehicle = new double[this.vehicleTypes.length][this.maxLinkCount];
+
+		for (int r = from; r < to; r++) {
+			NoiseReceiverPoint rp = this.receiverPoints[r];
+			int[] indices = this.linkIndices[r];
+			double[] rpCorrections = this.corrections[r];
+
+			// links without noise link information are skipped, as in the map-based computation
+			int n = 0;
+			for (int i = 0; i < indices.length; i++) {
+				NoiseLink noiseLink = this.noiseLinks[indices[i]];
+				if (noiseLink != null) {
+					links[n] = noiseLink;
+					linkEmissions[n] = this.emissions[indices[i]];
+					linkCorrections[n] = rpCorrections[i];
+					n++;
+				}
+			}
+
+			double immission = this.immissionModule.calculateImmission(n, linkEmissions, linkCorrections, isolatedImmissions);
+			if (computeCausingAgents) {
+				for (int t = 0; t < this.vehicleTypes.length; t++) {
+					double[] plusOneEmissions = this.emissionsPlusOneVehicle[t];
+					double[] plusOneImmissions = isolatedImmissionsPlusOneVehicle[t];
+					for (int i = 0; i < n; i++) {
+						double immissionPlusOne = this.immissionModule.calculateIsolatedLinkImmissionPlusOneVehicle(
+								linkEmissions[i], plusOneEmissions[links[i].getId().index()], linkCorrections[i]);
+						if (immissionPlusOne < 0.) {
+							immissionPlusOne = 0.;
+						}
+						if (immissionPlusOne < isolatedImmissions[i]) {
+							throw new RuntimeException("noise immission: " + isolatedImmissions[i] + " - noise immission plus one "
+									+ this.vehicleTypes[t].getId() + immissionPlusOne + ". This should not happen. Aborting...");
+						}
+						plusOneImmissions[i] = immissionPlusOne;
+					}
+				}
+			}
+			rp.setCurrentImmission(immission, currentTimeBinEndTime);
+			this.damageCalculation.calculateDamages(rp, n, links, isolatedImmissions, this.vehicleTypes, isolatedImmissionsPlusOneVehicle);
+			cnt.incCounter();
+		}
+	}
+}
@@ -1044,6 +1044,65 @@ public class NoiseIT {
 		
 	 }
 	
+	// the time-sliced chunked processing of receiver points must give the same noise events as the default processing
+	@Test
+	public final void test2d(){
+
+		String runDirectory = null;
+		int lastIteration = -1;
+		{
+			String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
+			Config runConfig = ConfigUtils.loadConfig( configFile ) ;
+			runConfig.controler().setOutputDirectory(testUtils.getOutputDirectory());
+			runConfig.plansCalcRoute().setAccessEgressType(PlansCalcRouteConfigGroup.AccessEgressType.none);
+
+			Controler controler = new Controler(runConfig);
+			controler.getConfig().controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists );
+			controler.run();
+
+			runDirectory = controler.getConfig().controler().getOutputDirectory() + "/";
+			lastIteration = controler.getConfig().controler().getLastIteration();
+		}
+
+		List<String> expected = null;
+		for (NoiseConfigGroup.ReceiverPointProcessing processing : NoiseConfigGroup.ReceiverPointProcessing.values()) {
+			Config config = ConfigUtils.createConfig();
+			config.network().setInputFile(runDirectory + "output_network.xml.gz");
+			config.plans().setInputFile(runDirectory + "output_plans.xml.gz");
+			config.controler().setOutputDirectory(runDirectory);
+			config.controler().setLastIteration(lastIteration);
+			config.global().setNumberOfThreads(2);
+
+			NoiseConfigGroup noiseParameters = ConfigUtils.addOrGetModule(config, NoiseConfigGroup.class);
+			noiseParameters.setReceiverPointGap(250.);
+			noiseParameters.setConsideredActivitiesForDamageCalculationArray(new String[]{"home", "work"});
+			noiseParameters.setScaleFactor(1.);
+			noiseParameters.setNoiseAllocationApproach(NoiseConfigGroup.NoiseAllocationApproach.MarginalCost);
+			noiseParameters.setUseActualSpeedLevel(false);
+			noiseParameters.setAllowForSpeedsOutsideTheValidRange(true);
+			noiseParameters.setReceiverPointProcessing(processing);
+			Scenario scenario = ScenarioUtils.loadScenario(config);
+
+			NoiseOfflineCalculation noiseCalculation = new NoiseOfflineCalculation(scenario, runDirectory);
+			noiseCalculation.run();
+
+			List<String> actual = new ArrayList<>();
+			for (NoiseEventCaused event : noiseCalculation.getTimeTracker().getDamageCalculation().getNoiseEventsCaused()) {
+				actual.add(event.getTimeBinEndTime() + "," + event.getLinkId() + "," + event.getCausingVehicleId() + "," + String.format(Locale.US, "%.12f", event.getAmount()));
+			}
+			for (NoiseEventAffected event : noiseCalculation.getTimeTracker().getDamageCalculation().getNoiseEventsAffected()) {
+				actual.add(event.getTimeBinEndTime() + "," + event.getrReceiverPointId() + "," + event.getAffectedAgentId() + "," + event.getActType() + "," + String.format(Locale.US, "%.12f", event.getAmount()));
+			}
+			Collections.sort(actual);
+			if (expected == null) {
+				Assert.assertFalse("No event found to be tested.", actual.isEmpty());
+				expected = actual;
+			} else {
+				Assert.assertEquals("Different noise events for " + processing, expected, actual);
+			}
+		}
+	}
+
 	// same test as 2a, but using the actual speed level
 	@Test
 	public final void test2c(){
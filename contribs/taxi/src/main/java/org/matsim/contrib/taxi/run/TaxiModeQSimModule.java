@@ -113,8 +113,8 @@ public class TaxiModeQSimModule extends AbstractDvrpModeQSimModule {
 				Network network = getModalInstance(Network.class);
 				TravelDisutility travelDisutility = getModalInstance(
 						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
-				LeastCostPathCalculator router = new FastAStarLandmarksFactory(
-						getConfig().global()).createPathCalculator(network, travelDisutility, travelTime);
+				LeastCostPathCalculator router = new FastAStarLandmarksFactory(getConfig().global(),
+						getConfig().controler()).createPathCalculator(network, travelDisutility, travelTime);
 				return new TaxiScheduler(taxiCfg, fleet, taxiScheduleInquiry, travelTime, router);
 			}
 		}).asEagerSingleton();
@@ -0,0 +1,231 @@
+package ch.sbb.matsim.analysis.skims;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.matrices.FloatMatrix;
+
+/**
+ * Calculates zone-to-zone skim matrices on a network, e.g. for car. For each coordinate of each origin zone, one
+ * time-dependent least cost path tree (like {@link org.matsim.utils.leastcostpathtree.LeastCostPathTree}) is
+ * calculated from the network node nearest to the coordinate, starting at the given departure time. From each tree,
+ * the values for the nodes nearest to the coordinates of all destination zones are read. The matrices contain the
+ * averages over all coordinate pairs that are connected, pairs without any connection get
+ * {@link Float#POSITIVE_INFINITY}. To get matrices per time slot, call
+ * {@link #calculateSkimMatrices(Map, double)} once per slot.
+ * <p>
+ * The trees are calculated on an array-based copy of the network (as used by the fast routers), so each tree
+ * only needs a few primitive arrays and a heap, which are reused by the thread for all its origins. The origin
+ * zones are distributed to several threads. Each thread writes its rows directly into the matrices. The matrices
+ * can be written with {@link org.matsim.matrices.FloatMatrixIO}.
+ * <p>
+ * The travel time and disutility are called with a dummy person per thread and no vehicle. Randomizing travel
+ * disutilities should not be used, as the skims would depend on the thread that calculated them.
+ *
+ * @param <T> type of the zone ids
+ */
+public final class NetworkSkimMatrices<T> {
+
+    private static final Logger log = Logger.getLogger(NetworkSkimMatrices.class);
+
+    public static final String TRAVEL_TIME = "travelTime";
+    public static final String DISTANCE = "distance";
+    /** the travel disutility of the least cost path */
+    public static final String TRAVEL_COST = "travelCost";
+    /** number of coordinate pairs that are connected */
+    public static final String DATA_COUNT = "dataCount";
+
+    private final Network network;
+    private final ArrayRoutingNetwork routingNetwork;
+    private final TravelTime travelTime;
+    private final TravelDisutility travelDisutility;
+    private final int numberOfThreads;
+
+    /**
+     * @param network the network to route on, e.g. only the links that allow cars
+     */
+    public NetworkSkimMatrices(Network network, TravelTime travelTime, TravelDisutility travelDisutility, int numberOfThreads) {
+        this.network = network;
+        this.routingNetwork = new ArrayRoutingNetworkFactory().createRoutingNetwork(network);
+        this.travelTime = travelTime;
+        this.travelDisutility = travelDisutility;
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+    }
+
+    /**
+     * @param coordsPerZone the coordinates of each zone, e.g. a sample of the activity locations in the zone
+     * @param departureTime the departure time at all origins
+     * @return the matrices by name, see the constants of this class
+     */
+    public Map<String, FloatMatrix<T>> calculateSkimMatrices(Map<T, Coord[]> coordsPerZone, double departureTime) {
+        Map<String, FloatMatrix<T>> matrices = new LinkedHashMap<>();
+        for (String name : new String[] { TRAVEL_TIME, DISTANCE, TRAVEL_COST, DATA_COUNT }) {
+            matrices.put(name, new FloatMatrix<>(coordsPerZone.keySet(), 0.0f));
+        }
+
+        // the nodes nearest to the coordinates are used both as origins and destinations
+        List<int[]> nodesPerZone = new ArrayList<>();
+        for (Coord[] coords : coordsPerZone.values()) {
+            int[] nodes = new int[coords.length];
+            for (int i = 0; i < coords.length; i++) {
+                Node node = NetworkUtils.getNearestNode(this.network, coords[i]);
+                nodes[i] = ((ArrayRoutingNetworkNode) this.routingNetwork.getNodes().get(node.getId())).getArrayIndex();
+            }
+            nodesPerZone.add(nodes);
+        }
+
+        log.info("Calculating network skim matrices for " + coordsPerZone.size() + " zones at " + departureTime + " with " + this.numberOfThreads + " threads.");
+        Counter counter = new Counter("NetworkSkimMatrices zone # ");
+        // each thread keeps its tree data, and takes the next origin zone when done with one
+        AtomicInteger nextOrigin = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, new NamedThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < this.numberOfThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    LeastCostTree tree = new LeastCostTree();
+                    for (int origin = nextOrigin.getAndIncrement(); origin < nodesPerZone.size(); origin = nextOrigin.getAndIncrement()) {
+                        calcRow(origin, tree, nodesPerZone, departureTime, matrices);
+                        counter.incCounter();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        counter.printCounter();
+
+        // the rows contain sums so far, turn them into averages
+        FloatMatrix<T> dataCount = matrices.get(DATA_COUNT);
+        for (Map.Entry<String, FloatMatrix<T>> e : matrices.entrySet()) {
+            if (!e.getKey().equals(DATA_COUNT)) {
+                e.getValue().divide(dataCount, Float.POSITIVE_INFINITY);
+            }
+        }
+        return matrices;
+    }
+
+    private void calcRow(int origin, LeastCostTree tree, List<int[]> nodesPerZone, double departureTime, Map<String, FloatMatrix<T>> matrices) {
+        FloatMatrix<T> travelTimes = matrices.get(TRAVEL_TIME);
+        FloatMatrix<T> distances = matrices.get(DISTANCE);
+        FloatMatrix<T> travelCosts = matrices.get(TRAVEL_COST);
+        FloatMatrix<T> dataCounts = matrices.get(DATA_COUNT);
+
+        for (int fromNode : nodesPerZone.get(origin)) {
+            tree.calculate(fromNode, departureTime);
+            for (int destination = 0; destination < nodesPerZone.size(); destination++) {
+                for (int toNode : nodesPerZone.get(destination)) {
+                    double cost = tree.cost[toNode];
+                    if (cost < Double.POSITIVE_INFINITY) {
+                        travelTimes.add(origin, destination, (float) (tree.time[toNode] - departureTime));
+                        distances.add(origin, destination, (float) tree.distance[toNode]);
+                        travelCosts.add(origin, destination, (float) cost);
+                        dataCounts.add(origin, destination, 1.0f);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Dijkstra's algorithm from one node to all nodes, with the data stored by the array index of the nodes.
+     * Not thread-safe, each thread uses its own instance.
+     */
+    private final class LeastCostTree {
+        final double[] cost;
+        final double[] time;
+        final double[] distance;
+        private final ArrayRoutingNetworkNode[] nodes;
+        private final BinaryMinHeap<ArrayRoutingNetworkNode> pendingNodes;
+        // some disutilities store data in the person, so each thread gets its own
+        private final Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("networkSkims"));
+
+        LeastCostTree() {
+            int nodeCount = NetworkSkimMatrices.this.routingNetwork.getNodes().size();
+            this.cost = new double[nodeCount];
+            this.time = new double[nodeCount];
+            this.distance = new double[nodeCount];
+            this.nodes = new ArrayRoutingNetworkNode[nodeCount];
+            for (Node node : NetworkSkimMatrices.this.routingNetwork.getNodes().values()) {
+                ArrayRoutingNetworkNode routingNode = (ArrayRoutingNetworkNode) node;
+                this.nodes[routingNode.getArrayIndex()] = routingNode;
+            }
+            this.pendingNodes = new BinaryMinHeap<>(nodeCount);
+        }
+
+        void calculate(int startNode, double departureTime) {
+            Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+            this.pendingNodes.reset();
+            this.cost[startNode] = 0;
+            this.time[startNode] = departureTime;
+            this.distance[startNode] = 0;
+            this.pendingNodes.add(this.nodes[startNode], 0);
+
+            while (!this.pendingNodes.isEmpty()) {
+                ArrayRoutingNetworkNode node = this.pendingNodes.poll();
+                int nodeIndex = node.getArrayIndex();
+                double currCost = this.cost[nodeIndex];
+                double currTime = this.time[nodeIndex];
+                double currDistance = this.distance[nodeIndex];
+                for (RoutingNetworkLink routingLink : node.getOutLinksArray()) {
+                    Link link = routingLink.getLink();
+                    int toNodeIndex = ((ArrayRoutingNetworkNode) routingLink.getToNode()).getArrayIndex();
+                    double newCost = currCost + NetworkSkimMatrices.this.travelDisutility.getLinkTravelDisutility(link, currTime, this.person, null);
+                    if (newCost < this.cost[toNodeIndex]) {
+                        this.cost[toNodeIndex] = newCost;
+                        this.time[toNodeIndex] = currTime + NetworkSkimMatrices.this.travelTime.getLinkTravelTime(link, currTime, this.person, null);
+                        this.distance[toNodeIndex] = currDistance + link.getLength();
+                        this.pendingNodes.decreaseKey(this.nodes[toNodeIndex], newCost);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private int count = 0;
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, NetworkSkimMatrices.class.getSimpleName() + "_" + this.count++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package ch.sbb.matsim.analysis.skims;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.matrices.FloatMatrix;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.sbb.matsim.routing.pt.raptor.InitialStop;
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.RaptorStaticConfig;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+
+/**
+ * Calculates zone-to-zone skim matrices for public transport with {@link SwissRailRaptor}. For each origin zone,
+ * one least cost tree is calculated per coordinate of the zone and per departure time, starting at the stops
+ * within walking distance of the coordinate. From each tree, the values for all destination zones are read
+ * by looking at the stops within walking distance of the coordinates of the destination zones. The matrices
+ * contain the averages over all coordinates and departure times for which a connection was found, pairs
+ * without any connection get {@link Float#POSITIVE_INFINITY}.
+ * <p>
+ * The origin zones are distributed to several threads. Each thread writes its rows directly into the
+ * matrices, so no results have to be collected in between. The matrices can be written with
+ * {@link org.matsim.matrices.FloatMatrixIO}.
+ * <p>
+ * The {@link SwissRailRaptorData} should be created with
+ * {@link RaptorStaticConfig.RaptorOptimization#OneToAllRouting}.
+ *
+ * @param <T> type of the zone ids
+ */
+public final class PTSkimMatrices<T> {
+
+    private static final Logger log = Logger.getLogger(PTSkimMatrices.class);
+
+    /** door-to-door travel time, without waiting at the first stop */
+    public static final String TRAVEL_TIME = "travelTime";
+    public static final String ACCESS_TIME = "accessTime";
+    public static final String EGRESS_TIME = "egressTime";
+    public static final String IN_VEHICLE_TIME = "inVehicleTime";
+    public static final String TRANSFER_COUNT = "transferCount";
+    /** number of coordinate pairs and departure times for which a connection was found */
+    public static final String DATA_COUNT = "dataCount";
+
+    private final SwissRailRaptor raptor;
+    private final SwissRailRaptorData data;
+    private final RaptorParameters parameters;
+    private final double maxWalkDistance;
+    private final int numberOfThreads;
+
+    /**
+     * @param maxWalkDistance beeline distance between a coordinate and the stops which can be used for access
+     *        and egress. If there is no stop within this distance, the nearest stop is used.
+     */
+    public PTSkimMatrices(SwissRailRaptorData data, RaptorParameters parameters, double maxWalkDistance, int numberOfThreads) {
+        this.data = data;
+        this.raptor = new SwissRailRaptor(data, null, null, null);
+        this.parameters = parameters;
+        this.maxWalkDistance = maxWalkDistance;
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+    }
+
+    /**
+     * @param coordsPerZone the coordinates of each zone, e.g. a sample of the activity locations in the zone
+     * @param departureTimes the departure times to average over
+     * @return the matrices by name, see the constants of this class
+     */
+    public Map<String, FloatMatrix<T>> calculateSkimMatrices(Map<T, Coord[]> coordsPerZone, double[] departureTimes) {
+        Collection<T> zones = coordsPerZone.keySet();
+        Map<String, FloatMatrix<T>> matrices = new LinkedHashMap<>();
+        for (String name : new String[] { TRAVEL_TIME, ACCESS_TIME, EGRESS_TIME, IN_VEHICLE_TIME, TRANSFER_COUNT, DATA_COUNT }) {
+            matrices.put(name, new FloatMatrix<>(zones, 0.0f));
+        }
+
+        // the stops near a coordinate are used both for access and egress
+        List<List<StopsNearCoord>> stopsPerZone = new ArrayList<>();
+        for (Coord[] coords : coordsPerZone.values()) {
+            List<StopsNearCoord> stopsPerCoord = new ArrayList<>();
+            for (Coord coord : coords) {
+                stopsPerCoord.add(findStops(coord));
+            }
+            stopsPerZone.add(stopsPerCoord);
+        }
+
+        log.info("Calculating pt skim matrices for " + zones.size() + " zones and " + departureTimes.length + " departure times with " + this.numberOfThreads + " threads.");
+        Counter counter = new Counter("PTSkimMatrices zone # ");
+        ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, new NamedThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int fromIndex = 0; fromIndex < zones.size(); fromIndex++) {
+                final int origin = fromIndex;
+                futures.add(executor.submit(() -> {
+                    calcRow(origin, stopsPerZone, departureTimes, matrices);
+                    counter.incCounter();
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        counter.printCounter();
+
+        // the rows contain sums so far, turn them into averages
+        FloatMatrix<T> dataCount = matrices.get(DATA_COUNT);
+        for (Map.Entry<String, FloatMatrix<T>> e : matrices.entrySet()) {
+            if (!e.getKey().equals(DATA_COUNT)) {
+                e.getValue().divide(dataCount, Float.POSITIVE_INFINITY);
+            }
+        }
+        return matrices;
+    }
+
+    private StopsNearCoord findStops(Coord coord) {
+        Collection<TransitStopFacility> stops = this.data.findNearbyStops(coord.getX(), coord.getY(), this.maxWalkDistance);
+        if (stops.isEmpty()) {
+            TransitStopFacility nearest = this.data.findNearestStop(coord.getX(), coord.getY());
+            stops = nearest == null ? new ArrayList<>() : List.of(nearest);
+        }
+        double walkSpeed = this.parameters.getBeelineWalkSpeed();
+        double walkCostPerSecond = -this.parameters.getMarginalUtilityOfTravelTime_utl_s(TransportMode.walk);
+        StopsNearCoord stopsNearCoord = new StopsNearCoord(stops.size());
+        int i = 0;
+        for (TransitStopFacility stop : stops) {
+            double distance = CoordUtils.calcEuclideanDistance(coord, stop.getCoord());
+            double walkTime = distance / walkSpeed;
+            double walkCost = walkTime * walkCostPerSecond;
+            stopsNearCoord.initialStops.add(new InitialStop(stop, walkCost, walkTime, distance, TransportMode.walk));
+            stopsNearCoord.stopIds[i] = stop.getId();
+            stopsNearCoord.walkTimes[i] = walkTime;
+            stopsNearCoord.walkCosts[i] = walkCost;
+            i++;
+        }
+        return stopsNearCoord;
+    }
+
+    private void calcRow(int origin, List<List<StopsNearCoord>> stopsPerZone, double[] departureTimes, Map<String, FloatMatrix<T>> matrices) {
+        FloatMatrix<T> travelTimes = matrices.get(TRAVEL_TIME);
+        FloatMatrix<T> accessTimes = matrices.get(ACCESS_TIME);
+        FloatMatrix<T> egressTimes = matrices.get(EGRESS_TIME);
+        FloatMatrix<T> inVehicleTimes = matrices.get(IN_VEHICLE_TIME);
+        FloatMatrix<T> transferCounts = matrices.get(TRANSFER_COUNT);
+        FloatMatrix<T> dataCounts = matrices.get(DATA_COUNT);
+
+        for (StopsNearCoord accessStops : stopsPerZone.get(origin)) {
+            if (accessStops.initialStops.isEmpty()) {
+                continue;
+            }
+            for (double departureTime : departureTimes) {
+                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcLeastCostTree(accessStops.initialStops, departureTime, this.parameters);
+                for (int destination = 0; destination < stopsPerZone.size(); destination++) {
+                    for (StopsNearCoord egressStops : stopsPerZone.get(destination)) {
+                        TravelInfo best = null;
+                        double bestEgressTime = 0;
+                        double bestCost = Double.POSITIVE_INFINITY;
+                        for (int i = 0; i < egressStops.stopIds.length; i++) {
+                            TravelInfo info = tree.get(egressStops.stopIds[i]);
+                            if (info != null) {
+                                double cost = info.accessCost + info.travelCost + egressStops.walkCosts[i];
+                                if (cost < bestCost) {
+                                    bestCost = cost;
+                                    best = info;
+                                    bestEgressTime = egressStops.walkTimes[i];
+                                }
+                            }
+                        }
+                        if (best != null) {
+                            travelTimes.add(origin, destination, (float) (best.accessTime + best.ptTravelTime + bestEgressTime));
+                            accessTimes.add(origin, destination, (float) best.accessTime);
+                            egressTimes.add(origin, destination, (float) bestEgressTime);
+                            inVehicleTimes.add(origin, destination, (float) best.getInVehicleTime());
+                            transferCounts.add(origin, destination, best.transferCount);
+                            dataCounts.add(origin, destination, 1.0f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The stops within walking distance of a coordinate, with the time and cost to walk there.
+     */
+    private static final class StopsNearCoord {
+        final List<InitialStop> initialStops;
+        final Id<TransitStopFacility>[] stopIds;
+        final double[] walkTimes;
+        final double[] walkCosts;
+
+        @SuppressWarnings("unchecked")
+        StopsNearCoord(int size) {
+            this.initialStops = new ArrayList<>(size);
+            this.stopIds = new Id[size];
+            this.walkTimes = new double[size];
+            this.walkCosts = new double[size];
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private int count = 0;
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, PTSkimMatrices.class.getSimpleName() + "_" + this.count++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -39,6 +39,9 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_PENALTY_PERHOUR = "transferPenaltyCostPerTravelTimeHour";
     private static final String PARAM_TRANSFER_WALK_MARGIN = "transferWalkMargin";
     private static final String PARAM_TRANSFER_WALK_MARGIN_DESC = "time deducted from transfer walk leg during transfers between pt legs in order to avoid missing a vehicle by a few seconds due to delays.";
+    private static final String PARAM_TRANSFERS_SNAPSHOT_FILE = "transfersSnapshotFile";
+    private static final String PARAM_TRANSFERS_SNAPSHOT_FILE_DESC = "Binary file in which the transfers between route stops are stored once they are calculated. " +
+            "If the file exists and matches the schedule and the transfer settings, the transfers are read from it instead of being calculated. null (default) disables the snapshot.";
 
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
@@ -50,6 +53,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
     private double transferWalkMargin = 5;
+    private String transfersSnapshotFile = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -111,6 +115,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferWalkMargin = transferWalkMargin;
     }
 
+    @StringGetter(PARAM_TRANSFERS_SNAPSHOT_FILE)
+    public String getTransfersSnapshotFile() {
+        return this.transfersSnapshotFile;
+    }
+
+    @StringSetter(PARAM_TRANSFERS_SNAPSHOT_FILE)
+    public void setTransfersSnapshotFile(String transfersSnapshotFile) {
+        this.transfersSnapshotFile = transfersSnapshotFile;
+    }
+
     @StringGetter(PARAM_USE_MODE_MAPPING)
     public boolean isUseModeMappingForPassengers() {
         return this.useModeMapping;
@@ -578,6 +592,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     public Map<String, String> getComments() {
         Map<String, String> comments = super.getComments();
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
+        comments.put(PARAM_TRANSFERS_SNAPSHOT_FILE, PARAM_TRANSFERS_SNAPSHOT_FILE_DESC);
         return comments;
     }
 
@@ -45,6 +45,8 @@ public class RaptorStaticConfig {
 
     private RaptorOptimization optimization = RaptorOptimization.OneToOneRouting;
 
+    private String transfersSnapshotFile = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -108,4 +110,18 @@ public class RaptorStaticConfig {
     public void setOptimization(RaptorOptimization optimization) {
         this.optimization = optimization;
     }
+
+    /**
+     * File in which the transfers between the route stops are stored after they were calculated,
+     * see {@link SwissRailRaptorDataSnapshot}. If the file exists and was written for the same schedule
+     * and the same settings, the transfers are read from it instead of being calculated again.
+     * <code>null</code> (the default) always calculates the transfers.
+     */
+    public String getTransfersSnapshotFile() {
+        return this.transfersSnapshotFile;
+    }
+
+    public void setTransfersSnapshotFile(String transfersSnapshotFile) {
+        this.transfersSnapshotFile = transfersSnapshotFile;
+    }
 }
@@ -45,6 +45,7 @@ public final class RaptorUtils {
         staticConfig.setBeelineWalkDistanceFactor(walk.getBeelineDistanceFactor());
         staticConfig.setTransferWalkMargin(srrConfig.getTransferWalkMargin());
         staticConfig.setMinimalTransferTime(config.transitRouter().getAdditionalTransferTime());
+        staticConfig.setTransfersSnapshotFile(srrConfig.getTransfersSnapshotFile());
 
         staticConfig.setUseModeMappingForPassengers(srrConfig.isUseModeMappingForPassengers());
         if (srrConfig.isUseModeMappingForPassengers()) {
@@ -34,7 +34,6 @@ public class SwissRailRaptor implements TransitRouter {
     private static final Logger log = Logger.getLogger(SwissRailRaptor.class);
 
     private final SwissRailRaptorData data;
-    private final SwissRailRaptorCore raptor;
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
@@ -52,7 +51,6 @@ public class SwissRailRaptor implements TransitRouter {
                             RaptorRouteSelector routeSelector,
                             RaptorStopFinder stopFinder ) {
         this.data = data;
-        this.raptor = new SwissRailRaptorCore(data);
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
@@ -68,7 +66,13 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> accessStops = findAccessStops(fromFacility, person, departureTime, parameters);
         List<InitialStop> egressStops = findEgressStops(toFacility, person, departureTime, parameters);
 
-        RaptorRoute foundRoute = this.raptor.calcLeastCostRoute(departureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
+        SwissRailRaptorCore raptor = SwissRailRaptorCore.borrow(this.data);
+        RaptorRoute foundRoute;
+        try {
+            foundRoute = raptor.calcLeastCostRoute(departureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
+        } finally {
+            raptor.release();
+        }
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, departureTime, person, parameters);
 
         /*
@@ -160,7 +164,7 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> accessStops = findAccessStops(fromFacility, person, desiredDepartureTime, parameters);
         List<InitialStop> egressStops = findEgressStops(toFacility, person, desiredDepartureTime, parameters);
 
-        List<RaptorRoute> foundRoutes = this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
+        List<RaptorRoute> foundRoutes = calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
         RaptorRoute foundRoute = selector.selectOne(foundRoutes, desiredDepartureTime);
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, desiredDepartureTime, person, parameters);
 
@@ -196,7 +200,7 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> accessStops = findAccessStops(fromFacility, person, desiredDepartureTime, parameters);
         List<InitialStop> egressStops = findEgressStops(toFacility, person, desiredDepartureTime, parameters);
 
-        List<RaptorRoute> foundRoutes = this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
+        List<RaptorRoute> foundRoutes = calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, desiredDepartureTime, person, parameters);
 
         if (foundRoutes == null) {
@@ -237,8 +241,26 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters);
     }
 
-    private Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters) {
-        return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters);
+    /**
+     * Calculates the least cost tree starting at the given access stops. In contrast to the other methods,
+     * this method can be called from several threads at the same time.
+     */
+    public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters) {
+        SwissRailRaptorCore raptor = SwissRailRaptorCore.borrow(this.data);
+        try {
+            return raptor.calcLeastCostTree(departureTime, accessStops, parameters);
+        } finally {
+            raptor.release();
+        }
+    }
+
+    private List<RaptorRoute> calcRoutes(double earliestDepartureTime, double desiredDepartureTime, double latestDepartureTime, Facility fromFacility, Facility toFacility, List<InitialStop> accessStops, List<InitialStop> egressStops, RaptorParameters parameters) {
+        SwissRailRaptorCore raptor = SwissRailRaptorCore.borrow(this.data);
+        try {
+            return raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters);
+        } finally {
+            raptor.release();
+        }
     }
 
     public SwissRailRaptorData getUnderlyingData() {
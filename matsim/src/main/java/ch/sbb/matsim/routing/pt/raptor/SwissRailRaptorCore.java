@@ -23,12 +23,13 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
-import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
 
 /**
  * The actual RAPTOR implementation, based on Delling et al, Round-Based Public Transit Routing.
  *
  * This class is <b>NOT</b> thread-safe due to the use of internal state during the route calculation.
+ * The internal state is only reset where the previous query modified it, so a core can be re-used
+ * for many queries at low cost, see {@link #borrow(SwissRailRaptorData)}.
  *
  * @author mrieser / SBB
  */
@@ -49,6 +50,8 @@ public class SwissRailRaptorCore {
     private final PathElement[] arrivalPathPerStop;
     private final PathElement[] tmpArrivalPathPerStop; // only used to ensure parallel update
     private final BitSet tmpImprovedStops; // only used to ensure parallel update
+    private final BitSet touchedRouteStopIndices; // only used to reset the route stops modified by the last query
+    private final BitSet touchedStops; // only used to reset the stops modified by the last query
 
     public SwissRailRaptorCore(SwissRailRaptorData data) {
         this.data = data;
@@ -63,14 +66,43 @@ public class SwissRailRaptorCore {
         this.arrivalPathPerStop = new PathElement[this.data.countStops];
         this.tmpArrivalPathPerStop = new PathElement[this.data.countStops];
         this.tmpImprovedStops = new BitSet(this.data.countStops);
-    }
-
-    private void reset() {
-        Arrays.fill(this.arrivalPathPerRouteStop, null);
+        this.touchedRouteStopIndices = new BitSet(this.data.countRouteStops);
+        this.touchedStops = new BitSet(this.data.countStops);
         Arrays.fill(this.egressCostsPerRouteStop, Double.POSITIVE_INFINITY);
-        Arrays.fill(this.arrivalPathPerStop, null);
         Arrays.fill(this.leastArrivalCostAtRouteStop, Double.POSITIVE_INFINITY);
         Arrays.fill(this.leastArrivalCostAtStop, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns an idle core for the given data, or creates a new one if all cores are in use. Creating a core
+     * allocates several arrays sized to the number of route stops, so routers share their cores via this pool
+     * instead of each creating its own. Cores must be given back with {@link #release()} after the query.
+     */
+    static SwissRailRaptorCore borrow(SwissRailRaptorData data) {
+        SwissRailRaptorCore core = data.idleCores.poll();
+        return core == null ? new SwissRailRaptorCore(data) : core;
+    }
+
+    void release() {
+        this.data.idleCores.add(this);
+    }
+
+    private void reset() {
+        // only reset the entries modified by the last query, most queries only touch a small part of the schedule
+        for (int routeStopIndex = this.touchedRouteStopIndices.nextSetBit(0); routeStopIndex >= 0; routeStopIndex = this.touchedRouteStopIndices.nextSetBit(routeStopIndex + 1)) {
+            this.arrivalPathPerRouteStop[routeStopIndex] = null;
+            this.leastArrivalCostAtRouteStop[routeStopIndex] = Double.POSITIVE_INFINITY;
+        }
+        for (int routeStopIndex = this.destinationRouteStopIndices.nextSetBit(0); routeStopIndex >= 0; routeStopIndex = this.destinationRouteStopIndices.nextSetBit(routeStopIndex + 1)) {
+            this.egressCostsPerRouteStop[routeStopIndex] = Double.POSITIVE_INFINITY;
+        }
+        for (int stopIndex = this.touchedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.touchedStops.nextSetBit(stopIndex + 1)) {
+            this.arrivalPathPerStop[stopIndex] = null;
+            this.tmpArrivalPathPerStop[stopIndex] = null;
+            this.leastArrivalCostAtStop[stopIndex] = Double.POSITIVE_INFINITY;
+        }
+        this.touchedRouteStopIndices.clear();
+        this.touchedStops.clear();
         this.improvedStops.clear();
         this.improvedRouteStopIndices.clear();
         this.reachedRouteStopIndices.clear();
@@ -164,12 +196,14 @@ public class SwissRailRaptorCore {
 
                     if (xCost < this.leastArrivalCostAtRouteStop[routeStopIndex]) {
                         this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                        this.touchedRouteStopIndices.set(routeStopIndex);
                         this.leastArrivalCostAtRouteStop[routeStopIndex] = xCost;
                         this.improvedRouteStopIndices.set(routeStopIndex);
                         if (xCost < this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex]) {
                             this.improvedStops.set(toRouteStop.stopFacilityIndex);
                             this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
                             this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = xCost;
+                            this.touchedStops.set(toRouteStop.stopFacilityIndex);
                         }
                     }
                 } else if (isIntermodalAccess) {
@@ -183,12 +217,14 @@ public class SwissRailRaptorCore {
                     if (arrivalCost < this.leastArrivalCostAtRouteStop[routeStopIndex]) {
                         hasIntermodalAccess = true;
                         this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                        this.touchedRouteStopIndices.set(routeStopIndex);
                         this.leastArrivalCostAtRouteStop[routeStopIndex] = arrivalCost;
                         this.improvedRouteStopIndices.set(routeStopIndex);
                         if (arrivalCost < this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex]) {
                             this.improvedStops.set(toRouteStop.stopFacilityIndex);
                             this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
                             this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = arrivalCost;
+                            this.touchedStops.set(toRouteStop.stopFacilityIndex);
                         }
                     }
                 }
@@ -288,13 +324,19 @@ public class SwissRailRaptorCore {
                     }
                     RRoute route = this.data.routes[routeStop.transitRouteIndex];
                     double depOffset = routeStop.departureOffset;
-                    for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                    int firstDepIndex = findNextDepartureIndex(route, routeStop, earliestTimeAtStop);
+                    if (firstDepIndex < 0) {
+                        continue;
+                    }
+                    // the departures of a route are sorted, so only look at the ones within the time window
+                    for (int depIndex = firstDepIndex; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
                         double depTimeAtStart = this.data.departures[depIndex];
                         double depTimeAtStop = depTimeAtStart + depOffset;
-                        if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
-                            double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
-                            departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, accessStop));
+                        if (depTimeAtStop > latestTimeAtStop) {
+                            break;
                         }
+                        double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
+                        departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, accessStop));
                     }
                 }
             }
@@ -338,9 +380,11 @@ public class SwissRailRaptorCore {
                 int routeStopIndex = depAtRouteStop.routeStopIndex;
                 PathElement pe = new PathElement(null, toRouteStop, depAtRouteStop.depTime, depAtRouteStop.depTime, arrivalTime, arrivalCost, 0, depAtRouteStop.accessStop.distance, 0, true, depAtRouteStop.accessStop);
                 this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                this.touchedRouteStopIndices.set(routeStopIndex);
                 this.leastArrivalCostAtRouteStop[routeStopIndex] = arrivalCost;
                 this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
                 this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = arrivalCost;
+                this.touchedStops.set(toRouteStop.stopFacilityIndex);
                 this.improvedRouteStopIndices.set(routeStopIndex);
                 initialStopsPerStartPath.put(pe, depAtRouteStop.accessStop);
             }
@@ -469,9 +513,11 @@ public class SwissRailRaptorCore {
                 RRouteStop toRouteStop = this.data.routeStops[routeStopIndex];
                 PathElement pe = new PathElement(null, toRouteStop, Double.NaN, Double.NaN, arrivalTime, arrivalCost, 0, stop.distance, 0, true, stop);
                 this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                this.touchedRouteStopIndices.set(routeStopIndex);
                 this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
                 this.leastArrivalCostAtRouteStop[routeStopIndex] = arrivalCost;
                 this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = arrivalCost;
+                this.touchedStops.set(toRouteStop.stopFacilityIndex);
                 this.improvedRouteStopIndices.set(routeStopIndex);
                 // this is special: make sure we can transfer even at the start stop
                 initialRouteStopIndices.set(routeStopIndex);
@@ -614,9 +660,11 @@ public class SwissRailRaptorCore {
                         double distance = toRouteStop.distanceAlongRoute - boardingPE.toRouteStop.distanceAlongRoute;
                         PathElement pe = new PathElement(boardingPE, toRouteStop, firstDepartureTime, currentAgentBoardingTime, arrivalTime, arrivalTravelCost, arrivalTransferCost, distance, boardingPE.transferCount, false, null);
                         this.arrivalPathPerRouteStop[toRouteStopIndex] = pe;
+                        this.touchedRouteStopIndices.set(toRouteStopIndex);
                         this.leastArrivalCostAtRouteStop[toRouteStopIndex] = totalArrivalCost;
                         if (totalArrivalCost <= this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex]) {
                             this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = totalArrivalCost;
+                            this.touchedStops.set(toRouteStop.stopFacilityIndex);
                             this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
                             this.improvedStops.set(toRouteStop.stopFacilityIndex);
                             checkForBestArrival(toRouteStopIndex, totalArrivalCost);
@@ -730,17 +778,18 @@ public class SwissRailRaptorCore {
             int firstTransferIndex = fromRouteStop.indexFirstTransfer;
             int lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
             for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
-                RTransfer transfer = this.data.transfers[transferIndex];
-                int toRouteStopIndex = transfer.toRouteStop;
-                double newArrivalTime = arrivalTime + transfer.transferTime;
-                double newArrivalTravelCost = arrivalTravelCost - transfer.transferTime * margUtilityTransitWalk;
+                int toRouteStopIndex = this.data.transferToRouteStops[transferIndex];
+                double transferTime = this.data.transferTimes[transferIndex];
+                double newArrivalTime = arrivalTime + transferTime;
+                double newArrivalTravelCost = arrivalTravelCost - transferTime * margUtilityTransitWalk;
                 double newArrivalTransferCost = Double.isFinite(fromPE.firstDepartureTime) ? calcTransferCost (transferCostBase, transferCostPerHour, transferCostMin, transferCostMax, newArrivalTime - fromPE.firstDepartureTime) * (fromPE.transferCount + 1) : 0;
                 double newTotalArrivalCost = newArrivalTravelCost + newArrivalTransferCost;
                 double prevLeastArrivalCost = this.leastArrivalCostAtRouteStop[toRouteStopIndex];
                 if (newTotalArrivalCost < prevLeastArrivalCost || (!strict && newTotalArrivalCost <= prevLeastArrivalCost)) {
                     RRouteStop toRouteStop = this.data.routeStops[toRouteStopIndex];
-                    PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, Double.NaN, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, transfer.transferDistance, fromPE.transferCount + 1, true, null);
+                    PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, Double.NaN, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, this.data.transferDistances[transferIndex], fromPE.transferCount + 1, true, null);
                     this.arrivalPathPerRouteStop[toRouteStopIndex] = pe;
+                    this.touchedRouteStopIndices.set(toRouteStopIndex);
                     this.leastArrivalCostAtRouteStop[toRouteStopIndex] = newTotalArrivalCost;
                     this.improvedRouteStopIndices.set(toRouteStopIndex);
                     int toStopFacilityIndex = toRouteStop.stopFacilityIndex;
@@ -748,6 +797,7 @@ public class SwissRailRaptorCore {
                     if (newTotalArrivalCost < prevLeastArrivalCost || (!strict && newTotalArrivalCost <= prevLeastArrivalCost)) {
                         // store it in tmp only. We don't want that this PE is used by a stop processed later in the same round. ("parallel update")
                         this.leastArrivalCostAtStop[toStopFacilityIndex] = newTotalArrivalCost;
+                        this.touchedStops.set(toStopFacilityIndex);
                         this.tmpArrivalPathPerStop[toStopFacilityIndex] = pe;
                         this.tmpImprovedStops.set(toStopFacilityIndex);
                     }
@@ -942,6 +992,19 @@ public class SwissRailRaptorCore {
             return createRaptorRoute(fromFacility, toFacility, this.destinationPath, firstPath.arrivalTime);
         }
 
+        /**
+         * @return the time spent in pt vehicles, i.e. {@link #ptTravelTime} without the time for transfers
+         */
+        public double getInVehicleTime() {
+            double inVehicleTime = 0;
+            for (PathElement pe = this.destinationPath; pe != null; pe = pe.comingFrom) {
+                if (!pe.isTransfer) {
+                    inVehicleTime += pe.arrivalTime - pe.boardingTime;
+                }
+            }
+            return inVehicleTime;
+        }
+
         public boolean isWalkOnly() {
             if (this.destinationPath.comingFrom == null) {
                 return true;
@@ -4,6 +4,7 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -12,7 +13,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -45,15 +48,19 @@ public class SwissRailRaptorData {
     final RRoute[] routes;
     final double[] departures; // in the RAPTOR paper, this is usually called "trips", but I stick with the MATSim nomenclature
     final RRouteStop[] routeStops; // list of all route stops
-    final RTransfer[] transfers;
+    // the transfers are stored column-wise, the transfers of a route stop are at RRouteStop.indexFirstTransfer ff.
+    final int[] transferToRouteStops;
+    final double[] transferTimes;
+    final double[] transferDistances;
     final Map<TransitStopFacility, Integer> stopFacilityIndices;
     final Map<TransitStopFacility, int[]> routeStopsPerStopFacility;
     final QuadTree<TransitStopFacility> stopsQT;
     final Map<String, Map<String, QuadTree<TransitStopFacility>>> stopFilterAttribute2Value2StopsQT;
+    final Queue<SwissRailRaptorCore> idleCores = new ConcurrentLinkedQueue<>(); // see SwissRailRaptorCore.borrow()
 
     private SwissRailRaptorData(RaptorStaticConfig config, int countStops,
                                 RRoute[] routes, double[] departures, RRouteStop[] routeStops,
-                                RTransfer[] transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
+                                RTransfers transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
                                 Map<TransitStopFacility, int[]> routeStopsPerStopFacility, QuadTree<TransitStopFacility> stopsQT) {
         this.config = config;
         this.countStops = countStops;
@@ -61,7 +68,9 @@ public class SwissRailRaptorData {
         this.routes = routes;
         this.departures = departures;
         this.routeStops = routeStops;
-        this.transfers = transfers;
+        this.transferToRouteStops = transfers.toRouteStops;
+        this.transferTimes = transfers.transferTimes;
+        this.transferDistances = transfers.transferDistances;
         this.stopFacilityIndices = stopFacilityIndices;
         this.routeStopsPerStopFacility = routeStopsPerStopFacility;
         this.stopsQT = stopsQT;
@@ -166,24 +175,27 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
-        }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        RTransfers transfers = null;
+        long fingerprint = 0;
+        String snapshotFile = staticConfig.getTransfersSnapshotFile();
+        if (snapshotFile != null) {
+            fingerprint = SwissRailRaptorDataSnapshot.calcFingerprint(schedule, routeStops, departures, staticConfig);
+            transfers = SwissRailRaptorDataSnapshot.readTransfers(new File(snapshotFile), fingerprint, routeStops.length);
+        }
+        if (transfers == null) {
+            Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
+            transfers = createTransfers(allTransfers, routeStops.length);
+            if (snapshotFile != null) {
+                SwissRailRaptorDataSnapshot.writeTransfers(new File(snapshotFile), fingerprint, transfers);
+            }
         }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
         int indexTransfer = 0;
         for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
+            int transferCount = transfers.countsPerRouteStop[routeStopIndex];
             if (transferCount > 0) {
                 RRouteStop routeStop = routeStops[routeStopIndex];
                 routeStop.indexFirstTransfer = indexTransfer;
                 routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
                 indexTransfer += transferCount;
             }
         }
@@ -196,10 +208,35 @@ public class SwissRailRaptorData {
         log.info("SwissRailRaptor statistics:  #departures = " + departures.length);
         log.info("SwissRailRaptor statistics:  #routeStops = " + routeStops.length);
         log.info("SwissRailRaptor statistics:  #stopFacilities = " + countStopFacilities);
-        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + transfers.length);
+        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + transfers.toRouteStops.length);
         return data;
     }
 
+    private static RTransfers createTransfers(Map<Integer, RTransfer[]> allTransfers, int countRouteStops) {
+        long countTransfers = 0;
+        for (RTransfer[] transfers : allTransfers.values()) {
+            countTransfers += transfers.length;
+        }
+        if (countTransfers > Integer.MAX_VALUE) {
+            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        }
+        RTransfers transfers = new RTransfers(countRouteStops, (int) countTransfers);
+        int indexTransfer = 0;
+        for (int routeStopIndex = 0; routeStopIndex < countRouteStops; routeStopIndex++) {
+            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
+            if (stopTransfers != null) {
+                transfers.countsPerRouteStop[routeStopIndex] = stopTransfers.length;
+                for (RTransfer transfer : stopTransfers) {
+                    transfers.toRouteStops[indexTransfer] = transfer.toRouteStop;
+                    transfers.transferTimes[indexTransfer] = transfer.transferTime;
+                    transfers.transferDistances[indexTransfer] = transfer.transferDistance;
+                    indexTransfer++;
+                }
+            }
+        }
+        return transfers;
+    }
+
     // calculate possible transfers between TransitRouteStops
     private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
         Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
@@ -494,6 +531,26 @@ public class SwissRailRaptorData {
         }
     }
 
+    /**
+     * The transfers of all route stops, ordered by the route stop they start from.
+     */
+    static final class RTransfers {
+        final int[] countsPerRouteStop;
+        final int[] toRouteStops;
+        final double[] transferTimes;
+        final double[] transferDistances;
+
+        RTransfers(int countRouteStops, int countTransfers) {
+            this.countsPerRouteStop = new int[countRouteStops];
+            this.toRouteStops = new int[countTransfers];
+            this.transferTimes = new double[countTransfers];
+            this.transferDistances = new double[countTransfers];
+        }
+    }
+
+    /**
+     * Transfer between two route stops, only used while calculating the transfers, see {@link RTransfers}.
+     */
     static final class RTransfer {
         final int fromRouteStop;
         final int toRouteStop;
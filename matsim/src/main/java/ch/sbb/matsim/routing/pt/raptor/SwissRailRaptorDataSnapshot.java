@@ -0,0 +1,179 @@
+package ch.sbb.matsim.routing.pt.raptor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfers;
+
+/**
+ * Reads and writes the transfers between route stops of {@link SwissRailRaptorData} in a binary format.
+ * Calculating the transfers is by far the most expensive part of preparing the data for large schedules,
+ * while the rest of the data can be derived from the schedule quickly. So the transfers can be calculated
+ * once and then be read by other runs or other JVMs using the same schedule.
+ * <p>
+ * The file starts with a fingerprint of the route stops, departures, stop coordinates, minimal transfer times
+ * and transfer settings. If anything of these changes, the file is ignored and the transfers are calculated
+ * (and written) again. The file is memory-mapped for reading, and written to a temporary file first which
+ * is then moved into place, so concurrent runs never see a partially written file.
+ */
+final class SwissRailRaptorDataSnapshot {
+
+    private static final Logger log = Logger.getLogger(SwissRailRaptorDataSnapshot.class);
+
+    private static final int MAGIC = 0x53525254; // "SRRT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    private SwissRailRaptorDataSnapshot() {
+    }
+
+    static long calcFingerprint(TransitSchedule schedule, RRouteStop[] routeStops, double[] departures, RaptorStaticConfig config) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkConnectionDistance()));
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkSpeed()));
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkDistanceFactor()));
+        hash = mix(hash, Double.doubleToLongBits(config.getMinimalTransferTime()));
+        hash = mix(hash, config.getOptimization().ordinal());
+
+        hash = mix(hash, routeStops.length);
+        for (RRouteStop routeStop : routeStops) {
+            hash = mix(hash, routeStop.line.getId().toString().hashCode());
+            hash = mix(hash, routeStop.route.getId().toString().hashCode());
+            hash = mix(hash, routeStop.routeStop.getStopFacility().getId().toString().hashCode());
+            Coord coord = routeStop.routeStop.getStopFacility().getCoord();
+            hash = mix(hash, Double.doubleToLongBits(coord.getX()));
+            hash = mix(hash, Double.doubleToLongBits(coord.getY()));
+            hash = mix(hash, Double.doubleToLongBits(routeStop.arrivalOffset));
+            hash = mix(hash, Double.doubleToLongBits(routeStop.departureOffset));
+        }
+        hash = mix(hash, departures.length);
+        for (double departure : departures) {
+            hash = mix(hash, Double.doubleToLongBits(departure));
+        }
+
+        // the iteration order of the minimal transfer times is not defined, so combine them independent of the order
+        long transferTimesHash = 0;
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            long entryHash = mix(iter.getFromStopId().toString().hashCode(), iter.getToStopId().toString().hashCode());
+            transferTimesHash += mix(entryHash, Double.doubleToLongBits(iter.getSeconds()));
+        }
+        return mix(hash, transferTimesHash);
+    }
+
+    private static long mix(long hash, long value) {
+        // FNV-1a on whole longs, followed by a final avalanche step of murmur3
+        long h = (hash ^ value) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return the transfers stored in the file, or <code>null</code> if the file does not exist or does not
+     * match the given fingerprint.
+     */
+    static RTransfers readTransfers(File file, long fingerprint, int countRouteStops) {
+        if (!file.exists()) {
+            log.info("SwissRailRaptor transfers snapshot " + file + " does not exist yet, transfers will be calculated.");
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                log.warn("SwissRailRaptor transfers snapshot " + file + " is too short, transfers will be calculated.");
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("SwissRailRaptor transfers snapshot " + file + " has an unknown format, transfers will be calculated.");
+                return null;
+            }
+            if (buffer.getLong() != fingerprint || buffer.getInt() != countRouteStops) {
+                log.warn("SwissRailRaptor transfers snapshot " + file + " was written for a different schedule or different settings, transfers will be calculated.");
+                return null;
+            }
+            int countTransfers = buffer.getInt();
+            if (size != HEADER_BYTES + 4L * countRouteStops + (4L + 8L + 8L) * countTransfers) {
+                log.warn("SwissRailRaptor transfers snapshot " + file + " has an unexpected size, transfers will be calculated.");
+                return null;
+            }
+            RTransfers transfers = new RTransfers(countRouteStops, countTransfers);
+            buffer.asIntBuffer().get(transfers.countsPerRouteStop);
+            buffer.position(buffer.position() + 4 * countRouteStops);
+            buffer.asIntBuffer().get(transfers.toRouteStops);
+            buffer.position(buffer.position() + 4 * countTransfers);
+            buffer.asDoubleBuffer().get(transfers.transferTimes);
+            buffer.position(buffer.position() + 8 * countTransfers);
+            buffer.asDoubleBuffer().get(transfers.transferDistances);
+            log.info("SwissRailRaptor transfers read from snapshot " + file);
+            return transfers;
+        } catch (IOException e) {
+            log.warn("SwissRailRaptor transfers snapshot " + file + " could not be read, transfers will be calculated.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the transfers to the file. Failing to write the file is not fatal, the transfers will just be
+     * calculated again the next time.
+     */
+    static void writeTransfers(File file, long fingerprint, RTransfers transfers) {
+        Path target = file.getAbsoluteFile().toPath();
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fingerprint);
+                out.writeInt(transfers.countsPerRouteStop.length);
+                out.writeInt(transfers.toRouteStops.length);
+                for (int count : transfers.countsPerRouteStop) {
+                    out.writeInt(count);
+                }
+                for (int toRouteStop : transfers.toRouteStops) {
+                    out.writeInt(toRouteStop);
+                }
+                for (double transferTime : transfers.transferTimes) {
+                    out.writeDouble(transferTime);
+                }
+                for (double transferDistance : transfers.transferDistances) {
+                    out.writeDouble(transferDistance);
+                }
+            }
+            try {
+                Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("SwissRailRaptor transfers written to snapshot " + file);
+        } catch (IOException e) {
+            log.warn("SwissRailRaptor transfers snapshot " + file + " could not be written.", e);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+}
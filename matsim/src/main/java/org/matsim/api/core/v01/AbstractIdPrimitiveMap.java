@@ -0,0 +1,112 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+
+/**
+ * Key handling shared by {@link IdIntMap} and {@link IdDoubleMap}.
+ * <p>
+ * Like in {@link IdMap}, values are stored in arrays indexed by {@link Id#index()}. In addition, the indices of
+ * the contained ids are kept in a dense array, so iterating over the entries only visits the contained ids and
+ * not the whole id space. Entries are iterated by their position from <code>0</code> to <code>size() - 1</code>.
+ * Removing an entry moves the last entry to its position.
+ */
+abstract class AbstractIdPrimitiveMap<T> {
+
+	static final int INCREMENT = 100;
+	private static final float INCREMENT_FACTOR = 1.5f;
+
+	private final Class<T> idClass;
+	private int size = 0;
+	/** position + 1 in {@link #keys} of each id index, 0 if the id is not contained */
+	private int[] positions;
+	private int[] keys;
+
+	AbstractIdPrimitiveMap(Class<T> idClass, int size) {
+		this.idClass = idClass;
+		this.positions = new int[size];
+		this.keys = new int[Math.min(size, INCREMENT)];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		int idx = key.index();
+		return idx < this.positions.length && this.positions[idx] != 0;
+	}
+
+	/**
+	 * @return the id of the entry at the given position, <code>0 &lt;= position &lt; size()</code>.
+	 */
+	public Id<T> getKey(int position) {
+		return Id.get(indexAt(position), this.idClass);
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.keys[i]] = 0;
+		}
+		this.size = 0;
+	}
+
+	final int indexAt(int position) {
+		if (position >= this.size) {
+			throw new IndexOutOfBoundsException("position " + position + ", size " + this.size);
+		}
+		return this.keys[position];
+	}
+
+	final boolean contains(int idx) {
+		return idx < this.positions.length && this.positions[idx] != 0;
+	}
+
+	/**
+	 * Adds the id index to the keys if it is not yet contained.
+	 *
+	 * @return <code>true</code> if the id index was added, <code>false</code> if it was already contained.
+	 */
+	final boolean addKey(int idx) {
+		if (idx >= this.positions.length) {
+			int newSize = Math.max(idx + INCREMENT, (int) (this.positions.length * INCREMENT_FACTOR));
+			this.positions = Arrays.copyOf(this.positions, newSize);
+			growValues(newSize);
+		}
+		if (this.positions[idx] != 0) {
+			return false;
+		}
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, Math.max(this.size + INCREMENT, (int) (this.size * INCREMENT_FACTOR)));
+		}
+		this.keys[this.size] = idx;
+		this.size++;
+		this.positions[idx] = this.size;
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the id index was contained and is now removed.
+	 */
+	final boolean removeKey(int idx) {
+		if (!contains(idx)) {
+			return false;
+		}
+		int position = this.positions[idx] - 1;
+		int last = this.keys[this.size - 1];
+		this.keys[position] = last;
+		this.positions[last] = position + 1;
+		this.positions[idx] = 0;
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Called when the id space of the map grows, the value array must be enlarged to the given size.
+	 */
+	abstract void growValues(int newSize);
+
+}
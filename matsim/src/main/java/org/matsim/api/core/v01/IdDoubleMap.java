@@ -0,0 +1,93 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Maps {@link Id}s to primitive <code>double</code> values, without boxing keys or values. Lookups are array accesses by
+ * {@link Id#index()}, see {@link AbstractIdPrimitiveMap} for how the entries are iterated.
+ * <p>
+ * Missing keys map to the <code>noEntryValue</code> given in the constructor, <code>0.0</code> by default.
+ */
+public class IdDoubleMap<T> extends AbstractIdPrimitiveMap<T> {
+
+	private final double noEntryValue;
+	private double[] values;
+
+	public IdDoubleMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT), 0.0);
+	}
+
+	public IdDoubleMap(Class<T> idClass, int size, double noEntryValue) {
+		super(idClass, size);
+		this.noEntryValue = noEntryValue;
+		this.values = new double[size];
+	}
+
+	public double getNoEntryValue() {
+		return this.noEntryValue;
+	}
+
+	public double get(Id<T> key) {
+		int idx = key.index();
+		return contains(idx) ? this.values[idx] : this.noEntryValue;
+	}
+
+	public double getOrDefault(Id<T> key, double defaultValue) {
+		int idx = key.index();
+		return contains(idx) ? this.values[idx] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value, or the <code>noEntryValue</code> if the key was not contained.
+	 */
+	public double put(Id<T> key, double value) {
+		int idx = key.index();
+		double oldValue = addKey(idx) ? this.noEntryValue : this.values[idx];
+		this.values[idx] = value;
+		return oldValue;
+	}
+
+	/**
+	 * Adds <code>amount</code> to the value of the key. A key that is not contained is added with the value
+	 * <code>amount</code>, independent of the <code>noEntryValue</code>.
+	 *
+	 * @return the new value.
+	 */
+	public double add(Id<T> key, double amount) {
+		int idx = key.index();
+		if (addKey(idx)) {
+			this.values[idx] = amount;
+		} else {
+			this.values[idx] += amount;
+		}
+		return this.values[idx];
+	}
+
+	/**
+	 * @return the removed value, or the <code>noEntryValue</code> if the key was not contained.
+	 */
+	public double remove(Id<T> key) {
+		int idx = key.index();
+		return removeKey(idx) ? this.values[idx] : this.noEntryValue;
+	}
+
+	/**
+	 * @return the value of the entry at the given position, <code>0 &lt;= position &lt; size()</code>.
+	 */
+	public double getValue(int position) {
+		return this.values[indexAt(position)];
+	}
+
+	public void forEach(ObjDoubleConsumer<Id<T>> action) {
+		for (int i = 0; i < size(); i++) {
+			action.accept(getKey(i), this.values[indexAt(i)]);
+		}
+	}
+
+	@Override
+	void growValues(int newSize) {
+		this.values = Arrays.copyOf(this.values, newSize);
+	}
+
+}
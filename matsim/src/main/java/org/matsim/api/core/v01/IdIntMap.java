@@ -0,0 +1,93 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Maps {@link Id}s to primitive <code>int</code> values, without boxing keys or values. Lookups are array accesses by
+ * {@link Id#index()}, see {@link AbstractIdPrimitiveMap} for how the entries are iterated.
+ * <p>
+ * Missing keys map to the <code>noEntryValue</code> given in the constructor, <code>0</code> by default.
+ */
+public class IdIntMap<T> extends AbstractIdPrimitiveMap<T> {
+
+	private final int noEntryValue;
+	private int[] values;
+
+	public IdIntMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), INCREMENT), 0);
+	}
+
+	public IdIntMap(Class<T> idClass, int size, int noEntryValue) {
+		super(idClass, size);
+		this.noEntryValue = noEntryValue;
+		this.values = new int[size];
+	}
+
+	public int getNoEntryValue() {
+		return this.noEntryValue;
+	}
+
+	public int get(Id<T> key) {
+		int idx = key.index();
+		return contains(idx) ? this.values[idx] : this.noEntryValue;
+	}
+
+	public int getOrDefault(Id<T> key, int defaultValue) {
+		int idx = key.index();
+		return contains(idx) ? this.values[idx] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value, or the <code>noEntryValue</code> if the key was not contained.
+	 */
+	public int put(Id<T> key, int value) {
+		int idx = key.index();
+		int oldValue = addKey(idx) ? this.noEntryValue : this.values[idx];
+		this.values[idx] = value;
+		return oldValue;
+	}
+
+	/**
+	 * Adds <code>amount</code> to the value of the key. A key that is not contained is added with the value
+	 * <code>amount</code>, independent of the <code>noEntryValue</code>.
+	 *
+	 * @return the new value.
+	 */
+	public int add(Id<T> key, int amount) {
+		int idx = key.index();
+		if (addKey(idx)) {
+			this.values[idx] = amount;
+		} else {
+			this.values[idx] += amount;
+		}
+		return this.values[idx];
+	}
+
+	/**
+	 * @return the removed value, or the <code>noEntryValue</code> if the key was not contained.
+	 */
+	public int remove(Id<T> key) {
+		int idx = key.index();
+		return removeKey(idx) ? this.values[idx] : this.noEntryValue;
+	}
+
+	/**
+	 * @return the value of the entry at the given position, <code>0 &lt;= position &lt; size()</code>.
+	 */
+	public int getValue(int position) {
+		return this.values[indexAt(position)];
+	}
+
+	public void forEach(ObjIntConsumer<Id<T>> action) {
+		for (int i = 0; i < size(); i++) {
+			action.accept(getKey(i), this.values[indexAt(i)]);
+		}
+	}
+
+	@Override
+	void growValues(int newSize) {
+		this.values = Arrays.copyOf(this.values, newSize);
+	}
+
+}
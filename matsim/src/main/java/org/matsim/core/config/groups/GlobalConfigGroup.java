@@ -38,6 +38,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(REPLANNING_THREAD_SCHEDULING, REPLANNING_THREAD_SCHEDULING_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +94,29 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum ReplanningThreadScheduling { roundRobin, workStealing }
+	private static final String REPLANNING_THREAD_SCHEDULING = "replanningThreadScheduling";
+	private static final String REPLANNING_THREAD_SCHEDULING_CMT = "How multi-threaded replanning modules distribute plans to their threads.  "
+			+ "roundRobin: plans are assigned to the threads in turn before the threads start, which keeps runs reproducible.  "
+			+ "workStealing: the threads take small batches of plans from a fork/join pool, so a thread with expensive plans "
+			+ "does not delay the others, but which thread handles which plan depends on timing.";
+	private ReplanningThreadScheduling replanningThreadScheduling = ReplanningThreadScheduling.roundRobin;
+
+	/**
+	 * @return {@link #REPLANNING_THREAD_SCHEDULING_CMT}
+	 */
+	@StringGetter( REPLANNING_THREAD_SCHEDULING )
+	public ReplanningThreadScheduling getReplanningThreadScheduling() {
+		return this.replanningThreadScheduling;
+	}
+	/**
+	 * @param replanningThreadScheduling -- {@link #REPLANNING_THREAD_SCHEDULING_CMT}
+	 */
+	@StringSetter( REPLANNING_THREAD_SCHEDULING )
+	public void setReplanningThreadScheduling(final ReplanningThreadScheduling replanningThreadScheduling) {
+		this.replanningThreadScheduling = replanningThreadScheduling;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
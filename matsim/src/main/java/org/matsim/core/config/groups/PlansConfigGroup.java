@@ -41,17 +41,20 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+	public enum PlansStorage { objects, compact, compactOffHeap }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
 //	private static final String SUBPOPULATION_ATTRIBUTE = "subpopulationAttributeName";
 	private static final String INPUT_CRS = "inputCRS";
+	private static final String PLANS_STORAGE = "plansStorage";
 
 	private String inputFile = null;
 	private String networkRouteType = NetworkRouteType.LinkNetworkRoute;
 	private String inputPersonAttributeFile = null;
 //	private String subpopulationAttributeName = "subpopulation";
 	private String inputCRS = null;
+	private PlansStorage plansStorage = PlansStorage.objects;
 	
 	//--
 	
@@ -72,6 +75,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
 				NetworkRouteType.CompressedNetworkRoute + ".");
+		comments.put(PLANS_STORAGE, "Defines how plans are stored in memory. " + PlansStorage.objects + " (default) stores all plans as objects. " +
+				PlansStorage.compact + " stores the activities and legs of non-selected plans in a compact binary form, which needs much less " +
+				"memory with several plans per person. " + PlansStorage.compactOffHeap + " does the same, but stores the binary data outside of " +
+				"the java heap (see -XX:MaxDirectMemorySize).");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -91,6 +98,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(PARALLEL_IO, "If true, population_v6 files are read and the plans dumps are written using " +
+				"global.numberOfThreads threads. Coordinates are only written in parallel if no coordinate transformation is needed. " +
+				"The files and the resulting population are the same as with sequential reading and writing. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -165,6 +176,16 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.networkRouteType = routeType;
 	}
 	// ---
+	@StringGetter( PLANS_STORAGE )
+	public PlansStorage getPlansStorage() {
+		return this.plansStorage;
+	}
+
+	@StringSetter( PLANS_STORAGE )
+	public void setPlansStorage(final PlansStorage plansStorage) {
+		this.plansStorage = plansStorage;
+	}
+	// ---
 //	/**
 //	 * @deprecated -- use {@link org.matsim.core.population.PopulationUtils#getSubpopulation(Person, Config)}
 //	 */
@@ -217,6 +238,18 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String PARALLEL_IO = "parallelIO";
+	private boolean parallelIO = false;
+	@StringGetter(PARALLEL_IO)
+	public boolean isParallelIO() {
+		return this.parallelIO;
+	}
+	@StringSetter(PARALLEL_IO)
+	public void setParallelIO(final boolean parallelIO) {
+		this.parallelIO = parallelIO;
+	}
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
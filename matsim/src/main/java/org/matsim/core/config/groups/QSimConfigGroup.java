@@ -56,6 +56,7 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private static final String STUCK_TIME = "stuckTime";
 	private static final String REMOVE_STUCK_VEHICLES = "removeStuckVehicles";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private static final String NETSIM_ENGINE_SYNCHRONIZATION = "netsimEngineSynchronization";
 	private static final String TRAFFIC_DYNAMICS = "trafficDynamics";
 	private static final String SIM_STARTTIME_INTERPRETATION = "simStarttimeInterpretation";
 	private static final String USE_PERSON_ID_FOR_MISSING_VEHICLE_ID = "usePersonIdForMissingVehicleId";
@@ -87,6 +88,8 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private boolean usePersonIdForMissingVehicleId = true;
 	@Positive
 	private int numberOfThreads = 1;
+	public enum NetsimEngineSynchronization { barriers, localClocks }
+	private NetsimEngineSynchronization netsimEngineSynchronization = NetsimEngineSynchronization.barriers;
 	private TrafficDynamics trafficDynamics = TrafficDynamics.queue ;
 	
 	private StarttimeInterpretation simStarttimeInterpretation = StarttimeInterpretation.maxOfStarttimeAndEarliestActivityEnd;
@@ -243,6 +246,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there." ) ;
+		map.put(NETSIM_ENGINE_SYNCHRONIZATION, "How the threads of the network simulation are synchronized.  "
+				+ NetsimEngineSynchronization.barriers + ": all threads wait for each other after moving the nodes and after moving the links.  "
+				+ NetsimEngineSynchronization.localClocks + ": the network is partitioned geographically, and a thread only waits for the "
+				+ "threads owning the nodes at the end of its links before moving the links.  Only makes a difference with several threads." ) ;
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING );
 		map.put(STUCK_TIME, STUCK_TIME_STRING );
 
@@ -273,6 +280,8 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 				"factor, and storage capacity factor need to be set with diligence.  Need to be vehicular modes to make sense.");
 		map.put(INSERTING_WAITING_VEHICLES_BEFORE_DRIVING_VEHICLES,
 				INSERTING_WAITING_VEHICLES_BEFORE_DRIVING_VEHICLES_CMT );
+		map.put(METRICS_INTERVAL, METRICS_INTERVAL_CMT);
+		map.put(ACTIVITY_ENDS_QUEUE, ACTIVITY_ENDS_QUEUE_CMT);
 		map.put(NODE_OFFSET, "Shortens a link in the visualization, i.e. its start and end point are moved into towards the center. Does not affect traffic flow. ");
 		map.put(LINK_WIDTH, "The (initial) width of the links of the network. Use positive floating point values. This is used only for visualisation.");
 		{
@@ -424,6 +433,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter(NETSIM_ENGINE_SYNCHRONIZATION)
+	public NetsimEngineSynchronization getNetsimEngineSynchronization() {
+		return this.netsimEngineSynchronization;
+	}
+
+	@StringSetter(NETSIM_ENGINE_SYNCHRONIZATION)
+	public void setNetsimEngineSynchronization(final NetsimEngineSynchronization netsimEngineSynchronization) {
+		testForLocked();
+		this.netsimEngineSynchronization = netsimEngineSynchronization;
+	}
+
 	@StringGetter(SIM_STARTTIME_INTERPRETATION)
 	public StarttimeInterpretation getSimStarttimeInterpretation() {
 		return simStarttimeInterpretation;
@@ -584,6 +604,49 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.isRestrictingSeepage = isRestrictingSeepage;
 	}
 	// ---
+	private static final String METRICS_INTERVAL = "metricsInterval";
+	private static final String METRICS_INTERVAL_CMT = "Interval (in seconds of simulated time) in which metrics of the "
+			+ "qsim engines, e.g. the time spent by each netsim thread or the queue sizes of the activity and teleportation engines, "
+			+ "are aggregated and written to ITERS/it.N/N.qsimMetrics.csv. 0 (default) means no metrics are collected.";
+	private double metricsInterval = 0;
+	/**
+	 * @return {@value #METRICS_INTERVAL_CMT}
+	 */
+	@StringGetter(METRICS_INTERVAL)
+	public double getMetricsInterval() {
+		return this.metricsInterval;
+	}
+	/**
+	 * @param metricsInterval {@value #METRICS_INTERVAL_CMT}
+	 */
+	@StringSetter(METRICS_INTERVAL)
+	public void setMetricsInterval(double metricsInterval) {
+		this.metricsInterval = metricsInterval;
+	}
+	// ---
+	private static final String ACTIVITY_ENDS_QUEUE = "activityEndsQueue";
+	private static final String ACTIVITY_ENDS_QUEUE_CMT = "How the activity engine stores the agents at an activity until their "
+			+ "activity ends. " + ActivityEndsQueueType.priorityQueue + " (default): a priority queue; removing an agent whose activity "
+			+ "end is rescheduled (within-day replanning) needs a linear search. " + ActivityEndsQueueType.calendar + ": one bucket per "
+			+ "second of simulated time, with constant time insertion, removal and rescheduling. Both produce the same order of activity ends.";
+	public enum ActivityEndsQueueType { priorityQueue, calendar }
+	private ActivityEndsQueueType activityEndsQueue = ActivityEndsQueueType.priorityQueue;
+	/**
+	 * @return {@value #ACTIVITY_ENDS_QUEUE_CMT}
+	 */
+	@StringGetter(ACTIVITY_ENDS_QUEUE)
+	public ActivityEndsQueueType getActivityEndsQueue() {
+		return this.activityEndsQueue;
+	}
+	/**
+	 * @param activityEndsQueue {@value #ACTIVITY_ENDS_QUEUE_CMT}
+	 */
+	@StringSetter(ACTIVITY_ENDS_QUEUE)
+	public void setActivityEndsQueue(ActivityEndsQueueType activityEndsQueue) {
+		testForLocked();
+		this.activityEndsQueue = activityEndsQueue;
+	}
+	// ---
 	private boolean usingTravelTimeCheckInTeleportation = false ;
 	public boolean isUsingTravelTimeCheckInTeleportation() {
 		// yyyyyy this should better become a threshold number!  kai, aug'16
@@ -145,6 +145,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		for (ControlerConfigGroup.EventsFileFormat format : this.controlerConfigGroup.getEventsFileFormats()) {
 			try {
 				Controler.DefaultFiles file;
+				boolean compressed = true;
 				switch (format) {
 					case xml:
 						file = Controler.DefaultFiles.events;
@@ -155,12 +156,19 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case binary:
+						file = Controler.DefaultFiles.eventsBinary;
+						compressed = false;
+						break;
 					default:
 						continue;
 				}
 
-				File toFile = new File(this.controlerIO.getOutputFilename(file));
-				File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), file));
+				int lastIteration = this.controlerConfigGroup.getLastIteration();
+				File toFile = new File(compressed ? this.controlerIO.getOutputFilename(file)
+						: this.controlerIO.getOutputFilename(file, ControlerConfigGroup.CompressionType.none));
+				File fromFile = new File(compressed ? this.controlerIO.getIterationFilename(lastIteration, file)
+						: this.controlerIO.getIterationFilename(lastIteration, file, ControlerConfigGroup.CompressionType.none));
 				try {
 					Files.copy(fromFile.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
 				} catch (IOException e) {
@@ -334,6 +342,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 		final PopulationWriter writer = new PopulationWriter(this.population, this.network);
 		writer.putAttributeConverters(this.attributeConverters);
+		if (this.config.plans().isParallelIO()) {
+			writer.setNumberOfThreads(this.config.global().getNumberOfThreads());
+		}
 		writer.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.population));
 	}
 
@@ -20,6 +20,10 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -28,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -76,6 +81,11 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>(optional) add an appropriate line in callHandlerFast() for speeding
  * up execution!</li>
  * </ol>
+ * With {@link HandlerDispatch#generated}, a dispatcher calling <code>handleEvent</code> directly is generated with
+ * {@link LambdaMetafactory} for every handler interface when the first handler for it is added, so neither reflection
+ * nor callHandlerFast() are used while processing events. All generated dispatchers are called from the same call
+ * site, though, which the JIT cannot inline once it has seen more than two of them, so
+ * {@link HandlerDispatch#reflective} remains the default.
  *
  * @author dstrippgen
  * @author mrieser
@@ -84,15 +94,28 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * How <code>handleEvent</code> of the registered handlers is called.
+	 */
+	public enum HandlerDispatch {
+		/** calls the handlers through callHandlerFast() or, for other event types, {@link Method#invoke} */
+		reflective,
+		/** calls the handlers through dispatchers generated when the handlers are added */
+		generated
+	}
+
 	static private class HandlerData {
 
 		protected Class<? extends Event> eventClass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
+		protected BiConsumer<EventHandler, Event> dispatcher;
 
-		protected HandlerData(final Class<? extends Event> eventClass, final Method method) {
+		protected HandlerData(final Class<? extends Event> eventClass, final Method method,
+				final BiConsumer<EventHandler, Event> dispatcher) {
 			this.eventClass = eventClass;
 			this.method = method;
+			this.dispatcher = dispatcher;
 		}
 
 		protected void removeHandler(final EventHandler handler) {
@@ -104,15 +127,19 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<? extends Event> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final BiConsumer<EventHandler, Event> dispatcher;
 
 		protected HandlerInfo(final Class<? extends Event> eventClass, final EventHandler eventHandler,
-				final Method method) {
+				final Method method, final BiConsumer<EventHandler, Event> dispatcher) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.dispatcher = dispatcher;
 		}
 	}
 
+	private final HandlerDispatch handlerDispatch;
+
 	private final List<HandlerData> handlerData = new ArrayList<>();
 
 	private final Map<Class<? extends Event>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<>(15);
@@ -120,6 +147,14 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(HandlerDispatch.reflective);
+	}
+
+	public EventsManagerImpl(final HandlerDispatch handlerDispatch) {
+		this.handlerDispatch = handlerDispatch;
+	}
+
 	private HandlerData findHandler(final Class<? extends Event> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventClass == evklass) {
@@ -138,6 +173,14 @@ public final class EventsManagerImpl implements EventsManager {
 		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
 			synchronized(info.eventHandler) {
+				if (info.dispatcher != null) {
+					try {
+						info.dispatcher.accept(info.eventHandler, event);
+					} catch (RuntimeException e) {
+						throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+					}
+					continue;
+				}
 				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
 					continue;
 				}
@@ -227,7 +270,8 @@ public final class EventsManagerImpl implements EventsManager {
 					log.info("    > " + eventClass.getName());
 					HandlerData dat = findHandler(eventClass);
 					if (dat == null) {
-						dat = new HandlerData(eventClass, method);
+						BiConsumer<EventHandler, Event> dispatcher = this.handlerDispatch == HandlerDispatch.generated ? createDispatcher(method) : null;
+						dat = new HandlerData(eventClass, method, dispatcher);
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
@@ -250,7 +294,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(eventKlass);
 			if (dat != null) {
 				for (EventHandler handler : dat.handlerList) {
-					info.add(new HandlerInfo(eventKlass, handler, dat.method));
+					info.add(new HandlerInfo(eventKlass, handler, dat.method, dat.dispatcher));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -261,6 +305,29 @@ public final class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	/**
+	 * Generates a class implementing {@link BiConsumer} whose <code>accept</code> calls the given
+	 * <code>handleEvent</code> method directly, just like the code in callHandlerFast() does.
+	 *
+	 * @return the dispatcher, or <code>null</code> if the method is not accessible from here, in which case the
+	 * handler is called by reflection
+	 */
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<EventHandler, Event> createDispatcher(final Method method) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+					MethodType.methodType(BiConsumer.class),
+					MethodType.methodType(void.class, Object.class, Object.class),
+					lookup.unreflect(method),
+					MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+			return (BiConsumer<EventHandler, Event>) site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.warn("could not generate dispatcher for " + method + ", using reflection instead: " + e.getMessage());
+			return null;
+		}
+	}
+
 	// this method is purely for performance reasons and need not be implemented
 	private static boolean callHandlerFast(final Class<? extends Event> klass, final Event ev,
 			final EventHandler handler) {
@@ -0,0 +1,521 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Stack;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasFacilityId;
+import org.matsim.api.core.v01.events.HasLinkId;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.Attributes;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.
+ * <p>
+ * The file is memory-mapped, and the string dictionary is decoded once when the file is opened. Decoding an event
+ * then only looks up strings by their index in the dictionary, and numbers are read as they are stored, no strings
+ * are created or parsed per event. The most frequent events (link, traffic, vehicle, departure, arrival and activity
+ * events) are created directly from these values, and their ids are created only once per dictionary entry. All
+ * other events are converted by the same code as in {@link EventsReaderXMLv1}, so the binary and the xml format result
+ * in the same events, including custom events.
+ * <p>
+ * With {@link #readFile(String, double, double)}, only the events in a given time window are read. Blocks of
+ * events outside the time window are skipped using the index of the file.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	// mapped buffers are limited to 2GB, so large files are mapped in several segments at block boundaries.
+	private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 delegate;
+	private final Stack<String> context = new Stack<>();
+
+	private String[] strings;
+	private Id<Link>[] linkIds;
+	private Id<Person>[] personIds;
+	private Id<Vehicle>[] vehicleIds;
+
+	// attributes of the current event, without time and type
+	private String[] names = new String[16];
+	private byte[] kinds = new byte[16];
+	private int[] references = new int[16];
+	private double[] numbers = new double[16];
+	private int length = 0;
+
+	private final XmlAttributes xmlAttributes = new XmlAttributes();
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Reads all events of the file.
+	 */
+	public void readFile(final String filename) {
+		readFile(filename, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Reads all events from a stream. As the format is memory-mapped, the stream is first copied to a temporary file.
+	 */
+	public void readStream(final InputStream stream) {
+		Path file = null;
+		try {
+			file = Files.createTempFile("events", ".bin");
+			Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+			readFile(file.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (file != null) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					log.warn("could not delete temporary events file " + file, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads all events with <code>fromTime &lt;= time &lt;= toTime</code>.
+	 */
+	public void readFile(final String filename, final double fromTime, final double toTime) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			ByteBuffer footer = map(channel, fileSize - EventWriterBinary.FOOTER_SIZE, EventWriterBinary.FOOTER_SIZE);
+			long dictionaryOffset = footer.getLong(0);
+			long indexOffset = footer.getLong(Long.BYTES);
+			long eventCount = footer.getLong(2 * Long.BYTES);
+			checkMagic(footer, 3 * Long.BYTES, filename);
+			ByteBuffer header = map(channel, 0, EventWriterBinary.HEADER_SIZE);
+			checkMagic(header, 0, filename);
+			int version = header.getInt(EventWriterBinary.MAGIC.length);
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+
+			readDictionary(map(channel, dictionaryOffset, indexOffset - dictionaryOffset));
+			log.info("reading " + eventCount + " events with " + this.strings.length + " distinct strings from " + filename);
+
+			ByteBuffer index = map(channel, indexOffset, fileSize - EventWriterBinary.FOOTER_SIZE - indexOffset);
+			int blockCount = index.getInt(0);
+			ByteBuffer segment = null;
+			long segmentStart = 0;
+			for (int b = 0; b < blockCount; b++) {
+				int entry = Integer.BYTES + b * (Long.BYTES + 2 * Integer.BYTES + 2 * Double.BYTES);
+				long offset = index.getLong(entry);
+				int length = index.getInt(entry + Long.BYTES);
+				double minTime = index.getDouble(entry + Long.BYTES + 2 * Integer.BYTES);
+				double maxTime = index.getDouble(entry + Long.BYTES + 2 * Integer.BYTES + Double.BYTES);
+				if (maxTime < fromTime || minTime > toTime) {
+					continue;
+				}
+				if (segment == null || offset + length > segmentStart + segment.capacity()) {
+					segmentStart = offset;
+					segment = map(channel, offset, Math.min(MAX_SEGMENT_SIZE, dictionaryOffset - offset));
+				}
+				readBlock(segment, (int) (offset - segmentStart), fromTime, toTime);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readBlock(final ByteBuffer buffer, final int blockStart, final double fromTime, final double toTime) {
+		int eventCount = buffer.getInt(blockStart);
+		int position = blockStart + Integer.BYTES;
+		for (int i = 0; i < eventCount; i++) {
+			double time = buffer.getDouble(position);
+			int type = buffer.getInt(position + Double.BYTES);
+			int count = Short.toUnsignedInt(buffer.getShort(position + Double.BYTES + Integer.BYTES));
+			position += Double.BYTES + Integer.BYTES + Short.BYTES;
+			ensureCapacity(count);
+			for (int a = 0; a < count; a++) {
+				this.names[a] = this.strings[buffer.getInt(position)];
+				byte kind = buffer.get(position + Integer.BYTES);
+				this.kinds[a] = kind;
+				position += Integer.BYTES + Byte.BYTES;
+				if (kind == EventWriterBinary.VALUE_STRING) {
+					this.references[a] = buffer.getInt(position);
+					position += Integer.BYTES;
+				} else if (kind == EventWriterBinary.VALUE_NUMBER) {
+					this.numbers[a] = buffer.getDouble(position);
+					position += Double.BYTES;
+				}
+			}
+			this.length = count;
+			if (time >= fromTime && time <= toTime) {
+				Event event = createEvent(time, this.strings[type]);
+				if (event != null) {
+					this.events.processEvent(event);
+				} else {
+					this.xmlAttributes.time = time;
+					this.xmlAttributes.type = this.strings[type];
+					this.delegate.startTag(EventsReaderXMLv1.EVENT, this.xmlAttributes, this.context);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the frequent events directly from the decoded values.
+	 *
+	 * @return <code>null</code> if the event is to be converted by {@link EventsReaderXMLv1}, i.e. for all other event
+	 * types, or if a mandatory attribute is missing.
+	 */
+	private Event createEvent(final double time, final String type) {
+		switch (type) {
+			case LinkLeaveEvent.EVENT_TYPE: {
+				Id<Vehicle> vehicleId = id(LinkLeaveEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class);
+				Id<Link> linkId = id(LinkLeaveEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				return vehicleId == null || linkId == null ? null : new LinkLeaveEvent(time, vehicleId, linkId);
+			}
+			case LinkEnterEvent.EVENT_TYPE: {
+				Id<Vehicle> vehicleId = id(LinkEnterEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class);
+				Id<Link> linkId = id(LinkEnterEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				return vehicleId == null || linkId == null ? null : new LinkEnterEvent(time, vehicleId, linkId);
+			}
+			case VehicleEntersTrafficEvent.EVENT_TYPE: {
+				Id<Person> personId = id(HasPersonId.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Link> linkId = id(VehicleEntersTrafficEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				Id<Vehicle> vehicleId = id(VehicleEntersTrafficEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class);
+				int position = indexOfValue(VehicleEntersTrafficEvent.ATTRIBUTE_POSITION);
+				if (personId == null || linkId == null || vehicleId == null || position < 0) {
+					return null;
+				}
+				return new VehicleEntersTrafficEvent(time, personId, linkId, vehicleId,
+						string(VehicleEntersTrafficEvent.ATTRIBUTE_NETWORKMODE), number(position));
+			}
+			case VehicleLeavesTrafficEvent.EVENT_TYPE: {
+				Id<Person> personId = id(VehicleLeavesTrafficEvent.ATTRIBUTE_DRIVER, this.personIds, Person.class);
+				Id<Link> linkId = id(VehicleLeavesTrafficEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				int position = indexOfValue(VehicleLeavesTrafficEvent.ATTRIBUTE_POSITION);
+				if (personId == null || linkId == null || position < 0) {
+					return null;
+				}
+				return new VehicleLeavesTrafficEvent(time, personId, linkId,
+						id(VehicleLeavesTrafficEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class),
+						string(VehicleLeavesTrafficEvent.ATTRIBUTE_NETWORKMODE), number(position));
+			}
+			case ActivityEndEvent.EVENT_TYPE: {
+				Id<Person> personId = id(HasPersonId.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Link> linkId = id(HasLinkId.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				if (personId == null || linkId == null) {
+					return null;
+				}
+				return new ActivityEndEvent(time, personId, linkId, facilityId(), string(ActivityEndEvent.ATTRIBUTE_ACTTYPE));
+			}
+			case ActivityStartEvent.EVENT_TYPE: {
+				Id<Person> personId = id(HasPersonId.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Link> linkId = id(HasLinkId.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				if (personId == null || linkId == null) {
+					return null;
+				}
+				Coord coord = null;
+				int x = indexOfValue(Event.ATTRIBUTE_X);
+				if (x >= 0) {
+					int y = indexOfValue(Event.ATTRIBUTE_Y);
+					if (y < 0) {
+						return null;
+					}
+					coord = new Coord(number(x), number(y));
+				}
+				return new ActivityStartEvent(time, personId, linkId, facilityId(), string(ActivityStartEvent.ATTRIBUTE_ACTTYPE), coord);
+			}
+			case PersonArrivalEvent.EVENT_TYPE: {
+				Id<Person> personId = id(PersonArrivalEvent.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Link> linkId = id(PersonArrivalEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				if (personId == null || linkId == null) {
+					return null;
+				}
+				String legMode = string(PersonArrivalEvent.ATTRIBUTE_LEGMODE);
+				return new PersonArrivalEvent(time, personId, linkId, legMode == null ? null : legMode.intern());
+			}
+			case PersonDepartureEvent.EVENT_TYPE: {
+				Id<Person> personId = id(PersonDepartureEvent.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Link> linkId = id(PersonDepartureEvent.ATTRIBUTE_LINK, this.linkIds, Link.class);
+				if (personId == null || linkId == null) {
+					return null;
+				}
+				String legMode = string(PersonDepartureEvent.ATTRIBUTE_LEGMODE);
+				return new PersonDepartureEvent(time, personId, linkId, legMode == null ? null : legMode.intern());
+			}
+			case PersonEntersVehicleEvent.EVENT_TYPE: {
+				Id<Person> personId = id(PersonEntersVehicleEvent.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Vehicle> vehicleId = id(PersonEntersVehicleEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class);
+				return personId == null || vehicleId == null ? null : new PersonEntersVehicleEvent(time, personId, vehicleId);
+			}
+			case PersonLeavesVehicleEvent.EVENT_TYPE: {
+				Id<Person> personId = id(PersonLeavesVehicleEvent.ATTRIBUTE_PERSON, this.personIds, Person.class);
+				Id<Vehicle> vehicleId = id(PersonLeavesVehicleEvent.ATTRIBUTE_VEHICLE, this.vehicleIds, Vehicle.class);
+				return personId == null || vehicleId == null ? null : new PersonLeavesVehicleEvent(time, personId, vehicleId);
+			}
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return the index of the attribute with the given name and a value that is not <code>null</code>, or -1
+	 */
+	private int indexOfValue(final String name) {
+		for (int a = 0; a < this.length; a++) {
+			if (this.names[a].equals(name)) {
+				return this.kinds[a] == EventWriterBinary.VALUE_NULL ? -1 : a;
+			}
+		}
+		return -1;
+	}
+
+	private String string(final String name) {
+		int a = indexOfValue(name);
+		return a < 0 ? null : string(a);
+	}
+
+	private String string(final int a) {
+		switch (this.kinds[a]) {
+			case EventWriterBinary.VALUE_STRING:
+				return this.strings[this.references[a]];
+			case EventWriterBinary.VALUE_NUMBER:
+				// numbers are only stored inline if this results in the original string
+				return Double.toString(this.numbers[a]);
+			default:
+				return null;
+		}
+	}
+
+	private double number(final int a) {
+		return this.kinds[a] == EventWriterBinary.VALUE_NUMBER ? this.numbers[a] : Double.parseDouble(string(a));
+	}
+
+	/**
+	 * @return the id of the attribute, created only once per dictionary entry, or <code>null</code> if the attribute
+	 * is missing
+	 */
+	private <T> Id<T> id(final String name, final Id<T>[] cache, final Class<T> idClass) {
+		int a = indexOfValue(name);
+		if (a < 0) {
+			return null;
+		}
+		if (this.kinds[a] != EventWriterBinary.VALUE_STRING) {
+			return Id.create(string(a), idClass);
+		}
+		int reference = this.references[a];
+		Id<T> id = cache[reference];
+		if (id == null) {
+			id = Id.create(this.strings[reference], idClass);
+			cache[reference] = id;
+		}
+		return id;
+	}
+
+	private Id<ActivityFacility> facilityId() {
+		String facility = string(HasFacilityId.ATTRIBUTE_FACILITY);
+		return facility == null ? null : Id.create(facility, ActivityFacility.class);
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (this.names.length < capacity) {
+			int newLength = Math.max(capacity, 2 * this.names.length);
+			this.names = Arrays.copyOf(this.names, newLength);
+			this.kinds = Arrays.copyOf(this.kinds, newLength);
+			this.references = Arrays.copyOf(this.references, newLength);
+			this.numbers = Arrays.copyOf(this.numbers, newLength);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readDictionary(final ByteBuffer buffer) {
+		int count = buffer.getInt();
+		String[] strings = new String[count];
+		byte[] bytes = new byte[64];
+		for (int i = 0; i < count; i++) {
+			int length = buffer.getInt();
+			if (bytes.length < length) {
+				bytes = new byte[Math.max(length, 2 * bytes.length)];
+			}
+			buffer.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		this.strings = strings;
+		this.linkIds = new Id[count];
+		this.personIds = new Id[count];
+		this.vehicleIds = new Id[count];
+	}
+
+	private static void checkMagic(final ByteBuffer buffer, final int position, final String filename) {
+		for (int i = 0; i < EventWriterBinary.MAGIC.length; i++) {
+			if (buffer.get(position + i) != EventWriterBinary.MAGIC[i]) {
+				throw new IllegalArgumentException("Not a binary events file: " + filename);
+			}
+		}
+	}
+
+	private static MappedByteBuffer map(final FileChannel channel, final long position, final long size) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Exposes the current event to {@link EventsReaderXMLv1}, with time and type as the first two attributes. This
+	 * object is reused for all events.
+	 */
+	private final class XmlAttributes implements Attributes {
+
+		private double time;
+		private String type;
+
+		private String name(int index) {
+			switch (index) {
+				case 0:
+					return Event.ATTRIBUTE_TIME;
+				case 1:
+					return Event.ATTRIBUTE_TYPE;
+				default:
+					return names[index - 2];
+			}
+		}
+
+		private String value(int index) {
+			switch (index) {
+				case 0:
+					return Double.toString(time);
+				case 1:
+					return type;
+				default:
+					return string(index - 2);
+			}
+		}
+
+		@Override
+		public int getLength() {
+			return length + 2;
+		}
+
+		@Override
+		public String getURI(int index) {
+			return "";
+		}
+
+		@Override
+		public String getLocalName(int index) {
+			return index < getLength() ? name(index) : null;
+		}
+
+		@Override
+		public String getQName(int index) {
+			return index < getLength() ? name(index) : null;
+		}
+
+		@Override
+		public String getType(int index) {
+			return index < getLength() ? "CDATA" : null;
+		}
+
+		@Override
+		public String getValue(int index) {
+			return index < getLength() ? value(index) : null;
+		}
+
+		@Override
+		public int getIndex(String uri, String localName) {
+			return getIndex(localName);
+		}
+
+		@Override
+		public int getIndex(String qName) {
+			for (int i = 0; i < getLength(); i++) {
+				if (name(i).equals(qName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(String uri, String localName) {
+			return getType(getIndex(localName));
+		}
+
+		@Override
+		public String getType(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getType(index);
+		}
+
+		@Override
+		public String getValue(String uri, String localName) {
+			return getValue(localName);
+		}
+
+		@Override
+		public String getValue(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : value(index);
+		}
+	}
+
+}
@@ -33,12 +33,13 @@ import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.mobsim.qsim.QSimMetrics;
 import javax.inject.Inject;
 
 /**
  * @author cdobler
  */
-public final class ParallelEventsManager implements EventsManager {
+public final class ParallelEventsManager implements EventsManager, QSimMetrics.Source {
 
 	private final static Logger log = Logger.getLogger(ParallelEventsManager.class);
 
@@ -223,6 +224,22 @@ public final class ParallelEventsManager implements EventsManager {
 
 	}
 
+	/**
+	 * The number of event arrays waiting for the distributor, and the longest queue of event arrays waiting for one of
+	 * the handler threads. Growing queues mean that event handling cannot keep up with the mobsim.
+	 */
+	@Override
+	public void registerMetrics(QSimMetrics metrics) {
+		metrics.gauge("parallelEvents.queuedEventArrays", eventQueue::size);
+		metrics.gauge("parallelEvents.maxHandlerQueuedEventArrays", () -> {
+			long max = 0;
+			for (ProcessEventsRunnable runnable : distributor.runnables) {
+				max = Math.max(max, runnable.eventsQueue.size());
+			}
+			return max;
+		});
+	}
+
 	public void flush() {
 		try {
 			this.distributor.flush();
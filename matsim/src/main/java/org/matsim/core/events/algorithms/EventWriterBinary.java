@@ -0,0 +1,277 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events into an uncompressed binary file that can be memory-mapped by
+ * {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * Strings (event types, attribute names, ids and other attribute values) are stored only once in a dictionary,
+ * events refer to them by their index. Decimal numbers like coordinates or positions are stored inline, so that the
+ * dictionary does not grow with every distinct value. Events are grouped into blocks, and an index with the time
+ * range of each block allows readers to jump to a time window without decoding the events before it.
+ * <p>
+ * File layout (all numbers big endian):
+ * <pre>
+ * header:     magic (8 bytes), version (int)
+ * blocks:     event count (int), events
+ * event:      time (double), type (int), attribute count (short), [name (int), value]*
+ * value:      {@link #VALUE_NULL} (byte) | {@link #VALUE_STRING} (byte), string (int) | {@link #VALUE_NUMBER} (byte), number (double)
+ * dictionary: string count (int), [byte length (int), utf-8 bytes]*
+ * index:      block count (int), [offset (long), byte length (int), event count (int), min time (double), max time (double)]*
+ * footer:     dictionary offset (long), index offset (long), event count (long), magic (8 bytes)
+ * </pre>
+ * A value is only stored as a number if {@link Double#toString(double)} of the number results in exactly the original
+ * string, so reading a file always gives the original strings. Integral values like most ids remain in the dictionary.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = "MATSIMEV".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+	public static final int FOOTER_SIZE = 3 * Long.BYTES + MAGIC.length;
+	public static final byte VALUE_NULL = 0;
+	public static final byte VALUE_STRING = 1;
+	public static final byte VALUE_NUMBER = 2;
+
+	private static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final List<BlockInfo> blocks = new ArrayList<>();
+
+	private ByteBuffer block;
+	private int eventsInBlock = 0;
+	private double minTimeInBlock = Double.POSITIVE_INFINITY;
+	private double maxTimeInBlock = Double.NEGATIVE_INFINITY;
+	private long position;
+	private long eventCount = 0;
+
+	public EventWriterBinary(final String outfilename) {
+		this(outfilename, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param blockSize number of bytes after which a new block is started. Smaller blocks allow more precise seeking,
+	 *                  but make the index larger.
+	 */
+	public EventWriterBinary(final String outfilename, final int blockSize) {
+		try {
+			this.channel = FileChannel.open(Paths.get(outfilename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			header.put(MAGIC).putInt(VERSION).flip();
+			writeFully(header);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.block = ByteBuffer.allocate(blockSize).order(ByteOrder.BIG_ENDIAN);
+		this.block.putInt(0); // placeholder for the number of events in the block
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+		int size = Double.BYTES + Integer.BYTES + Short.BYTES + attributes.size() * (Integer.BYTES + Byte.BYTES + Double.BYTES);
+		if (block.remaining() < size) {
+			if (eventsInBlock > 0) {
+				flushBlock();
+			}
+			if (block.remaining() < size) {
+				// a single event larger than a block, so enlarge the block
+				block = ByteBuffer.allocate(size + Integer.BYTES).order(ByteOrder.BIG_ENDIAN);
+				block.putInt(0);
+			}
+		}
+
+		double time = event.getTime();
+		block.putDouble(time);
+		block.putInt(reference(event.getEventType()));
+		int countPosition = block.position();
+		block.putShort((short) 0);
+		int count = 0;
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			String name = attribute.getKey();
+			if (!Event.ATTRIBUTE_TIME.equals(name) && !Event.ATTRIBUTE_TYPE.equals(name)) {
+				block.putInt(reference(name));
+				putValue(attribute.getValue());
+				count++;
+			}
+		}
+		block.putShort(countPosition, (short) count);
+
+		eventsInBlock++;
+		eventCount++;
+		minTimeInBlock = Math.min(minTimeInBlock, time);
+		maxTimeInBlock = Math.max(maxTimeInBlock, time);
+	}
+
+	private void putValue(final String value) {
+		if (value == null) {
+			block.put(VALUE_NULL);
+		} else if (isDecimalNumber(value)) {
+			block.put(VALUE_NUMBER);
+			block.putDouble(Double.parseDouble(value));
+		} else {
+			block.put(VALUE_STRING);
+			block.putInt(reference(value));
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the value is a number as formatted by {@link Double#toString(double)}
+	 */
+	private static boolean isDecimalNumber(final String value) {
+		boolean hasPoint = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '.') {
+				hasPoint = true;
+			} else if ((c < '0' || c > '9') && c != '-' && c != 'E') {
+				return false;
+			}
+		}
+		if (!hasPoint) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private int reference(final String string) {
+		Integer index = dictionary.get(string);
+		if (index == null) {
+			index = strings.size();
+			dictionary.put(string, index);
+			strings.add(string);
+		}
+		return index;
+	}
+
+	private void flushBlock() {
+		block.putInt(0, eventsInBlock);
+		block.flip();
+		int length = block.remaining();
+		blocks.add(new BlockInfo(position, length, eventsInBlock, minTimeInBlock, maxTimeInBlock));
+		writeFully(block);
+		block.clear();
+		block.putInt(0);
+		eventsInBlock = 0;
+		minTimeInBlock = Double.POSITIVE_INFINITY;
+		maxTimeInBlock = Double.NEGATIVE_INFINITY;
+	}
+
+	private void writeFully(final ByteBuffer buffer) {
+		try {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (!channel.isOpen()) {
+			return;
+		}
+		if (eventsInBlock > 0) {
+			flushBlock();
+		}
+
+		long dictionaryOffset = position;
+		List<byte[]> encoded = new ArrayList<>(strings.size());
+		int dictionarySize = Integer.BYTES;
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			encoded.add(bytes);
+			dictionarySize += Integer.BYTES + bytes.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(dictionarySize).order(ByteOrder.BIG_ENDIAN);
+		buffer.putInt(encoded.size());
+		for (byte[] bytes : encoded) {
+			buffer.putInt(bytes.length).put(bytes);
+		}
+		buffer.flip();
+		writeFully(buffer);
+
+		long indexOffset = position;
+		buffer = ByteBuffer.allocate(Integer.BYTES + blocks.size() * BlockInfo.SIZE).order(ByteOrder.BIG_ENDIAN);
+		buffer.putInt(blocks.size());
+		for (BlockInfo info : blocks) {
+			buffer.putLong(info.offset).putInt(info.length).putInt(info.eventCount).putDouble(info.minTime).putDouble(info.maxTime);
+		}
+		buffer.flip();
+		writeFully(buffer);
+
+		buffer = ByteBuffer.allocate(FOOTER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		buffer.putLong(dictionaryOffset).putLong(indexOffset).putLong(eventCount).put(MAGIC).flip();
+		writeFully(buffer);
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private static final class BlockInfo {
+		static final int SIZE = Long.BYTES + 2 * Integer.BYTES + 2 * Double.BYTES;
+
+		final long offset;
+		final int length;
+		final int eventCount;
+		final double minTime;
+		final double maxTime;
+
+		BlockInfo(long offset, int length, int eventCount, double minTime, double maxTime) {
+			this.offset = offset;
+			this.length = length;
+			this.eventCount = eventCount;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterXMLAsync.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * Writes the same xml as {@link EventWriterXML}, but off the thread that handles the events. Events are collected in
+ * blocks of {@value #BLOCK_SIZE}; each block is formatted (and compressed) by one of several worker threads, and a
+ * writer thread writes the blocks to the file in their original order.
+ * <p>
+ * Files ending with <code>.gz</code> or <code>.zst</code> are compressed block by block on the worker threads, like
+ * pigz does: each block becomes a gzip member or zstd frame of its own. Concatenated members and frames are valid
+ * files, which are read by {@link IOUtils#getInputStream(java.net.URL)} (and the command line tools) as one stream.
+ * Other files are compressed (if at all) on the writer thread by the stream of {@link IOUtils}.
+ * <p>
+ * The events are formatted after {@link #handleEvent(Event)} returned, so they must not be changed after they were
+ * processed by the events manager (which the parallel events managers assume anyway). At most
+ * {@value #PENDING_BLOCKS_PER_THREAD} blocks per worker thread are kept in memory; if the workers or the disk cannot
+ * keep up, {@link #handleEvent(Event)} waits. If the writer thread failed, {@link #handleEvent(Event)} and
+ * {@link #closeFile()} throw its error instead.
+ */
+public final class EventWriterXMLAsync implements EventWriter, BasicEventHandler {
+
+	/*package*/ static final int BLOCK_SIZE = 16384;
+	private static final int PENDING_BLOCKS_PER_THREAD = 4;
+	private static final int ZSTD_LEVEL = 6; // as in IOUtils
+
+	private enum BlockCompression { NONE, GZIP, ZSTD }
+
+	private static final Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+	private final BlockCompression compression;
+	private final OutputStream out;
+	private final ExecutorService workers;
+	private final BlockingQueue<Future<byte[]>> pendingBlocks;
+	private final Thread writerThread;
+	private volatile Throwable error = null;
+
+	private Event[] block = new Event[BLOCK_SIZE];
+	private int blockSize = 0;
+
+	public EventWriterXMLAsync(final String outfilename, final int numberOfThreads) {
+		String extension = outfilename.substring(outfilename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+		try {
+			if (extension.equals("gz")) {
+				this.compression = BlockCompression.GZIP;
+				this.out = new BufferedOutputStream(new FileOutputStream(outfilename));
+			} else if (extension.equals("zst")) {
+				this.compression = BlockCompression.ZSTD;
+				this.out = new BufferedOutputStream(new FileOutputStream(outfilename));
+			} else {
+				this.compression = BlockCompression.NONE;
+				this.out = IOUtils.getOutputStream(IOUtils.getFileUrl(outfilename), false);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		int threads = Math.max(1, numberOfThreads);
+		this.workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "EventWriterXMLAsync-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.pendingBlocks = new ArrayBlockingQueue<>(threads * PENDING_BLOCKS_PER_THREAD);
+		this.writerThread = new Thread(this::writeBlocks, "EventWriterXMLAsync-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+
+		submit(() -> encode(EventWriterXML.HEADER));
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.block[this.blockSize++] = event;
+		if (this.blockSize == BLOCK_SIZE) {
+			submitBlock();
+		}
+	}
+
+	private void submitBlock() {
+		Event[] events = this.block;
+		int size = this.blockSize;
+		submit(() -> {
+			StringBuilder xml = new StringBuilder(size * 150);
+			for (int i = 0; i < size; i++) {
+				EventWriterXML.appendEvent(xml, events[i]);
+			}
+			return encode(xml);
+		});
+		this.block = new Event[BLOCK_SIZE];
+		this.blockSize = 0;
+	}
+
+	private void submit(final Callable<byte[]> task) {
+		checkError();
+		put(this.workers.submit(task));
+	}
+
+	/**
+	 * Waits for space in the queue, but only as long as the writer thread is there to make some.
+	 */
+	private void put(final Future<byte[]> block) {
+		try {
+			while (!this.pendingBlocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+				if (!this.writerThread.isAlive()) {
+					checkError();
+					throw new RuntimeException("Could not write events, the writer thread stopped");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private byte[] encode(final CharSequence xml) throws IOException {
+		byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+		switch (this.compression) {
+			case GZIP:
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 8);
+				try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 1 << 16)) {
+					gzip.write(bytes);
+				}
+				return compressed.toByteArray();
+			case ZSTD:
+				return Zstd.compress(bytes, ZSTD_LEVEL);
+			default:
+				return bytes;
+		}
+	}
+
+	private void writeBlocks() {
+		try {
+			while (true) {
+				Future<byte[]> block = this.pendingBlocks.take();
+				if (block == END) {
+					break;
+				}
+				if (this.error == null) {
+					try {
+						this.out.write(block.get());
+					} catch (IOException | ExecutionException | RuntimeException e) {
+						// keep taking blocks, so handleEvent does not wait; the error is thrown there
+						this.error = e instanceof ExecutionException ? e.getCause() : e;
+					}
+				}
+			}
+		} catch (Throwable e) {
+			// the thread stops, which is noticed by put; the error is thrown there
+			if (this.error == null) {
+				this.error = e;
+			}
+		}
+	}
+
+	private void checkError() {
+		if (this.error != null) {
+			throw new RuntimeException("Could not write events", this.error);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.blockSize > 0) {
+				submitBlock();
+			}
+			submit(() -> encode(EventWriterXML.FOOTER));
+			put(END);
+			this.writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			this.workers.shutdown();
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				if (this.error == null) {
+					this.error = e;
+				}
+			}
+		}
+		checkError();
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	/* package (for a test) */ Thread getWriterThread() {
+		return this.writerThread;
+	}
+}
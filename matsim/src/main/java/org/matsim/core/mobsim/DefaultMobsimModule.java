@@ -29,6 +29,7 @@ import org.matsim.core.events.MobsimScopeEventHandlingModule;
 import org.matsim.core.mobsim.external.ExternalMobsim;
 import org.matsim.core.mobsim.hermes.HermesProvider;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.mobsim.qsim.QSimMetricsWriter;
 import org.matsim.core.mobsim.qsim.QSimModule;
 
 public class DefaultMobsimModule extends AbstractModule {
@@ -36,6 +37,9 @@ public class DefaultMobsimModule extends AbstractModule {
     public void install() {
         if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.qsim.toString())) {
             install(new QSimModule());
+            if (getConfig().qsim().getMetricsInterval() > 0) {
+                addMobsimListenerBinding().to(QSimMetricsWriter.class);
+            }
 //            bind(  RelativePositionOfEntryExitOnLink.class ).toInstance( () -> 1. );
         } else if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.JDEQSim.toString())) {
             bindMobsim().to(JDEQSimulation.class);
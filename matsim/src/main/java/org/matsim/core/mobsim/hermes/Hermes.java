@@ -18,12 +18,17 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.hermes;
 
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.events.ParallelEventsManager;
 import org.matsim.core.mobsim.framework.Mobsim;
 
@@ -31,6 +36,7 @@ public final class Hermes implements Mobsim {
 
 	final private static Logger log = Logger.getLogger(Hermes.class);
 	private Realm realm;
+	private Realm[] realms;
 	private Agent[] agents;
 	private ScenarioImporter si;
 	private final Scenario scenario;
@@ -45,11 +51,12 @@ public final class Hermes implements Mobsim {
 		si = ScenarioImporter.instance(scenario, eventsManager);
 		si.generate();
 		this.realm = si.realm;
+		this.realms = si.realms;
 		this.agents = si.hermes_agents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+		eventsManager.processEvents(realms.length == 1 ? realm.getSortedEvents() : Realm.mergeSortedEvents(realms));
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isTransitVehicle()) {
@@ -61,6 +68,37 @@ public final class Hermes implements Mobsim {
 		}
 	}
 
+	private void runRealms() throws Exception {
+		CyclicBarrier handoverBarrier = new CyclicBarrier(realms.length);
+		CyclicBarrier tickBarrier = new CyclicBarrier(realms.length, this::flushRealmEvents);
+		ExecutorService executor = Executors.newFixedThreadPool(realms.length);
+		ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+		try {
+			for (Realm r : realms) {
+				completionService.submit(() -> {
+					r.run(handoverBarrier, tickBarrier);
+					return null;
+				});
+			}
+			// Fails with the first exception of any realm, the remaining realms are interrupted below.
+			for (int i = 0; i < realms.length; i++) {
+				completionService.take().get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// Runs while all realms wait at the end of a tick.
+	private void flushRealmEvents() {
+		if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && realm.secs() % 3600 == 0) {
+			EventArray events = Realm.mergeSortedEvents(realms);
+			if (events.size() > 0) {
+				eventsManager.processEvents(events);
+			}
+		}
+	}
+
 	@Override
 	public void run() {
 		long time;
@@ -72,7 +110,11 @@ public final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			if (realms.length == 1) {
+				realm.run();
+			} else {
+				runRealms();
+			}
 			log.info(String.format(
 					"ETHZ hermes took %d ms", System.currentTimeMillis() - time));
 
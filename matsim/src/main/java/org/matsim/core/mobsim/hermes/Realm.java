@@ -21,6 +21,7 @@ package org.matsim.core.mobsim.hermes;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -58,10 +59,26 @@ public class Realm {
     private final ParallelEventsManager eventsManager;
     // Current timestamp
     private int secs;
+    // Id of this realm. There is only realm 0 unless the network is partitioned.
+    private final int id;
+    // All realms of the simulation (null if this is the only realm).
+    private Realm[] realms;
+    // Agents handed over to other realms in the current tick. Should be used as follows:
+    // outboxes.get(destination realm id) -> agents
+    // Each outbox is only written by this realm while ticking and only read by the destination realm between the
+    // two barriers of a tick, therefore no locking is needed.
+    private final ArrayList<ArrayList<Agent>> outboxes;
+    // Agents received from other realms that could not enter their next link yet.
+    private final ArrayDeque<Agent> pendingAgents;
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, 0, 1);
+    }
+
+    public Realm(ScenarioImporter scenario, EventsManager eventsManager, int id, int numberOfRealms) throws Exception {
     	this.si = scenario;
+        this.id = id;
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -71,29 +88,51 @@ public class Realm {
         this.line_of_route = scenario.line_of_route;
         this.sorted_events = new EventArray();
         this.eventsManager = (ParallelEventsManager)eventsManager;
+        this.outboxes = new ArrayList<>(numberOfRealms);
+        for (int i = 0; i < numberOfRealms; i++) {
+            outboxes.add(new ArrayList<>());
+        }
+        this.pendingAgents = new ArrayDeque<>();
 
 	// the last position is to store events that will not happen...
+	// Queues are allocated lazily as most time slots of most realms stay empty.
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
         }
     }
 
+    void setRealms(Realm[] realms) {
+        this.realms = realms.length > 1 ? realms : null;
+    }
+
     public void log(int time, String s) {
         if (HermesConfigGroup.DEBUG_REALMS) {
             log.debug(String.format("ETHZ [ time = %d ] %s", time, s));
         }
     }
 
-    private void add_delayed_agent(Agent agent, int until) {
+    void add_delayed_agent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(slot);
+        if (agents == null) {
+            agents = new ArrayDeque<>();
+            delayedAgentsByWakeupTime.set(slot, agents);
+        }
+        agents.add(agent);
     }
 
-    private void add_delayed_link(HLink link, int until) {
+    void add_delayed_link(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<HLink> delayed = delayedLinksByWakeupTime.get(slot);
+        if (delayed == null) {
+            delayed = new ArrayDeque<>();
+            delayedLinksByWakeupTime.set(slot, delayed);
+        }
+        delayed.add(link);
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -264,6 +303,14 @@ public class Realm {
         // Peek the next plan element and try to execute it.
         long planentry = agent.plan.get(agent.planIndex + 1);
         int type = Agent.getPlanHeader(planentry);
+        if (realms != null) {
+            int owner = si.realmOf(planentry);
+            if (owner != -1 && owner != id) {
+                // The agent leaves this realm, it will be processed by the owner at the end of the tick.
+                outboxes.get(owner).add(agent);
+                return true;
+            }
+        }
         switch (type) {
             case Agent.LinkType:        return processAgentLink(agent, planentry, currLinkId);
             case Agent.SleepForType:    return processAgentSleepFor(agent, planentry);
@@ -323,50 +370,127 @@ public class Realm {
         return routed;
     }
 
-    public void run() throws Exception {
-    	int routed = 0;
+    private void tick() {
+        int routed = 0;
         Agent agent = null;
         HLink link = null;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
-            }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
+        if (id == 0 && secs % 3600 == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(secs);
+        if (agents != null) {
+            while ((agent = agents.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing agent %d", agent.id));
                 }
                 routed += processAgentActivities(agent);
-
             }
             delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sorted_events.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
+        }
+        if (id == 0 && si.isDeterministicPt()) {
+            for (Event e : si.getDeterministicPtEvents().get(secs)) {
+                sorted_events.add(e);
             }
+            si.getDeterministicPtEvents().get(secs).clear();
+        }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
+        ArrayDeque<HLink> delayed = delayedLinksByWakeupTime.get(secs);
+        if (delayed != null) {
+            while ((link = delayed.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing link %d", link.id()));
                 }
                 routed += processLinks(link);
             }
             delayedLinksByWakeupTime.set(secs, null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
-                log(secs, String.format("Processed %d agents", routed));
+        }
+        if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
+            log(secs, String.format("Processed %d agents", routed));
+        }
+    }
+
+    private void receiveAgents() {
+        // Agents blocked in previous ticks go first to preserve their order.
+        for (int left = pendingAgents.size(); left > 0; left--) {
+            Agent agent = pendingAgents.poll();
+            if (!processAgent(agent, -1)) {
+                pendingAgents.add(agent);
             }
+        }
+        for (Realm realm : realms) {
+            if (realm != this) {
+                ArrayList<Agent> inbox = realm.outboxes.get(id);
+                for (Agent agent : inbox) {
+                    // Unlike within a realm, the agent already left its previous link. If the next link is full,
+                    // the agent waits here until there is space again.
+                    if (!processAgent(agent, -1)) {
+                        pendingAgents.add(agent);
+                    }
+                }
+                inbox.clear();
+            }
+        }
+    }
+
+    public void run() throws Exception {
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            tick();
             if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
                 eventsManager.processEvents(sorted_events);
                 sorted_events = new EventArray();
             }
+            secs += 1;
+        }
+    }
 
-            routed = 0;
+    /**
+     * Runs this realm as one partition of the network. All realms tick in lockstep: after each second, realms
+     * wait for each other on {@code handoverBarrier}, pick up the agents handed over to them, and wait again on
+     * {@code tickBarrier} before advancing to the next second.
+     */
+    public void run(CyclicBarrier handoverBarrier, CyclicBarrier tickBarrier) throws Exception {
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            tick();
+            handoverBarrier.await();
+            receiveAgents();
+            tickBarrier.await();
             secs += 1;
         }
     }
 
+    /**
+     * Merges the events of all realms into a single array ordered by time and hands fresh arrays to the realms.
+     * Events with the same time keep the order of their realm, realms are visited by id. Must only be called
+     * while no realm is ticking.
+     */
+    static EventArray mergeSortedEvents(Realm[] realms) {
+        EventArray merged = new EventArray();
+        int[] cursors = new int[realms.length];
+        while (true) {
+            double time = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < realms.length; i++) {
+                EventArray events = realms[i].sorted_events;
+                if (cursors[i] < events.size()) {
+                    time = Math.min(time, events.get(cursors[i]).getTime());
+                }
+            }
+            if (time == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            for (int i = 0; i < realms.length; i++) {
+                EventArray events = realms[i].sorted_events;
+                while (cursors[i] < events.size() && events.get(cursors[i]).getTime() <= time) {
+                    merged.add(events.get(cursors[i]++));
+                }
+            }
+        }
+        for (Realm realm : realms) {
+            realm.sorted_events = new EventArray();
+        }
+        return merged;
+    }
+
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
         if (eventid != 0) {
         	EventArray agentevents = agent.events();
@@ -411,7 +535,6 @@ public class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
-    ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
+    int secs() { return this.secs; }
 }
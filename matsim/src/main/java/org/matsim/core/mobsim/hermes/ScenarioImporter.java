@@ -23,6 +23,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -45,6 +46,7 @@ import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -81,6 +83,9 @@ public class ScenarioImporter {
 
 	private static ScenarioImporter instance;
 
+	// Number of k-means iterations used to partition the network into realms.
+	private static final int PARTITIONING_ITERATIONS = 20;
+
 	private Thread resetThread = null;
 
 	// Scenario loaded by matsim;
@@ -104,6 +109,19 @@ public class ScenarioImporter {
 	protected Agent[] hermes_agents;
 
 	protected Realm realm;
+
+	// All realms, realm is the first one. There is more than one realm only if the network is partitioned.
+	protected Realm[] realms;
+
+	// Realm owning each link (null if the network is not partitioned). Should be used as follows:
+	// link_realm[link id] -> realm id
+	protected int[] link_realm;
+
+	// Realm owning each stop, i.e., the realm of the link of the stop (null if the network is not partitioned).
+	// stop_realm[stop id] -> realm id
+	protected int[] stop_realm;
+
+	private final int numberOfRealms;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id).get(dst station id) -> queue of agents
@@ -117,6 +135,7 @@ public class ScenarioImporter {
 
 	private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		numberOfThreads = Math.min(scenario.getConfig().global().getNumberOfThreads(), Runtime.getRuntime().availableProcessors());
+		numberOfRealms = scenario.getConfig().hermes().getNumberOfRealms();
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
 		if (deterministicPt) {
 			deterministicPtEvents = new ArrayList<>(scenario.getConfig().hermes().getEndTime());
@@ -131,6 +150,9 @@ public class ScenarioImporter {
 		generateVehicleCategories();
 		generateLinks();
 		generatePT();
+		if (numberOfRealms > 1) {
+			partitionNetwork();
+		}
 		generateAgents();
 
 	}
@@ -238,6 +260,124 @@ public class ScenarioImporter {
 		}
 	}
 
+	/**
+	 * Splits the network into spatially compact realms by running k-means on the node coordinates. A link is owned by
+	 * the realm of its to-node, stops are owned by the realm of their link.
+	 */
+	private void partitionNetwork() {
+		Network network = scenario.getNetwork();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int k = Math.max(1, Math.min(numberOfRealms, nodes.size()));
+		// Seed the centroids along the x axis so that the partitioning is deterministic.
+		nodes.sort(Comparator.comparingDouble(n -> n.getCoord().getX()));
+		double[] centroidX = new double[k];
+		double[] centroidY = new double[k];
+		for (int c = 0; c < k; c++) {
+			Node seed = nodes.get((int) ((c + 0.5) * nodes.size() / k));
+			centroidX[c] = seed.getCoord().getX();
+			centroidY[c] = seed.getCoord().getY();
+		}
+
+		int[] assignment = new int[nodes.size()];
+		boolean changed = true;
+		for (int iteration = 0; iteration < PARTITIONING_ITERATIONS && changed; iteration++) {
+			changed = iteration == 0;
+			double[] sumX = new double[k];
+			double[] sumY = new double[k];
+			int[] count = new int[k];
+			for (int i = 0; i < nodes.size(); i++) {
+				double x = nodes.get(i).getCoord().getX();
+				double y = nodes.get(i).getCoord().getY();
+				int best = 0;
+				double bestDistance = Double.POSITIVE_INFINITY;
+				for (int c = 0; c < k; c++) {
+					double dx = x - centroidX[c];
+					double dy = y - centroidY[c];
+					double distance = dx * dx + dy * dy;
+					if (distance < bestDistance) {
+						bestDistance = distance;
+						best = c;
+					}
+				}
+				if (assignment[i] != best) {
+					assignment[i] = best;
+					changed = true;
+				}
+				sumX[best] += x;
+				sumY[best] += y;
+				count[best]++;
+			}
+			for (int c = 0; c < k; c++) {
+				if (count[c] > 0) {
+					centroidX[c] = sumX[c] / count[c];
+					centroidY[c] = sumY[c] / count[c];
+				}
+			}
+		}
+
+		int[] node_realm = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < nodes.size(); i++) {
+			node_realm[nodes.get(i).getId().index()] = assignment[i];
+		}
+
+		int[] linksPerRealm = new int[numberOfRealms];
+		int boundaryLinks = 0;
+		link_realm = new int[hermes_links.length];
+		for (org.matsim.api.core.v01.network.Link matsim_link : network.getLinks().values()) {
+			int owner = node_realm[matsim_link.getToNode().getId().index()];
+			link_realm[matsim_link.getId().index()] = owner;
+			linksPerRealm[owner]++;
+			if (owner != node_realm[matsim_link.getFromNode().getId().index()]) {
+				boundaryLinks++;
+			}
+		}
+
+		stop_realm = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+		for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+			if (stop.getLinkId() != null) {
+				stop_realm[stop.getId().index()] = link_realm[stop.getLinkId().index()];
+			}
+		}
+
+		for (int r = 0; r < numberOfRealms; r++) {
+			log.info(String.format("ETHZ realm %d owns %d links", r, linksPerRealm[r]));
+		}
+		log.info(String.format("ETHZ network partitioned into %d realms with %d boundary links", numberOfRealms, boundaryLinks));
+	}
+
+	/**
+	 * Returns the realm that has to process the given plan entry, or -1 if any realm can process it.
+	 */
+	int realmOf(long planentry) {
+		if (link_realm == null) {
+			return 0;
+		}
+		switch (Agent.getPlanHeader(planentry)) {
+			case Agent.LinkType:
+				return link_realm[Agent.getLinkPlanEntry(planentry)];
+			case Agent.StopArriveType:
+			case Agent.WaitType:
+				return stop_realm[Agent.getStopPlanEntry(planentry)];
+			default:
+				return -1;
+		}
+	}
+
+	private int realmOfLink(int linkid) {
+		return link_realm == null ? 0 : link_realm[linkid];
+	}
+
+	// The initial realm of an agent is the realm of the first location it will be processed at.
+	private int initialRealm(Agent agent) {
+		for (int i = 0; i < agent.plan().size(); i++) {
+			int owner = realmOf(agent.plan().get(i));
+			if (owner != -1) {
+				return owner;
+			}
+		}
+		return 0;
+	}
+
 	private void initRoutesStations() {
 		route_stops_by_index = new ArrayList<>();
 		TransitSchedule ts = scenario.getTransitSchedule();
@@ -291,7 +431,14 @@ public class ScenarioImporter {
 	}
 
 	private void generateRealms() throws Exception {
-		realm = new Realm(this, eventsManager);
+		realms = new Realm[numberOfRealms];
+		for (int i = 0; i < numberOfRealms; i++) {
+			realms[i] = new Realm(this, eventsManager, i, numberOfRealms);
+		}
+		for (Realm r : realms) {
+			r.setRealms(realms);
+		}
+		realm = realms[0];
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermes_agents) {
@@ -313,7 +460,7 @@ public class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					realms[initialRealm(agent)].add_delayed_agent(agent, Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1));
 					break;
 				default:
 					Logger.getLogger(getClass()).error(String.format("ERROR -> unknow plan element type %d", type));
@@ -326,7 +473,7 @@ public class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					realms[realmOfLink(i)].add_delayed_link(link, nextwakeup);
 				}
 			}
 		}
@@ -37,6 +37,8 @@ public abstract class EventMessage extends Message {
 	public void resetMessage(Scheduler scheduler, Vehicle vehicle) {
 		this.scheduler = scheduler;
 		this.vehicle = vehicle;
+		// a disposed message may have been killed before it left the queue
+		reviveMessage();
 	}
 
 }
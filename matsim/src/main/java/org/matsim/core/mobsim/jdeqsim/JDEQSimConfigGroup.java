@@ -19,6 +19,8 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.core.utils.misc.Time;
@@ -58,6 +60,9 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String MESSAGE_QUEUE = "messageQueue";
+
+	public enum MessageQueueType { heap, ladder }
 
 	// INPUT
 	private OptionalTime simulationEndTime = OptionalTime.undefined();
@@ -72,11 +77,21 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	private MessageQueueType messageQueue = MessageQueueType.heap;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
 	}
 
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(MESSAGE_QUEUE, "The queue of the scheduler. " + MessageQueueType.heap + " (default): a priority queue. "
+				+ MessageQueueType.ladder + ": a ladder queue with amortised constant time insertion and removal, faster for large scenarios. "
+				+ "Messages with the same time and priority may come out in a different order.");
+		return map;
+	}
+
 	// should garbage collection of messages be activated
 	private static boolean GC_MESSAGES = false;
 
@@ -162,4 +177,14 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(MESSAGE_QUEUE)
+	public MessageQueueType getMessageQueue() {
+		return messageQueue;
+	}
+
+	@StringSetter(MESSAGE_QUEUE)
+	public void setMessageQueue(MessageQueueType messageQueue) {
+		this.messageQueue = messageQueue;
+	}
+
 }
@@ -66,7 +66,7 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime().orElse(Double.MAX_VALUE));
+		Scheduler scheduler = new Scheduler(MessageQueue.create(config), config.getSimulationEndTime().orElse(Double.MAX_VALUE));
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
@@ -81,6 +81,8 @@ public class JDEQSimulation implements Mobsim {
 		}
 
 		scheduler.startSimulation();
+		// the pooled messages reference the scheduler and the vehicles of this simulation
+		MessageFactory.GC_ALL_MESSAGES();
 
 		t.endTimer();
 		log.info("Time needed for one iteration (only JDEQSimulation part): " + t.getMeasuredTime() + "[ms]");
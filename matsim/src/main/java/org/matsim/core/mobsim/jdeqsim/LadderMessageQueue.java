@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * A ladder queue (Tang, Goh and Thng, 2005) with amortised constant time insertion and removal of messages.
+ * <p>
+ * Messages far in the future are collected unsorted in <i>top</i>. When they are needed, they are distributed into
+ * the buckets of a <i>rung</i>; a bucket with too many messages is again distributed into the buckets of a finer rung
+ * below. Only the messages of a single (small) bucket are sorted, in <i>bottom</i>, which is a heap here. Messages with
+ * the same arrival time always end up in the same bucket, so they are ordered by priority as in {@link MessageQueue}.
+ * Messages with the same time and priority may come out in a different order than from {@link MessageQueue}.
+ * <p>
+ * As in {@link MessageQueue}, removed messages are only killed, and skipped (and disposed) when they are reached.
+ */
+public class LadderMessageQueue extends MessageQueue {
+
+	/**
+	 * Buckets with more messages are distributed into a new rung instead of being sorted in bottom.
+	 */
+	private static final int THRESHOLD = 50;
+	private static final int MAX_RUNGS = 8;
+
+	private static final class Rung {
+		private final double start;
+		private final double width;
+		private final ArrayList<Message>[] buckets;
+		private int current = 0;
+
+		@SuppressWarnings("unchecked")
+		private Rung(double start, double width, int bucketCount) {
+			this.start = start;
+			this.width = width;
+			this.buckets = new ArrayList[bucketCount];
+		}
+
+		/**
+		 * Messages before the start of the rung belong to the first bucket, messages after its end to the last. It is
+		 * important that this only depends on the time, so that messages with the same time always end up together.
+		 */
+		private int getIndex(double time) {
+			double index = Math.floor((time - this.start) / this.width);
+			return (int) Math.min(Math.max(index, 0), this.buckets.length - 1);
+		}
+
+		private void add(Message m, int index) {
+			ArrayList<Message> bucket = this.buckets[index];
+			if (bucket == null) {
+				bucket = new ArrayList<>();
+				this.buckets[index] = bucket;
+			}
+			bucket.add(m);
+		}
+	}
+
+	private final ArrayList<Message> top = new ArrayList<>();
+	private double topMin = Double.POSITIVE_INFINITY;
+	private double topMax = Double.NEGATIVE_INFINITY;
+	/**
+	 * Messages at or after this time go into top.
+	 */
+	private double topStart = Double.NEGATIVE_INFINITY;
+
+	private final Rung[] rungs = new Rung[MAX_RUNGS];
+	private int rungCount = 0;
+
+	private final PriorityQueue<Message> bottom = new PriorityQueue<>();
+
+	private int queueSize = 0;
+
+	@Override
+	public void putMessage(Message m) {
+		this.queueSize++;
+		double time = m.getMessageArrivalTime();
+		if (time >= this.topStart) {
+			this.top.add(m);
+			this.topMin = Math.min(this.topMin, time);
+			this.topMax = Math.max(this.topMax, time);
+			return;
+		}
+		for (int i = 0; i < this.rungCount; i++) {
+			Rung rung = this.rungs[i];
+			int index = rung.getIndex(time);
+			if (index >= rung.current) {
+				rung.add(m, index);
+				return;
+			}
+		}
+		this.bottom.add(m);
+	}
+
+	@Override
+	public void removeMessage(Message m) {
+		m.killMessage();
+		this.queueSize--;
+	}
+
+	@Override
+	public Message getNextMessage() {
+		while (true) {
+			if (this.bottom.isEmpty() && !fillBottom()) {
+				return null;
+			}
+			Message m = this.bottom.poll();
+			if (m.isAlive()) {
+				this.queueSize--;
+				return m;
+			}
+			MessageFactory.disposeMessage(m);
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.queueSize == 0;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	/**
+	 * Moves the messages of the next non-empty bucket of the lowest rung into bottom, creating finer rungs or a new
+	 * rung from top as needed.
+	 *
+	 * @return <code>false</code> if there are no messages left
+	 */
+	private boolean fillBottom() {
+		while (this.bottom.isEmpty()) {
+			if (this.rungCount == 0) {
+				if (this.top.isEmpty()) {
+					return false;
+				}
+				transferTop();
+				continue;
+			}
+			Rung rung = this.rungs[this.rungCount - 1];
+			while (rung.current < rung.buckets.length && rung.buckets[rung.current] == null) {
+				rung.current++;
+			}
+			if (rung.current == rung.buckets.length) {
+				this.rungCount--;
+				this.rungs[this.rungCount] = null;
+				continue;
+			}
+			ArrayList<Message> bucket = rung.buckets[rung.current];
+			double bucketStart = rung.start + rung.current * rung.width;
+			rung.buckets[rung.current] = null;
+			rung.current++;
+
+			if (bucket.size() > THRESHOLD && this.rungCount < MAX_RUNGS) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (Message m : bucket) {
+					min = Math.min(min, m.getMessageArrivalTime());
+					max = Math.max(max, m.getMessageArrivalTime());
+				}
+				double width = rung.width / bucket.size();
+				if (min < max && bucketStart + width > bucketStart) {
+					Rung child = new Rung(bucketStart, width, bucket.size() + 1);
+					for (Message m : bucket) {
+						child.add(m, child.getIndex(m.getMessageArrivalTime()));
+					}
+					this.rungs[this.rungCount++] = child;
+					continue;
+				}
+			}
+			this.bottom.addAll(bucket);
+		}
+		return true;
+	}
+
+	private void transferTop() {
+		int n = this.top.size();
+		double width = (this.topMax - this.topMin) / n;
+		if (width > 0 && !Double.isInfinite(width) && this.topMin + width > this.topMin) {
+			Rung rung = new Rung(this.topMin, width, n + 1);
+			for (Message m : this.top) {
+				rung.add(m, rung.getIndex(m.getMessageArrivalTime()));
+			}
+			this.rungs[this.rungCount++] = rung;
+			this.topStart = Math.max(rung.start + rung.buckets.length * width, Math.nextUp(this.topMax));
+		} else {
+			// all messages at (almost) the same time
+			this.bottom.addAll(this.top);
+			this.topStart = Math.nextUp(this.topMax);
+		}
+		this.top.clear();
+		this.topMin = Double.POSITIVE_INFINITY;
+		this.topMax = Double.NEGATIVE_INFINITY;
+	}
+
+}
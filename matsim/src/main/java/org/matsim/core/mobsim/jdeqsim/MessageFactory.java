@@ -23,148 +23,182 @@ import java.util.LinkedList;
 
 /**
  * The message factory is used for creating and disposing messages - mainly for
- * performance gain to have lesser garbage collection.
+ * performance gain to have lesser garbage collection. The pools of messages are per thread, see {@link Pools}.
  * 
  * @author rashid_waraich
  */
 public class MessageFactory {
 
-	private static LinkedList<EndLegMessage> endLegMessageQueue = new LinkedList<EndLegMessage>();
-	private static LinkedList<EnterRoadMessage> enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-	private static LinkedList<StartingLegMessage> startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-	private static LinkedList<LeaveRoadMessage> leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-	private static LinkedList<EndRoadMessage> endRoadMessageQueue = new LinkedList<EndRoadMessage>();
+	/**
+	 * The pools of one thread. Messages are only passed around within one simulation, so the pools are confined to the
+	 * thread of the simulation. Simulations running in parallel in different threads thus do not share the pools.
+	 */
+	private static final class Pools {
+		private final LinkedList<EndLegMessage> endLegMessageQueue = new LinkedList<EndLegMessage>();
+		private final LinkedList<EnterRoadMessage> enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
+		private final LinkedList<StartingLegMessage> startingLegMessageQueue = new LinkedList<StartingLegMessage>();
+		private final LinkedList<LeaveRoadMessage> leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
+		private final LinkedList<EndRoadMessage> endRoadMessageQueue = new LinkedList<EndRoadMessage>();
 
-	private static LinkedList<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+		private final LinkedList<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+	}
+
+	private static final ThreadLocal<Pools> pools = ThreadLocal.withInitial(Pools::new);
 
 	public static void disposeEndLegMessage(EndLegMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			endLegMessageQueue.add(message);
+			pools.get().endLegMessageQueue.add(message);
 		}
 	}
 
 	public static void disposeEnterRoadMessage(EnterRoadMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			enterRoadMessageQueue.add(message);
+			pools.get().enterRoadMessageQueue.add(message);
 		}
 	}
 
 	public static void disposeStartingLegMessage(StartingLegMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			startingLegMessageQueue.add(message);
+			pools.get().startingLegMessageQueue.add(message);
 		}
 	}
 
 	public static void disposeLeaveRoadMessage(LeaveRoadMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			leaveRoadMessageQueue.add(message);
+			pools.get().leaveRoadMessageQueue.add(message);
 		}
 	}
 
 	public static void disposeEndRoadMessage(EndRoadMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			endRoadMessageQueue.add(message);
+			pools.get().endRoadMessageQueue.add(message);
 		}
 	}
 
 	public static void disposeDeadlockPreventionMessage(DeadlockPreventionMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
-			deadlockPreventionMessageQueue.add(message);
+			pools.get().deadlockPreventionMessageQueue.add(message);
+		}
+	}
+
+	/**
+	 * Disposes a message of one of the types created by this factory, so that it can be reused. Called for messages
+	 * which have left the {@link MessageQueue}, i.e. which have been handled or skipped because they were killed.
+	 * Messages of other types are ignored.
+	 */
+	public static void disposeMessage(Message message) {
+		if (JDEQSimConfigGroup.isGC_MESSAGES()) {
+			return;
+		}
+		Pools pools = MessageFactory.pools.get();
+		Class<?> type = message.getClass();
+		if (type == EnterRoadMessage.class) {
+			pools.enterRoadMessageQueue.add((EnterRoadMessage) message);
+		} else if (type == EndRoadMessage.class) {
+			pools.endRoadMessageQueue.add((EndRoadMessage) message);
+		} else if (type == LeaveRoadMessage.class) {
+			pools.leaveRoadMessageQueue.add((LeaveRoadMessage) message);
+		} else if (type == EndLegMessage.class) {
+			pools.endLegMessageQueue.add((EndLegMessage) message);
+		} else if (type == StartingLegMessage.class) {
+			pools.startingLegMessageQueue.add((StartingLegMessage) message);
+		} else if (type == DeadlockPreventionMessage.class) {
+			pools.deadlockPreventionMessageQueue.add((DeadlockPreventionMessage) message);
 		}
 	}
 
 	public static EndLegMessage getEndLegMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (endLegMessageQueue.size() == 0) {
+		LinkedList<EndLegMessage> queue = pools.get().endLegMessageQueue;
+		if (queue.size() == 0) {
 			return new EndLegMessage(scheduler, vehicle);
 		} else {
-			EndLegMessage message = endLegMessageQueue.poll();
+			EndLegMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static EnterRoadMessage getEnterRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (enterRoadMessageQueue.size() == 0) {
+		LinkedList<EnterRoadMessage> queue = pools.get().enterRoadMessageQueue;
+		if (queue.size() == 0) {
 			return new EnterRoadMessage(scheduler, vehicle);
 		} else {
-			EnterRoadMessage message = enterRoadMessageQueue.poll();
+			EnterRoadMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static StartingLegMessage getStartingLegMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (startingLegMessageQueue.size() == 0) {
+		LinkedList<StartingLegMessage> queue = pools.get().startingLegMessageQueue;
+		if (queue.size() == 0) {
 			return new StartingLegMessage(scheduler, vehicle);
 		} else {
-			StartingLegMessage message = startingLegMessageQueue.poll();
+			StartingLegMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static LeaveRoadMessage getLeaveRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (leaveRoadMessageQueue.size() == 0) {
+		LinkedList<LeaveRoadMessage> queue = pools.get().leaveRoadMessageQueue;
+		if (queue.size() == 0) {
 			return new LeaveRoadMessage(scheduler, vehicle);
 		} else {
-			LeaveRoadMessage message = leaveRoadMessageQueue.poll();
+			LeaveRoadMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static EndRoadMessage getEndRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (endRoadMessageQueue.size() == 0) {
+		LinkedList<EndRoadMessage> queue = pools.get().endRoadMessageQueue;
+		if (queue.size() == 0) {
 			return new EndRoadMessage(scheduler, vehicle);
 		} else {
-			EndRoadMessage message = endRoadMessageQueue.poll();
+			EndRoadMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static DeadlockPreventionMessage getDeadlockPreventionMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (deadlockPreventionMessageQueue.size() == 0) {
+		LinkedList<DeadlockPreventionMessage> queue = pools.get().deadlockPreventionMessageQueue;
+		if (queue.size() == 0) {
 			return new DeadlockPreventionMessage(scheduler, vehicle);
 		} else {
-			DeadlockPreventionMessage message = deadlockPreventionMessageQueue.poll();
+			DeadlockPreventionMessage message = queue.poll();
 			message.resetMessage(scheduler, vehicle);
 			return message;
 		}
 	}
 
 	public static void GC_ALL_MESSAGES() {
-		endLegMessageQueue = new LinkedList<EndLegMessage>();
-		enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-		startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-		leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-		endRoadMessageQueue = new LinkedList<EndRoadMessage>();
-
-		deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+		pools.remove();
 	}
 
 	public static LinkedList<EndLegMessage> getEndLegMessageQueue() {
-		return endLegMessageQueue;
+		return pools.get().endLegMessageQueue;
 	}
 
 	public static LinkedList<EnterRoadMessage> getEnterRoadMessageQueue() {
-		return enterRoadMessageQueue;
+		return pools.get().enterRoadMessageQueue;
 	}
 
 	public static LinkedList<StartingLegMessage> getStartingLegMessageQueue() {
-		return startingLegMessageQueue;
+		return pools.get().startingLegMessageQueue;
 	}
 
 	public static LinkedList<LeaveRoadMessage> getLeaveRoadMessageQueue() {
-		return leaveRoadMessageQueue;
+		return pools.get().leaveRoadMessageQueue;
 	}
 
 	public static LinkedList<EndRoadMessage> getEndRoadMessageQueue() {
-		return endRoadMessageQueue;
+		return pools.get().endRoadMessageQueue;
 	}
 
 	public static LinkedList<DeadlockPreventionMessage> getDeadlockPreventionMessageQueue() {
-		return deadlockPreventionMessageQueue;
+		return pools.get().deadlockPreventionMessageQueue;
 	}
 
 }
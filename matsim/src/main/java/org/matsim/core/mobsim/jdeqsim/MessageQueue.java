@@ -32,6 +32,20 @@ import java.util.PriorityQueue;
  * @author rashid_waraich
  */
 public class MessageQueue {
+
+	/**
+	 * @return the message queue implementation selected in the config
+	 */
+	public static MessageQueue create(JDEQSimConfigGroup config) {
+		switch (config.getMessageQueue()) {
+			case ladder:
+				return new LadderMessageQueue();
+			case heap:
+			default:
+				return new MessageQueue();
+		}
+	}
+
 	private PriorityQueue<Message> queue1 = new PriorityQueue<Message>();
 	private int queueSize = 0;
 
@@ -74,7 +88,7 @@ public class MessageQueue {
 		if (queue1.peek() != null) {
 			// skip over dead messages
 			while ((m = queue1.poll()) != null && !m.isAlive()) {
-
+				MessageFactory.disposeMessage(m);
 			}
 			// only decrement, if message fetched
 			if (m != null) {
@@ -0,0 +1,53 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.function.ObjDoubleConsumer;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * The agents at an activity in the {@link ActivityEngineDefaultImpl}, ordered by their activity end time. Agents with the
+ * same activity end time are ordered by descending id. An agent is in the queue at most once.
+ * <p>
+ * Implementations must be thread-safe, since agents are added from the threads of the parallel qsim.
+ */
+interface ActivityEndsQueue {
+
+	void add(MobsimAgent agent, double activityEndTime);
+
+	/**
+	 * @return the agent with the earliest activity end time if that time is not after the given time, otherwise <code>null</code>
+	 */
+	MobsimAgent pollEndingUntil(double time);
+
+	/**
+	 * @return <code>true</code> if the agent was in the queue
+	 */
+	boolean remove(MobsimAgent agent);
+
+	int size();
+
+	/**
+	 * Calls the action for all agents in the queue (in no particular order) and removes them.
+	 */
+	void clear(ObjDoubleConsumer<MobsimAgent> action);
+}
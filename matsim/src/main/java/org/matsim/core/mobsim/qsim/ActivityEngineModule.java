@@ -28,6 +28,14 @@ public class ActivityEngineModule extends AbstractQSimModule {
 
 	@Override
 	protected void configureQSim() {
+		switch ( this.getConfig().qsim().getActivityEndsQueue() ) {
+			case calendar:
+				bind( ActivityEndsQueue.class ).to( CalendarActivityEndsQueue.class );
+				break;
+			case priorityQueue:
+			default:
+				bind( ActivityEndsQueue.class ).to( PriorityActivityEndsQueue.class );
+		}
 		bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
 		addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
 	}
@@ -35,7 +35,7 @@ import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, QSimMetrics.Source {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
@@ -79,6 +79,12 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.setInternalInterface(internalInterface);
 	}
 
+	@Override
+	public void registerMetrics(QSimMetrics metrics) {
+		((QSimMetrics.Source)delegate).registerMetrics(metrics);
+		metrics.gauge("activityEngine.wakeUpQueueSize", wakeUpList::size);
+	}
+
 	/**
 	 * This method is called by QSim to pass in agents which then "live" in the activity layer until they are handed out again
 	 * through the internalInterface.
@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjDoubleConsumer;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * An {@link ActivityEndsQueue} with one bucket per second of simulated time.
+ * <p>
+ * The buckets form a ring covering the next {@link #RING_SIZE} seconds after the current second. Agents ending their
+ * activity further in the future are kept in a spill-over heap and moved into the ring when the current second advances.
+ * The buckets are doubly linked lists, so adding an agent to, or removing it from, a bucket is constant time. Only when
+ * the current second reaches a bucket, its (few) agents are moved into a small heap which establishes the same order as
+ * {@link PriorityActivityEndsQueue}, i.e. by activity end time and then by descending id.
+ * <p>
+ * Agents removed while in one of the heaps are only marked as removed and skipped later.
+ */
+final class CalendarActivityEndsQueue implements ActivityEndsQueue {
+
+	/**
+	 * 2^17 seconds, i.e. about 36 hours.
+	 */
+	private static final int RING_SIZE = 1 << 17;
+	private static final int RING_MASK = RING_SIZE - 1;
+
+	private static final Comparator<Entry> COMPARATOR = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			// same convention as in PriorityActivityEndsQueue: the one with the larger id first
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private static final class Entry {
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+		private final long second;
+		private Entry prev;
+		private Entry next;
+		private boolean inRing = false;
+		private boolean removed = false;
+
+		private Entry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+			this.second = (long)Math.floor(activityEndTime);
+		}
+	}
+
+	private final Entry[] ring = new Entry[RING_SIZE];
+	private int ringCount = 0;
+
+	/**
+	 * Agents ending their activity not after the current second.
+	 */
+	private final PriorityQueue<Entry> current = new PriorityQueue<>(COMPARATOR);
+	/**
+	 * Agents ending their activity {@link #RING_SIZE} or more seconds after the current second.
+	 */
+	private final PriorityQueue<Entry> spillOver = new PriorityQueue<>(COMPARATOR);
+
+	private final Map<MobsimAgent, Entry> entries = new IdentityHashMap<>();
+
+	private long currentSecond = 0;
+
+	@Override
+	public synchronized void add(MobsimAgent agent, double activityEndTime) {
+		Entry entry = new Entry(agent, activityEndTime);
+		Entry oldEntry = entries.put(agent, entry);
+		if (oldEntry != null) {
+			remove(oldEntry);
+		}
+		place(entry);
+	}
+
+	@Override
+	public synchronized MobsimAgent pollEndingUntil(double time) {
+		long second = (long)Math.floor(time);
+		Entry head = peekCurrent();
+		while (head == null && currentSecond < second) {
+			if (ringCount == 0) {
+				if (spillOver.isEmpty()) {
+					currentSecond = second;
+					return null;
+				}
+				// nothing in the ring, so jump directly to the next second that has agents (or the requested one)
+				currentSecond = Math.max(currentSecond, Math.min(second, spillOver.peek().second) - 1);
+			}
+			advance();
+			head = peekCurrent();
+		}
+		if (head != null && head.activityEndTime <= time) {
+			current.poll();
+			entries.remove(head.agent);
+			return head.agent;
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized boolean remove(MobsimAgent agent) {
+		Entry entry = entries.remove(agent);
+		if (entry == null) {
+			return false;
+		}
+		remove(entry);
+		return true;
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized void clear(ObjDoubleConsumer<MobsimAgent> action) {
+		for (Entry entry : entries.values()) {
+			action.accept(entry.agent, entry.activityEndTime);
+		}
+		entries.clear();
+		current.clear();
+		spillOver.clear();
+		Arrays.fill(ring, null);
+		ringCount = 0;
+	}
+
+	private void place(Entry entry) {
+		if (entry.second <= currentSecond) {
+			current.add(entry);
+		} else if (entry.second - currentSecond < RING_SIZE) {
+			int slot = (int)(entry.second & RING_MASK);
+			Entry first = ring[slot];
+			entry.next = first;
+			if (first != null) {
+				first.prev = entry;
+			}
+			ring[slot] = entry;
+			entry.inRing = true;
+			ringCount++;
+		} else {
+			spillOver.add(entry);
+		}
+	}
+
+	private void remove(Entry entry) {
+		if (entry.inRing) {
+			if (entry.prev == null) {
+				ring[(int)(entry.second & RING_MASK)] = entry.next;
+			} else {
+				entry.prev.next = entry.next;
+			}
+			if (entry.next != null) {
+				entry.next.prev = entry.prev;
+			}
+			entry.prev = null;
+			entry.next = null;
+			entry.inRing = false;
+			ringCount--;
+		} else {
+			entry.removed = true;
+		}
+	}
+
+	/**
+	 * Moves to the next second: its bucket goes into the heap of current agents, and agents from the spill-over heap
+	 * that now fall into the ring are moved there.
+	 */
+	private void advance() {
+		currentSecond++;
+		int slot = (int)(currentSecond & RING_MASK);
+		Entry entry = ring[slot];
+		ring[slot] = null;
+		while (entry != null) {
+			Entry next = entry.next;
+			entry.prev = null;
+			entry.next = null;
+			entry.inRing = false;
+			ringCount--;
+			current.add(entry);
+			entry = next;
+		}
+		while (!spillOver.isEmpty() && spillOver.peek().second - currentSecond < RING_SIZE) {
+			Entry spilled = spillOver.poll();
+			if (!spilled.removed) {
+				place(spilled);
+			}
+		}
+	}
+
+	private Entry peekCurrent() {
+		Entry head = current.peek();
+		while (head != null && head.removed) {
+			current.poll();
+			head = current.peek();
+		}
+		return head;
+	}
+}
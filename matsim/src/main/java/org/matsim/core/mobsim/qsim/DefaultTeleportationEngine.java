@@ -49,7 +49,7 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, QSimMetrics.Source {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
 	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
@@ -74,6 +74,8 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private final boolean withTravelTimeCheck;
 
+	private long departureCount = 0;
+
 	@Inject
 	public DefaultTeleportationEngine(Scenario scenario, EventsManager eventsManager) {
 		this(scenario, eventsManager, scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation());
@@ -103,6 +105,7 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
     	
 		double arrivalTime = now + travelTime ;
 		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		departureCount++;
 		
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -169,6 +172,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		this.internalInterface = internalInterface;
 	}
 
+	@Override
+	public void registerMetrics(QSimMetrics metrics) {
+		metrics.gauge("teleportationEngine.queueSize", teleportationList::size);
+		metrics.counter("teleportationEngine.departures", () -> departureCount);
+	}
+
 	private static Double travelTimeCheck(Double travelTime, Double speed, Facility dpfac, Facility arfac) {
 		if ( speed==null ) {
 			// if we don't have a bushwhacking speed, the only thing we can do is trust the router
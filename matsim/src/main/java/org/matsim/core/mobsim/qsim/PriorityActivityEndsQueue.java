@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PriorityActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.ObjDoubleConsumer;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * The default {@link ActivityEndsQueue}, a priority queue. Removing an agent, e.g. when its activity end is rescheduled by
+ * within-day replanning, needs a linear search through the queue.
+ */
+final class PriorityActivityEndsQueue implements ActivityEndsQueue {
+
+	/**
+	 * Agents cannot be added directly to the activityEndsList since that would
+	 * not be thread-safe when within-day replanning is used. There, an agent's
+	 * activity end time can be modified. As a result, the agent is located at
+	 * the wrong position in the activityEndsList until it is updated by using
+	 * rescheduleActivityEnd(...). However, if another agent is added to the list
+	 * in the mean time, it might be inserted at the wrong position.
+	 * cdobler, apr'12
+	 */
+	private static class AgentEntry {
+		AgentEntry( MobsimAgent agent, double activityEndTime ) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+		}
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+	}
+
+	/**
+	 * This list needs to be a "blocking" queue since this is needed for
+	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 */
+	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	});
+
+	@Override
+	public void add(MobsimAgent agent, double activityEndTime) {
+		activityEndsList.add(new AgentEntry(agent, activityEndTime));
+	}
+
+	@Override
+	public MobsimAgent pollEndingUntil(double time) {
+		AgentEntry entry = activityEndsList.peek();
+		if (entry != null && entry.activityEndTime <= time) {
+			return activityEndsList.poll().agent;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean remove(MobsimAgent agent) {
+		Iterator<AgentEntry> iterator = activityEndsList.iterator();
+		while (iterator.hasNext()) {
+			AgentEntry entry = iterator.next();
+			if (entry.agent == agent) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return activityEndsList.size();
+	}
+
+	@Override
+	public void clear(ObjDoubleConsumer<MobsimAgent> action) {
+		for (AgentEntry entry : activityEndsList) {
+			action.accept(entry.agent, entry.activityEndTime);
+		}
+		activityEndsList.clear();
+	}
+}
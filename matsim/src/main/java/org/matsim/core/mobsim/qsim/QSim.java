@@ -699,6 +699,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		};
 	}
 
+	/*package*/ Collection<MobsimEngine> getMobsimEngines() {
+		return Collections.unmodifiableCollection(this.mobsimEngines);
+	}
+
 	public Collection<AgentTracker> getAgentTrackers() {
 		return Collections.unmodifiableCollection(agentTrackers) ;
 	}
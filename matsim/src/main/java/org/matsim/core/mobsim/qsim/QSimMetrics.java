@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimMetrics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Low-overhead instrumentation of the QSim engines. Engines (and the events manager) that implement {@link Source}
+ * register their metrics once per mobsim; the values are then aggregated per interval and written out by
+ * {@link QSimMetricsWriter}. There are three kinds of metrics:
+ * <ul>
+ * <li>histograms: values (e.g. processing times in nanoseconds) are pushed by the engine into a {@link Histogram}</li>
+ * <li>gauges: a value (e.g. a queue size) is pulled after every sim step and recorded into a histogram</li>
+ * <li>counters: a cumulative count kept by the engine is pulled at the end of every interval, and the increase
+ * within the interval is reported</li>
+ * </ul>
+ * Gauges and counters do not cost anything if metrics are switched off, since the engines only expose what they
+ * have anyway. Histograms should only be recorded into if one was registered.
+ */
+public final class QSimMetrics {
+
+	/**
+	 * To be implemented by the mobsim engines (and the events manager) that provide metrics.
+	 * {@link #registerMetrics(QSimMetrics)} is called after {@link org.matsim.core.mobsim.qsim.interfaces.MobsimEngine#onPrepareSim()}.
+	 */
+	public interface Source {
+		void registerMetrics(QSimMetrics metrics);
+	}
+
+	private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+	private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+	private final Map<String, Histogram> gaugeHistograms = new LinkedHashMap<>();
+	private final Map<String, LongSupplier> counters = new LinkedHashMap<>();
+	private final Map<String, Long> counterValues = new LinkedHashMap<>();
+
+	/**
+	 * @return a new histogram; the caller records into it
+	 */
+	public Histogram histogram(String name) {
+		checkName(name);
+		Histogram histogram = new Histogram();
+		histograms.put(name, histogram);
+		return histogram;
+	}
+
+	/**
+	 * @param value sampled after each sim step (called from the main QSim thread while the engines are idle)
+	 */
+	public void gauge(String name, LongSupplier value) {
+		checkName(name);
+		gauges.put(name, value);
+		gaugeHistograms.put(name, new Histogram());
+	}
+
+	/**
+	 * @param cumulativeCount the total count since the start of the mobsim; the difference between two intervals is
+	 *                        reported
+	 */
+	public void counter(String name, LongSupplier cumulativeCount) {
+		checkName(name);
+		counters.put(name, cumulativeCount);
+		counterValues.put(name, cumulativeCount.getAsLong());
+	}
+
+	private void checkName(String name) {
+		if (histograms.containsKey(name) || gauges.containsKey(name) || counters.containsKey(name)) {
+			throw new IllegalArgumentException("A metric named " + name + " is already registered");
+		}
+	}
+
+	void sampleGauges() {
+		for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+			gaugeHistograms.get(e.getKey()).record(e.getValue().getAsLong());
+		}
+	}
+
+	/**
+	 * @return the histograms of the current interval, both recorded and sampled ones
+	 */
+	Map<String, Histogram> getHistograms() {
+		Map<String, Histogram> all = new LinkedHashMap<>(histograms);
+		all.putAll(gaugeHistograms);
+		return all;
+	}
+
+	/**
+	 * @return the counts since the previous call
+	 */
+	Map<String, Long> pollCounts() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (Map.Entry<String, LongSupplier> e : counters.entrySet()) {
+			long value = e.getValue().getAsLong();
+			counts.put(e.getKey(), value - counterValues.put(e.getKey(), value));
+		}
+		return counts;
+	}
+
+	void resetHistograms() {
+		histograms.values().forEach(Histogram::reset);
+		gaugeHistograms.values().forEach(Histogram::reset);
+	}
+
+	/**
+	 * Log-linear histogram of non-negative long values, similar to the HdrHistogram: each power-of-two range is
+	 * split into {@value #SUB_BUCKETS} buckets, so percentiles have a relative error of at most 1/{@value #SUB_BUCKETS}.
+	 * Not thread-safe: each thread should record into its own histogram.
+	 */
+	public static final class Histogram {
+		private static final int SUB_BUCKET_BITS = 4;
+		static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+		private final long[] bucketCounts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+		private long count = 0;
+		private long sum = 0;
+		private long max = 0;
+
+		public void record(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+			bucketCounts[bucketIndex(value)]++;
+			count++;
+			sum += value;
+			if (value > max) {
+				max = value;
+			}
+		}
+
+		static int bucketIndex(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int)value;
+			}
+			int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+			return (shift + 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+		}
+
+		static long highestValueInBucket(int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int shift = index / SUB_BUCKETS - 1;
+			long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+			return ((subBucket + 1) << shift) - 1;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return count == 0 ? Double.NaN : (double)sum / count;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the highest value that falls into the same bucket as the value at the given percentile (but not
+		 * more than the max)
+		 */
+		public long getValueAtPercentile(double percentile) {
+			long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int i = 0; i < bucketCounts.length; i++) {
+				seen += bucketCounts[i];
+				if (seen >= rank) {
+					return Math.min(highestValueInBucket(i), max);
+				}
+			}
+			return max;
+		}
+
+		void reset() {
+			Arrays.fill(bucketCounts, 0);
+			count = 0;
+			sum = 0;
+			max = 0;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimMetricsWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Collects the {@link QSimMetrics} of all engines of the {@link QSim} (and of the events manager) and writes them to
+ * <code>ITERS/it.N/N.qsimMetrics.csv</code>, one row per metric and interval. Installed if
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#getMetricsInterval()} is positive.
+ */
+public final class QSimMetricsWriter
+		implements MobsimInitializedListener, MobsimAfterSimStepListener, MobsimBeforeCleanupListener {
+	public static final String FILENAME = "qsimMetrics.csv";
+
+	private static final double[] PERCENTILES = { 50, 90, 99 };
+
+	private final OutputDirectoryHierarchy controlerIO;
+	private final IterationCounter iterationCounter;
+	private final double interval;
+	private final double timeStepSize;
+	private final String sep;
+
+	private QSimMetrics metrics;
+	private BufferedWriter writer;
+	private double intervalStart;
+	private boolean hasUnwrittenSteps;
+
+	@Inject
+	QSimMetricsWriter(Config config, OutputDirectoryHierarchy controlerIO, IterationCounter iterationCounter) {
+		this.controlerIO = controlerIO;
+		this.iterationCounter = iterationCounter;
+		this.interval = config.qsim().getMetricsInterval();
+		this.timeStepSize = config.qsim().getTimeStepSize();
+		this.sep = config.global().getDefaultDelimiter();
+	}
+
+	@Override
+	public void notifyMobsimInitialized(@SuppressWarnings("rawtypes") MobsimInitializedEvent e) {
+		QSim qsim = (QSim)e.getQueueSimulation();
+		metrics = new QSimMetrics();
+		for (MobsimEngine engine : qsim.getMobsimEngines()) {
+			if (engine instanceof QSimMetrics.Source) {
+				((QSimMetrics.Source)engine).registerMetrics(metrics);
+			}
+		}
+		if (qsim.getEventsManager() instanceof QSimMetrics.Source) {
+			((QSimMetrics.Source)qsim.getEventsManager()).registerMetrics(metrics);
+		}
+
+		intervalStart = Math.floor(qsim.getSimTimer().getSimStartTime() / interval) * interval;
+		writer = IOUtils.getBufferedWriter(
+				controlerIO.getIterationFilename(iterationCounter.getIterationNumber(), FILENAME));
+		write(String.join(sep, "time", "metric", "count", "sum", "mean", "p50", "p90", "p99", "max"));
+	}
+
+	@Override
+	public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
+		metrics.sampleGauges();
+		hasUnwrittenSteps = true;
+		if (e.getSimulationTime() + timeStepSize >= intervalStart + interval) {
+			writeInterval();
+			intervalStart += interval;
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (hasUnwrittenSteps) {
+			writeInterval();
+		}
+		try {
+			writer.close();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void writeInterval() {
+		String time = Time.writeTime(intervalStart);
+		for (Map.Entry<String, Long> e : metrics.pollCounts().entrySet()) {
+			write(String.join(sep, time, e.getKey(), e.getValue() + "", "", "", "", "", "", ""));
+		}
+		for (Map.Entry<String, QSimMetrics.Histogram> e : metrics.getHistograms().entrySet()) {
+			QSimMetrics.Histogram histogram = e.getValue();
+			if (histogram.getCount() == 0) {
+				continue;
+			}
+			StringBuilder row = new StringBuilder().append(time)
+					.append(sep).append(e.getKey())
+					.append(sep).append(histogram.getCount())
+					.append(sep).append(histogram.getSum())
+					.append(sep).append(histogram.getMean());
+			for (double percentile : PERCENTILES) {
+				row.append(sep).append(histogram.getValueAtPercentile(percentile));
+			}
+			row.append(sep).append(histogram.getMax());
+			write(row.toString());
+		}
+		metrics.resetHistograms();
+		hasUnwrittenSteps = false;
+	}
+
+	private void write(String line) {
+		try {
+			writer.write(line);
+			writer.newLine();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
@@ -32,6 +32,7 @@ import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimConfigGroup;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.mobsim.jdeqsim.MessageFactory;
 import org.matsim.core.mobsim.jdeqsim.Road;
 import org.matsim.core.mobsim.jdeqsim.Vehicle;
 import org.matsim.core.mobsim.jdeqsim.util.Timer;
@@ -88,6 +89,8 @@ class JDEQSimEngine implements MobsimEngine, ActivityHandler {
 
     @Override
     public void afterSim() {
+        // the pooled messages reference the scheduler and the vehicles of this simulation
+        MessageFactory.GC_ALL_MESSAGES();
         t.endTimer();
         log.info("Time needed for one iteration (only JDEQSimulation part): " + t.getMeasuredTime() + "[ms]");
     }
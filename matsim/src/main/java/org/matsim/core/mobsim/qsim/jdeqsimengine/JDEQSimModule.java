@@ -41,10 +41,9 @@ public class JDEQSimModule extends AbstractQSimModule {
 	@Provides
 	@Singleton
 	public JDEQSimEngine provideJDEQSimulation(QSim qsim) {
-		SteppableScheduler scheduler = new SteppableScheduler(new MessageQueue());
-		return new JDEQSimEngine(
-				ConfigUtils.addOrGetModule(qsim.getScenario().getConfig(), JDEQSimConfigGroup.NAME,
-						JDEQSimConfigGroup.class),
-				qsim.getScenario(), qsim.getEventsManager(), qsim.getAgentCounter(), scheduler);
+		JDEQSimConfigGroup config = ConfigUtils.addOrGetModule(qsim.getScenario().getConfig(), JDEQSimConfigGroup.NAME,
+				JDEQSimConfigGroup.class);
+		SteppableScheduler scheduler = new SteppableScheduler(MessageQueue.create(config));
+		return new JDEQSimEngine(config, qsim.getScenario(), qsim.getEventsManager(), qsim.getAgentCounter(), scheduler);
 	}
 }
@@ -23,6 +23,7 @@
 
 import org.matsim.core.mobsim.framework.Steppable;
 import org.matsim.core.mobsim.jdeqsim.Message;
+import org.matsim.core.mobsim.jdeqsim.MessageFactory;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.jdeqsim.Scheduler;
 
@@ -50,6 +51,7 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		if (lookahead != null) {
 			lookahead.processEvent();
 			lookahead.handleMessage();
+			MessageFactory.disposeMessage(lookahead);
 			lookahead = null;
 		}
 		while (!queue.isEmpty()) {
@@ -57,6 +59,7 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 			if (m != null && m.getMessageArrivalTime() <= time) {
 				m.processEvent();
 				m.handleMessage();
+				MessageFactory.disposeMessage(m);
 			} else {
 				lookahead = m;
 				return;
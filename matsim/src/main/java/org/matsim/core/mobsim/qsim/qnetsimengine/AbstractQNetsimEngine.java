@@ -30,6 +30,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -43,6 +44,7 @@ import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimMetrics;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
@@ -59,7 +61,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, QSimMetrics.Source {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -357,6 +359,21 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		return ii;
 	}
 
+	/**
+	 * Per runner: the nanoseconds spent on moving the nodes and the links in each time step, and the number of
+	 * active links. Runners that are much slower than the others, or have much more active links, indicate an
+	 * imbalanced assignment of the network.
+	 */
+	@Override
+	public void registerMetrics(QSimMetrics metrics) {
+		for (int i = 0; i < this.engines.size(); i++) {
+			A runner = this.engines.get(i);
+			runner.setMetrics(metrics.histogram("netsimRunner" + i + ".moveNodesNanos"),
+					metrics.histogram("netsimRunner" + i + ".moveLinksNanos"));
+			metrics.gauge("netsimRunner" + i + ".activeLinks", runner::getNumberOfSimulatedLinks);
+		}
+	}
+
 	private final void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -389,9 +406,9 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
 
-		int roundRobin = 0;
+		Map<Id<Node>, Integer> assignment = assignNodesToRunners(this.engines.size());
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+			int i = assignment.get(node.getNode().getId());
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -418,8 +435,6 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -430,6 +445,22 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * Decides which runner moves which node. The links are moved by the runner of their from node.
+	 * The default implementation distributes the nodes round robin over the runners.
+	 *
+	 * @return the index of the runner for each node
+	 */
+	protected Map<Id<Node>, Integer> assignNodesToRunners(int numberOfRunners) {
+		Map<Id<Node>, Integer> assignment = new HashMap<>();
+		int roundRobin = 0;
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			assignment.put(node.getNode().getId(), roundRobin % numberOfRunners);
+			roundRobin++;
+		}
+		return assignment;
+	}
+
 	private final void arrangeNextAgentState(MobsimAgent pp) {
 		internalInterface.arrangeNextAgentState(pp);
 	}
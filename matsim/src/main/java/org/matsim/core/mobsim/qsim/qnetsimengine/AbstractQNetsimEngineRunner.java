@@ -28,6 +28,7 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimMetrics;
 
 /**
  * These are the "threads" of the {@link QNetsimEngineWithThreadpool}. The "run()" method is implicitly called by starting the thread.
@@ -70,6 +71,10 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	// only set if QSimMetrics are written
+	private QSimMetrics.Histogram nodeTimes = null;
+	private QSimMetrics.Histogram linkTimes = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -83,7 +88,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 
 	public abstract void afterSim() ;
 
+	/*package*/ final void setMetrics(QSimMetrics.Histogram nodeTimes, QSimMetrics.Histogram linkTimes) {
+		this.nodeTimes = nodeTimes;
+		this.linkTimes = linkTimes;
+	}
+
 	protected void moveNodes() {
+		long start = nodeTimes == null ? 0 : System.nanoTime();
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNodeI node;
@@ -94,9 +105,11 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
+		if (nodeTimes != null) nodeTimes.record(System.nanoTime() - start);
 	}
 	
 	protected final void moveLinks() {
+		long start = linkTimes == null ? 0 : System.nanoTime();
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -109,6 +122,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		if (linkTimes != null) linkTimes.record(System.nanoTime() - start);
 	}
 
 	/*
@@ -28,7 +28,14 @@ public class QNetsimEngineModule extends AbstractQSimModule {
 	
 	@Override
 	protected void configureQSim() {
-		bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
+		switch ( this.getConfig().qsim().getNetsimEngineSynchronization() ) {
+			case localClocks:
+				bind(QNetsimEngineI.class).to(QNetsimEngineWithLocalClocks.class).asEagerSingleton();
+				break;
+			case barriers:
+			default:
+				bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
+		}
 
 		bind(VehicularDepartureHandler.class).toProvider(QNetsimEngineDepartureHandlerProvider.class).asEagerSingleton();
 
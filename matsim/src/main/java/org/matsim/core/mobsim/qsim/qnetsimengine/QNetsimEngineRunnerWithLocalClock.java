@@ -0,0 +1,97 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerWithLocalClock.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Runner of the {@link QNetsimEngineWithLocalClocks}. Moves its nodes and then its links within one call. Before
+ * moving the links, it only waits for the runners which own the to nodes of its links, since the nodes of these
+ * runners take vehicles out of the buffers of its links.
+ */
+final class QNetsimEngineRunnerWithLocalClock extends AbstractQNetsimEngineRunner implements Callable<Boolean> {
+
+	private static final int SPINS_BEFORE_YIELD = 1000;
+
+	private volatile boolean simulationRunning = true;
+
+	/** the runners owning the to nodes of the links of this runner */
+	private final List<QNetsimEngineRunnerWithLocalClock> downstreamRunners = new ArrayList<>();
+
+	private int step = 0;
+	/** the local clock, i.e. the number of the last step in which the nodes of this runner were moved */
+	private volatile int nodesMovedStep = 0;
+
+	QNetsimEngineRunnerWithLocalClock() {
+	}
+
+	@Override
+	public Boolean call() {
+		if (!this.simulationRunning) {
+			Gbl.printCurrentThreadCpuTime();
+			return false;
+		}
+
+		this.step++;
+		try {
+			moveNodes();
+		} finally {
+			// also if moving the nodes failed, otherwise other runners would wait forever
+			this.nodesMovedStep = this.step;
+		}
+		for (QNetsimEngineRunnerWithLocalClock runner : this.downstreamRunners) {
+			runner.awaitNodesMoved(this.step);
+		}
+		moveLinks();
+		return true;
+	}
+
+	private void awaitNodesMoved(final int step) {
+		int spins = 0;
+		while (this.nodesMovedStep < step) {
+			if (spins < SPINS_BEFORE_YIELD) {
+				spins++;
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	/*package*/ void addDownstreamRunner(final QNetsimEngineRunnerWithLocalClock runner) {
+		if (runner != this && !this.downstreamRunners.contains(runner)) {
+			this.downstreamRunners.add(runner);
+		}
+	}
+
+	/*package*/ int getNumberOfDownstreamRunners() {
+		return this.downstreamRunners.size();
+	}
+
+	@Override
+	public final void afterSim() {
+		this.simulationRunning = false;
+	}
+}
@@ -0,0 +1,197 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithLocalClocks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Coordinates the movement of vehicles on the links and the nodes, like {@link QNetsimEngineWithThreadpool}, but
+ * without the barrier between moving the nodes and moving the links. Each runner has a local clock which is
+ * advanced when it has moved its nodes. Before moving its links, a runner only waits for the clocks of the
+ * runners owning the to nodes of its links. So a runner which is slow on the nodes and another one which is slow
+ * on the links can overlap, as long as they are not neighbors. The end of the time step is still a barrier,
+ * since the other engines of the mobsim expect that the network is completely moved.
+ * <p>
+ * To keep the number of neighbors small, the nodes are not distributed round robin, but partitioned
+ * geographically by recursive bisection along the longer side of the bounding box. Each part gets
+ * about the same number of nodes and links.
+ */
+final class QNetsimEngineWithLocalClocks extends AbstractQNetsimEngine<QNetsimEngineRunnerWithLocalClock> {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineWithLocalClocks.class);
+
+	private final int numOfRunners;
+	private ExecutorService pool;
+	private Map<Id<Node>, Integer> assignment;
+
+	public QNetsimEngineWithLocalClocks(final QSim sim) {
+		this(sim, null);
+	}
+
+	@Inject
+	public QNetsimEngineWithLocalClocks(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+		this.numOfRunners = this.numOfThreads;
+	}
+
+	@Override
+	public void finishMultiThreading() {
+		this.pool.shutdown();
+	}
+
+	@Override
+	protected void run(double time) {
+		for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
+			engine.setTime(time);
+		}
+
+		try {
+			for (Future<Boolean> future : pool.invokeAll(this.getQnetsimEngineRunner())) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e) ;
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new Thread( r , "QNetsimEngine_LocalClockThread_" + count++);
+		}
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerWithLocalClock> initQSimEngineRunners() {
+		List<QNetsimEngineRunnerWithLocalClock> engines = new ArrayList<>();
+		for (int i = 0; i < numOfRunners; i++) {
+			engines.add(new QNetsimEngineRunnerWithLocalClock());
+		}
+		return engines;
+	}
+
+	@Override
+	protected Map<Id<Node>, Integer> assignNodesToRunners(int numberOfRunners) {
+		List<Node> nodes = new ArrayList<>();
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			nodes.add(node.getNode());
+		}
+		this.assignment = new HashMap<>();
+		partition(nodes, 0, numberOfRunners, this.assignment);
+		return this.assignment;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		// a runner waits for the runners owning the to nodes of its links
+		List<QNetsimEngineRunnerWithLocalClock> runners = this.getQnetsimEngineRunner();
+		int crossingLinks = 0;
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			QNetsimEngineRunnerWithLocalClock runner = runners.get(this.assignment.get(node.getNode().getId()));
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				QNetsimEngineRunnerWithLocalClock downstream = runners.get(this.assignment.get(outLink.getToNode().getId()));
+				if (downstream != runner) {
+					runner.addDownstreamRunner(downstream);
+					crossingLinks++;
+				}
+			}
+		}
+		for (int i = 0; i < runners.size(); i++) {
+			log.info("QSimEngineRunner #" + i + " waits for " + runners.get(i).getNumberOfDownstreamRunners() + " other runners.");
+		}
+		log.info(crossingLinks + " of " + network.getNetsimLinks().size() + " links connect nodes of different runners.");
+
+		// all runners must be able to run at the same time, otherwise a waiting runner could block the runner it waits for
+		this.pool = Executors.newFixedThreadPool(
+				this.numOfRunners,
+				new NamedThreadFactory());
+	}
+
+	/**
+	 * Assigns the nodes to the runners <code>firstRunner</code> to <code>firstRunner + numberOfRunners - 1</code>
+	 * by recursive coordinate bisection, weighting each node by its number of out links plus one.
+	 */
+	private static void partition(final List<Node> nodes, final int firstRunner, final int numberOfRunners,
+			final Map<Id<Node>, Integer> assignment) {
+		if (numberOfRunners == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				assignment.put(node.getId(), firstRunner);
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		long totalWeight = 0;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+			totalWeight += getWeight(node);
+		}
+		Comparator<Node> byX = Comparator.comparingDouble((Node node) -> node.getCoord().getX());
+		Comparator<Node> byY = Comparator.comparingDouble((Node node) -> node.getCoord().getY());
+		// the ids break ties, so the partitioning does not depend on the order of the nodes in the network
+		nodes.sort((maxX - minX >= maxY - minY ? byX.thenComparing(byY) : byY.thenComparing(byX))
+				.thenComparing(Node::getId));
+
+		int lowerRunners = numberOfRunners / 2;
+		double lowerWeight = (double) totalWeight * lowerRunners / numberOfRunners;
+		long weight = 0;
+		int split = 0;
+		while (split < nodes.size() && weight + getWeight(nodes.get(split)) / 2.0 <= lowerWeight) {
+			weight += getWeight(nodes.get(split));
+			split++;
+		}
+		partition(new ArrayList<>(nodes.subList(0, split)), firstRunner, lowerRunners, assignment);
+		partition(new ArrayList<>(nodes.subList(split, nodes.size())), firstRunner + lowerRunners, numberOfRunners - lowerRunners, assignment);
+	}
+
+	private static int getWeight(final Node node) {
+		return node.getOutLinks().size() + 1;
+	}
+}
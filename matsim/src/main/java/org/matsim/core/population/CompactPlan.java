@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Plan of a {@link CompactPopulation}. The plan elements are either stored as objects like in {@link PlanImpl}, or
+ * encoded in a {@link CompactPlanArena}, together with the attributes of the plan. Encoded plans are decoded into new
+ * objects on the first access to {@link #getPlanElements()} or {@link #getAttributes()}, and stay objects until the
+ * plan is compacted again. Code that only reads the plan can use {@link #readPlanElements()} and
+ * {@link #readAttributes()} instead, which do not keep the decoded objects.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private volatile List<PlanElement> planElements = new ArrayList<>();
+	private CompactPlanArena arena = null;
+	private long address;
+	private int length;
+
+	private double score = Double.NaN;
+	private boolean hasScore = false;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+	private Attributes attributes;
+
+	/* package */ CompactPlan() {}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		List<PlanElement> elements = this.planElements;
+		if (elements == null) {
+			elements = decode();
+		}
+		return elements;
+	}
+
+	private synchronized List<PlanElement> decode() {
+		if (this.planElements == null) {
+			ByteBuffer data = this.arena.get(this.address, this.length);
+			this.arena.release(this.length);
+			this.attributes = new Attributes();
+			this.planElements = this.arena.codec.decode(data, this.attributes);
+			this.arena = null;
+		}
+		return this.planElements;
+	}
+
+	/**
+	 * @return the plan elements, decoded into new objects which are not kept if the plan is compact. The list cannot be
+	 *         modified, and modifications of the plan elements are lost if the plan is compact.
+	 */
+	/* package */ synchronized List<PlanElement> readPlanElements() {
+		if (this.planElements == null) {
+			return Collections.unmodifiableList(this.arena.codec.decode(this.arena.get(this.address, this.length), null));
+		}
+		return Collections.unmodifiableList(this.planElements);
+	}
+
+	/**
+	 * @return the attributes of the plan, decoded into a new object which is not kept if the plan is compact
+	 */
+	/* package */ synchronized Attributes readAttributes() {
+		if (this.planElements == null) {
+			Attributes attributes = new Attributes();
+			this.arena.codec.decodePlanAttributes(this.arena.get(this.address, this.length), attributes);
+			return attributes;
+		}
+		return getAttributes();
+	}
+
+	/**
+	 * Encodes the plan elements into the arena, if they are not yet encoded and can be encoded.
+	 *
+	 * @return <code>true</code> if the plan elements are encoded after the call
+	 */
+	/* package */ synchronized boolean compact(final CompactPlanArena target) {
+		if (this.planElements == null) {
+			if (this.arena != target) {
+				long newAddress = target.append(this.arena.get(this.address, this.length));
+				this.arena = target;
+				this.address = newAddress;
+			}
+			return true;
+		}
+		ByteBuffer data = target.codec.encode(this.planElements, this.attributes);
+		if (data == null) {
+			return false;
+		}
+		this.length = data.remaining();
+		this.address = target.append(data);
+		this.arena = target;
+		this.planElements = null;
+		this.attributes = null;
+		return true;
+	}
+
+	private synchronized int getNumberOfPlanElements() {
+		// does not decode the plan, so printing plans does not change the memory usage
+		return this.planElements == null ? this.arena.get(this.address, this.length).getInt() : this.planElements.size();
+	}
+
+	/* package */ boolean isCompact() {
+		return this.planElements == null;
+	}
+
+	/* package */ int getEncodedLength() {
+		return this.planElements == null ? this.length : 0;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.hasScore ? this.score : null;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.hasScore = score != null;
+		this.score = score == null ? Double.NaN : score;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.planElements == null) {
+			// the attributes are encoded together with the plan elements
+			decode();
+		}
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + getNumberOfPlanElements() + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanArena.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only storage for encoded plans, in large chunks either on the java heap or in direct (off-heap) memory.
+ * <p>
+ * An encoded plan is identified by the address returned by {@link #append(ByteBuffer)}, which contains the index of
+ * the chunk in the upper and the offset in the chunk in the lower 32 bits. The space of plans that are decoded
+ * again is only released by copying the remaining plans to a new arena, see {@link CompactPopulation#compact()}.
+ */
+final class CompactPlanArena {
+
+	private static final int CHUNK_SIZE = 1 << 24;
+
+	final CompactPlanCodec codec;
+	private final boolean offHeap;
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+	private ByteBuffer current = null;
+	private long usedBytes = 0;
+	private long allocatedBytes = 0;
+	private final AtomicLong releasedBytes = new AtomicLong();
+
+	CompactPlanArena(final CompactPlanCodec codec, final boolean offHeap) {
+		this.codec = codec;
+		this.offHeap = offHeap;
+	}
+
+	long append(final ByteBuffer data) {
+		int length = data.remaining();
+		if (this.current == null || this.current.remaining() < length) {
+			int size = Math.max(CHUNK_SIZE, length);
+			this.current = this.offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+			this.chunks.add(this.current);
+			this.allocatedBytes += size;
+		}
+		long address = ((long) (this.chunks.size() - 1) << 32) | this.current.position();
+		this.current.put(data);
+		this.usedBytes += length;
+		return address;
+	}
+
+	/**
+	 * @return a buffer with the bytes at the given address, positioned at the first byte. Can be called concurrently.
+	 */
+	ByteBuffer get(final long address, final int length) {
+		ByteBuffer chunk = this.chunks.get((int) (address >>> 32)).duplicate();
+		int offset = (int) address;
+		chunk.limit(offset + length).position(offset);
+		return chunk;
+	}
+
+	/**
+	 * Marks the bytes of a plan as no longer used, because the plan was decoded.
+	 */
+	void release(final int length) {
+		this.releasedBytes.addAndGet(length);
+	}
+
+	long getUsedBytes() {
+		return this.usedBytes;
+	}
+
+	long getReleasedBytes() {
+		return this.releasedBytes.get();
+	}
+
+	long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	boolean isOffHeap() {
+		return this.offHeap;
+	}
+
+}
@@ -0,0 +1,423 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanCodec.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Encodes the plan elements of a {@link CompactPlan} into bytes and back.
+ * <p>
+ * Ids are stored by their {@link Id#index()}, activity types, modes, route types and attribute names are stored by
+ * their index in a dictionary. The attributes of the plan are stored in front of the plan elements, so that they can
+ * be decoded alone. Undefined times and missing values are not stored at all, a bit set in front of each
+ * element tells which values are present. Only {@link ActivityImpl}s and {@link LegImpl}s with routes that can be
+ * recreated by the {@link RouteFactories} and (plan and plan element) attributes of simple types are supported, other
+ * plans are kept as objects.
+ * <p>
+ * Encoding is not thread-safe, decoding is as long as no plans are encoded at the same time.
+ */
+final class CompactPlanCodec {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final int ACT_COORD = 1;
+	private static final int ACT_COORD_Z = 1 << 1;
+	private static final int ACT_LINK = 1 << 2;
+	private static final int ACT_FACILITY = 1 << 3;
+	private static final int ACT_START_TIME = 1 << 4;
+	private static final int ACT_END_TIME = 1 << 5;
+	private static final int ACT_MAX_DURATION = 1 << 6;
+
+	private static final int LEG_DEPARTURE_TIME = 1;
+	private static final int LEG_TRAVEL_TIME = 1 << 1;
+	private static final int LEG_NETWORK_ROUTE = 1 << 2;
+	private static final int LEG_OTHER_ROUTE = 1 << 3;
+	private static final int ROUTE_TRAVEL_TIME = 1 << 4;
+	private static final int ROUTE_VEHICLE = 1 << 5;
+
+	private static final byte ATTR_STRING = 0;
+	private static final byte ATTR_DOUBLE = 1;
+	private static final byte ATTR_INTEGER = 2;
+	private static final byte ATTR_LONG = 3;
+	private static final byte ATTR_BOOLEAN = 4;
+
+	private static final int NO_ID = -1;
+
+	private final RouteFactories routeFactories;
+	private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+	private String[] dictionary = new String[64];
+	private int dictionarySize = 0;
+	/** the class of the routes created by the route factories for a route type, to check that they can be recreated */
+	private final Map<String, Class<?>> routeClasses = new HashMap<>();
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+	CompactPlanCodec(final RouteFactories routeFactories) {
+		this.routeFactories = routeFactories;
+	}
+
+	/**
+	 * @param planAttributes the attributes of the plan, may be <code>null</code> if there are none
+	 * @return the encoded plan elements, valid until the next call of this method, or <code>null</code> if the plan
+	 *         elements cannot be encoded.
+	 */
+	ByteBuffer encode(final List<PlanElement> planElements, final Attributes planAttributes) {
+		this.buffer.clear();
+		ensureCapacity(Integer.BYTES);
+		this.buffer.putInt(planElements.size());
+		if (planAttributes == null) {
+			ensureCapacity(Short.BYTES);
+			this.buffer.putShort((short) 0);
+		} else if (!encodeAttributes(planAttributes)) {
+			return null;
+		}
+		for (PlanElement pe : planElements) {
+			boolean encoded;
+			if (pe instanceof ActivityImpl) {
+				encoded = encodeActivity((ActivityImpl) pe);
+			} else if (pe instanceof LegImpl) {
+				encoded = encodeLeg((LegImpl) pe);
+			} else {
+				encoded = false;
+			}
+			if (!encoded) {
+				return null;
+			}
+		}
+		this.buffer.flip();
+		return this.buffer;
+	}
+
+	private boolean encodeActivity(final ActivityImpl act) {
+		Coord coord = act.getCoord();
+		int flags = 0;
+		flags |= coord != null ? ACT_COORD : 0;
+		flags |= coord != null && coord.hasZ() ? ACT_COORD_Z : 0;
+		flags |= act.getLinkId() != null ? ACT_LINK : 0;
+		flags |= act.getFacilityId() != null ? ACT_FACILITY : 0;
+		flags |= act.getStartTime().isDefined() ? ACT_START_TIME : 0;
+		flags |= act.getEndTime().isDefined() ? ACT_END_TIME : 0;
+		flags |= act.getMaximumDuration().isDefined() ? ACT_MAX_DURATION : 0;
+
+		ensureCapacity(2 + Integer.BYTES + 6 * Double.BYTES + 2 * Integer.BYTES);
+		this.buffer.put(ACTIVITY);
+		this.buffer.put((byte) flags);
+		this.buffer.putInt(stringIndex(act.getType()));
+		if (coord != null) {
+			this.buffer.putDouble(coord.getX());
+			this.buffer.putDouble(coord.getY());
+			if (coord.hasZ()) {
+				this.buffer.putDouble(coord.getZ());
+			}
+		}
+		if (act.getLinkId() != null) {
+			this.buffer.putInt(act.getLinkId().index());
+		}
+		if (act.getFacilityId() != null) {
+			this.buffer.putInt(act.getFacilityId().index());
+		}
+		putTime(act.getStartTime());
+		putTime(act.getEndTime());
+		putTime(act.getMaximumDuration());
+		return encodeAttributes(act.getAttributes());
+	}
+
+	private boolean encodeLeg(final LegImpl leg) {
+		Route route = leg.getRoute();
+		int flags = 0;
+		flags |= leg.getDepartureTime().isDefined() ? LEG_DEPARTURE_TIME : 0;
+		flags |= leg.getTravelTime().isDefined() ? LEG_TRAVEL_TIME : 0;
+		if (route instanceof NetworkRoute) {
+			flags |= LEG_NETWORK_ROUTE;
+			flags |= ((NetworkRoute) route).getVehicleId() != null ? ROUTE_VEHICLE : 0;
+		} else if (route != null) {
+			if (!canRecreate(route)) {
+				return false;
+			}
+			flags |= LEG_OTHER_ROUTE;
+		}
+		if (route != null) {
+			flags |= route.getTravelTime().isDefined() ? ROUTE_TRAVEL_TIME : 0;
+		}
+
+		ensureCapacity(2 + Integer.BYTES + 2 * Double.BYTES);
+		this.buffer.put(LEG);
+		this.buffer.put((byte) flags);
+		this.buffer.putInt(stringIndex(leg.getMode()));
+		putTime(leg.getDepartureTime());
+		putTime(leg.getTravelTime());
+		if (route != null) {
+			ensureCapacity(3 * Integer.BYTES + 3 * Double.BYTES);
+			this.buffer.putInt(idIndex(route.getStartLinkId()));
+			this.buffer.putInt(idIndex(route.getEndLinkId()));
+			this.buffer.putDouble(route.getDistance());
+			putTime(route.getTravelTime());
+			if (route instanceof NetworkRoute) {
+				NetworkRoute networkRoute = (NetworkRoute) route;
+				this.buffer.putDouble(networkRoute.getTravelCost());
+				if (networkRoute.getVehicleId() != null) {
+					this.buffer.putInt(networkRoute.getVehicleId().index());
+				}
+				List<Id<Link>> linkIds = networkRoute.getLinkIds();
+				ensureCapacity(Integer.BYTES * (1 + linkIds.size()));
+				this.buffer.putInt(linkIds.size());
+				for (Id<Link> linkId : linkIds) {
+					this.buffer.putInt(linkId.index());
+				}
+			} else {
+				this.buffer.putInt(stringIndex(route.getRouteType()));
+				putString(route.getRouteDescription());
+			}
+		}
+		return encodeAttributes(leg.getAttributes());
+	}
+
+	private boolean canRecreate(final Route route) {
+		Class<?> routeClass = this.routeClasses.computeIfAbsent(route.getRouteType(), type -> {
+			try {
+				return this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(type), null, null).getClass();
+			} catch (RuntimeException e) {
+				return Void.class;
+			}
+		});
+		return routeClass == route.getClass();
+	}
+
+	private boolean encodeAttributes(final Attributes attributes) {
+		ensureCapacity(Short.BYTES);
+		this.buffer.putShort((short) attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			ensureCapacity(Integer.BYTES + 1 + Long.BYTES);
+			this.buffer.putInt(stringIndex(entry.getKey()));
+			Object value = entry.getValue();
+			if (value instanceof String) {
+				this.buffer.put(ATTR_STRING);
+				putString((String) value);
+			} else if (value instanceof Double) {
+				this.buffer.put(ATTR_DOUBLE);
+				this.buffer.putDouble((Double) value);
+			} else if (value instanceof Integer) {
+				this.buffer.put(ATTR_INTEGER);
+				this.buffer.putInt((Integer) value);
+			} else if (value instanceof Long) {
+				this.buffer.put(ATTR_LONG);
+				this.buffer.putLong((Long) value);
+			} else if (value instanceof Boolean) {
+				this.buffer.put(ATTR_BOOLEAN);
+				this.buffer.put((byte) ((Boolean) value ? 1 : 0));
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param planAttributes the attributes the plan attributes are decoded into, or <code>null</code> to skip them
+	 */
+	List<PlanElement> decode(final ByteBuffer data, final Attributes planAttributes) {
+		int count = data.getInt();
+		decodeAttributes(data, planAttributes);
+		List<PlanElement> planElements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte kind = data.get();
+			if (kind == ACTIVITY) {
+				planElements.add(decodeActivity(data));
+			} else {
+				planElements.add(decodeLeg(data));
+			}
+		}
+		return planElements;
+	}
+
+	void decodePlanAttributes(final ByteBuffer data, final Attributes planAttributes) {
+		data.getInt();
+		decodeAttributes(data, planAttributes);
+	}
+
+	private ActivityImpl decodeActivity(final ByteBuffer data) {
+		int flags = data.get();
+		ActivityImpl act = new ActivityImpl(this.dictionary[data.getInt()]);
+		if ((flags & ACT_COORD) != 0) {
+			double x = data.getDouble();
+			double y = data.getDouble();
+			act.setCoord((flags & ACT_COORD_Z) != 0 ? new Coord(x, y, data.getDouble()) : new Coord(x, y));
+		}
+		if ((flags & ACT_LINK) != 0) {
+			act.setLinkId(Id.get(data.getInt(), Link.class));
+		}
+		if ((flags & ACT_FACILITY) != 0) {
+			act.setFacilityId(Id.get(data.getInt(), ActivityFacility.class));
+		}
+		if ((flags & ACT_START_TIME) != 0) {
+			act.setStartTime(data.getDouble());
+		}
+		if ((flags & ACT_END_TIME) != 0) {
+			act.setEndTime(data.getDouble());
+		}
+		if ((flags & ACT_MAX_DURATION) != 0) {
+			act.setMaximumDuration(data.getDouble());
+		}
+		decodeAttributes(data, act.getAttributes());
+		return act;
+	}
+
+	private LegImpl decodeLeg(final ByteBuffer data) {
+		int flags = data.get();
+		LegImpl leg = new LegImpl(this.dictionary[data.getInt()]);
+		if ((flags & LEG_DEPARTURE_TIME) != 0) {
+			leg.setDepartureTime(data.getDouble());
+		}
+		if ((flags & LEG_TRAVEL_TIME) != 0) {
+			leg.setTravelTime(data.getDouble());
+		}
+		if ((flags & (LEG_NETWORK_ROUTE | LEG_OTHER_ROUTE)) != 0) {
+			Id<Link> startLinkId = getId(data.getInt(), Link.class);
+			Id<Link> endLinkId = getId(data.getInt(), Link.class);
+			double distance = data.getDouble();
+			double travelTime = (flags & ROUTE_TRAVEL_TIME) != 0 ? data.getDouble() : Double.NaN;
+			Route route;
+			if ((flags & LEG_NETWORK_ROUTE) != 0) {
+				NetworkRoute networkRoute = this.routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+				networkRoute.setTravelCost(data.getDouble());
+				if ((flags & ROUTE_VEHICLE) != 0) {
+					networkRoute.setVehicleId(Id.get(data.getInt(), Vehicle.class));
+				}
+				Id<Link>[] linkIds = new Id[data.getInt()];
+				for (int i = 0; i < linkIds.length; i++) {
+					linkIds[i] = Id.get(data.getInt(), Link.class);
+				}
+				networkRoute.setLinkIds(startLinkId, Arrays.asList(linkIds), endLinkId);
+				route = networkRoute;
+			} else {
+				String routeType = this.dictionary[data.getInt()];
+				route = this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+				route.setRouteDescription(getString(data));
+			}
+			route.setDistance(distance);
+			if ((flags & ROUTE_TRAVEL_TIME) != 0) {
+				route.setTravelTime(travelTime);
+			}
+			leg.setRoute(route);
+		}
+		decodeAttributes(data, leg.getAttributes());
+		return leg;
+	}
+
+	private void decodeAttributes(final ByteBuffer data, final Attributes attributes) {
+		int count = data.getShort();
+		for (int i = 0; i < count; i++) {
+			String name = this.dictionary[data.getInt()];
+			byte type = data.get();
+			Object value;
+			switch (type) {
+				case ATTR_STRING: value = getString(data); break;
+				case ATTR_DOUBLE: value = data.getDouble(); break;
+				case ATTR_INTEGER: value = data.getInt(); break;
+				case ATTR_LONG: value = data.getLong(); break;
+				case ATTR_BOOLEAN: value = data.get() == 1; break;
+				default: throw new IllegalStateException("unknown attribute type " + type);
+			}
+			if (attributes != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	private void putTime(final OptionalTime time) {
+		if (time.isDefined()) {
+			this.buffer.putDouble(time.seconds());
+		}
+	}
+
+	private void putString(final String string) {
+		if (string == null) {
+			ensureCapacity(Integer.BYTES);
+			this.buffer.putInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		ensureCapacity(Integer.BYTES + bytes.length);
+		this.buffer.putInt(bytes.length);
+		this.buffer.put(bytes);
+	}
+
+	private static String getString(final ByteBuffer data) {
+		int length = data.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int idIndex(final Id<?> id) {
+		return id == null ? NO_ID : id.index();
+	}
+
+	private static <T> Id<T> getId(final int index, final Class<T> type) {
+		return index == NO_ID ? null : Id.get(index, type);
+	}
+
+	private int stringIndex(final String string) {
+		Integer index = this.dictionaryIndex.get(string);
+		if (index == null) {
+			index = this.dictionarySize;
+			if (index == this.dictionary.length) {
+				this.dictionary = Arrays.copyOf(this.dictionary, 2 * index);
+			}
+			this.dictionary[index] = string;
+			this.dictionarySize++;
+			this.dictionaryIndex.put(string, index);
+		}
+		return index;
+	}
+
+	private void ensureCapacity(final int bytes) {
+		if (this.buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * this.buffer.capacity(), this.buffer.position() + bytes));
+			this.buffer.flip();
+			larger.put(this.buffer);
+			this.buffer = larger;
+		}
+	}
+
+}
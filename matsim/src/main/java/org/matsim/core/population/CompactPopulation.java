@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.routes.RouteFactories;
+
+/**
+ * Population that stores the plan elements of plans which are not selected in a compact binary form instead of
+ * objects, see {@link CompactPlanCodec}. With several plans per person, most of the memory of a population is used
+ * by the plan elements of the non-selected plans, which are only read by a few replanning strategies.
+ * <p>
+ * The non-selected plans of a person are compacted when the person is added to the population, and again by
+ * {@link #compact()}, which is called after each iteration by {@link CompactPopulationModule}. Plans are
+ * decoded again on the first access of their plan elements, e.g. when they are selected. Objects of plan elements
+ * of non-selected plans must not be kept over the next compaction, modifications of them would be lost.
+ * <p>
+ * Only plans created by the factory of this population are compacted, plans created elsewhere (e.g. by
+ * {@link PopulationUtils#createPlan()}) are kept as they are.
+ */
+/* deliberately package */ final class CompactPopulation extends PopulationImpl {
+	private static final Logger log = Logger.getLogger(CompactPopulation.class);
+
+	private final CompactPlanCodec codec;
+	private CompactPlanArena arena;
+
+	CompactPopulation(final RouteFactories routeFactories, final boolean offHeap) {
+		super(new CompactPopulationFactory(routeFactories));
+		this.codec = new CompactPlanCodec(routeFactories);
+		this.arena = new CompactPlanArena(this.codec, offHeap);
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		super.addPerson(p);
+		synchronized (this) {
+			compact(p, this.arena);
+		}
+	}
+
+	/**
+	 * Compacts the non-selected plans of all persons. If more than half of the stored bytes belong to plans that
+	 * were decoded in the meantime, all compact plans are copied to a new arena to free this space.
+	 */
+	synchronized void compact() {
+		CompactPlanArena target = this.arena;
+		if (this.arena.getReleasedBytes() > this.arena.getUsedBytes() / 2) {
+			target = new CompactPlanArena(this.codec, this.arena.isOffHeap());
+		}
+		int compactPlans = 0;
+		int objectPlans = 0;
+		for (Person person : getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				if (plan instanceof CompactPlan) {
+					CompactPlan compactPlan = (CompactPlan) plan;
+					// the selected plan is not compacted, but it may still be compact if it was never accessed
+					if (plan != person.getSelectedPlan() || compactPlan.isCompact()) {
+						compactPlan.compact(target);
+					}
+					if (compactPlan.isCompact()) {
+						compactPlans++;
+						continue;
+					}
+				}
+				objectPlans++;
+			}
+		}
+		this.arena = target;
+		log.info("compacted population: " + compactPlans + " compact plans using " + (target.getUsedBytes() - target.getReleasedBytes())
+				+ " bytes " + (target.isOffHeap() ? "off-heap" : "on the heap") + ", " + objectPlans + " plans stored as objects.");
+	}
+
+	private static void compact(final Person person, final CompactPlanArena arena) {
+		for (Plan plan : person.getPlans()) {
+			if (plan != person.getSelectedPlan() && plan instanceof CompactPlan) {
+				((CompactPlan) plan).compact(arena);
+			}
+		}
+	}
+
+	/**
+	 * Creates {@link CompactPlan}s instead of {@link PlanImpl}s.
+	 */
+	private static final class CompactPopulationFactory extends PopulationFactoryImpl {
+		CompactPopulationFactory(final RouteFactories routeFactories) {
+			super(routeFactories);
+		}
+
+		@Override
+		public Plan createPlan() {
+			return new CompactPlan();
+		}
+	}
+
+}
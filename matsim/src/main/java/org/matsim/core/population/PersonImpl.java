@@ -80,7 +80,8 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
-		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+		Plan newPlan = oldPlan instanceof CompactPlan ? new CompactPlan() : PopulationUtils.createPlan();
+		newPlan.setPerson(oldPlan.getPerson());
 		PopulationUtils.copyFromTo(oldPlan, newPlan);
 		this.getPlans().add(newPlan);
 		this.setSelectedPlan(newPlan);
@@ -137,7 +137,48 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		switch (plansConfigGroup.getPlansStorage()) {
+			case compact:
+				return new CompactPopulation(routeFactory, false);
+			case compactOffHeap:
+				return new CompactPopulation(routeFactory, true);
+			default:
+				return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		}
+	}
+
+	/**
+	 * Stores the non-selected plans of the population in compact form again, if the population was created with
+	 * {@link PlansConfigGroup.PlansStorage#compact} or {@link PlansConfigGroup.PlansStorage#compactOffHeap}.
+	 * Does nothing for other populations.
+	 */
+	public static void compactPlans(Population population) {
+		if (population instanceof CompactPopulation) {
+			((CompactPopulation) population).compact();
+		}
+	}
+
+	/**
+	 * Returns the plan elements of a plan for reading only, e.g. for writing or analyzing all plans. Plans which are
+	 * stored in compact form (see {@link #compactPlans(Population)}) stay compact: their plan elements are decoded into
+	 * new objects that are not kept by the plan. The list cannot be modified, and modifications of the plan elements
+	 * of compact plans are lost. Use {@link Plan#getPlanElements()} to modify a plan.
+	 */
+	public static List<PlanElement> getPlanElementsForReading(Plan plan) {
+		if (plan instanceof CompactPlan) {
+			return ((CompactPlan) plan).readPlanElements();
+		}
+		return Collections.unmodifiableList(plan.getPlanElements());
+	}
+
+	/**
+	 * Returns the attributes of a plan for reading only, see {@link #getPlanElementsForReading(Plan)}.
+	 */
+	public static Attributes getPlanAttributesForReading(Plan plan) {
+		if (plan instanceof CompactPlan) {
+			return ((CompactPlan) plan).readAttributes();
+		}
+		return plan.getAttributes();
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
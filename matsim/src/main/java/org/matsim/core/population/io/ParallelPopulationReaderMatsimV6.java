@@ -0,0 +1,301 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the {@link PopulationReaderMatsimV6}. The main thread only reads the file and
+ * collects the xml data of the persons in chunks. The persons of a chunk, including their plans, routes
+ * and attributes, are created by a pool of threads. The main thread adds the persons to the population
+ * in the order of the file, so the result is the same as with the non-parallel reader, also when the
+ * population is streamed.
+ * <p>
+ * The ids of the persons and of their plans (links, facilities, vehicles, and the ids in route descriptions,
+ * e.g. of transit lines and stops) are created by the main thread in the order of the file, as by the
+ * non-parallel reader, so their indices do not depend on the scheduling of the threads. For this, the main
+ * thread creates the routes a second time. Only ids created by custom attribute converters are created by
+ * the threads.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final String POPULATION = "population";
+	private static final String PERSON = "person";
+	private static final String ACT = "activity";
+	private static final String LEG = "leg";
+	private static final String ROUTE = "route";
+	private static final String ATTR_PERSON_ID = "id";
+
+	private static final int PERSONS_PER_CHUNK = 100;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	/** chunks which are parsed or waiting to be parsed, in the order of the file */
+	private final Deque<Future<List<Person>>> pendingChunks = new ArrayDeque<>();
+	private List<List<Tag>> currentChunk = new ArrayList<>();
+	private List<Tag> currentPersonTags = null;
+	/** only to create the ids of the current leg in the order of the file */
+	private String currentLegMode = null;
+	private Route currentRoute = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			this.currentPersonTags = new ArrayList<>();
+			Id.createPersonId(atts.getValue(ATTR_PERSON_ID));
+		}
+		if (this.currentPersonTags != null) {
+			createIds(name, atts);
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentPersonTags.add(new Tag(name, new AttributesImpl(atts), null));
+			return;
+		}
+		if (POPULATION.equals(name)) {
+			log.info("Start parallel population reading with " + this.numThreads + " threads...");
+			this.executor = Executors.newFixedThreadPool(this.numThreads, new NamedThreadFactory());
+		}
+		super.startTag(name, atts, context);
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPersonTags != null) {
+			if (ROUTE.equals(name)) {
+				this.currentRoute.setRouteDescription(content.trim());
+				this.currentRoute = null;
+			}
+			this.currentPersonTags.add(new Tag(name, null, content));
+			if (PERSON.equals(name)) {
+				this.currentChunk.add(this.currentPersonTags);
+				this.currentPersonTags = null;
+				if (this.currentChunk.size() >= PERSONS_PER_CHUNK) {
+					submitCurrentChunk();
+				}
+			}
+			return;
+		}
+		if (POPULATION.equals(name)) {
+			submitCurrentChunk();
+			while (!this.pendingChunks.isEmpty()) {
+				addPersons(this.pendingChunks.poll());
+			}
+			this.executor.shutdown();
+			log.info("Finished parallel population reading...");
+		}
+		super.endTag(name, content, context);
+	}
+
+	/**
+	 * Creates the ids of the plans like {@link PopulationReaderMatsimV6} does, see the class comment.
+	 */
+	private void createIds(final String name, final Attributes atts) {
+		switch (name) {
+			case ACT:
+				createId(atts.getValue("link"), Link.class);
+				createId(atts.getValue("facility"), ActivityFacility.class);
+				break;
+			case LEG:
+				this.currentLegMode = atts.getValue("mode");
+				break;
+			case ROUTE:
+				RouteFactories factories = this.scenario.getPopulation().getFactory().getRouteFactories();
+				Class<? extends Route> routeClass = factories.getRouteClassForType(getRouteType(atts.getValue("type"), this.currentLegMode));
+				this.currentRoute = factories.createRoute(routeClass, createId(atts.getValue("start_link"), Link.class),
+						createId(atts.getValue("end_link"), Link.class));
+				String vehicleRefId = atts.getValue("vehicleRefId");
+				if (vehicleRefId != null && !vehicleRefId.equals("null") && this.currentRoute instanceof NetworkRoute) {
+					createId(vehicleRefId, Vehicle.class);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static <T> Id<T> createId(final String id, final Class<T> type) {
+		return id == null ? null : Id.create(id, type);
+	}
+
+	private void submitCurrentChunk() {
+		if (this.currentChunk.isEmpty()) {
+			return;
+		}
+		final List<List<Tag>> chunk = this.currentChunk;
+		// the transformation may have been set by the attributes of the population
+		final CoordinateTransformation transformation = toThreadSafe(getCoordinateTransformation());
+		this.currentChunk = new ArrayList<>();
+		this.pendingChunks.add(this.executor.submit(() -> parseChunk(chunk, transformation)));
+
+		// do not keep the xml data of the whole file in memory if the threads cannot keep up
+		while (this.pendingChunks.size() > 4 * this.numThreads) {
+			addPersons(this.pendingChunks.poll());
+		}
+	}
+
+	private static CoordinateTransformation toThreadSafe(final CoordinateTransformation transformation) {
+		if (transformation instanceof IdentityTransformation) {
+			return transformation;
+		}
+		// coordinate transformations are in general not thread-safe
+		return coord -> {
+			synchronized (transformation) {
+				return transformation.transform(coord);
+			}
+		};
+	}
+
+	private void addPersons(final Future<List<Person>> chunk) {
+		List<Person> persons;
+		try {
+			persons = chunk.get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		for (Person person : persons) {
+			addPerson(person);
+		}
+	}
+
+	private List<Person> parseChunk(final List<List<Tag>> chunk, final CoordinateTransformation transformation) {
+		ChunkReader reader = new ChunkReader(this.scenario, transformation, this.attributeConverters, chunk.size());
+		Stack<String> context = new Stack<>();
+		context.push(POPULATION);
+		for (List<Tag> personTags : chunk) {
+			for (Tag tag : personTags) {
+				if (tag.atts != null) {
+					reader.startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					reader.endTag(tag.name, tag.content, context);
+				}
+			}
+		}
+		return reader.persons;
+	}
+
+	/**
+	 * Start (with attributes) or end (with content) tag of the xml data of a person.
+	 */
+	private static final class Tag {
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Creates the persons of one chunk, but collects them instead of adding them to the population.
+	 */
+	private static final class ChunkReader extends PopulationReaderMatsimV6 {
+		private final List<Person> persons;
+
+		ChunkReader(final Scenario scenario, final CoordinateTransformation transformation,
+				final Map<Class<?>, AttributeConverter<?>> attributeConverters, final int size) {
+			super(null, null, scenario);
+			setCoordinateTransformation(transformation);
+			putAttributeConverters(attributeConverters);
+			this.persons = new ArrayList<>(size);
+		}
+
+		@Override
+		void addPerson(final Person person) {
+			this.persons.add(person);
+		}
+	}
+
+	private static final class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, ParallelPopulationReaderMatsimV6.class.getSimpleName() + "_" + this.count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
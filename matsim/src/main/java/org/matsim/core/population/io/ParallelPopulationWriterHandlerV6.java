@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationWriterHandlerV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Writes the same output as {@link PopulationWriterHandlerImplV6}, but serializes the persons on a pool of
+ * threads. The persons are collected in chunks, each chunk is written into its own buffer, and the buffers
+ * are copied to the output in the order in which the persons were passed to {@link #writePerson}.
+ * <p>
+ * The persons must not be modified until {@link #endPlans} returns, and the coordinate transformation must
+ * be usable from several threads at the same time.
+ */
+/* deliberately package */ class ParallelPopulationWriterHandlerV6 implements PopulationWriterHandler {
+
+	private static final int PERSONS_PER_CHUNK = 100;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final int numThreads;
+	private final PopulationWriterHandlerImplV6 delegate;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	/** chunks which are serialized or waiting to be serialized, in the order of the output */
+	private final Deque<Future<String>> pendingChunks = new ArrayDeque<>();
+	private List<Person> currentChunk = new ArrayList<>();
+
+	ParallelPopulationWriterHandlerV6(final CoordinateTransformation coordinateTransformation, final int numThreads) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.numThreads = numThreads;
+		this.delegate = new PopulationWriterHandlerImplV6(coordinateTransformation);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.delegate.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void writeHeaderAndStartElement(final BufferedWriter out) throws IOException {
+		this.delegate.writeHeaderAndStartElement(out);
+	}
+
+	@Override
+	public void startPlans(final Population plans, final BufferedWriter out) throws IOException {
+		this.delegate.startPlans(plans, out);
+		this.executor = Executors.newFixedThreadPool(this.numThreads, new NamedThreadFactory());
+	}
+
+	@Override
+	public void writePerson(final Person person, final BufferedWriter out) throws IOException {
+		this.currentChunk.add(person);
+		if (this.currentChunk.size() >= PERSONS_PER_CHUNK) {
+			submitCurrentChunk(out);
+		}
+	}
+
+	@Override
+	public void endPlans(final BufferedWriter out) throws IOException {
+		submitCurrentChunk(out);
+		while (!this.pendingChunks.isEmpty()) {
+			writeChunk(this.pendingChunks.poll(), out);
+		}
+		this.executor.shutdown();
+		this.executor = null;
+		this.delegate.endPlans(out);
+	}
+
+	@Override
+	public void writeSeparator(final BufferedWriter out) throws IOException {
+		this.delegate.writeSeparator(out);
+	}
+
+	private void submitCurrentChunk(final BufferedWriter out) throws IOException {
+		if (this.currentChunk.isEmpty()) {
+			return;
+		}
+		final List<Person> chunk = this.currentChunk;
+		this.currentChunk = new ArrayList<>();
+		this.pendingChunks.add(this.executor.submit(() -> serializeChunk(chunk)));
+
+		// do not keep the output of the whole population in memory if the output cannot keep up
+		while (this.pendingChunks.size() > 4 * this.numThreads) {
+			writeChunk(this.pendingChunks.poll(), out);
+		}
+	}
+
+	private void writeChunk(final Future<String> chunk, final BufferedWriter out) throws IOException {
+		String data;
+		try {
+			data = chunk.get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		out.write(data);
+	}
+
+	private String serializeChunk(final List<Person> chunk) {
+		PopulationWriterHandlerImplV6 handler = new PopulationWriterHandlerImplV6(this.coordinateTransformation);
+		handler.putAttributeConverters(this.attributeConverters);
+		StringWriter buffer = new StringWriter();
+		try (BufferedWriter out = new BufferedWriter(buffer)) {
+			for (Person person : chunk) {
+				handler.writePerson(person, out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return buffer.toString();
+	}
+
+	private static final class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, ParallelPopulationWriterHandlerV6.class.getSimpleName() + "_" + this.count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
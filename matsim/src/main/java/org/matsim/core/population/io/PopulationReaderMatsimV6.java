@@ -197,7 +197,7 @@ import com.google.inject.Inject;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -233,6 +233,18 @@ import com.google.inject.Inject;
 		}
 	}
 
+	/* package */ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
+	/* package */ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	/* package */ void setCoordinateTransformation(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -403,18 +415,7 @@ import com.google.inject.Inject;
 	private void startRoute(final Attributes atts) {
 		String startLinkId = atts.getValue(ATTR_ROUTE_STARTLINK);
 		String endLinkId = atts.getValue(ATTR_ROUTE_ENDLINK);
-		String routeType = atts.getValue("type");
-		
-		if (routeType == null) {
-			String legMode = this.currleg.getMode();
-			if ("pt".equals(legMode)) {
-				routeType = "experimentalPt1";
-			} else if ("car".equals(legMode)) {
-				routeType = "links";
-			} else {
-				routeType = "generic";
-			}
-		}
+		String routeType = getRouteType(atts.getValue("type"), this.currleg.getMode());
 		
 		RouteFactories factory = this.scenario.getPopulation().getFactory().getRouteFactories();
 		Class<? extends Route> routeClass = factory.getRouteClassForType(routeType);
@@ -436,6 +437,22 @@ import com.google.inject.Inject;
 		}
 	}
 
+	/**
+	 * @return the type of the route, with a default depending on the leg mode if the type is not given
+	 */
+	static String getRouteType(final String routeType, final String legMode) {
+		if (routeType != null) {
+			return routeType;
+		}
+		if ("pt".equals(legMode)) {
+			return "experimentalPt1";
+		} else if ("car".equals(legMode)) {
+			return "links";
+		} else {
+			return "generic";
+		}
+	}
+
 	private void endRoute(final String content) {
 		this.routeDescription = content;
 
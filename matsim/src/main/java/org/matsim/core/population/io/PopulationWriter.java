@@ -45,6 +45,7 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 	private final CoordinateTransformation coordinateTransformation;
 	private PopulationWriterHandler handler = null;
+	private int numberOfThreads = 1;
 	private final Population population;
 	private final Network network;
 	private Counter counter = new Counter("[" + this.getClass().getSimpleName() + "] dumped person # ");
@@ -101,7 +102,7 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		this.population = population;
 		this.network = network;
 		this.write_person_fraction = fraction;
-		this.handler = new PopulationWriterHandlerImplV6( coordinateTransformation );
+		this.handler = createHandlerV6();
 	}
 
 	/**
@@ -124,6 +125,28 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		this.converters.putAll( converters );
 	}
 
+	/**
+	 * Sets the number of threads used to serialize the persons when writing the current file format.
+	 * The output is the same as with one thread. Since coordinate transformations are in general not
+	 * thread-safe, the persons are only serialized in parallel if the coordinates are not transformed.
+	 */
+	public void setNumberOfThreads( final int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+		if ( this.handler instanceof PopulationWriterHandlerImplV6 || this.handler instanceof ParallelPopulationWriterHandlerV6 ) {
+			this.handler = createHandlerV6();
+		}
+	}
+
+	private PopulationWriterHandler createHandlerV6() {
+		if ( this.numberOfThreads > 1 ) {
+			if ( this.coordinateTransformation instanceof IdentityTransformation ) {
+				return new ParallelPopulationWriterHandlerV6( this.coordinateTransformation, this.numberOfThreads );
+			}
+			log.warn( "coordinate transformation " + this.coordinateTransformation + " is not known to be thread-safe; writing the population sequentially." );
+		}
+		return new PopulationWriterHandlerImplV6( this.coordinateTransformation );
+	}
+
 	public void putAttributeConverter( Class<?> key, AttributeConverter<?> converter ) {
 		this.converters.put( key, converter );
 	}
@@ -208,12 +231,12 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	}
 
 	public final void writeV6(final String filename) {
-		this.handler = new PopulationWriterHandlerImplV6(coordinateTransformation);
+		this.handler = createHandlerV6();
 		write(filename);
 	}
 
 	public final void writeV6(final OutputStream stream) {
-		this.handler = new PopulationWriterHandlerImplV6(coordinateTransformation);
+		this.handler = createHandlerV6();
 		write(stream);
 	}
 
@@ -38,6 +38,7 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.io.MatsimXmlWriter;
@@ -92,8 +93,8 @@ import org.matsim.vehicles.Vehicle;
 		this.startPerson(person, out);
 		for (Plan plan : person.getPlans()) {
 			startPlan(plan, out);
-			// act/leg
-			for (PlanElement pe : plan.getPlanElements()) {
+			// act/leg; compact plans are not decoded for writing them
+			for (PlanElement pe : PopulationUtils.getPlanElementsForReading(plan)) {
 				if (pe instanceof Activity) {
 					Activity act = (Activity) pe;
 					this.writeAct(act, out);
@@ -152,7 +153,7 @@ import org.matsim.vehicles.Vehicle;
 		}
 		out.write(">\n");
 		
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , plan.getAttributes() );
+		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , PopulationUtils.getPlanAttributesForReading( plan ) );
 
 	}
 
@@ -31,4 +31,12 @@ public interface ReplanningContext {
 	 */
 	int getIteration();
 
+	/**
+	 * The name of a file in the output directory of the current iteration, or <code>null</code> if there is no
+	 * output directory.
+	 */
+	default String getIterationFilename(String filename) {
+		return null;
+	}
+
 }
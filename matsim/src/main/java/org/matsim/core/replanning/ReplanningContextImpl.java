@@ -23,6 +23,7 @@
 package org.matsim.core.replanning;
 
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
 
@@ -33,17 +34,28 @@ import javax.inject.Singleton;
 class ReplanningContextImpl implements ReplanningContext, IterationStartsListener {
 
     private int iteration;
+    private OutputDirectoryHierarchy controlerIO = null;
 
     @Inject
     ReplanningContextImpl(ControlerListenerManager controlerListenerManager) {
         controlerListenerManager.addControlerListener(this);
     }
 
+    @com.google.inject.Inject(optional = true)
+    void setOutputDirectoryHierarchy(OutputDirectoryHierarchy controlerIO) {
+        this.controlerIO = controlerIO;
+    }
+
     @Override
     public int getIteration() {
         return iteration;
     }
 
+    @Override
+    public String getIterationFilename(String filename) {
+        return controlerIO == null ? null : controlerIO.getIterationFilename(iteration, filename);
+    }
+
     @Override
     public void notifyIterationStarts(IterationStartsEvent event) {
         this.iteration = event.getIteration();
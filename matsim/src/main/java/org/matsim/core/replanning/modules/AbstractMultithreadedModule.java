@@ -24,13 +24,24 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningThreadScheduling;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Counter;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +61,14 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link ReplanningThreadScheduling#workStealing}, <code>handlePlan(Plan)</code> only collects the plans, and
+ * <code>finishReplanning()</code> hands them to a {@link ForkJoinPool} in small batches.  Idle threads steal
+ * batches from busy ones, so a few expensive plans no longer delay the whole module, but which plan algorithm
+ * instance handles which plan depends on timing.  Each pool thread still uses its own plan algorithm instance.
+ * <p></p>
+ * With work stealing, the number of handled plans, busy and idle time of every thread is also logged and appended to
+ * {@value #STATISTICS_FILENAME} in the iteration directory.  The default round robin scheduling writes no such file.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -58,9 +77,15 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	public static final String STATISTICS_FILENAME = "replanningThreads.txt";
+	private static final int BATCH_SIZE = 8;
+
 	private final int numOfThreads;
+	private final ReplanningThreadScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
+	private List<Plan> plans = null;
+	private Counter counter = null;
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
@@ -83,11 +108,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningThreadScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningThreadScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningThreadScheduling scheduling) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = scheduling;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -118,7 +148,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.plans != null) {
+				this.plans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -138,22 +172,17 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
+			log.info("[" + this.name + "] starting " + this.numOfThreads + " threads, handling " + this.count + " plans");
+			if (this.plans != null) {
+				long start = System.nanoTime();
+				List<PlanAlgoThread> usedAlgothreads = runWorkStealing();
+				log.info("[" + this.name + "] all " + this.numOfThreads + " threads finished.");
+				writeStatistics(usedAlgothreads, System.nanoTime() - start);
+			} else {
+				runRoundRobin();
+				log.info("[" + this.name + "] all " + this.numOfThreads + " threads finished.");
 			}
 
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
@@ -162,6 +191,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.plans = null;
+		this.counter = null;
 		this.replanningContext = null;
 		this.count = 0;
 		
@@ -169,27 +200,109 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	}
 
 	private void initThreads() {
-		if (this.threads != null) {
+		if (this.algothreads != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
 
 		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		if (this.scheduling == ReplanningThreadScheduling.workStealing) {
+			// the fork/join pool creates its own threads
+			this.plans = new ArrayList<>();
+		} else {
+			this.threads = new Thread[this.numOfThreads];
+		}
 
-		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
 			PlanAlgorithm algo = getPlanAlgoInstance();
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				this.counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, this.counter);
 			this.algothreads[i] = algothread;
+			if (this.threads != null) {
+				Thread thread = new Thread(algothread, this.name + "." + i);
+				thread.setUncaughtExceptionHandler(this.exceptionHandler);
+				this.threads[i] = thread;
+			}
+		}
+	}
+
+	private void runRoundRobin() {
+		// start threads
+		for (Thread thread : this.threads) {
+			thread.start();
+		}
+
+		// wait until each thread is finished
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the plan algorithm threads that were used by the pool threads
+	 */
+	private List<PlanAlgoThread> runWorkStealing() {
+		AtomicInteger threadIndex = new AtomicInteger(0);
+		List<PlanAlgoThread> usedAlgothreads = new ArrayList<>();
+		ThreadLocal<PlanAlgoThread> algothreadOfPoolThread = ThreadLocal.withInitial(() -> {
+			// usually, the pool has exactly numOfThreads threads.  It may start additional threads though, e.g. when a plan algorithm blocks.
+			synchronized (usedAlgothreads) {
+				int index = usedAlgothreads.size();
+				PlanAlgoThread algothread = index < this.algothreads.length ? this.algothreads[index] : new PlanAlgoThread(getPlanAlgoInstance(), this.counter);
+				usedAlgothreads.add(algothread);
+				return algothread;
+			}
+		});
+		ForkJoinPool pool = new ForkJoinPool(this.numOfThreads, forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName(this.name + "." + threadIndex.getAndIncrement());
+			return thread;
+		}, this.exceptionHandler, false);
+		try {
+			pool.invoke(new PlanBatch(this.plans, 0, this.plans.size(), algothreadOfPoolThread));
+		} catch (RuntimeException | Error e) {
+			log.error("Replanning in " + this.name + " failed with exception. Will stop after all threads finished.", e);
+			this.hadException.compareAndSet(null, e);
+		} finally {
+			pool.shutdown();
+		}
+		synchronized (usedAlgothreads) {
+			return new ArrayList<>(usedAlgothreads);
+		}
+	}
+
+	private void writeStatistics(List<PlanAlgoThread> usedAlgothreads, long durationNanos) {
+		double duration = durationNanos * 1e-9;
+		String filename = this.replanningContext == null ? null : this.replanningContext.getIterationFilename(STATISTICS_FILENAME);
+		boolean writeHeader = filename != null && !new File(filename).exists();
+		try (BufferedWriter writer = filename == null ? null : IOUtils.getAppendingBufferedWriter(filename)) {
+			if (writeHeader) {
+				writer.write("module\tscheduling\tthread\tplans\tbusy_s\tidle_s\tplans_per_s");
+				writer.newLine();
+			}
+			for (int i = 0; i < usedAlgothreads.size(); i++) {
+				PlanAlgoThread algothread = usedAlgothreads.get(i);
+				double busy = algothread.busyNanos * 1e-9;
+				double idle = Math.max(0.0, duration - busy);
+				double plansPerSecond = busy > 0 ? algothread.handledPlans / busy : 0.0;
+				log.info(String.format("[%s] thread %d: %d plans, %.1f plans/s, busy %.2f s, idle %.2f s",
+						this.name, i, algothread.handledPlans, plansPerSecond, busy, idle));
+				if (writer != null) {
+					writer.write(String.format("%s\t%s\t%d\t%d\t%.3f\t%.3f\t%.1f", this.name, this.scheduling, i,
+							algothread.handledPlans, busy, idle, plansPerSecond));
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
@@ -218,6 +331,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private int handledPlans = 0;
+		private long busyNanos = 0;
 
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
 			this.planAlgo = algo;
@@ -230,9 +345,49 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			handlePlans(this.plans);
+		}
+
+		void handlePlans(final List<Plan> plans) {
+			long start = System.nanoTime();
+			try {
+				for (Plan plan : plans) {
+					this.planAlgo.run(plan);
+					this.counter.incCounter();
+					this.handledPlans++;
+				}
+			} finally {
+				this.busyNanos += System.nanoTime() - start;
+			}
+		}
+	}
+
+	/**
+	 * Splits its range of plans until at most {@link #BATCH_SIZE} plans are left, which are then handled by the plan
+	 * algorithm of the current pool thread.
+	 */
+	private final static class PlanBatch extends RecursiveAction {
+
+		private final List<Plan> plans;
+		private final int from;
+		private final int to;
+		private final ThreadLocal<PlanAlgoThread> algothreadOfPoolThread;
+
+		PlanBatch(final List<Plan> plans, final int from, final int to, final ThreadLocal<PlanAlgoThread> algothreadOfPoolThread) {
+			this.plans = plans;
+			this.from = from;
+			this.to = to;
+			this.algothreadOfPoolThread = algothreadOfPoolThread;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= BATCH_SIZE) {
+				this.algothreadOfPoolThread.get().handlePlans(this.plans.subList(this.from, this.to));
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PlanBatch(this.plans, this.from, middle, this.algothreadOfPoolThread),
+						new PlanBatch(this.plans, middle, this.to, this.algothreadOfPoolThread));
 			}
 		}
 	}
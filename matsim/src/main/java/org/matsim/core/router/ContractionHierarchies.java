@@ -0,0 +1,291 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.ContractionHierarchiesMetrics.Metric;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TimeBinUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on customizable contraction hierarchies.
+ * <p>
+ * The contracted graph ({@link ContractionHierarchiesGraph}) only depends on the network. The edge weights of the
+ * contracted graph (the metric) are computed from the {@link TravelDisutility} of this calculator, separately for
+ * every time bin: the first query departing in a time bin computes the link weights for this bin, later queries in the
+ * same bin reuse them. Metrics are shared by all calculators of the factory ({@link ContractionHierarchiesMetrics}),
+ * so a metric is only customized again if the link weights differ from those of another calculator. A query then
+ * only visits the ancestors of the from and to node in the elimination tree, which are typically a few hundred nodes even on large networks.
+ * <p>
+ * The route is optimal with respect to the link disutilities at the start of the time bin of the departure, i.e. it
+ * does not consider that the travel times change while travelling along the route. The travel time and cost of the
+ * returned path are computed like in {@link Dijkstra}, by evaluating every link at the time the link is entered.
+ * <p>
+ * The metric is customized for a placeholder person without vehicle, so person-specific disutilities cannot be
+ * considered. In particular, routes are not randomized per agent, which is why the config consistency check refuses
+ * this algorithm with a routing randomness other than 0. Other person- or vehicle-specific disutilities are refused
+ * when they are found on a route: a query fails if the disutility of a link of the route for the routed person and
+ * vehicle differs from the link weight of the metric.
+ * <p>
+ * The metrics are kept until the factory invalidates them (see {@link ContractionHierarchiesFactory#invalidateMetrics()}),
+ * which it does at the start of every iteration.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private static final Person CUSTOMIZATION_PERSON = PopulationUtils.getFactory().createPerson(Id.createPersonId("contractionHierarchiesCustomization"));
+
+	private final ContractionHierarchiesGraph graph;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+	private final int timeBinSize;
+	private final ContractionHierarchiesFactory factory;
+	private final ContractionHierarchiesMetrics sharedMetrics;
+	// the shared metrics used by this calculator, by time bin, valid for the generation of the factory
+	private final Metric[] metrics;
+	private int generation;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardEdge;
+	private final int[] backwardEdge;
+	private int[] unpackStack;
+	// the link indices of the links of the last unpacked path
+	private int[] pathLinks;
+
+	ContractionHierarchies(final ContractionHierarchiesFactory factory, final ContractionHierarchiesMetrics sharedMetrics,
+			final TravelDisutility travelDisutility, final TravelTime travelTime, final int timeBinSize, final int timeBinCount) {
+		this.graph = sharedMetrics.getGraph();
+		this.factory = factory;
+		this.generation = factory.getGeneration();
+		this.sharedMetrics = sharedMetrics;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		this.timeBinSize = timeBinSize;
+		this.metrics = new Metric[timeBinCount];
+
+		int nodeCount = this.graph.nodes.length;
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		this.forwardEdge = new int[nodeCount];
+		this.backwardEdge = new int[nodeCount];
+		this.unpackStack = new int[64];
+		this.pathLinks = new int[64];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = this.graph.getRank(fromNode);
+		int target = this.graph.getRank(toNode);
+		if (source == target) {
+			List<Node> nodes = new ArrayList<>(1);
+			nodes.add(this.graph.nodes[source]);
+			return new Path(nodes, new ArrayList<>(0), 0.0, 0.0);
+		}
+		Metric metric = getMetric(starttime);
+		int[] parent = this.graph.parent;
+
+		search(source, metric.up, this.forwardCost, this.forwardEdge);
+		search(target, metric.down, this.backwardCost, this.backwardEdge);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		for (int v = source; v >= 0; v = parent[v]) {
+			double cost = this.forwardCost[v] + this.backwardCost[v];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meetingNode = v;
+			}
+		}
+
+		List<Link> links = null;
+		if (meetingNode >= 0) {
+			links = new ArrayList<>();
+			// forward part, collected from the meeting node back to the source
+			int stackSize = 0;
+			for (int v = meetingNode; v != source; v = this.graph.edgeTail[this.forwardEdge[v]]) {
+				stackSize = push(stackSize, this.forwardEdge[v] << 1);
+			}
+			unpack(stackSize, metric, links);
+			for (int v = meetingNode; v != target; v = this.graph.edgeTail[this.backwardEdge[v]]) {
+				this.unpackStack[0] = (this.backwardEdge[v] << 1) | 1;
+				unpack(1, metric, links);
+			}
+		}
+
+		for (int v = source; v >= 0; v = parent[v]) {
+			this.forwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+		for (int v = target; v >= 0; v = parent[v]) {
+			this.backwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+
+		if (links == null) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+
+		checkLinkWeights(links, metric, starttime, person, vehicle);
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.graph.nodes[source]);
+		double time = starttime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * Relaxes the upward edges of all ancestors of the start node in the elimination tree. All upward neighbors of a
+	 * node are ancestors of the node, so processing the ancestors bottom-up settles them in the right order.
+	 */
+	private void search(final int start, final double[] weights, final double[] costs, final int[] edges) {
+		int[] firstEdge = this.graph.firstEdge;
+		int[] edgeHead = this.graph.edgeHead;
+		costs[start] = 0;
+		for (int v = start; v >= 0; v = this.graph.parent[v]) {
+			double cost = costs[v];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			for (int e = firstEdge[v], end = firstEdge[v + 1]; e < end; e++) {
+				int w = edgeHead[e];
+				double newCost = cost + weights[e];
+				if (newCost < costs[w]) {
+					costs[w] = newCost;
+					edges[w] = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the edges on the stack by the links they represent and adds them to the list. Stack entries are
+	 * <code>edge &lt;&lt; 1</code> for the upward direction and <code>edge &lt;&lt; 1 | 1</code> for the downward
+	 * direction. The top of the stack is the first edge of the path.
+	 */
+	private void unpack(int stackSize, final Metric metric, final List<Link> links) {
+		while (stackSize > 0) {
+			int entry = this.unpackStack[--stackSize];
+			int edge = entry >> 1;
+			boolean down = (entry & 1) == 1;
+			int via = down ? metric.downVia[edge] : metric.upVia[edge];
+			if (via < 0) {
+				if (links.size() == this.pathLinks.length) {
+					this.pathLinks = Arrays.copyOf(this.pathLinks, 2 * links.size());
+				}
+				this.pathLinks[links.size()] = -via - 1;
+				links.add(this.graph.links[-via - 1]);
+				continue;
+			}
+			int tailEdge = this.graph.findEdge(via, this.graph.edgeTail[edge]);
+			int headEdge = this.graph.findEdge(via, this.graph.edgeHead[edge]);
+			if (down) {
+				// head -> via -> tail, push in reverse order
+				stackSize = push(stackSize, tailEdge << 1);
+				stackSize = push(stackSize, (headEdge << 1) | 1);
+			} else {
+				// tail -> via -> head
+				stackSize = push(stackSize, headEdge << 1);
+				stackSize = push(stackSize, (tailEdge << 1) | 1);
+			}
+		}
+	}
+
+	private int push(final int stackSize, final int entry) {
+		if (stackSize == this.unpackStack.length) {
+			this.unpackStack = Arrays.copyOf(this.unpackStack, 2 * stackSize);
+		}
+		this.unpackStack[stackSize] = entry;
+		return stackSize + 1;
+	}
+
+	/**
+	 * The metric is customized for {@link #CUSTOMIZATION_PERSON}, so the route is only optimal if the disutilities do
+	 * not depend on the person or vehicle. Checking the links of the route is cheap and catches such disutilities.
+	 */
+	private void checkLinkWeights(final List<Link> links, final Metric metric, final double starttime, final Person person, final Vehicle vehicle) {
+		double binStart = getTimeBin(starttime) * (double) this.timeBinSize;
+		for (int i = 0; i < links.size(); i++) {
+			Link link = links.get(i);
+			double disutility = this.travelDisutility.getLinkTravelDisutility(link, binStart, person, vehicle);
+			if (Double.compare(disutility, metric.linkWeights[this.pathLinks[i]]) != 0) {
+				throw new IllegalStateException("The travel disutility of link " + link.getId() + " depends on the person or vehicle ("
+						+ (person == null ? null : person.getId()) + ", " + (vehicle == null ? null : vehicle.getId())
+						+ "). ContractionHierarchies routing computes the same routes for all agents and does not support"
+						+ " person- or vehicle-specific travel disutilities. If the travel times have changed during the iteration,"
+						+ " call ContractionHierarchiesFactory.invalidateMetrics().");
+			}
+		}
+	}
+
+	private int getTimeBin(final double time) {
+		return TimeBinUtils.getTimeBinIndex(Math.max(0, time), this.timeBinSize, this.metrics.length);
+	}
+
+	private Metric getMetric(final double time) {
+		int generation = this.factory.getGeneration();
+		if (generation != this.generation) {
+			// the travel disutilities may have changed
+			Arrays.fill(this.metrics, null);
+			this.generation = generation;
+		}
+		int bin = getTimeBin(time);
+		Metric metric = this.metrics[bin];
+		if (metric == null) {
+			double binStart = bin * (double) this.timeBinSize;
+			Link[] links = this.graph.links;
+			double[] linkWeights = new double[links.length];
+			for (int l = 0; l < links.length; l++) {
+				linkWeights[l] = this.travelDisutility.getLinkTravelDisutility(links[l], binStart, CUSTOMIZATION_PERSON, null);
+			}
+			metric = this.sharedMetrics.getMetric(linkWeights);
+			this.metrics[bin] = metric;
+		}
+		return metric;
+	}
+
+}
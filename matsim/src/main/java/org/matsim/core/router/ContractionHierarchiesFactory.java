@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TimeBinUtils;
+
+/**
+ * Creates {@link ContractionHierarchies} calculators. The contracted graph is computed once per network and shared
+ * by all calculators. The customized metrics are shared as well (see {@link ContractionHierarchiesMetrics}), using the
+ * same time bins as the {@link org.matsim.core.trafficmonitoring.TravelTimeCalculator}.
+ * <p>
+ * The calculators assume that the travel disutilities do not change while the metrics are in use. The factory is
+ * therefore also a controler listener: at the start of every iteration, the metrics of all calculators are
+ * invalidated, so that calculators which live longer than one iteration customize them again with the travel times
+ * of the last iteration. Code that changes the travel times during an iteration, e.g. within-day replanning with
+ * travel times of the running mobsim, has to call {@link #invalidateMetrics()} itself.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, ContractionHierarchiesMetrics> metrics = new HashMap<>();
+	private final int timeBinSize;
+	private final int timeBinCount;
+	// incremented whenever the travel disutilities may have changed, see invalidateMetrics()
+	private volatile int generation = 0;
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.timeBinCount = TimeBinUtils.getTimeBinCount(maxTime, timeBinSize);
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchiesMetrics graphMetrics = this.metrics.computeIfAbsent(network,
+				n -> new ContractionHierarchiesMetrics(new ContractionHierarchiesGraph(n)));
+		return new ContractionHierarchies(this, graphMetrics, travelCosts, travelTimes, this.timeBinSize, this.timeBinCount);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		invalidateMetrics();
+	}
+
+	/**
+	 * Makes all calculators of this factory customize their metrics again before their next query, because the travel
+	 * disutilities may have changed.
+	 */
+	public synchronized void invalidateMetrics() {
+		this.generation++;
+	}
+
+	/*package*/ int getGeneration() {
+		return this.generation;
+	}
+}
@@ -0,0 +1,335 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric-independent part of {@link ContractionHierarchies}: the node order and the contracted graph.
+ * <p>
+ * Nodes are ordered by geometric nested dissection: the nodes are recursively split at the median coordinate, and
+ * the nodes at the border between the two halves get a higher rank than all nodes in the two halves. Contracting
+ * the nodes in this order results in an undirected graph where every edge connects a lower ranked node to a higher
+ * ranked one. The graph does not depend on travel times or costs, so it is built once per network and only the
+ * edge weights have to be computed again when the travel times change.
+ * <p>
+ * Nodes are identified by their rank, edges by their position in the adjacency arrays. The edges of a node
+ * <code>v</code> are <code>firstEdge[v] .. firstEdge[v+1]-1</code>, sorted by the rank of their head.
+ *
+ * @see ContractionHierarchies
+ */
+final class ContractionHierarchiesGraph {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchiesGraph.class);
+
+	final Network network;
+	/** the nodes by rank */
+	final Node[] nodes;
+	final Link[] links;
+	final int[] linkFromRank;
+	final int[] linkToRank;
+	/** the rank of each node by the index of its id */
+	private final int[] rankByIdIndex;
+
+	/** the parent of each node in the elimination tree, <code>-1</code> for roots */
+	final int[] parent;
+	final int[] firstEdge;
+	/** the lower ranked node of each edge */
+	final int[] edgeTail;
+	/** the higher ranked node of each edge */
+	final int[] edgeHead;
+
+	ContractionHierarchiesGraph(final Network network) {
+		this.network = network;
+		int nodeCount = network.getNodes().size();
+		Node[] networkNodes = network.getNodes().values().toArray(new Node[0]);
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		int maxIndex = 0;
+		for (Node node : networkNodes) {
+			maxIndex = Math.max(maxIndex, node.getId().index());
+		}
+		this.rankByIdIndex = new int[maxIndex + 1];
+		Arrays.fill(this.rankByIdIndex, -1);
+
+		int[] ranks = new NestedDissection(networkNodes, this.links).computeRanks();
+		this.nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			this.nodes[ranks[i]] = networkNodes[i];
+			this.rankByIdIndex[networkNodes[i].getId().index()] = ranks[i];
+		}
+
+		this.linkFromRank = new int[this.links.length];
+		this.linkToRank = new int[this.links.length];
+		int[][] upNeighbors = new int[nodeCount][];
+		int[] upNeighborCount = new int[nodeCount];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = getRank(this.links[l].getFromNode());
+			int to = getRank(this.links[l].getToNode());
+			this.linkFromRank[l] = from;
+			this.linkToRank[l] = to;
+			if (from != to) {
+				addNeighbor(upNeighbors, upNeighborCount, Math.min(from, to), Math.max(from, to));
+			}
+		}
+
+		// contract the nodes in rank order. It is sufficient to add the upward neighbors of a node to its lowest
+		// ranked upward neighbor (its parent in the elimination tree), they are passed on when the parent is contracted.
+		this.parent = new int[nodeCount];
+		int edgeCount = 0;
+		for (int v = 0; v < nodeCount; v++) {
+			int count = upNeighborCount[v];
+			int[] neighbors = count == 0 ? new int[0] : Arrays.copyOf(upNeighbors[v], count);
+			Arrays.sort(neighbors);
+			int distinct = 0;
+			for (int i = 0; i < neighbors.length; i++) {
+				if (distinct == 0 || neighbors[distinct - 1] != neighbors[i]) {
+					neighbors[distinct++] = neighbors[i];
+				}
+			}
+			neighbors = Arrays.copyOf(neighbors, distinct);
+			upNeighbors[v] = neighbors;
+			upNeighborCount[v] = distinct;
+			edgeCount += distinct;
+			if (distinct == 0) {
+				this.parent[v] = -1;
+			} else {
+				int p = neighbors[0];
+				this.parent[v] = p;
+				for (int i = 1; i < distinct; i++) {
+					addNeighbor(upNeighbors, upNeighborCount, p, neighbors[i]);
+				}
+			}
+		}
+
+		this.firstEdge = new int[nodeCount + 1];
+		this.edgeTail = new int[edgeCount];
+		this.edgeHead = new int[edgeCount];
+		int e = 0;
+		for (int v = 0; v < nodeCount; v++) {
+			this.firstEdge[v] = e;
+			for (int w : upNeighbors[v]) {
+				this.edgeTail[e] = v;
+				this.edgeHead[e] = w;
+				e++;
+			}
+		}
+		this.firstEdge[nodeCount] = e;
+
+		// parents have a higher rank than their children
+		int[] depths = new int[nodeCount];
+		int depth = 0;
+		for (int v = nodeCount - 1; v >= 0; v--) {
+			depths[v] = this.parent[v] < 0 ? 1 : depths[this.parent[v]] + 1;
+			depth = Math.max(depth, depths[v]);
+		}
+		log.info("contracted network with " + nodeCount + " nodes and " + this.links.length + " links into " + edgeCount
+				+ " edges, elimination tree depth is " + depth);
+	}
+
+	private static void addNeighbor(final int[][] neighbors, final int[] counts, final int v, final int w) {
+		int[] array = neighbors[v];
+		if (array == null) {
+			array = new int[4];
+			neighbors[v] = array;
+		} else if (counts[v] == array.length) {
+			array = Arrays.copyOf(array, 2 * array.length);
+			neighbors[v] = array;
+		}
+		array[counts[v]++] = w;
+	}
+
+	int getRank(final Node node) {
+		int index = node.getId().index();
+		int rank = index < this.rankByIdIndex.length ? this.rankByIdIndex[index] : -1;
+		if (rank < 0 || !this.nodes[rank].getId().equals(node.getId())) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the network the contraction hierarchy was built for.");
+		}
+		return rank;
+	}
+
+	/**
+	 * @return the edge between the nodes <code>tail &lt; head</code>, or <code>-1</code> if there is none.
+	 */
+	int findEdge(final int tail, final int head) {
+		int index = Arrays.binarySearch(this.edgeHead, this.firstEdge[tail], this.firstEdge[tail + 1], head);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * Computes a node order by recursive bisection at the median coordinate. The smaller of the two borders
+	 * between the halves becomes the separator and gets the highest ranks of the part. The nodes are projected on
+	 * both axes and both diagonals, and the projection with the smallest separator is used.
+	 */
+	private static final class NestedDissection {
+
+		private static final int MIN_PART_SIZE = 4;
+		private static final int DIRECTIONS = 4;
+
+		private final double[] x;
+		private final double[] y;
+		private final int[] firstNeighbor;
+		private final int[] neighbors;
+		private final byte[] side;
+		private final int[] ranks;
+		private int nextRank;
+
+		NestedDissection(final Node[] nodes, final Link[] links) {
+			int n = nodes.length;
+			this.x = new double[n];
+			this.y = new double[n];
+			int[] indexByIdIndex = new int[Id.getNumberOfIds(Node.class)];
+			for (int i = 0; i < n; i++) {
+				Coord coord = nodes[i].getCoord();
+				this.x[i] = coord == null ? 0 : coord.getX();
+				this.y[i] = coord == null ? 0 : coord.getY();
+				indexByIdIndex[nodes[i].getId().index()] = i;
+			}
+
+			this.firstNeighbor = new int[n + 1];
+			for (Link link : links) {
+				this.firstNeighbor[indexByIdIndex[link.getFromNode().getId().index()] + 1]++;
+				this.firstNeighbor[indexByIdIndex[link.getToNode().getId().index()] + 1]++;
+			}
+			for (int i = 0; i < n; i++) {
+				this.firstNeighbor[i + 1] += this.firstNeighbor[i];
+			}
+			this.neighbors = new int[this.firstNeighbor[n]];
+			int[] position = Arrays.copyOf(this.firstNeighbor, n);
+			for (Link link : links) {
+				int from = indexByIdIndex[link.getFromNode().getId().index()];
+				int to = indexByIdIndex[link.getToNode().getId().index()];
+				this.neighbors[position[from]++] = to;
+				this.neighbors[position[to]++] = from;
+			}
+
+			this.side = new byte[n];
+			this.ranks = new int[n];
+			this.nextRank = n - 1;
+		}
+
+		int[] computeRanks() {
+			Integer[] all = new Integer[this.x.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			dissect(all);
+			return this.ranks;
+		}
+
+		private void dissect(final Integer[] part) {
+			if (part.length <= MIN_PART_SIZE) {
+				for (Integer v : part) {
+					this.ranks[v] = this.nextRank--;
+				}
+				return;
+			}
+			// try cuts along both axes and both diagonals and keep the one with the smallest separator
+			Integer[] bestOrder = null;
+			int bestSeparatorSize = Integer.MAX_VALUE;
+			byte separatorSide = 1;
+			int leftBorder = 0;
+			int rightBorder = 0;
+			int half = part.length / 2;
+			for (int direction = 0; direction < DIRECTIONS; direction++) {
+				Integer[] order = part.clone();
+				final int d = direction;
+				Arrays.sort(order, Comparator.comparingDouble(v -> project(v, d)));
+				for (int i = 0; i < order.length; i++) {
+					this.side[order[i]] = (byte) (i < half ? 1 : 2);
+				}
+				int leftCount = 0;
+				int rightCount = 0;
+				for (int i = 0; i < order.length; i++) {
+					if (isBorder(order[i])) {
+						if (i < half) {
+							leftCount++;
+						} else {
+							rightCount++;
+						}
+					}
+				}
+				if (Math.min(leftCount, rightCount) < bestSeparatorSize) {
+					bestOrder = order;
+					bestSeparatorSize = Math.min(leftCount, rightCount);
+					separatorSide = (byte) (leftCount <= rightCount ? 1 : 2);
+					leftBorder = leftCount;
+					rightBorder = rightCount;
+				}
+			}
+			for (int i = 0; i < bestOrder.length; i++) {
+				this.side[bestOrder[i]] = (byte) (i < half ? 1 : 2);
+			}
+
+			Integer[] separator = new Integer[Math.min(leftBorder, rightBorder)];
+			Integer[] left = new Integer[half - (separatorSide == 1 ? leftBorder : 0)];
+			Integer[] right = new Integer[part.length - half - (separatorSide == 2 ? rightBorder : 0)];
+			int s = 0;
+			int l = 0;
+			int r = 0;
+			for (Integer v : bestOrder) {
+				if (this.side[v] == separatorSide && isBorder(v)) {
+					separator[s++] = v;
+				} else if (this.side[v] == 1) {
+					left[l++] = v;
+				} else {
+					right[r++] = v;
+				}
+			}
+			for (Integer v : part) {
+				this.side[v] = 0;
+			}
+			for (Integer v : separator) {
+				this.ranks[v] = this.nextRank--;
+			}
+			dissect(left);
+			dissect(right);
+		}
+
+		private double project(final int v, final int direction) {
+			switch (direction) {
+				case 0: return this.x[v];
+				case 1: return this.y[v];
+				case 2: return this.x[v] + this.y[v];
+				default: return this.x[v] - this.y[v];
+			}
+		}
+
+		private boolean isBorder(final int v) {
+			byte own = this.side[v];
+			for (int i = this.firstNeighbor[v]; i < this.firstNeighbor[v + 1]; i++) {
+				byte other = this.side[this.neighbors[i]];
+				if (other != 0 && other != own) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Customized metrics of one {@link ContractionHierarchiesGraph}, shared read-only by all {@link ContractionHierarchies}
+ * calculators of the graph, also across threads.
+ * <p>
+ * A metric only depends on the weights of the links, so metrics are looked up by the link weights: calculators whose
+ * travel disutilities result in the same link weights for a time bin (e.g. the calculators of the different replanning
+ * threads) customize the metric only once. Computing the link weights is linear in the number of links, which is
+ * much cheaper than the customization. Metrics are only weakly referenced here, so the metrics of old travel times are
+ * dropped as soon as the calculators that use them are gone.
+ */
+final class ContractionHierarchiesMetrics {
+
+	private final ContractionHierarchiesGraph graph;
+	private final Map<LinkWeights, Slot> slots = new HashMap<>();
+
+	ContractionHierarchiesMetrics(final ContractionHierarchiesGraph graph) {
+		this.graph = graph;
+	}
+
+	ContractionHierarchiesGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @param linkWeights the weights of the links of the graph, by link index; must not be modified afterwards
+	 */
+	Metric getMetric(final double[] linkWeights) {
+		LinkWeights key = new LinkWeights(linkWeights);
+		Slot slot;
+		synchronized (this.slots) {
+			this.slots.values().removeIf(Slot::isCleared);
+			slot = this.slots.computeIfAbsent(key, k -> new Slot());
+		}
+		// customize outside of the map lock, so that different time bins are customized in parallel
+		synchronized (slot) {
+			Metric metric = slot.reference == null ? null : slot.reference.get();
+			if (metric == null) {
+				metric = customize(linkWeights);
+				slot.reference = new WeakReference<>(metric);
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * Computes the weights of the contracted graph: first the weights of the edges that correspond to links, then the
+	 * shortcuts over the lower triangles of each edge, in rank order of the lowest node of the triangle.
+	 */
+	private Metric customize(final double[] linkWeights) {
+		ContractionHierarchiesGraph g = this.graph;
+		Metric metric = new Metric(linkWeights, g.edgeHead.length);
+		double[] up = metric.up;
+		double[] down = metric.down;
+
+		for (int l = 0; l < g.links.length; l++) {
+			int from = g.linkFromRank[l];
+			int to = g.linkToRank[l];
+			if (from == to) {
+				continue;
+			}
+			double cost = linkWeights[l];
+			if (from < to) {
+				int e = g.findEdge(from, to);
+				if (cost < up[e]) {
+					up[e] = cost;
+					metric.upVia[e] = -l - 1;
+				}
+			} else {
+				int e = g.findEdge(to, from);
+				if (cost < down[e]) {
+					down[e] = cost;
+					metric.downVia[e] = -l - 1;
+				}
+			}
+		}
+
+		for (int x = 0; x < g.nodes.length; x++) {
+			for (int i = g.firstEdge[x], end = g.firstEdge[x + 1]; i < end; i++) {
+				int a = g.edgeHead[i];
+				for (int j = i + 1; j < end; j++) {
+					int b = g.edgeHead[j];
+					int e = g.findEdge(a, b);
+					double viaUp = down[i] + up[j];
+					if (viaUp < up[e]) {
+						up[e] = viaUp;
+						metric.upVia[e] = x;
+					}
+					double viaDown = down[j] + up[i];
+					if (viaDown < down[e]) {
+						down[e] = viaDown;
+						metric.downVia[e] = x;
+					}
+				}
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * Edge weights for one time bin. <code>up</code> is the weight from the tail to the head of an edge,
+	 * <code>down</code> from the head to the tail. The <code>via</code> arrays contain the middle node of a shortcut,
+	 * or <code>-(link index + 1)</code> if the weight is the one of a link. Not modified after customization.
+	 */
+	static final class Metric {
+		// the link weights the metric was customized with, by link index
+		final double[] linkWeights;
+		final double[] up;
+		final double[] down;
+		final int[] upVia;
+		final int[] downVia;
+
+		Metric(final double[] linkWeights, final int edgeCount) {
+			this.linkWeights = linkWeights;
+			this.up = new double[edgeCount];
+			this.down = new double[edgeCount];
+			Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+			this.upVia = new int[edgeCount];
+			this.downVia = new int[edgeCount];
+		}
+	}
+
+	private static final class Slot {
+		private volatile WeakReference<Metric> reference = null;
+
+		private boolean isCleared() {
+			return this.reference != null && this.reference.get() == null;
+		}
+	}
+
+	private static final class LinkWeights {
+		private final double[] weights;
+		private final int hash;
+
+		private LinkWeights(final double[] weights) {
+			this.weights = weights;
+			this.hash = Arrays.hashCode(weights);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof LinkWeights && this.hash == ((LinkWeights) o).hash && Arrays.equals(this.weights, ((LinkWeights) o).weights);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -26,4 +26,12 @@ import org.matsim.api.core.v01.network.Node;
  */
 public interface Landmarker {
 	Node[] identifyLandmarks( int nLandmarks, Network network );
+
+	/**
+	 * Identifies the landmarks this landmarker chooses on a given network, for the cache of {@link PreProcessLandmarks}.
+	 * Landmarkers with parameters that influence the choice of the landmarks must include them in the key.
+	 */
+	default String getCacheKey() {
+		return getClass().getName();
+	}
 }
@@ -39,4 +39,10 @@ public class PieSlicesLandmarker implements Landmarker {
 		delegate.run( network );
 		return delegate.getLandmarks();
 	}
+
+	@Override
+	public String getCacheKey() {
+		return getClass().getName() + "[" + travelZone.getX() + "," + travelZone.getY() + ","
+				+ travelZone.getWidth() + "," + travelZone.getHeight() + "]";
+	}
 }
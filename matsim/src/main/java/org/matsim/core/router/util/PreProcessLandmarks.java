@@ -21,14 +21,32 @@
 package org.matsim.core.router.util;
 
 import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -40,6 +58,12 @@ import org.matsim.core.api.internal.MatsimComparator;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p>
+ * The distances are computed on the minimal link costs
+ * ({@link TravelDisutility#getLinkMinimumTravelDisutility(Link)}), so they remain valid lower bounds when the
+ * travel times change between iterations. If a cache directory is set, the landmarks and distances are written to
+ * that directory and read from there instead of computing them again, as long as the network, the minimal link
+ * costs and the landmark settings are the same.
  *
  * @author lnicolas
  */
@@ -53,6 +77,10 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
+	private static final int CACHE_FILE_VERSION = 1;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -83,6 +111,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.numberOfThreads = numberOfThreads;
 	}
 	
+	/**
+	 * Sets the directory in which the results of the pre-processing are persisted and looked up. The files are named
+	 * by a hash of the network, the minimal link costs and the landmark settings, so one directory can be shared by
+	 * different networks and runs. Default is <code>null</code>, i.e. nothing is persisted.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	/**
 	 * @param costFunction
 	 * @param travelZone The area within which the landmarks should lie. Narrowing the zone where the landmarks should
@@ -108,7 +147,23 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
+
+		Path cacheFile = null;
+		if (this.cacheDirectory != null) {
+			cacheFile = Paths.get(this.cacheDirectory, "landmarks_" + calcCacheKey(network) + ".bin.gz");
+			if (Files.exists(cacheFile) && readCacheFile(cacheFile, network)) {
+				return;
+			}
+		}
+
+		calcLandmarks(network);
+
+		if (cacheFile != null) {
+			writeCacheFile(cacheFile, network);
+		}
+	}
+
+	private void calcLandmarks(final Network network) {
 		log.info("Putting landmarks on network...");
 		long now = System.currentTimeMillis();
 		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
@@ -163,6 +218,132 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 	}
 
+	/**
+	 * @return a hash of everything the pre-processing depends on
+	 */
+	private String calcCacheKey(final Network network) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		buffer.putInt(CACHE_FILE_VERSION).putInt(this.landmarkCount);
+		digest.update(buffer.array(), 0, buffer.position());
+		digest.update(this.landmarker.getCacheKey().getBytes());
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		nodes.sort(Comparator.comparing(Node::getId));
+		for (Node node : nodes) {
+			digest.update(node.getId().toString().getBytes());
+			buffer.clear();
+			buffer.putDouble(node.getCoord().getX()).putDouble(node.getCoord().getY());
+			digest.update(buffer.array(), 0, buffer.position());
+		}
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		links.sort(Comparator.comparing(Link::getId));
+		for (Link link : links) {
+			digest.update(link.getId().toString().getBytes());
+			digest.update(link.getFromNode().getId().toString().getBytes());
+			digest.update(link.getToNode().getId().toString().getBytes());
+			buffer.clear();
+			buffer.putDouble(link.getLength()).putDouble(this.costFunction.getLinkMinimumTravelDisutility(link));
+			digest.update(buffer.array(), 0, buffer.position());
+		}
+
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b));
+		}
+		return key.toString();
+	}
+
+	private void writeCacheFile(final Path cacheFile, final Network network) {
+		log.info("Writing landmarks to " + cacheFile);
+		Path tmpFile = null;
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			tmpFile = Files.createTempFile(cacheFile.getParent(), "landmarks", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmpFile))))) {
+				out.writeInt(CACHE_FILE_VERSION);
+				out.writeInt(this.landmarks.length);
+				for (Node landmark : this.landmarks) {
+					out.writeUTF(landmark.getId().toString());
+				}
+				out.writeInt(network.getNodes().size());
+				for (Node node : network.getNodes().values()) {
+					LandmarksData data = getNodeData(node);
+					out.writeUTF(node.getId().toString());
+					for (int i = 0; i < this.landmarks.length; i++) {
+						out.writeDouble(data.getMinLandmarkTravelTime(i));
+						out.writeDouble(data.getMaxLandmarkTravelTime(i));
+					}
+				}
+			}
+			// other runs may read or write the same file concurrently
+			try {
+				Files.move(tmpFile, cacheFile, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			log.warn("Could not write landmarks to " + cacheFile, e);
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false if the file could not be read; the data must then be calculated
+	 */
+	private boolean readCacheFile(final Path cacheFile, final Network network) {
+		log.info("Reading landmarks from " + cacheFile);
+		long now = System.currentTimeMillis();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile))))) {
+			if (in.readInt() != CACHE_FILE_VERSION || in.readInt() != this.landmarkCount) {
+				log.warn("Landmarks in " + cacheFile + " do not match the current settings, calculating them again.");
+				return false;
+			}
+			Node[] landmarks = new Node[this.landmarkCount];
+			for (int i = 0; i < landmarks.length; i++) {
+				landmarks[i] = getNode(network, in.readUTF());
+			}
+			int nodeCount = in.readInt();
+			if (nodeCount != network.getNodes().size()) {
+				throw new IOException("expected " + network.getNodes().size() + " nodes, but found " + nodeCount);
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				// keeps the dead end data
+				LandmarksData data = getNodeData(getNode(network, in.readUTF()));
+				for (int i = 0; i < this.landmarkCount; i++) {
+					data.setFromLandmarkTravelTime(i, in.readDouble());
+					data.setToLandmarkTravelTime(i, in.readDouble());
+				}
+			}
+			this.landmarks = landmarks;
+		} catch (IOException e) {
+			log.warn("Could not read landmarks from " + cacheFile + ", calculating them again.", e);
+			return false;
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		return true;
+	}
+
+	private static Node getNode(final Network network, final String id) throws IOException {
+		Node node = network.getNodes().get(Id.createNodeId(id));
+		if (node == null) {
+			throw new IOException("node " + id + " is not part of the network");
+		}
+		return node;
+	}
+
 	private static class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
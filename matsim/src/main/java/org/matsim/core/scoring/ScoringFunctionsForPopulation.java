@@ -40,10 +40,10 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
-import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.StageActivityTypeIdentifier;
@@ -55,6 +55,8 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -63,6 +65,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * If {@link PlanCalcScoreConfigGroup#getNumberOfScoringThreads()} is larger than zero, the persons are partitioned by
+ * their id into that many shards, each scored by its own thread. The threads are started with the first event of an
+ * iteration and stopped when the scoring functions are finished (or the handler is reset).
  * 
  * @author michaz
  *
@@ -89,11 +95,31 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
 	
-	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+	private final IdMap<Vehicle, Id<Person>> vehicles2Drivers = new IdMap<>(Vehicle.class);
+
+	/*
+	 * With numberOfScoringThreads > 0, every person belongs to the shard with index personId.index() % numberOfScoringThreads.
+	 * Events, legs and activities are only put into the batches of the owning shard, and the shard's thread is the only one
+	 * calling the scoring function, partial scores and trip records of its persons. So neither the handlers nor the scoring
+	 * functions need to be synchronized.
+	 */
+	private final int numberOfScoringThreads;
+	private volatile ScoringShard[] shards = null;
+	private static final Object[] END_OF_BATCHES = new Object[0];
 
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, planCalcScoreConfigGroup.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 0);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfScoringThreads) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -102,12 +128,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfScoringThreads = numberOfScoringThreads;
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
 	}
 
 	private void init() {
+		stopShards();
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
@@ -117,35 +145,23 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			handlePersonEvent(((HasPersonId) o).getPersonId(), o);
 		}
 
 		// Establish and end connection between driver and vehicle
+		// (only this method accesses vehicles2Drivers, and the events manager calls it from one thread at a time)
 		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			this.vehicles2Drivers.put(((VehicleEntersTrafficEvent) o).getVehicleId(), ((VehicleEntersTrafficEvent) o).getPersonId());
 		}
 		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			this.vehicles2Drivers.remove(((VehicleLeavesTrafficEvent) o).getVehicleId());
 		}
 		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 		/*
@@ -157,17 +173,65 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		 */
 		if ( o instanceof LinkEnterEvent ) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+			Id<Person> driverId = this.vehicles2Drivers.get(vehicleId);
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
+			handlePersonEvent(driverId, o);
+		}
+	}
+
+	private void handlePersonEvent(Id<Person> personId, Event o) {
+		ScoringShard[] shards = getShards();
+		if (shards != null) {
+			shards[personId.index() % shards.length].add(personId, o);
+		} else {
+			synchronized (this) {
+				scorePersonEvent(personId, o);
+			}
+		}
+	}
+
+	private void scorePersonEvent(Id<Person> personId, Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			}
+//			else {
 				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
+	@Override
+	public void handleLeg(PersonExperiencedLeg o) {
+		ScoringShard[] shards = getShards();
+		if (shards != null) {
+			shards[o.getAgentId().index() % shards.length].add(o);
+		} else {
+			synchronized (this) {
+				scoreLeg(o);
 			}
 		}
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleActivity(PersonExperiencedActivity o) {
+		ScoringShard[] shards = getShards();
+		if (shards != null) {
+			shards[o.getAgentId().index() % shards.length].add(o);
+		} else {
+			synchronized (this) {
+				scoreActivity(o);
+			}
+		}
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -182,8 +246,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -240,6 +303,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
+		stopShards();
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -275,7 +339,141 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void reset(int iteration) {
+		// the shards of the last iteration should already be stopped by finishScoringFunctions()
+		stopShards();
+	}
+
+	/**
+	 * @return the running shards, started if necessary, or null if the persons are scored without shards
+	 */
+	private ScoringShard[] getShards() {
+		ScoringShard[] shards = this.shards;
+		if (shards == null && this.numberOfScoringThreads > 0) {
+			synchronized (this) {
+				shards = this.shards;
+				if (shards == null) {
+					shards = new ScoringShard[this.numberOfScoringThreads];
+					for (int i = 0; i < shards.length; i++) {
+						shards[i] = new ScoringShard();
+						Thread thread = new Thread(shards[i], "ScoringShard-" + i);
+						thread.setDaemon(true);
+						shards[i].thread = thread;
+						thread.start();
+					}
+					this.shards = shards;
+				}
+			}
+		}
+		return shards;
+	}
+
+	/**
+	 * Waits until the shards have processed all events, legs and activities handed to them, and stops their threads.
+	 */
+	private void stopShards() {
+		ScoringShard[] shards;
+		synchronized (this) {
+			shards = this.shards;
+			this.shards = null;
+		}
+		if (shards == null) {
+			return;
+		}
+		for (ScoringShard shard : shards) {
+			shard.stop();
+		}
+		for (ScoringShard shard : shards) {
+			try {
+				shard.thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * The items of a shard are collected in batches, which are handed to the shard's thread through a bounded blocking
+	 * queue, so the thread sleeps while there is nothing to score, and the events thread waits if the shard cannot keep
+	 * up. Person events are stored as two entries, the person id followed by the event. A batch ends with its first null
+	 * entry.
+	 */
+	private final class ScoringShard implements Runnable {
+
+		private static final int BATCH_SIZE = 1024;
+		private static final int QUEUE_CAPACITY = 16;
+
+		private final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private Object[] batch = new Object[BATCH_SIZE];
+		private int batchSize = 0;
+		private Thread thread;
+
+		// the events and the legs and activities may be handled by different threads of the events manager
+		synchronized void add(Id<Person> personId, Event event) {
+			if (this.batchSize + 2 > BATCH_SIZE) {
+				flush();
+			}
+			this.batch[this.batchSize++] = personId;
+			this.batch[this.batchSize++] = event;
+		}
 
+		synchronized void add(Object legOrActivity) {
+			if (this.batchSize == BATCH_SIZE) {
+				flush();
+			}
+			this.batch[this.batchSize++] = legOrActivity;
+		}
+
+		synchronized void stop() {
+			flush();
+			put(END_OF_BATCHES);
+		}
+
+		private void flush() {
+			if (this.batchSize > 0) {
+				put(this.batch);
+				this.batch = new Object[BATCH_SIZE];
+				this.batchSize = 0;
+			}
+		}
+
+		private void put(Object[] items) {
+			try {
+				this.queue.put(items);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void run() {
+			while (true) {
+				Object[] items;
+				try {
+					items = this.queue.take();
+				} catch (InterruptedException e) {
+					exception.compareAndSet(null, e);
+					return;
+				}
+				if (items == END_OF_BATCHES) {
+					return;
+				}
+				for (int i = 0; i < items.length && items[i] != null; i++) {
+					Object item = items[i];
+					try {
+						if (item instanceof Id) {
+							scorePersonEvent((Id<Person>) item, (Event) items[++i]);
+						} else if (item instanceof PersonExperiencedLeg) {
+							scoreLeg((PersonExperiencedLeg) item);
+						} else {
+							scoreActivity((PersonExperiencedActivity) item);
+						}
+					} catch (Throwable t) {
+						exception.compareAndSet(null, t);
+					}
+				}
+			}
+		}
 	}
 
 }
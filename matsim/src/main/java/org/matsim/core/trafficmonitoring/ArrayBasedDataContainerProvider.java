@@ -23,60 +23,53 @@ package org.matsim.core.trafficmonitoring;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.priorityqueue.HasIndex;
 
 import java.util.Map;
 
 /**
  *  Uses an array to store DataContainer object for the TravelTimeCalculator.
- *  It is tried to get a DataContainer's position in the array is taken from the
- *  the Link, which is possible if routing networks are used (there, link implement
- *  the HasIndex interface).
- *  
- *  If regular network are used, calls are forwarded to a MapBasedDataContainerProvider,
- *  which represents the lookup approach used so far.
- *  
+ *  A DataContainer's position in the array is the {@link Id#index()} of the link, so
+ *  neither the event handler part (where only link ids are available) nor the
+ *  travel time part of the TravelTimeCalculator needs a map lookup.
+ *
+ *  DataContainers are created by a MapBasedDataContainerProvider, i.e. the map
+ *  still contains all DataContainers, but is only accessed once per link. Links with
+ *  ids created after this provider are looked up in the map.
+ *
  * @author cdobler
  */
 class ArrayBasedDataContainerProvider implements DataContainerProvider {
 
 	private final TravelTimeData[] arrayLinkData;
 	private final DataContainerProvider delegate;
-	
+
 	public ArrayBasedDataContainerProvider(Map<Id<Link>, TravelTimeData> linkData, TravelTimeDataFactory ttDataFactory,
 			Network network) {
-		this.arrayLinkData = new TravelTimeData[network.getLinks().size()];
+		this.arrayLinkData = new TravelTimeData[Math.max(Id.getNumberOfIds(Link.class), network.getLinks().size())];
 		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
 	}
-	
-	/*
-	 * This method is called from the EventHandler part of the TravelTimeCalculator.
-	 * There, only link ids are available. We cannot optimize this. 
-	 */
+
 	@Override
 	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
-		return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		int index = linkId.index();
+		if (index >= this.arrayLinkData.length) {
+			return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		}
+		TravelTimeData data = this.arrayLinkData[index];
+		if (data == null) {
+			data = this.delegate.getTravelTimeData(linkId, createIfMissing);
+			this.arrayLinkData[index] = data;
+		}
+		return data;
 	}
-	
+
 	/*
 	 * This method is called from the TravelTime part of the TravelTimeCalculator.
-	 * There, links are available. we can optimize this by using an array instead of a map.
-	 * 
-	 *  Probably pre-initialize all DataContainers to avoid the null-check?
+	 * Links of routing networks return the id of the original link, so they share the DataContainers.
 	 */
 	@Override
 	public TravelTimeData getTravelTimeData(Link link, boolean createIfMissing) {
-		if (link instanceof HasIndex) {
-			int index = ((HasIndex) link).getArrayIndex();
-			TravelTimeData data = this.arrayLinkData[index];
-			if (data == null) {
-				data = this.delegate.getTravelTimeData(link, createIfMissing);
-				this.arrayLinkData[index] = data;
-			}
-			return data;
-		} else {
-			return this.delegate.getTravelTimeData(link, createIfMissing);
-		}
+		return getTravelTimeData(link.getId(), createIfMissing);
 	}
-	
+
 }
@@ -37,12 +37,11 @@ class MapBasedDataContainerProvider implements DataContainerProvider {
 	
 	@Override 
 	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
-		TravelTimeData data = this.linkData.get(linkId);
-		if ((null == data) && createIfMissing) {
-			data = this.ttDataFactory.createTravelTimeData(linkId) ;
-			this.linkData.put(linkId, data);
+		if (createIfMissing) {
+			// atomic if the map is a ConcurrentMap, so concurrent routers do not create several DataContainers per link
+			return this.linkData.computeIfAbsent(linkId, this.ttDataFactory::createTravelTimeData);
 		}
-		return data;
+		return this.linkData.get(linkId);
 	}
 		
 	@Override
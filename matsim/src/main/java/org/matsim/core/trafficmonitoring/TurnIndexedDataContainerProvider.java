@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TurnIndexedDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * Stores the link-to-link DataContainers of the TravelTimeCalculator in an array with one entry per turn of the
+ * network. The turns starting at a link are the out-links of the link's to-node; they get consecutive positions,
+ * and the first position of each from-link is stored by the {@link Id#index()} of the from-link. Looking up a turn
+ * is thus an array access plus a scan over the (few) out-links of one node, instead of creating a
+ * {@link Tuple} and looking it up in a map for every event.
+ * <p>
+ * Like in {@link ArrayBasedDataContainerProvider}, DataContainers are created and kept in a map (by the given lookup
+ * function), which is also used for pairs of links that are not a turn of the network.
+ */
+class TurnIndexedDataContainerProvider {
+
+	/** first turn position of each from-link (by id index), the turns of link i end at firstTurn[i + 1] */
+	private final int[] firstTurn;
+	/** id index of the to-link of each turn */
+	private final int[] turnToLink;
+	private final TravelTimeData[] turnData;
+
+	private final Function<Tuple<Id<Link>, Id<Link>>, TravelTimeData> mapLookup;
+
+	TurnIndexedDataContainerProvider(Function<Tuple<Id<Link>, Id<Link>>, TravelTimeData> mapLookup, Network network) {
+		this.mapLookup = mapLookup;
+
+		int numberOfLinkIds = Id.getNumberOfIds(Link.class);
+		this.firstTurn = new int[numberOfLinkIds + 1];
+		int turns = 0;
+		for (int i = 0; i < numberOfLinkIds; i++) {
+			this.firstTurn[i] = turns;
+			Link link = network.getLinks().get(Id.get(i, Link.class));
+			if (link != null) {
+				turns += link.getToNode().getOutLinks().size();
+			}
+		}
+		this.firstTurn[numberOfLinkIds] = turns;
+
+		this.turnToLink = new int[turns];
+		for (int i = 0; i < numberOfLinkIds; i++) {
+			Link link = network.getLinks().get(Id.get(i, Link.class));
+			if (link != null) {
+				int turn = this.firstTurn[i];
+				for (Id<Link> toLinkId : link.getToNode().getOutLinks().keySet()) {
+					this.turnToLink[turn++] = toLinkId.index();
+				}
+			}
+		}
+		this.turnData = new TravelTimeData[turns];
+	}
+
+	TravelTimeData getTravelTimeData(Id<Link> fromLinkId, Id<Link> toLinkId) {
+		int turn = getTurn(fromLinkId.index(), toLinkId.index());
+		if (turn < 0) {
+			return getFromMap(fromLinkId, toLinkId);
+		}
+		TravelTimeData data = this.turnData[turn];
+		if (data == null) {
+			data = getFromMap(fromLinkId, toLinkId);
+			this.turnData[turn] = data;
+		}
+		return data;
+	}
+
+	private int getTurn(int fromLinkIndex, int toLinkIndex) {
+		if (fromLinkIndex + 1 >= this.firstTurn.length) {
+			return -1;
+		}
+		for (int turn = this.firstTurn[fromLinkIndex]; turn < this.firstTurn[fromLinkIndex + 1]; turn++) {
+			if (this.turnToLink[turn] == toLinkIndex) {
+				return turn;
+			}
+		}
+		return -1;
+	}
+
+	private TravelTimeData getFromMap(Id<Link> fromLinkId, Id<Link> toLinkId) {
+		return this.mapLookup.apply(new Tuple<>(fromLinkId, toLinkId));
+	}
+}
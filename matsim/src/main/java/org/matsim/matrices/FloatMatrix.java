@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FloatMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.matrices;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dense matrix of float values between zones, e.g. for skim matrices. In contrast to {@link Matrix},
+ * which stores each entry as an object, this needs only 4 bytes per entry, so also matrices for several
+ * thousand zones fit into memory.
+ * <p>
+ * The zones are numbered in the order in which they were passed to the constructor. The values of
+ * different rows may be set from different threads at the same time, as long as each row is only
+ * written by one thread.
+ *
+ * @param <T> type of the zone ids
+ */
+public final class FloatMatrix<T> {
+
+	private final List<T> zones;
+	private final Map<T, Integer> zoneIndices;
+	private final int size;
+	private final float[] data;
+
+	public FloatMatrix(final Collection<T> zones, final float defaultValue) {
+		this.zones = Collections.unmodifiableList(new ArrayList<>(zones));
+		this.size = this.zones.size();
+		this.zoneIndices = new HashMap<>((int) (this.size / 0.75) + 1);
+		for (T zone : this.zones) {
+			if (this.zoneIndices.put(zone, this.zoneIndices.size()) != null) {
+				throw new IllegalArgumentException("Zone " + zone + " is contained more than once.");
+			}
+		}
+		if ((long) this.size * this.size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many zones for a FloatMatrix: " + this.size);
+		}
+		this.data = new float[this.size * this.size];
+		if (defaultValue != 0.0f) {
+			Arrays.fill(this.data, defaultValue);
+		}
+	}
+
+	/**
+	 * @return the zones, in the order of the rows and columns
+	 */
+	public List<T> getZones() {
+		return this.zones;
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return the index of the row and column of the zone, or -1 if the zone is not part of this matrix
+	 */
+	public int getIndex(final T zone) {
+		Integer index = this.zoneIndices.get(zone);
+		return index == null ? -1 : index;
+	}
+
+	public float get(final T from, final T to) {
+		return get(getExistingIndex(from), getExistingIndex(to));
+	}
+
+	public void set(final T from, final T to, final float value) {
+		set(getExistingIndex(from), getExistingIndex(to), value);
+	}
+
+	public float add(final T from, final T to, final float value) {
+		return add(getExistingIndex(from), getExistingIndex(to), value);
+	}
+
+	public float get(final int fromIndex, final int toIndex) {
+		return this.data[fromIndex * this.size + toIndex];
+	}
+
+	public void set(final int fromIndex, final int toIndex, final float value) {
+		this.data[fromIndex * this.size + toIndex] = value;
+	}
+
+	public float add(final int fromIndex, final int toIndex, final float value) {
+		return this.data[fromIndex * this.size + toIndex] += value;
+	}
+
+	/**
+	 * Multiplies all values with the given factor.
+	 */
+	public void multiply(final float factor) {
+		for (int i = 0; i < this.data.length; i++) {
+			this.data[i] *= factor;
+		}
+	}
+
+	/**
+	 * Divides each value by the value at the same position in the other matrix, e.g. to get averages from
+	 * sums and counts. Values divided by zero are set to <code>valueIfZero</code>.
+	 */
+	public void divide(final FloatMatrix<T> divisor, final float valueIfZero) {
+		if (divisor.size != this.size || !divisor.zones.equals(this.zones)) {
+			throw new IllegalArgumentException("Both matrices must have the same zones in the same order.");
+		}
+		for (int i = 0; i < this.data.length; i++) {
+			float d = divisor.data[i];
+			this.data[i] = d == 0.0f ? valueIfZero : this.data[i] / d;
+		}
+	}
+
+	/*package*/ float[] getData() {
+		return this.data;
+	}
+
+	private int getExistingIndex(final T zone) {
+		Integer index = this.zoneIndices.get(zone);
+		if (index == null) {
+			throw new IllegalArgumentException("Zone " + zone + " is not part of this matrix.");
+		}
+		return index;
+	}
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FloatMatrixIO.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.matrices;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Reads and writes several {@link FloatMatrix} with the same zones into one binary file, similar to the
+ * OMX format: the zone ids are stored once, followed by the named matrices with their values row by row.
+ * If the file name ends with <code>.gz</code>, the file is compressed.
+ * <p>
+ * Format (big endian): magic number, version, number of zones, the zone ids (modified UTF-8), number of
+ * matrices, and for each matrix its name (modified UTF-8) and <i>number of zones</i>&sup2; floats.
+ */
+public final class FloatMatrixIO {
+
+	private static final int MAGIC = 0x4d464c54; // "MFLT"
+	private static final int VERSION = 1;
+
+	private FloatMatrixIO() {
+	}
+
+	/**
+	 * Writes the matrices into one file. All matrices must have the same zones in the same order.
+	 */
+	public static <T> void writeBinary(final Map<String, FloatMatrix<T>> matrices, final String filename) {
+		List<T> zones = null;
+		for (Map.Entry<String, FloatMatrix<T>> e : matrices.entrySet()) {
+			if (zones == null) {
+				zones = e.getValue().getZones();
+			} else if (!zones.equals(e.getValue().getZones())) {
+				throw new IllegalArgumentException("Matrix " + e.getKey() + " has different zones than the other matrices.");
+			}
+		}
+		if (zones == null) {
+			zones = new ArrayList<>();
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(zones.size());
+			for (T zone : zones) {
+				out.writeUTF(zone.toString());
+			}
+			out.writeInt(matrices.size());
+			ByteBuffer row = ByteBuffer.allocate(4 * zones.size());
+			for (Map.Entry<String, FloatMatrix<T>> e : matrices.entrySet()) {
+				out.writeUTF(e.getKey());
+				float[] data = e.getValue().getData();
+				for (int offset = 0; offset < data.length; offset += zones.size()) {
+					row.clear();
+					row.asFloatBuffer().put(data, offset, zones.size());
+					out.write(row.array(), 0, row.capacity());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads all matrices of the file, in the order in which they were written.
+	 *
+	 * @param zoneIdConverter converts the zone ids stored in the file back into zone ids
+	 */
+	public static <T> Map<String, FloatMatrix<T>> readBinary(final String filename, final Function<String, T> zoneIdConverter) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename)), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException(filename + " is not a binary matrix file.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException(filename + " has the unsupported version " + version);
+			}
+			int zoneCount = in.readInt();
+			List<T> zones = new ArrayList<>(zoneCount);
+			for (int i = 0; i < zoneCount; i++) {
+				zones.add(zoneIdConverter.apply(in.readUTF()));
+			}
+			int matrixCount = in.readInt();
+			Map<String, FloatMatrix<T>> matrices = new LinkedHashMap<>();
+			byte[] row = new byte[4 * zoneCount];
+			for (int m = 0; m < matrixCount; m++) {
+				String name = in.readUTF();
+				FloatMatrix<T> matrix = new FloatMatrix<>(zones, 0.0f);
+				float[] data = matrix.getData();
+				for (int offset = 0; offset < data.length; offset += zoneCount) {
+					in.readFully(row);
+					ByteBuffer.wrap(row).asFloatBuffer().get(data, offset, zoneCount);
+				}
+				matrices.put(name, matrix);
+			}
+			return matrices;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
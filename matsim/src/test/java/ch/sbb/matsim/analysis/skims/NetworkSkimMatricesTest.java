@@ -0,0 +1,86 @@
+package ch.sbb.matsim.analysis.skims;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.matrices.FloatMatrix;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
+
+/**
+ * Tests {@link NetworkSkimMatrices} against {@link LeastCostPathTree}.
+ */
+public class NetworkSkimMatricesTest {
+
+    @Test
+    public void testSameAsLeastCostPathTree() {
+        Network network = NetworkUtils.createNetwork();
+        int size = 6;
+        Node[][] nodes = new Node[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("skim" + x + "_" + y), new Coord(x * 1000, y * 1000));
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size) {
+                    addLinks(network, nodes[x][y], nodes[x + 1][y], 10 + (x * 3 + y) % 4);
+                }
+                if (y + 1 < size) {
+                    addLinks(network, nodes[x][y], nodes[x][y + 1], 10 + (x + y * 5) % 3);
+                }
+            }
+        }
+        // links in the lower half are congested after 08:00
+        TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (time > 8 * 3600 && link.getCoord().getY() < 2500 ? 3 : 1);
+        TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+        // two coordinates per zone, close to two nodes
+        Map<String, Coord[]> coordsPerZone = new LinkedHashMap<>();
+        coordsPerZone.put("sw", new Coord[] { new Coord(10, 10), new Coord(1010, 10) });
+        coordsPerZone.put("ne", new Coord[] { new Coord(5000, 4990), new Coord(4000, 5000) });
+        coordsPerZone.put("center", new Coord[] { new Coord(2000, 3000), new Coord(3000, 2000) });
+        double depTime = 8 * 3600 - 300;
+
+        Map<String, FloatMatrix<String>> matrices = new NetworkSkimMatrices<String>(network, travelTime, travelDisutility, 2).calculateSkimMatrices(coordsPerZone, depTime);
+
+        LeastCostPathTree tree = new LeastCostPathTree(travelTime, travelDisutility);
+        for (Map.Entry<String, Coord[]> from : coordsPerZone.entrySet()) {
+            for (Map.Entry<String, Coord[]> to : coordsPerZone.entrySet()) {
+                double travelTimeSum = 0;
+                double costSum = 0;
+                for (Coord fromCoord : from.getValue()) {
+                    tree.calculate(network, NetworkUtils.getNearestNode(network, fromCoord), depTime);
+                    for (Coord toCoord : to.getValue()) {
+                        LeastCostPathTree.NodeData data = tree.getTree().get(NetworkUtils.getNearestNode(network, toCoord).getId());
+                        travelTimeSum += data.getTime() - depTime;
+                        costSum += data.getCost();
+                    }
+                }
+                int pairs = from.getValue().length * to.getValue().length;
+                Assert.assertEquals(travelTimeSum / pairs, matrices.get(NetworkSkimMatrices.TRAVEL_TIME).get(from.getKey(), to.getKey()), 1e-2);
+                Assert.assertEquals(costSum / pairs, matrices.get(NetworkSkimMatrices.TRAVEL_COST).get(from.getKey(), to.getKey()), 1e-2);
+                Assert.assertEquals(pairs, matrices.get(NetworkSkimMatrices.DATA_COUNT).get(from.getKey(), to.getKey()), 0.0);
+            }
+        }
+        // on a grid, the fastest path between the corners is as long as the manhattan distance
+        Assert.assertEquals((10000 + 9000 + 9000 + 8000) / 4.0, matrices.get(NetworkSkimMatrices.DISTANCE).get("sw", "ne"), 1e-2);
+        Assert.assertEquals((0 + 1000 + 1000 + 0) / 4.0, matrices.get(NetworkSkimMatrices.DISTANCE).get("sw", "sw"), 1e-2);
+    }
+
+    private static void addLinks(Network network, Node node1, Node node2, double freespeed) {
+        NetworkUtils.createAndAddLink(network, Id.create(node1.getId() + "-" + node2.getId(), Link.class), node1, node2, 1000, freespeed, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.create(node2.getId() + "-" + node1.getId(), Link.class), node2, node1, 1000, freespeed, 1000, 1);
+    }
+}
@@ -0,0 +1,94 @@
+package ch.sbb.matsim.analysis.skims;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.matrices.FloatMatrix;
+import org.matsim.matrices.FloatMatrixIO;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import ch.sbb.matsim.routing.pt.raptor.Fixture;
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.RaptorStaticConfig;
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+
+/**
+ * Tests {@link PTSkimMatrices}, using the fixture of the raptor tests.
+ */
+public class PTSkimMatricesTest {
+
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
+    @Test
+    public void testSameAsTrees() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.schedule, config, f.network);
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        // one zone per stop, located exactly at the stop
+        Map<String, Coord[]> coordsPerZone = new LinkedHashMap<>();
+        for (TransitStopFacility stop : f.schedule.getFacilities().values()) {
+            coordsPerZone.put(stop.getId().toString(), new Coord[] { stop.getCoord() });
+        }
+        double depTime = 7 * 3600 + 40 * 60;
+
+        Map<String, FloatMatrix<String>> matrices = new PTSkimMatrices<String>(data, raptorParams, 0.1, 2).calculateSkimMatrices(coordsPerZone, new double[] { depTime });
+        FloatMatrix<String> travelTimes = matrices.get(PTSkimMatrices.TRAVEL_TIME);
+        FloatMatrix<String> inVehicleTimes = matrices.get(PTSkimMatrices.IN_VEHICLE_TIME);
+        FloatMatrix<String> transferCounts = matrices.get(PTSkimMatrices.TRANSFER_COUNT);
+
+        SwissRailRaptor raptor = new SwissRailRaptor(data, null, null, null);
+        for (TransitStopFacility fromStop : f.schedule.getFacilities().values()) {
+            Map<Id<TransitStopFacility>, TravelInfo> tree = raptor.calcTree(fromStop, depTime, raptorParams);
+            for (TransitStopFacility toStop : f.schedule.getFacilities().values()) {
+                String from = fromStop.getId().toString();
+                String to = toStop.getId().toString();
+                TravelInfo info = tree.get(toStop.getId());
+                if (info == null) {
+                    Assert.assertEquals(Float.POSITIVE_INFINITY, travelTimes.get(from, to), 0.0f);
+                } else {
+                    Assert.assertEquals(from + " -> " + to, info.ptTravelTime, travelTimes.get(from, to), 1e-3);
+                    Assert.assertEquals(from + " -> " + to, info.transferCount, transferCounts.get(from, to), 1e-3);
+                    Assert.assertTrue(from + " -> " + to, inVehicleTimes.get(from, to) <= travelTimes.get(from, to));
+                }
+            }
+        }
+
+        // with one thread, the results must be the same
+        Map<String, FloatMatrix<String>> matrices1 = new PTSkimMatrices<String>(data, raptorParams, 0.1, 1).calculateSkimMatrices(coordsPerZone, new double[] { depTime });
+        for (Map.Entry<String, FloatMatrix<String>> e : matrices.entrySet()) {
+            assertEqualMatrices(e.getValue(), matrices1.get(e.getKey()));
+        }
+
+        String filename = this.utils.getOutputDirectory() + "ptSkims.bin.gz";
+        FloatMatrixIO.writeBinary(matrices, filename);
+        Map<String, FloatMatrix<String>> read = FloatMatrixIO.readBinary(filename, id -> id);
+        Assert.assertEquals(matrices.keySet(), read.keySet());
+        for (Map.Entry<String, FloatMatrix<String>> e : matrices.entrySet()) {
+            assertEqualMatrices(e.getValue(), read.get(e.getKey()));
+        }
+    }
+
+    private static void assertEqualMatrices(FloatMatrix<String> expected, FloatMatrix<String> actual) {
+        Assert.assertEquals(expected.getZones(), actual.getZones());
+        for (int from = 0; from < expected.getSize(); from++) {
+            for (int to = 0; to < expected.getSize(); to++) {
+                Assert.assertEquals(expected.get(from, to), actual.get(from, to), 0.0f);
+            }
+        }
+    }
+}
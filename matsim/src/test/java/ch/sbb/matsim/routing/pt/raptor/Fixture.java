@@ -67,13 +67,13 @@ import org.matsim.vehicles.VehiclesFactory;
  *
  * @author mrieser
  */
-/*package*/ class Fixture {
+public class Fixture {
 
 	/*package*/ final MutableScenario scenario;
-	/*package*/ final Config config;
-	/*package*/ final Network network;
+	public final Config config;
+	public final Network network;
 	/*package*/ final TransitScheduleFactory builder;
-	/*package*/ final TransitSchedule schedule;
+	public final TransitSchedule schedule;
 	/*package*/ final Vehicles transitVehicles;
 	/*package*/ TransitLine redLine = null;
 	/*package*/ TransitLine blueLine = null;
@@ -95,7 +95,7 @@ import org.matsim.vehicles.VehiclesFactory;
 		this.transitVehicles = this.scenario.getTransitVehicles();
 	}
 
-	protected void init() {
+	public void init() {
 		buildNetwork();
 		buildStops();
 		buildRedLine();
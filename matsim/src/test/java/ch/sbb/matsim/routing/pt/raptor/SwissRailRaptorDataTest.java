@@ -4,16 +4,24 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import java.io.File;
+import java.util.Arrays;
+
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -28,11 +36,13 @@ public class SwissRailRaptorDataTest {
         Id<TransitStopFacility> stopId9 = Id.create(9, TransitStopFacility.class);
         Id<TransitStopFacility> stopId18 = Id.create(18, TransitStopFacility.class);
         Id<TransitStopFacility> stopId19 = Id.create(19, TransitStopFacility.class);
-        for (SwissRailRaptorData.RTransfer t : data.transfers) {
-            TransitStopFacility fromStop = data.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data.routeStops[t.toRouteStop].routeStop.getStopFacility();
-            if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
-                Assert.fail("There should not be any transfer between stop facilities 19 and 9.");
+        for (SwissRailRaptorData.RRouteStop fromRouteStop : data.routeStops) {
+            for (int t = fromRouteStop.indexFirstTransfer; t < fromRouteStop.indexFirstTransfer + fromRouteStop.countTransfers; t++) {
+                TransitStopFacility fromStop = fromRouteStop.routeStop.getStopFacility();
+                TransitStopFacility toStop = data.routeStops[data.transferToRouteStops[t]].routeStop.getStopFacility();
+                if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
+                    Assert.fail("There should not be any transfer between stop facilities 19 and 9.");
+                }
             }
         }
 
@@ -41,45 +51,90 @@ public class SwissRailRaptorDataTest {
         f.schedule.getMinimalTransferTimes().set(stopId19, stopId9, 345);
         SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         int foundTransferCount = 0;
-        for (SwissRailRaptorData.RTransfer t : data2.transfers) {
-            TransitStopFacility fromStop = data2.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data2.routeStops[t.toRouteStop].routeStop.getStopFacility();
-            if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
-                foundTransferCount++;
+        for (SwissRailRaptorData.RRouteStop fromRouteStop : data2.routeStops) {
+            for (int t = fromRouteStop.indexFirstTransfer; t < fromRouteStop.indexFirstTransfer + fromRouteStop.countTransfers; t++) {
+                TransitStopFacility fromStop = fromRouteStop.routeStop.getStopFacility();
+                TransitStopFacility toStop = data2.routeStops[data2.transferToRouteStops[t]].routeStop.getStopFacility();
+                if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
+                    foundTransferCount++;
+                }
             }
         }
         Assert.assertEquals("wrong number of transfers between stop facilities 19 and 9.", 1, foundTransferCount);
-        Assert.assertEquals("number of transfers should have incrased.", data.transfers.length + 1, data2.transfers.length);
+        Assert.assertEquals("number of transfers should have incrased.", data.transferToRouteStops.length + 1, data2.transferToRouteStops.length);
 
         // assign a high transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 456);
         SwissRailRaptorData data3 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         boolean foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data3.transfers) {
-            TransitStopFacility fromStop = data3.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data3.routeStops[t.toRouteStop].routeStop.getStopFacility();
-            if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
-                Assert.assertEquals("transfer has wrong transfer time.", 456, t.transferTime, 0.0);
-                foundCorrectTransfer = true;
+        for (SwissRailRaptorData.RRouteStop fromRouteStop : data3.routeStops) {
+            for (int t = fromRouteStop.indexFirstTransfer; t < fromRouteStop.indexFirstTransfer + fromRouteStop.countTransfers; t++) {
+                TransitStopFacility fromStop = fromRouteStop.routeStop.getStopFacility();
+                TransitStopFacility toStop = data3.routeStops[data3.transferToRouteStops[t]].routeStop.getStopFacility();
+                if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
+                    Assert.assertEquals("transfer has wrong transfer time.", 456, data3.transferTimes[t], 0.0);
+                    foundCorrectTransfer = true;
+                }
             }
         }
         Assert.assertTrue("did not find overwritten transfer", foundCorrectTransfer);
-        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data3.transfers.length);
+        Assert.assertEquals("number of transfers should have stayed the same.", data2.transferToRouteStops.length, data3.transferToRouteStops.length);
 
         // assign a low transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 0.2);
         SwissRailRaptorData data4 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data4.transfers) {
-            TransitStopFacility fromStop = data4.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data4.routeStops[t.toRouteStop].routeStop.getStopFacility();
-            if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
-                Assert.assertEquals("transfer has wrong transfer time.", 0.2, t.transferTime, 0.0);
-                foundCorrectTransfer = true;
+        for (SwissRailRaptorData.RRouteStop fromRouteStop : data4.routeStops) {
+            for (int t = fromRouteStop.indexFirstTransfer; t < fromRouteStop.indexFirstTransfer + fromRouteStop.countTransfers; t++) {
+                TransitStopFacility fromStop = fromRouteStop.routeStop.getStopFacility();
+                TransitStopFacility toStop = data4.routeStops[data4.transferToRouteStops[t]].routeStop.getStopFacility();
+                if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
+                    Assert.assertEquals("transfer has wrong transfer time.", 0.2, data4.transferTimes[t], 0.0);
+                    foundCorrectTransfer = true;
+                }
             }
         }
         Assert.assertTrue("did not find overwritten transfer", foundCorrectTransfer);
-        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
+        Assert.assertEquals("number of transfers should have stayed the same.", data2.transferToRouteStops.length, data4.transferToRouteStops.length);
+    }
+
+    @Test
+    public void testTransfersSnapshot() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+
+        String snapshotFile = this.utils.getOutputDirectory() + "transfers.bin";
+        raptorConfig.setTransfersSnapshotFile(snapshotFile);
+        SwissRailRaptorData data1 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertTrue(new File(snapshotFile).exists());
+        assertSameTransfers(expected, data1);
+        long lastModified = new File(snapshotFile).lastModified();
+
+        SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        assertSameTransfers(expected, data2);
+        Assert.assertEquals("snapshot should not have been written again.", lastModified, new File(snapshotFile).lastModified());
+
+        // a changed schedule must not use the outdated snapshot
+        f.schedule.getMinimalTransferTimes().set(Id.create(5, TransitStopFacility.class), Id.create(18, TransitStopFacility.class), 456);
+        raptorConfig.setTransfersSnapshotFile(null);
+        SwissRailRaptorData expected3 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        raptorConfig.setTransfersSnapshotFile(snapshotFile);
+        SwissRailRaptorData data3 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        assertSameTransfers(expected3, data3);
+        Assert.assertFalse(Arrays.equals(expected.transferTimes, data3.transferTimes));
+    }
+
+    private static void assertSameTransfers(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assert.assertArrayEquals(expected.transferToRouteStops, actual.transferToRouteStops);
+        Assert.assertArrayEquals(expected.transferTimes, actual.transferTimes, 0.0);
+        Assert.assertArrayEquals(expected.transferDistances, actual.transferDistances, 0.0);
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            Assert.assertEquals(expected.routeStops[i].indexFirstTransfer, actual.routeStops[i].indexFirstTransfer);
+            Assert.assertEquals(expected.routeStops[i].countTransfers, actual.routeStops[i].countTransfers);
+        }
     }
 
 }
\ No newline at end of file
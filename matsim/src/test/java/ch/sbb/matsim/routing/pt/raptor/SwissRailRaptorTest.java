@@ -697,6 +697,28 @@ public class SwissRailRaptorTest {
         assertRaptorRoute(routes.get(5), "06:40:12", "07:11:56", 1, 7.3466666);
     }
 
+    @Test
+    public void testRangeQuery_repeated() {
+        Fixture f = new Fixture();
+        f.init();
+        SwissRailRaptor raptor = createTransitRouter(f.schedule, f.config, f.network);
+
+        Coord fromCoord = new Coord(3800, 5100);
+        Coord toCoord = new Coord(28100, 4950);
+        double depTime = 5.0 * 3600 + 50 * 60;
+        List<RaptorRoute> routes1 = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null);
+        // a query in the other direction modifies the state of the router
+        List<RaptorRoute> routes2 = raptor.calcRoutes(new FakeFacility(toCoord), new FakeFacility(fromCoord), depTime - 600, depTime, depTime + 3600, null);
+        Assert.assertFalse(routes2.isEmpty());
+        List<RaptorRoute> routes3 = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null);
+
+        Assert.assertEquals(routes1.size(), routes3.size());
+        for (int i = 0; i < routes1.size(); i++) {
+            RaptorRoute route = routes1.get(i);
+            assertRaptorRoute(routes3.get(i), Time.writeTime(route.getDepartureTime()), Time.writeTime(route.getDepartureTime() + route.getTravelTime()), route.getNumberOfTransfers(), route.getTotalCosts());
+        }
+    }
+
     private void assertRaptorRoute(RaptorRoute route, String depTime, String arrTime, int expectedTransfers, double expectedCost) {
         Assert.assertEquals("wrong number of transfers", expectedTransfers, route.getNumberOfTransfers());
         Assert.assertEquals("wrong departure time", Time.parseTime(depTime), route.getDepartureTime(), 0.99);
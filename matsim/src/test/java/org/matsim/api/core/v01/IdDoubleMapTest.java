@@ -0,0 +1,109 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IdDoubleMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 10, Double.NaN);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+		Id<Person> id3 = Id.create(3, Person.class);
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertTrue(Double.isNaN(map.get(id1)));
+		Assert.assertFalse(map.containsKey(id1));
+
+		Assert.assertTrue(Double.isNaN(map.put(id1, 1.5)));
+		Assert.assertTrue(Double.isNaN(map.put(id2, 2.5)));
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.isEmpty());
+		Assert.assertTrue(map.containsKey(id1));
+
+		Assert.assertEquals(1.5, map.put(id1, 11.5), 0.0);
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(11.5, map.get(id1), 0.0);
+		Assert.assertEquals(2.5, map.get(id2), 0.0);
+		Assert.assertEquals(-1.0, map.getOrDefault(id3, -1.0), 0.0);
+
+		Assert.assertEquals(11.5, map.remove(id1), 0.0);
+		Assert.assertTrue(Double.isNaN(map.remove(id1)));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertTrue(Double.isNaN(map.get(id1)));
+		Assert.assertEquals(2.5, map.get(id2), 0.0);
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertTrue(Double.isNaN(map.put(id2, 3.5)));
+		Assert.assertEquals(3.5, map.get(id2), 0.0);
+	}
+
+	@Test
+	public void testAdd() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 10, Double.NaN);
+		Id<Person> id1 = Id.create(1, Person.class);
+
+		Assert.assertEquals(2.0, map.add(id1, 2.0), 0.0);
+		Assert.assertEquals(5.0, map.add(id1, 3.0), 0.0);
+		Assert.assertEquals(5.0, map.get(id1), 0.0);
+		Assert.assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testGrow() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 2, 0.0);
+		for (int i = 0; i < 500; i++) {
+			map.put(Id.create("grow" + i, Person.class), i);
+		}
+		Assert.assertEquals(500, map.size());
+		for (int i = 0; i < 500; i++) {
+			Assert.assertEquals(i, map.get(Id.create("grow" + i, Person.class)), 0.0);
+		}
+	}
+
+	@Test
+	public void testIteration() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 10, 0.0);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+		Id<Person> id3 = Id.create(3, Person.class);
+		map.put(id1, 1.0);
+		map.put(id2, 2.0);
+		map.put(id3, 3.0);
+		map.remove(id1);
+
+		// the last entry takes the position of the removed one
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(id3, map.getKey(0));
+		Assert.assertEquals(3.0, map.getValue(0), 0.0);
+		Assert.assertEquals(id2, map.getKey(1));
+		Assert.assertEquals(2.0, map.getValue(1), 0.0);
+
+		List<Id<Person>> keys = new ArrayList<>();
+		double[] sum = {0.0};
+		map.forEach((id, value) -> {
+			keys.add(id);
+			sum[0] += value;
+		});
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains(id2));
+		Assert.assertTrue(keys.contains(id3));
+		Assert.assertEquals(5.0, sum[0], 0.0);
+
+		try {
+			map.getValue(2);
+			Assert.fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+}
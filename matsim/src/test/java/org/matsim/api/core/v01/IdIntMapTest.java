@@ -0,0 +1,140 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IdIntMapTest {
+
+	@Test
+	public void testPutGetAdd() {
+		IdIntMap<Link> map = new IdIntMap<>(Link.class);
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+
+		Assert.assertEquals(0, map.get(id1));
+		Assert.assertEquals(0, map.put(id1, 5));
+		Assert.assertEquals(1, map.add(id2, 1));
+		Assert.assertEquals(2, map.add(id2, 1));
+		Assert.assertEquals(6, map.add(id1, 1));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(2, map.remove(id2));
+		Assert.assertEquals(0, map.get(id2));
+		Assert.assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testOverwriteAndMissingKeys() {
+		IdIntMap<Link> map = new IdIntMap<>(Link.class, 10, -1);
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		Id<Link> id3 = Id.create(3, Link.class);
+
+		Assert.assertEquals(-1, map.getNoEntryValue());
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(-1, map.get(id1));
+		Assert.assertFalse(map.containsKey(id1));
+
+		Assert.assertEquals(-1, map.put(id1, 1));
+		Assert.assertEquals(-1, map.put(id2, 2));
+		Assert.assertEquals(1, map.put(id1, 11));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(11, map.get(id1));
+		Assert.assertEquals(2, map.get(id2));
+
+		// missing keys
+		Assert.assertEquals(-1, map.get(id3));
+		Assert.assertEquals(42, map.getOrDefault(id3, 42));
+		Assert.assertEquals(11, map.getOrDefault(id1, 42));
+		Assert.assertEquals(-1, map.remove(id3));
+		Assert.assertFalse(map.containsKey(id3));
+		Assert.assertEquals(2, map.size());
+
+		// a key which is not contained is added with the amount, not with noEntryValue + amount
+		Assert.assertEquals(5, map.add(id3, 5));
+
+		// a value equal to the noEntryValue is still an entry
+		Assert.assertEquals(2, map.put(id2, -1));
+		Assert.assertTrue(map.containsKey(id2));
+		Assert.assertEquals(3, map.size());
+
+		Assert.assertEquals(11, map.remove(id1));
+		Assert.assertEquals(-1, map.remove(id1));
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertEquals(2, map.size());
+	}
+
+	@Test
+	public void testGrow() {
+		IdIntMap<Link> map = new IdIntMap<>(Link.class, 2, 0);
+		for (int i = 0; i < 500; i++) {
+			map.put(Id.create("intMapGrow" + i, Link.class), i);
+		}
+		Assert.assertEquals(500, map.size());
+		for (int i = 0; i < 500; i++) {
+			Id<Link> id = Id.create("intMapGrow" + i, Link.class);
+			Assert.assertTrue(map.containsKey(id));
+			Assert.assertEquals(i, map.get(id));
+		}
+	}
+
+	@Test
+	public void testClear() {
+		IdIntMap<Link> map = new IdIntMap<>(Link.class, 10, -1);
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		map.put(id1, 1);
+		map.put(id2, 2);
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertEquals(-1, map.get(id2));
+
+		// the map can be used again after clearing it
+		Assert.assertEquals(-1, map.put(id2, 3));
+		Assert.assertEquals(3, map.get(id2));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(id2, map.getKey(0));
+	}
+
+	@Test
+	public void testIteration() {
+		IdIntMap<Link> map = new IdIntMap<>(Link.class, 10, 0);
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		Id<Link> id3 = Id.create(3, Link.class);
+		map.put(id1, 1);
+		map.put(id2, 2);
+		map.put(id3, 3);
+		map.remove(id1);
+
+		// the last entry takes the position of the removed one
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(id3, map.getKey(0));
+		Assert.assertEquals(3, map.getValue(0));
+		Assert.assertEquals(id2, map.getKey(1));
+		Assert.assertEquals(2, map.getValue(1));
+
+		List<Id<Link>> keys = new ArrayList<>();
+		int[] sum = {0};
+		map.forEach((id, value) -> {
+			keys.add(id);
+			sum[0] += value;
+		});
+		Assert.assertEquals(List.of(id3, id2), keys);
+		Assert.assertEquals(5, sum[0]);
+
+		try {
+			map.getValue(2);
+			Assert.fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ import org.junit.Test;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.pt.PtConstants;
 import org.matsim.testcases.utils.LogCounter;
@@ -153,6 +154,20 @@ public class ConfigConsistencyCheckerImplTest {
 	}
 
 
+	@Test
+	public void testCheckContractionHierarchiesRoutingRandomness() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setRoutingAlgorithmType( ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies );
+		try {
+			new ConfigConsistencyCheckerImpl().checkConsistency( config );
+			Assert.fail( "contraction hierarchies should be refused with routing randomness" );
+		} catch ( IllegalStateException expected ) {
+		}
+
+		config.plansCalcRoute().setRoutingRandomness( 0. );
+		new ConfigConsistencyCheckerImpl().checkConsistency( config );
+	}
+
 	@Test
 	public void checkConsistencyBetweenRouterAndTravelTimeCalculatorTest(){
 		{
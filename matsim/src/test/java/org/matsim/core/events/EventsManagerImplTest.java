@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -68,6 +69,42 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_HandlerDispatch() {
+		for (EventsManagerImpl.HandlerDispatch dispatch : EventsManagerImpl.HandlerDispatch.values()) {
+			EventsManagerImpl manager = new EventsManagerImpl(dispatch);
+			CountingMyEventHandler handler1 = new CountingMyEventHandler();
+			CountingMyEventHandler handler2 = new CountingMyEventHandler();
+			CountingBasicEventHandler handler3 = new CountingBasicEventHandler();
+			manager.addHandler(handler1);
+			manager.addHandler(handler2);
+			manager.addHandler(handler3);
+			manager.initProcessing();
+			manager.processEvent(new MyEvent(123.45));
+			manager.processEvent(new MyEvent(234.56));
+			manager.removeHandler(handler2);
+			manager.processEvent(new MyEvent(345.67));
+			manager.finishProcessing();
+			Assert.assertEquals(dispatch.toString(), 3, handler1.counter);
+			Assert.assertEquals(dispatch.toString(), 2, handler2.counter);
+			Assert.assertEquals(dispatch.toString(), 3, handler3.counter);
+		}
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInEventHandler_HandlerDispatch() {
+		for (EventsManagerImpl.HandlerDispatch dispatch : EventsManagerImpl.HandlerDispatch.values()) {
+			EventsManagerImpl manager = new EventsManagerImpl(dispatch);
+			manager.addHandler(new CrashingMyEventHandler());
+			try {
+				manager.processEvent(new MyEvent(123.45));
+				Assert.fail("expected exception, but got none.");
+			} catch (final RuntimeException e) {
+				Assert.assertTrue(dispatch.toString(), e.getCause() instanceof ArithmeticException);
+			}
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -94,6 +131,18 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingBasicEventHandler implements BasicEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.counter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		writer.handleEvent(new ActivityEndEvent(3600.0, Id.create("1", Person.class), Id.create("link<2", Link.class), null, "home"));
+		writer.handleEvent(new LinkLeaveEvent(3600.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		writer.handleEvent(new LinkEnterEvent(3601.5, Id.create("vehicle>3", Vehicle.class), Id.create("link'3", Link.class)));
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+
+		Assert.assertEquals("there must be 3 events.", 3, collector.getEvents().size());
+		ActivityEndEvent event1 = (ActivityEndEvent) collector.getEvents().get(0);
+		LinkLeaveEvent event2 = (LinkLeaveEvent) collector.getEvents().get(1);
+		LinkEnterEvent event3 = (LinkEnterEvent) collector.getEvents().get(2);
+
+		Assert.assertEquals(3600.0, event1.getTime(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("1", event1.getPersonId().toString());
+		Assert.assertEquals("home", event1.getActType());
+		Assert.assertEquals("link<2", event2.getLinkId().toString());
+		Assert.assertEquals("vehicle>3", event2.getVehicleId().toString());
+		Assert.assertEquals(3601.5, event3.getTime(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("link'3", event3.getLinkId().toString());
+	}
+
+	@Test
+	public void testNullAttribute() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+
+		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
+		GenericEvent event1 = (GenericEvent) collector.getEvents().get(0);
+		Assert.assertTrue(event1.getAttributes().containsKey("dummy"));
+		Assert.assertNull(event1.getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testTimeWindow() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		// small blocks, so that the time window spans several blocks
+		EventWriterBinary writer = new EventWriterBinary(filename, 64);
+		for (int i = 0; i < 1000; i++) {
+			writer.handleEvent(new LinkEnterEvent(i * 10.0, Id.create(i % 7, Vehicle.class), Id.create(i % 13, Link.class)));
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new EventsReaderBinary(events).readFile(filename, 2000.0, 2990.0);
+		events.finishProcessing();
+
+		Assert.assertEquals(100, collector.getEvents().size());
+		Assert.assertEquals(2000.0, collector.getEvents().get(0).getTime(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(2990.0, collector.getEvents().get(99).getTime(), MatsimTestUtils.EPSILON);
+		LinkEnterEvent last = (LinkEnterEvent) collector.getEvents().get(99);
+		Assert.assertEquals(Id.create(299 % 7, Vehicle.class), last.getVehicleId());
+		Assert.assertEquals(Id.create(299 % 13, Link.class), last.getLinkId());
+	}
+
+	@Test
+	public void testNumbersAndStrings() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		List<Event> expected = new ArrayList<>();
+		expected.add(new ActivityStartEvent(10.0, Id.create("1.5", Person.class), Id.create("2", Link.class), null, "work", new Coord(1234.5, -0.25)));
+		expected.add(new VehicleEntersTrafficEvent(20.0, Id.create("1", Person.class), Id.create("2", Link.class), Id.create("3", Vehicle.class), "car", 0.5));
+		GenericEvent generic = new GenericEvent("TEST", 30.0);
+		generic.getAttributes().put("number", "2.5");
+		generic.getAttributes().put("padded", "2.50");
+		generic.getAttributes().put("integer", "3");
+		generic.getAttributes().put("exponent", "1.0E10");
+		generic.getAttributes().put("text", "E.1");
+		expected.add(generic);
+		expected.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+
+		Assert.assertEquals(expected.size(), collector.getEvents().size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), collector.getEvents().get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), collector.getEvents().get(i).getAttributes());
+		}
+	}
+
+	@Test
+	public void testReadStream() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		writer.handleEvent(new LinkEnterEvent(3601.5, Id.create("vehicle>3", Vehicle.class), Id.create("link'3", Link.class)));
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		try (InputStream stream = new FileInputStream(filename)) {
+			new MatsimEventsReader(events).readStream(stream, ControlerConfigGroup.EventsFileFormat.binary);
+		}
+		events.finishProcessing();
+
+		Assert.assertEquals(1, collector.getEvents().size());
+		LinkEnterEvent event = (LinkEnterEvent) collector.getEvents().get(0);
+		Assert.assertEquals(3601.5, event.getTime(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("link'3", event.getLinkId().toString());
+	}
+}
@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterXMLAsyncTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterXMLAsyncTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameAsEventWriterXML() throws IOException {
+		String expected = this.utils.getOutputDirectory() + "expected.xml";
+		writeEvents(new EventWriterXML(expected));
+		for (String filename : new String[] { "events.xml", "events.xml.gz", "events.xml.zst" }) {
+			String file = this.utils.getOutputDirectory() + filename;
+			writeEvents(new EventWriterXMLAsync(file, 3));
+			Assert.assertEquals(filename, readAll(expected), readAll(file));
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			events.initProcessing();
+			new MatsimEventsReader(events).readFile(file);
+			events.finishProcessing();
+			Assert.assertEquals(filename, 2 * (2 * EventWriterXMLAsync.BLOCK_SIZE + 10), collector.getEvents().size());
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		String expected = this.utils.getOutputDirectory() + "expected.xml";
+		new EventWriterXML(expected).closeFile();
+		String file = this.utils.getOutputDirectory() + "events.xml.gz";
+		new EventWriterXMLAsync(file, 2).closeFile();
+		Assert.assertEquals(readAll(expected), readAll(file));
+	}
+
+	@Test
+	public void testWriterThreadStopped() {
+		EventWriterXMLAsync writer = new EventWriterXMLAsync(this.utils.getOutputDirectory() + "events.xml.gz", 1);
+
+		// the first event blocks the only worker, and thus the writer thread, until the queue is full
+		CountDownLatch release = new CountDownLatch(1);
+		writer.handleEvent(new Event(0) {
+			@Override
+			public String getEventType() {
+				return "blocking";
+			}
+
+			@Override
+			public Map<String, String> getAttributes() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				return super.getAttributes();
+			}
+		});
+
+		// stop the writer thread while handleEvent waits for space in the queue
+		Thread producer = Thread.currentThread();
+		Thread stopper = new Thread(() -> {
+			while (producer.getState() != Thread.State.TIMED_WAITING) {
+				Thread.onSpinWait();
+			}
+			writer.getWriterThread().interrupt();
+			release.countDown();
+		});
+		stopper.start();
+
+		try {
+			for (int i = 0; i < 10 * EventWriterXMLAsync.BLOCK_SIZE; i++) {
+				writer.handleEvent(new LinkEnterEvent(i, Id.create("vehicle", Vehicle.class), Id.create("link", Link.class)));
+			}
+			Assert.fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof InterruptedException);
+		}
+
+		try {
+			writer.closeFile();
+			Assert.fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof InterruptedException);
+		}
+	}
+
+	private static <T extends EventWriter & BasicEventHandler> void writeEvents(T writer) {
+		// more than two blocks, with special characters
+		for (int i = 0; i < 2 * EventWriterXMLAsync.BLOCK_SIZE + 10; i++) {
+			Id<Vehicle> vehicleId = Id.create("vehicle\"" + (i % 100), Vehicle.class);
+			Id<Link> linkId = Id.create("link<" + (i % 1000), Link.class);
+			writer.handleEvent(new LinkEnterEvent(i, vehicleId, linkId));
+			writer.handleEvent(new LinkLeaveEvent(i + 0.5, vehicleId, linkId));
+		}
+		writer.closeFile();
+	}
+
+	private static String readAll(String filename) throws IOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			return reader.lines().collect(Collectors.joining("\n"));
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
+
+public class TestLadderMessageQueue {
+
+	// a higher priority message will be at front of queue, if there are
+	// several messages with same time
+	@Test
+	public void testMessagePriority() {
+		MessageQueue mq = new LadderMessageQueue();
+		Message m1 = message(1, 10);
+		Message m2 = message(1, 5);
+		Message m3 = message(1, 20);
+		Message m4 = message(0.5, 0);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+
+		Assert.assertSame(m4, mq.getNextMessage());
+		Assert.assertSame(m3, mq.getNextMessage());
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertEquals(0, mq.getQueueSize());
+		Assert.assertTrue(mq.isEmpty());
+		Assert.assertNull(mq.getNextMessage());
+	}
+
+	@Test
+	public void testRemoveMessage() {
+		MessageQueue mq = new LadderMessageQueue();
+		Message m1 = message(1, 0);
+		Message m2 = message(1, 0);
+		Message m3 = message(2, 0);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.removeMessage(m1);
+		Assert.assertEquals(2, mq.getQueueSize());
+		Assert.assertSame(m2, mq.getNextMessage());
+		mq.removeMessage(m3);
+		Assert.assertTrue(mq.isEmpty());
+		Assert.assertNull(mq.getNextMessage());
+	}
+
+	/**
+	 * Random insertions (not before the last message taken out), removals and retrievals must give the same times and
+	 * priorities as the heap. Messages with the same time and priority may come in a different order.
+	 */
+	@Test
+	public void testSameOrderAsHeap() {
+		Random random = new Random(4711);
+		int[] priorities = { 0, JDEQSimConfigGroup.PRIORITY_ENTER_ROAD_MESSAGE, JDEQSimConfigGroup.PRIORITY_DEPARTUARE_MESSAGE,
+				JDEQSimConfigGroup.PRIORITY_ARRIVAL_MESSAGE, JDEQSimConfigGroup.PRIORITY_LEAVE_ROAD_MESSAGE };
+		MessageQueue heap = new MessageQueue();
+		MessageQueue ladder = new LadderMessageQueue();
+		List<Message[]> inserted = new ArrayList<>();
+		Set<Message> takenOut = Collections.newSetFromMap(new IdentityHashMap<>());
+		double now = 0;
+
+		for (int step = 0; step < 100000; step++) {
+			int operation = random.nextInt(10);
+			if (operation < 5 || heap.getQueueSize() == 0) {
+				// times in whole seconds, so that there are many messages with the same time
+				double time = now + (random.nextInt(4) == 0 ? 0 : random.nextInt(3600));
+				int priority = priorities[random.nextInt(priorities.length)];
+				Message[] pair = { message(time, priority), message(time, priority) };
+				heap.putMessage(pair[0]);
+				ladder.putMessage(pair[1]);
+				inserted.add(pair);
+			} else if (operation < 6) {
+				Message[] pair = inserted.remove(random.nextInt(inserted.size()));
+				// the pair may already have been taken out, or only one of them if others have the same time and priority
+				if (!takenOut.contains(pair[0]) && !takenOut.contains(pair[1])) {
+					heap.removeMessage(pair[0]);
+					ladder.removeMessage(pair[1]);
+				}
+			} else {
+				Message expected = heap.getNextMessage();
+				Message actual = ladder.getNextMessage();
+				Assert.assertEquals(expected.getMessageArrivalTime(), actual.getMessageArrivalTime(), 0.0);
+				Assert.assertEquals(0, expected.compareTo(actual));
+				now = expected.getMessageArrivalTime();
+				takenOut.add(expected);
+				takenOut.add(actual);
+			}
+			Assert.assertEquals(heap.getQueueSize(), ladder.getQueueSize());
+		}
+		while (heap.getQueueSize() > 0) {
+			Assert.assertEquals(0, heap.getNextMessage().compareTo(ladder.getNextMessage()));
+		}
+		Assert.assertTrue(ladder.isEmpty());
+	}
+
+	private static Message message(double time, int priority) {
+		Message m = new DummyMessage();
+		m.setMessageArrivalTime(time);
+		m.setPriority(priority);
+		return m;
+	}
+
+}
@@ -22,9 +22,13 @@
  package org.matsim.core.mobsim.jdeqsim;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.events.EventsUtils;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestCase;
 
 public class TestMessageFactory extends MatsimTestCase{
@@ -139,5 +143,39 @@ public class TestMessageFactory extends MatsimTestCase{
 		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
 	}
 	
+	// check that the messages are pooled per thread
+	public void testMessageFactory7() throws InterruptedException {
+		MessageFactory.GC_ALL_MESSAGES();
+		JDEQSimConfigGroup.setGC_MESSAGES(false);
+		
+		MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
+		
+		int[] sizeInOtherThread = new int[1];
+		Thread thread = new Thread(() -> {
+			sizeInOtherThread[0] = MessageFactory.getEndLegMessageQueue().size();
+			MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
+			MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
+		});
+		thread.start();
+		thread.join();
+		
+		assertEquals(0, sizeInOtherThread[0]);
+		assertEquals(1, MessageFactory.getEndLegMessageQueue().size());
+	}
+	
+	// check that the pools, which reference the scheduler and vehicles, are released after the simulation
+	public void testMessageFactory8(){
+		MessageFactory.GC_ALL_MESSAGES();
+		JDEQSimConfigGroup.setGC_MESSAGES(false);
+		MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
+		MessageFactory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
+		
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new JDEQSimulation(new JDEQSimConfigGroup(), scenario, EventsUtils.createEventsManager()).run();
+		
+		assertEquals(0, MessageFactory.getEndLegMessageQueue().size());
+		assertEquals(0, MessageFactory.getEnterRoadMessageQueue().size());
+	}
+	
 	
 }
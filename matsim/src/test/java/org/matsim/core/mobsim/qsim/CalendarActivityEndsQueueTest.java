@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarActivityEndsQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class CalendarActivityEndsQueueTest {
+
+	@Test
+	public void testOrder() {
+		MobsimAgent a = agent("a");
+		MobsimAgent b = agent("b");
+		MobsimAgent c = agent("c");
+		MobsimAgent d = agent("d");
+
+		CalendarActivityEndsQueue queue = new CalendarActivityEndsQueue();
+		queue.add(a, 10.5);
+		queue.add(b, 10.0);
+		queue.add(c, 10.0);
+		queue.add(d, 300000.0); // beyond the ring, in the spill-over
+		Assert.assertEquals(4, queue.size());
+
+		Assert.assertNull(queue.pollEndingUntil(9.0));
+		Assert.assertSame(c, queue.pollEndingUntil(10.0)); // same time: larger id first
+		Assert.assertSame(b, queue.pollEndingUntil(10.0));
+		Assert.assertNull(queue.pollEndingUntil(10.0));
+		Assert.assertSame(a, queue.pollEndingUntil(11.0));
+		Assert.assertNull(queue.pollEndingUntil(299999.0));
+		Assert.assertSame(d, queue.pollEndingUntil(300000.0));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testRemoveAndReschedule() {
+		MobsimAgent a = agent("a");
+		MobsimAgent b = agent("b");
+
+		CalendarActivityEndsQueue queue = new CalendarActivityEndsQueue();
+		queue.add(a, 100.0);
+		queue.add(b, 200.0);
+
+		Assert.assertTrue(queue.remove(a));
+		Assert.assertFalse(queue.remove(a));
+		queue.add(a, 300.0);
+
+		// adding again replaces the old activity end
+		queue.add(b, 50.0);
+		Assert.assertEquals(2, queue.size());
+
+		Assert.assertSame(b, queue.pollEndingUntil(250.0));
+		Assert.assertNull(queue.pollEndingUntil(250.0));
+		Assert.assertSame(a, queue.pollEndingUntil(300.0));
+	}
+
+	@Test
+	public void testClear() {
+		CalendarActivityEndsQueue queue = new CalendarActivityEndsQueue();
+		queue.add(agent("a"), 0.0);
+		queue.add(agent("b"), 5000.0);
+		queue.add(agent("c"), Double.POSITIVE_INFINITY);
+		queue.pollEndingUntil(1000.0);
+
+		Set<String> cleared = new HashSet<>();
+		queue.clear((agent, time) -> cleared.add(agent.getId().toString()));
+		Assert.assertEquals(Set.of("b", "c"), cleared);
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.pollEndingUntil(10000.0));
+	}
+
+	/**
+	 * Random additions, removals and polls must give the same activity ends as the default priority queue.
+	 */
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(4711);
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			agents.add(agent("agent" + i));
+		}
+
+		ActivityEndsQueue calendar = new CalendarActivityEndsQueue();
+		ActivityEndsQueue priority = new PriorityActivityEndsQueue();
+		Set<MobsimAgent> queued = new HashSet<>();
+
+		int polled = 0;
+		for (double time = 0; time < 200000; time += 1 + random.nextInt(600)) {
+			for (int i = 0; i < 20; i++) {
+				MobsimAgent agent = agents.get(random.nextInt(agents.size()));
+				if (queued.contains(agent)) {
+					Assert.assertTrue(calendar.remove(agent));
+					Assert.assertTrue(priority.remove(agent));
+					queued.remove(agent);
+				}
+				if (random.nextDouble() < 0.8) {
+					// whole seconds to get ties, some far in the future
+					double endTime = time + (random.nextDouble() < 0.1 ? 150000 : 0) + random.nextInt(3600) + (random.nextBoolean() ? 0.5 : 0);
+					calendar.add(agent, endTime);
+					priority.add(agent, endTime);
+					queued.add(agent);
+				}
+			}
+			Assert.assertEquals(priority.size(), calendar.size());
+
+			MobsimAgent expected;
+			while ((expected = priority.pollEndingUntil(time)) != null) {
+				Assert.assertSame(expected, calendar.pollEndingUntil(time));
+				queued.remove(expected);
+				polled++;
+			}
+			Assert.assertNull(calendar.pollEndingUntil(time));
+		}
+		Assert.assertTrue(polled > 1000);
+	}
+
+	private static MobsimAgent agent(String id) {
+		MobsimAgent agent = mock(MobsimAgent.class);
+		when(agent.getId()).thenReturn(Id.create(id, Person.class));
+		return agent;
+	}
+}
@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimMetricsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QSimMetricsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testHistogram() {
+		QSimMetrics.Histogram histogram = new QSimMetrics.Histogram();
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		Assert.assertEquals(1000, histogram.getCount());
+		Assert.assertEquals(500500, histogram.getSum());
+		Assert.assertEquals(500.5, histogram.getMean(), 1e-9);
+		Assert.assertEquals(1000, histogram.getMax());
+		assertWithinBucketPrecision(500, histogram.getValueAtPercentile(50));
+		assertWithinBucketPrecision(990, histogram.getValueAtPercentile(99));
+		Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		histogram.record(7);
+		Assert.assertEquals(7, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testBucketBoundaries() {
+		for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE }) {
+			int index = QSimMetrics.Histogram.bucketIndex(value);
+			Assert.assertTrue(QSimMetrics.Histogram.highestValueInBucket(index) >= value);
+			if (index > 0) {
+				Assert.assertTrue(QSimMetrics.Histogram.highestValueInBucket(index - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	public void testGaugesAndCounters() {
+		QSimMetrics metrics = new QSimMetrics();
+		AtomicLong queueSize = new AtomicLong(3);
+		AtomicLong count = new AtomicLong(10);
+		metrics.gauge("queue", queueSize::get);
+		metrics.counter("count", count::get);
+
+		metrics.sampleGauges();
+		queueSize.set(5);
+		count.set(14);
+		metrics.sampleGauges();
+
+		Map<String, QSimMetrics.Histogram> histograms = metrics.getHistograms();
+		Assert.assertEquals(2, histograms.get("queue").getCount());
+		Assert.assertEquals(5, histograms.get("queue").getMax());
+		Assert.assertEquals(4, metrics.pollCounts().get("count").longValue());
+		Assert.assertEquals(0, metrics.pollCounts().get("count").longValue());
+
+		metrics.resetHistograms();
+		Assert.assertEquals(0, metrics.getHistograms().get("queue").getCount());
+
+		try {
+			metrics.histogram("queue");
+			Assert.fail("duplicate metric names should not be accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void testMetricsFileIsWritten() throws IOException {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(0);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setMetricsInterval(3600);
+		new Controler(config).run();
+
+		List<String> lines;
+		try (BufferedReader reader = IOUtils.getBufferedReader(
+				utils.getOutputDirectory() + "ITERS/it.0/0." + QSimMetricsWriter.FILENAME)) {
+			lines = reader.lines().collect(Collectors.toList());
+		}
+		Assert.assertEquals("time;metric;count;sum;mean;p50;p90;p99;max", lines.get(0));
+		List<String> metrics = lines.stream().skip(1).map(line -> line.split(";")[1]).distinct().collect(Collectors.toList());
+		Assert.assertTrue(metrics.contains("netsimRunner0.moveNodesNanos"));
+		Assert.assertTrue(metrics.contains("netsimRunner1.moveLinksNanos"));
+		Assert.assertTrue(metrics.contains("activityEngine.queueSize"));
+		Assert.assertTrue(metrics.contains("activityEngine.activityEnds"));
+		Assert.assertTrue(metrics.contains("teleportationEngine.departures"));
+		long activityEnds = lines.stream()
+				.map(line -> line.split(";"))
+				.filter(row -> row[1].equals("activityEngine.activityEnds"))
+				.mapToLong(row -> Long.parseLong(row[2]))
+				.sum();
+		Assert.assertTrue(activityEnds > 0);
+	}
+
+	private static void assertWithinBucketPrecision(long expected, long actual) {
+		Assert.assertEquals(expected, actual, expected / (double)QSimMetrics.Histogram.SUB_BUCKETS);
+	}
+}
@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithLocalClocksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineSynchronization;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class QNetsimEngineWithLocalClocksTest {
+
+	/**
+	 * Congested traffic on a grid must result in the same arrival times as with the barrier-based engine,
+	 * independent of the number of threads.
+	 * <p>
+	 * With more than one thread, each node draws from its own random number generator, so the results with one
+	 * thread are only compared to the results with one thread.
+	 */
+	@Test
+	public void testSameArrivalsAsWithBarriers() {
+		Map<Id<Person>, List<Double>> expected = runScenario(NetsimEngineSynchronization.barriers, 1);
+		Assert.assertEquals(600, expected.size());
+		Assert.assertEquals(expected, runScenario(NetsimEngineSynchronization.localClocks, 1));
+
+		Map<Id<Person>, List<Double>> expectedParallel = runScenario(NetsimEngineSynchronization.barriers, 2);
+		Assert.assertEquals(600, expectedParallel.size());
+		Assert.assertEquals(expectedParallel, runScenario(NetsimEngineSynchronization.localClocks, 2));
+		Assert.assertEquals(expectedParallel, runScenario(NetsimEngineSynchronization.localClocks, 5));
+		Assert.assertEquals(expectedParallel, runScenario(NetsimEngineSynchronization.barriers, 5));
+	}
+
+	private static Map<Id<Person>, List<Double>> runScenario(NetsimEngineSynchronization synchronization, int numberOfThreads) {
+		MatsimRandom.reset();
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNetsimEngineSynchronization(synchronization);
+		config.qsim().setEndTime(30 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createGrid(scenario.getNetwork(), 10);
+		createPopulation(scenario, 600, new Random(4711));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		ArrivalCollector collector = new ArrivalCollector();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(collector);
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		return collector.arrivals;
+	}
+
+	private static void createGrid(Network network, int size) {
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					addLink(network, node, other);
+					addLink(network, other, node);
+				}
+				if (y + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					addLink(network, node, other);
+					addLink(network, other, node);
+				}
+			}
+		}
+	}
+
+	private static void addLink(Network network, Node from, Node to) {
+		Link link = network.getFactory().createLink(Id.createLinkId(from.getId() + "_" + to.getId()), from, to);
+		link.setLength(500);
+		link.setFreespeed(10);
+		// low capacities, so there is congestion spilling back over several runners
+		link.setCapacity(300);
+		link.setNumberOfLanes(1);
+		network.addLink(link);
+	}
+
+	private static void createPopulation(Scenario scenario, int numberOfPersons, Random random) {
+		Network network = scenario.getNetwork();
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator router = new DijkstraFactory().createPathCalculator(network, travelTime, travelTime);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Link home = links.get(random.nextInt(links.size()));
+			Link work = links.get(random.nextInt(links.size()));
+			while (work == home) {
+				work = links.get(random.nextInt(links.size()));
+			}
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity homeAct = factory.createActivityFromLinkId("h", home.getId());
+			// each person departs at its own time, so the order of departures does not depend on the threads
+			homeAct.setEndTime(6 * 3600 + i * 3);
+			plan.addActivity(homeAct);
+			plan.addLeg(createLeg(factory, router, home, work));
+			Activity workAct = factory.createActivityFromLinkId("w", work.getId());
+			workAct.setEndTime(16 * 3600 + i * 3);
+			plan.addActivity(workAct);
+			plan.addLeg(createLeg(factory, router, work, home));
+			plan.addActivity(factory.createActivityFromLinkId("h", home.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory factory, LeastCostPathCalculator router, Link from, Link to) {
+		Path path = router.calcLeastCostPath(from.getToNode(), to.getFromNode(), 0, null, null);
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (Link link : path.links) {
+			linkIds.add(link.getId());
+		}
+		Leg leg = factory.createLeg(TransportMode.car);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(from.getId(), linkIds, to.getId());
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private static final class ArrivalCollector implements PersonArrivalEventHandler {
+		private final Map<Id<Person>, List<Double>> arrivals = new TreeMap<>();
+
+		@Override
+		public synchronized void handleEvent(PersonArrivalEvent event) {
+			this.arrivals.computeIfAbsent(event.getPersonId(), id -> new ArrayList<>()).add(event.getTime());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPopulationTest {
+
+	@Test
+	public void testSamePopulation() {
+		Population objects = createPopulation(PlansConfigGroup.PlansStorage.objects);
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compact);
+		Assert.assertTrue(compact instanceof CompactPopulation);
+		Assert.assertEquals(4 * 20, countCompactPlans(compact));
+		Assert.assertTrue(PopulationUtils.equalPopulation(objects, compact));
+	}
+
+	@Test
+	public void testSamePopulation_OffHeap() {
+		Population objects = createPopulation(PlansConfigGroup.PlansStorage.objects);
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compactOffHeap);
+		Assert.assertTrue(PopulationUtils.equalPopulation(objects, compact));
+	}
+
+	@Test
+	public void testDecodeAndCompactAgain() {
+		Population objects = createPopulation(PlansConfigGroup.PlansStorage.objects);
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compact);
+
+		// accessing the plan elements decodes the plans, modifications must survive compaction
+		for (Person person : compact.getPersons().values()) {
+			Plan plan = person.getPlans().get(1);
+			((Activity) plan.getPlanElements().get(0)).setEndTime(5 * 3600);
+			person.setSelectedPlan(plan);
+		}
+		for (Person person : objects.getPersons().values()) {
+			Plan plan = person.getPlans().get(1);
+			((Activity) plan.getPlanElements().get(0)).setEndTime(5 * 3600);
+			person.setSelectedPlan(plan);
+		}
+		// plan 1 was decoded for the 16 persons for which it was not selected before
+		Assert.assertEquals(4 * 20 - 16, countCompactPlans(compact));
+		// writing the plans does not decode them
+		Assert.assertTrue(PopulationUtils.equalPopulation(objects, compact));
+		Assert.assertEquals(4 * 20 - 16, countCompactPlans(compact));
+
+		PopulationUtils.compactPlans(compact);
+		Assert.assertEquals(4 * 20, countCompactPlans(compact));
+		for (Person person : compact.getPersons().values()) {
+			Assert.assertFalse(((CompactPlan) person.getSelectedPlan()).isCompact());
+			Assert.assertTrue(((CompactPlan) person.getPlans().get(0)).isCompact());
+		}
+		Assert.assertTrue(PopulationUtils.equalPopulation(objects, compact));
+	}
+
+	@Test
+	public void testReadingKeepsPlansCompact() {
+		Population objects = createPopulation(PlansConfigGroup.PlansStorage.objects);
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compact);
+
+		for (Person person : compact.getPersons().values()) {
+			Person objectsPerson = objects.getPersons().get(person.getId());
+			for (int i = 0; i < person.getPlans().size(); i++) {
+				Plan plan = person.getPlans().get(i);
+				Plan objectsPlan = objectsPerson.getPlans().get(i);
+				List<PlanElement> planElements = PopulationUtils.getPlanElementsForReading(plan);
+				Assert.assertEquals(objectsPlan.getPlanElements().size(), planElements.size());
+				Assert.assertEquals(((Activity) objectsPlan.getPlanElements().get(2)).getAttributes().getAttribute("income"),
+						((Activity) planElements.get(2)).getAttributes().getAttribute("income"));
+				Assert.assertEquals(objectsPlan.getAttributes().getAttribute("variant"),
+						PopulationUtils.getPlanAttributesForReading(plan).getAttribute("variant"));
+			}
+		}
+		Assert.assertEquals(4 * 20, countCompactPlans(compact));
+
+		// the plan attributes are encoded with the plan elements, and accessing them decodes the plan
+		Plan plan = compact.getPersons().get(Id.createPersonId(0)).getPlans().get(1);
+		Assert.assertEquals(1, plan.getAttributes().getAttribute("variant"));
+		Assert.assertFalse(((CompactPlan) plan).isCompact());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadingCannotModify() {
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compact);
+		Plan plan = compact.getPersons().get(Id.createPersonId(0)).getPlans().get(1);
+		PopulationUtils.getPlanElementsForReading(plan).clear();
+	}
+
+	@Test
+	public void testCopySelectedPlan() {
+		Population compact = createPopulation(PlansConfigGroup.PlansStorage.compact);
+		Person person = compact.getPersons().get(Id.createPersonId(3));
+		Plan copy = ((PersonImpl) person).createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlan);
+		Assert.assertEquals(6, person.getPlans().size());
+		PopulationUtils.compactPlans(compact);
+		Assert.assertTrue(((CompactPlan) person.getPlans().get(0)).isCompact());
+		Assert.assertFalse(((CompactPlan) copy).isCompact());
+	}
+
+	private static int countCompactPlans(Population population) {
+		int count = 0;
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				if (((CompactPlan) plan).isCompact()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static Population createPopulation(PlansConfigGroup.PlansStorage storage) {
+		PlansConfigGroup plansConfigGroup = new PlansConfigGroup();
+		plansConfigGroup.setPlansStorage(storage);
+		Population population = PopulationUtils.createPopulation(plansConfigGroup, null);
+		PopulationFactory factory = population.getFactory();
+		for (int p = 0; p < 20; p++) {
+			Person person = factory.createPerson(Id.createPersonId(p));
+			for (int i = 0; i < 5; i++) {
+				Plan plan = factory.createPlan();
+				if (i % 2 == 0) {
+					plan.setScore(100.0 + i);
+				}
+				plan.getAttributes().putAttribute("variant", i);
+				Activity home = factory.createActivityFromCoord("home", new Coord(p * 10, i * 10));
+				home.setLinkId(Id.createLinkId("h" + p));
+				home.setEndTime(7 * 3600 + i * 60);
+				home.getAttributes().putAttribute("persons", p);
+				plan.addActivity(home);
+
+				Leg leg = factory.createLeg(TransportMode.car);
+				leg.setDepartureTime(7 * 3600 + i * 60);
+				leg.setTravelTime(1200);
+				NetworkRoute route = factory.getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId("h" + p), Id.createLinkId("w" + i));
+				route.setLinkIds(Id.createLinkId("h" + p), Arrays.<Id<Link>>asList(Id.createLinkId("a"), Id.createLinkId("b" + i)), Id.createLinkId("w" + i));
+				route.setVehicleId(Id.create(p, Vehicle.class));
+				route.setTravelTime(1100);
+				route.setDistance(5432.1);
+				leg.setRoute(route);
+				leg.getAttributes().putAttribute("routingMode", TransportMode.car);
+				plan.addLeg(leg);
+
+				Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("w" + i));
+				work.setStartTime(8 * 3600);
+				work.setMaximumDuration(8 * 3600);
+				work.getAttributes().putAttribute("flexible", i % 2 == 0);
+				work.getAttributes().putAttribute("income", 1.5 * p);
+				plan.addActivity(work);
+
+				Leg walk = factory.createLeg(TransportMode.walk);
+				Route walkRoute = factory.getRouteFactories().createRoute(Route.class, Id.createLinkId("w" + i), Id.createLinkId("h" + p));
+				walkRoute.setTravelTime(3000);
+				walkRoute.setDistance(2500);
+				walk.setRoute(walkRoute);
+				plan.addLeg(walk);
+
+				plan.addActivity(factory.createActivityFromCoord("home", new Coord(p * 10, i * 10)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(p % 5));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -34,14 +34,25 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.misc.CRCChecksum;
+import org.matsim.facilities.ActivityFacility;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author thibautd
@@ -321,4 +332,128 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelIO() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		population.getAttributes().putAttribute( "name" , "parallel" );
+		for ( int i = 0; i < 1050; i++ ) {
+			// not in the order of the ids, the order of the file must be kept nevertheless
+			final Person person = factory.createPerson( Id.createPersonId( "p" + ((i * 7919) % 1050) ) );
+			person.getAttributes().putAttribute( "index" , i );
+			for ( int j = 0; j < 3; j++ ) {
+				final Plan plan = factory.createPlan();
+				plan.setScore( (double) j );
+				final Activity home = factory.createActivityFromCoord( "home" , new Coord( i , j ) );
+				home.setEndTime( 7 * 3600 + j );
+				plan.addActivity( home );
+				final Leg leg = factory.createLeg( "walk" );
+				leg.getAttributes().putAttribute( "weather" , "rain" );
+				final GenericRouteImpl route = new GenericRouteImpl( Id.createLinkId( i ) , Id.createLinkId( j ) );
+				route.setRouteDescription( "walk " + i + " " + j );
+				leg.setRoute( route );
+				plan.addLeg( leg );
+				plan.addActivity( factory.createActivityFromLinkId( "work" , Id.createLinkId( j ) ) );
+				person.addPlan( plan );
+			}
+			population.addPerson( person );
+		}
+
+		final String sequentialFile = utils.getOutputDirectory()+"/population_sequential.xml";
+		final String parallelFile = utils.getOutputDirectory()+"/population_parallel.xml";
+		final org.matsim.api.core.v01.population.PopulationWriter sequentialWriter = new org.matsim.api.core.v01.population.PopulationWriter( population );
+		sequentialWriter.setNumberOfThreads( 1 );
+		sequentialWriter.write( sequentialFile );
+		final org.matsim.api.core.v01.population.PopulationWriter parallelWriter = new org.matsim.api.core.v01.population.PopulationWriter( population );
+		parallelWriter.setNumberOfThreads( 4 );
+		parallelWriter.write( parallelFile );
+		Assert.assertEquals( "parallel writing changed the output",
+				CRCChecksum.getCRCFromFile( sequentialFile ),
+				CRCChecksum.getCRCFromFile( parallelFile ) );
+
+		// transformations are not known to be thread-safe, so these are written sequentially
+		final CoordinateTransformation shift = coord -> new Coord( coord.getX() + 1000 , coord.getY() );
+		final String shiftedSequentialFile = utils.getOutputDirectory()+"/population_shifted_sequential.xml";
+		final String shiftedParallelFile = utils.getOutputDirectory()+"/population_shifted_parallel.xml";
+		new org.matsim.api.core.v01.population.PopulationWriter( shift , population ).write( shiftedSequentialFile );
+		final org.matsim.api.core.v01.population.PopulationWriter shiftedWriter = new org.matsim.api.core.v01.population.PopulationWriter( shift , population );
+		shiftedWriter.setNumberOfThreads( 4 );
+		shiftedWriter.write( shiftedParallelFile );
+		Assert.assertEquals( "writing with a transformation changed the output",
+				CRCChecksum.getCRCFromFile( shiftedSequentialFile ),
+				CRCChecksum.getCRCFromFile( shiftedParallelFile ) );
+
+		final Config sequentialConfig = ConfigUtils.createConfig();
+		sequentialConfig.global().setNumberOfThreads( 1 );
+		final Scenario sequentialScenario = ScenarioUtils.createScenario( sequentialConfig );
+		new PopulationReader( sequentialScenario ).readFile( sequentialFile );
+
+		final Config parallelConfig = ConfigUtils.createConfig();
+		parallelConfig.global().setNumberOfThreads( 4 );
+		parallelConfig.plans().setParallelIO( true );
+		final Scenario parallelScenario = ScenarioUtils.createScenario( parallelConfig );
+		new PopulationReader( parallelScenario ).readFile( sequentialFile );
+
+		Assert.assertEquals( 1050 , parallelScenario.getPopulation().getPersons().size() );
+		Assert.assertEquals( "parallel reading changed the order of the persons",
+				new ArrayList<>( sequentialScenario.getPopulation().getPersons().keySet() ),
+				new ArrayList<>( parallelScenario.getPopulation().getPersons().keySet() ) );
+		Assert.assertEquals( "parallel" , parallelScenario.getPopulation().getAttributes().getAttribute( "name" ) );
+		Assert.assertTrue( PopulationUtils.equalPopulation( sequentialScenario.getPopulation() , parallelScenario.getPopulation() ) );
+	}
+
+	@Test
+	public void testParallelReadingCreatesIdsInFileOrder() throws IOException {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		for ( int i = 0; i < 500; i++ ) {
+			final Person person = factory.createPerson( Id.createPersonId( "idOrder" + i ) );
+			final Plan plan = factory.createPlan();
+			final Activity home = factory.createActivityFromLinkId( "home" , Id.createLinkId( "idOrderHome" + i ) );
+			home.setFacilityId( Id.create( "idOrder" + i , ActivityFacility.class ) );
+			home.setEndTime( 7 * 3600 );
+			plan.addActivity( home );
+			final Leg leg = factory.createLeg( "car" );
+			final NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl( Id.createLinkId( "idOrderHome" + i ) ,
+					List.of( Id.createLinkId( "idOrderVia" + i ) ) , Id.createLinkId( "idOrderWork" + i ) );
+			route.setVehicleId( Id.createVehicleId( "idOrder" + i ) );
+			leg.setRoute( route );
+			plan.addLeg( leg );
+			plan.addActivity( factory.createActivityFromLinkId( "work" , Id.createLinkId( "idOrderWork" + i ) ) );
+			person.addPlan( plan );
+			population.addPerson( person );
+		}
+		final Path file = Path.of( utils.getOutputDirectory() , "population.xml" );
+		new PopulationWriter( population ).writeV6( file.toString() );
+
+		// rename all ids, so that they are created by the reader
+		final Path renamedFile = Path.of( utils.getOutputDirectory() , "population_renamed.xml" );
+		Files.writeString( renamedFile , Files.readString( file ).replace( "idOrder" , "idOrderRead" ) );
+
+		final Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads( 4 );
+		config.plans().setParallelIO( true );
+		final Scenario scenario = ScenarioUtils.createScenario( config );
+		new PopulationReader( scenario ).readFile( renamedFile.toString() );
+		Assert.assertEquals( 500 , scenario.getPopulation().getPersons().size() );
+
+		// the indices of the ids must not depend on the timing of the threads, but follow the order of the file
+		int previousLink = -1;
+		int previousFacility = -1;
+		int previousVehicle = -1;
+		for ( int i = 0; i < 500; i++ ) {
+			for ( String link : new String[] { "Home" , "Work" , "Via" } ) {
+				final int index = Id.createLinkId( "idOrderRead" + link + i ).index();
+				Assert.assertTrue( "link " + link + i , index > previousLink );
+				previousLink = index;
+			}
+			final int facility = Id.create( "idOrderRead" + i , ActivityFacility.class ).index();
+			Assert.assertTrue( "facility " + i , facility > previousFacility );
+			previousFacility = facility;
+			final int vehicle = Id.createVehicleId( "idOrderRead" + i ).index();
+			Assert.assertTrue( "vehicle " + i , vehicle > previousVehicle );
+			previousVehicle = vehicle;
+		}
+	}
 }
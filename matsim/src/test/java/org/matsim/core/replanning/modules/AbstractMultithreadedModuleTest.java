@@ -22,11 +22,24 @@ package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningThreadScheduling;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author mrieser
@@ -35,6 +48,9 @@ public class AbstractMultithreadedModuleTest {
 
 	private final static Logger log = Logger.getLogger(AbstractMultithreadedModuleTest.class);
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testGetNumOfThreads() {
 		Config config = new Config();
@@ -60,6 +76,92 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_WorkStealing() {
+		DummyCrashingModule testee = new DummyCrashingModule(2, ReplanningThreadScheduling.workStealing);
+		testee.prepareReplanning(null);
+		for (int i = 0; i < 20; i++) {
+			testee.handlePlan(PopulationUtils.createPlan());
+		}
+		try {
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealing() throws IOException {
+		String statisticsFile = this.utils.getOutputDirectory() + AbstractMultithreadedModule.STATISTICS_FILENAME;
+		ReplanningContext context = new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 0;
+			}
+			@Override
+			public String getIterationFilename(String filename) {
+				return statisticsFile;
+			}
+		};
+		Map<Plan, Integer> handledPlans = new IdentityHashMap<>();
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+
+		for (ReplanningThreadScheduling scheduling : ReplanningThreadScheduling.values()) {
+			CountingModule testee = new CountingModule(3, scheduling, handledPlans);
+			testee.prepareReplanning(context);
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(3, testee.instances);
+			// statistics are only written with work stealing
+			Assert.assertEquals(scheduling == ReplanningThreadScheduling.workStealing, new File(statisticsFile).exists());
+		}
+
+		Assert.assertEquals(100, handledPlans.size());
+		for (Integer count : handledPlans.values()) {
+			Assert.assertEquals(2, count.intValue());
+		}
+
+		// one header, and one line per thread of the work stealing run
+		try (BufferedReader reader = org.matsim.core.utils.io.IOUtils.getBufferedReader(statisticsFile)) {
+			Assert.assertTrue(reader.readLine().startsWith("module\tscheduling\tthread\tplans"));
+			int lines = 0;
+			int plansInStatistics = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines++;
+				plansInStatistics += Integer.parseInt(line.split("\t")[3]);
+			}
+			Assert.assertTrue(lines >= 1 && lines <= 3);
+			Assert.assertEquals(100, plansInStatistics);
+		}
+	}
+
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final Map<Plan, Integer> handledPlans;
+		private int instances = 0;
+
+		public CountingModule(final int nOfThreads, final ReplanningThreadScheduling scheduling, final Map<Plan, Integer> handledPlans) {
+			super(nOfThreads, scheduling);
+			this.handledPlans = handledPlans;
+		}
+
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.instances++;
+			return plan -> {
+				synchronized (this.handledPlans) {
+					this.handledPlans.merge(plan, 1, Integer::sum);
+				}
+			};
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,6 +176,9 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final ReplanningThreadScheduling scheduling) {
+			super(nOfThreads, scheduling);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.ContractionHierarchiesMetrics.Metric;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_SameAsDijkstra() {
+		Network network = createGridNetwork(20, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator cch = getLeastCostPathCalculator(network);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(from, actual.getFromNode());
+			assertEquals(to, actual.getToNode());
+			assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testCalcLeastCostPath_TimeBins() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Link congested = network.getLinks().get(Id.createLinkId("2_0_3_0"));
+		// the direct link is congested between 08:00 and 09:00
+		TravelTime travelTime = (link, time, person, vehicle) ->
+				link == congested && time >= 8 * 3600 && time < 9 * 3600 ? 3600 : 10;
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 10;
+			}
+		};
+		LeastCostPathCalculator cch = new ContractionHierarchiesFactory(900, 30 * 3600).createPathCalculator(network, disutility, travelTime);
+		Node from = network.getNodes().get(Id.createNodeId("2_0"));
+		Node to = network.getNodes().get(Id.createNodeId("3_0"));
+
+		Path path = cch.calcLeastCostPath(from, to, 7 * 3600, null, null);
+		assertEquals(1, path.links.size());
+		assertEquals(10.0, path.travelTime, 1e-6);
+
+		path = cch.calcLeastCostPath(from, to, 8 * 3600 + 100, null, null);
+		assertEquals(3, path.links.size());
+		assertEquals(30.0, path.travelCost, 1e-6);
+
+		path = cch.calcLeastCostPath(from, to, 9 * 3600, null, null);
+		assertEquals(1, path.links.size());
+	}
+
+	public void testMetricsAreShared() {
+		Network network = createGridNetwork(5, new Random(4711));
+		ContractionHierarchiesMetrics metrics = new ContractionHierarchiesMetrics(new ContractionHierarchiesGraph(network));
+		double[] weights = new double[metrics.getGraph().links.length];
+		Arrays.fill(weights, 10);
+		Metric metric = metrics.getMetric(weights);
+		assertSame(metric, metrics.getMetric(weights.clone()));
+
+		double[] otherWeights = weights.clone();
+		otherWeights[0] = 20;
+		assertNotSame(metric, metrics.getMetric(otherWeights));
+
+		// calculators with the same link weights use the same metric, and find the same paths
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900, 30 * 3600);
+		LeastCostPathCalculator first = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator second = factory.createPathCalculator(network,
+				new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), travelTimeCostCalculator);
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("4_4"));
+		assertEquals(first.calcLeastCostPath(from, to, 0, null, null).links,
+				second.calcLeastCostPath(from, to, 0, null, null).links);
+	}
+
+	public void testMetricsAreInvalidated() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Link direct = network.getLinks().get(Id.createLinkId("2_0_3_0"));
+		double[] directTravelTime = { 10 };
+		TravelTime travelTime = (link, time, person, vehicle) -> link == direct ? directTravelTime[0] : 10;
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 10;
+			}
+		};
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900, 30 * 3600);
+		LeastCostPathCalculator cch = factory.createPathCalculator(network, disutility, travelTime);
+		Node from = network.getNodes().get(Id.createNodeId("2_0"));
+		Node to = network.getNodes().get(Id.createNodeId("3_0"));
+		assertEquals(1, cch.calcLeastCostPath(from, to, 8 * 3600, null, null).links.size());
+
+		// the travel times change, e.g. in the next iteration
+		directTravelTime[0] = 3600;
+		factory.notifyIterationStarts(null);
+		Path path = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(3, path.links.size());
+		assertEquals(30.0, path.travelCost, 1e-6);
+	}
+
+	public void testPersonSpecificDisutilityIsRefused() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Person expensive = PopulationUtils.getFactory().createPerson(Id.createPersonId("expensive"));
+		TravelTime travelTime = (link, time, person, vehicle) -> 10;
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return person == expensive ? 20 : 10;
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 10;
+			}
+		};
+		LeastCostPathCalculator cch = new ContractionHierarchiesFactory(900, 30 * 3600).createPathCalculator(network, disutility, travelTime);
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("4_4"));
+		assertEquals(80.0, cch.calcLeastCostPath(from, to, 0, null, null).travelCost, 1e-6);
+		try {
+			cch.calcLeastCostPath(from, to, 0, expensive, null);
+			fail("person-specific disutilities must be refused");
+		} catch (IllegalStateException expected) {
+			// expected
+		}
+	}
+
+	/**
+	 * Creates a grid with links in both directions between neighboring nodes, with random lengths and free speeds.
+	 */
+	private static Network createGridNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					addLink(network, node, other, random);
+					addLink(network, other, node, random);
+				}
+				if (y + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					addLink(network, node, other, random);
+					addLink(network, other, node, random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(final Network network, final Node from, final Node to, final Random random) {
+		Link link = network.getFactory().createLink(Id.createLinkId(from.getId() + "_" + to.getId()), from, to);
+		link.setLength(100 + random.nextInt(100));
+		link.setFreespeed(5 + random.nextInt(20));
+		link.setCapacity(1000);
+		link.setNumberOfLanes(1);
+		network.addLink(link);
+	}
+
+}
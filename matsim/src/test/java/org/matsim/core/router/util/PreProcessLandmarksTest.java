@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PreProcessLandmarksTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCachedLandmarksAreReused() {
+		Network network = createGridNetwork();
+		TravelDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks calculated = new PreProcessLandmarks(costFunction, 4);
+		calculated.setCacheDirectory(cacheDirectory);
+		calculated.run(network);
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+
+		PreProcessLandmarks cached = new PreProcessLandmarks(costFunction, 4);
+		cached.setCacheDirectory(cacheDirectory);
+		cached.run(network);
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+		Assert.assertArrayEquals(calculated.getLandmarks(), cached.getLandmarks());
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(calculated.getNodeData(node).getMinLandmarkTravelTime(i),
+						cached.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				Assert.assertEquals(calculated.getNodeData(node).getMaxLandmarkTravelTime(i),
+						cached.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+		Assert.assertEquals(calculated.getMinTravelCostPerLength(), cached.getMinTravelCostPerLength(), 0.0);
+
+		// lower minimal costs must not use the cached landmarks
+		network.getLinks().values().iterator().next().setFreespeed(50);
+		PreProcessLandmarks changed = new PreProcessLandmarks(costFunction, 4);
+		changed.setCacheDirectory(cacheDirectory);
+		changed.run(network);
+		Assert.assertEquals(2, new File(cacheDirectory).list().length);
+	}
+
+	@Test
+	public void testTravelZoneIsPartOfCacheKey() {
+		Network network = createGridNetwork();
+		TravelDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks whole = new PreProcessLandmarks(costFunction, new Rectangle2D.Double(0, 0, 4000, 4000), 4);
+		whole.setCacheDirectory(cacheDirectory);
+		whole.run(network);
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+
+		PreProcessLandmarks same = new PreProcessLandmarks(costFunction, new Rectangle2D.Double(0, 0, 4000, 4000), 4);
+		same.setCacheDirectory(cacheDirectory);
+		same.run(network);
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+
+		PreProcessLandmarks corner = new PreProcessLandmarks(costFunction, new Rectangle2D.Double(0, 0, 2000, 2000), 4);
+		corner.setCacheDirectory(cacheDirectory);
+		corner.run(network);
+		Assert.assertEquals(2, new File(cacheDirectory).list().length);
+	}
+
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 5;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 1000, y * 1000));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2) {
+		double freespeed = 10 + (node1.getId().index() * 7 + node2.getId().index()) % 5;
+		NetworkUtils.createAndAddLink(network, Id.create(node1.getId() + "-" + node2.getId(), Link.class), node1, node2, 1000, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(node2.getId() + "-" + node1.getId(), Link.class), node2, node1, 1000, freespeed, 1000, 1);
+	}
+}
@@ -28,6 +28,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -92,17 +93,125 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testPartitionedScoring() throws InterruptedException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 100; i++) {
+			population.addPerson(pf.createPerson(Id.create("partitioned" + i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager,
+				new EventsToActivities(), new EventsToLegs(scenario), population, agentId -> new RecordingScoringFunction(), 4);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+
+		// legs and activities are usually reported from another thread than the events
+		Thread legsAndActivities = new Thread(() -> {
+			for (Person person : population.getPersons().values()) {
+				for (int i = 0; i < 10; i++) {
+					sf.handleActivity(new PersonExperiencedActivity(person.getId(), pf.createActivityFromCoord("home", new Coord(100, 100))));
+					sf.handleLeg(new PersonExperiencedLeg(person.getId(), pf.createLeg("walk")));
+				}
+			}
+		});
+		legsAndActivities.start();
+		for (Person person : population.getPersons().values()) {
+			for (int i = 0; i < 10; i++) {
+				sf.handleEvent(new PersonMoneyEvent(i, person.getId(), 1.0));
+			}
+		}
+		legsAndActivities.join();
+		sf.finishScoringFunctions();
+
+		for (Person person : population.getPersons().values()) {
+			RecordingScoringFunction rs = (RecordingScoringFunction) sf.getScoringFunctionForAgent(person.getId());
+			Assert.assertEquals(10, rs.activityCounter);
+			Assert.assertEquals(10, rs.legCounter);
+			Assert.assertEquals(10, rs.eventCounter);
+			Assert.assertEquals(10.0, rs.money, 0.0);
+			Assert.assertEquals(9, rs.tripCounter);
+			Assert.assertEquals(1, rs.finishCounter);
+		}
+	}
+
+	@Test
+	public void testPartitionedScoring_ExceptionInScoringFunction() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		Id<Person> personId = Id.create(1, Person.class);
+		population.addPerson(pf.createPerson(personId));
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, EventsUtils.createEventsManager(),
+				new EventsToActivities(), new EventsToLegs(scenario), population, agentId -> new RecordingScoringFunction() {
+					@Override
+					public void handleLeg(Leg leg) {
+						throw new IllegalStateException("crash");
+					}
+				}, 2);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("walk")));
+		try {
+			sf.finishScoringFunctions();
+			Assert.fail("expected exception, but got none.");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("crash", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPartitionedScoring_ThreadsStopped() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		Id<Person> personId = Id.create("stopped", Person.class);
+		population.addPerson(pf.createPerson(personId));
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, EventsUtils.createEventsManager(),
+				new EventsToActivities(), new EventsToLegs(scenario), population, agentId -> new RecordingScoringFunction(), 2);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			controlerListenerManager.fireControlerIterationStartsEvent(iteration);
+			sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("walk")));
+			Assert.assertEquals(2, countScoringShardThreads());
+			if (iteration < 2) {
+				sf.finishScoringFunctions();
+				Assert.assertEquals(1, ((RecordingScoringFunction) sf.getScoringFunctionForAgent(personId)).legCounter);
+			} else {
+				sf.reset(iteration);
+			}
+			Assert.assertEquals("iteration " + iteration, 0, countScoringShardThreads());
+		}
+	}
+
+	private static long countScoringShardThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.isAlive() && thread.getName().startsWith("ScoringShard-"))
+				.count();
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
+		int activityCounter = 0;
+		int legCounter = 0;
+		int eventCounter = 0;
+		int finishCounter = 0;
+		double money = 0;
 		TripStructureUtils.Trip lastTrip = null;
 
 		@Override
 		public void handleActivity(Activity activity) {
+			this.activityCounter++;
 		}
 
 		@Override
 		public void handleLeg(Leg leg) {
+			this.legCounter++;
 		}
 
 		@Override
@@ -117,10 +226,12 @@ public class ScoringFunctionsForPopulationTest {
 
 		@Override
 		public void addMoney(double amount) {
+			this.money += amount;
 		}
 
 		@Override
 		public void finish() {
+			this.finishCounter++;
 		}
 
 		@Override
@@ -130,6 +241,7 @@ public class ScoringFunctionsForPopulationTest {
 
 		@Override
 		public void handleEvent(Event event) {
+			this.eventCounter++;
 		}
 	}
 
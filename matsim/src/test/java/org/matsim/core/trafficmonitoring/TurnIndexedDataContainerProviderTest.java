@@ -0,0 +1,68 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TurnIndexedDataContainerProviderTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.collections.Tuple;
+
+public class TurnIndexedDataContainerProviderTest {
+
+	@Test
+	public void testTurnsAndOtherLinkPairs() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("ttc1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("ttc2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("ttc3", Node.class), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("ttc1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("ttc2", Link.class), node2, node3, 1000, 10, 3600, 1);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.create("ttc3", Link.class), node2, node1, 1000, 10, 3600, 1);
+
+		Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> map = new HashMap<>();
+		TurnIndexedDataContainerProvider provider = new TurnIndexedDataContainerProvider(
+				fromToLink -> map.computeIfAbsent(fromToLink, ft -> new TravelTimeDataArray(network.getLinks().get(ft.getFirst()), 4)),
+				network);
+
+		TravelTimeData turn12 = provider.getTravelTimeData(link1.getId(), link2.getId());
+		TravelTimeData turn13 = provider.getTravelTimeData(link1.getId(), link3.getId());
+		Assert.assertNotSame(turn12, turn13);
+		Assert.assertSame(turn12, provider.getTravelTimeData(link1.getId(), link2.getId()));
+		Assert.assertSame(turn12, map.get(new Tuple<>(link1.getId(), link2.getId())));
+
+		// not a turn of the network, and a link which was created after the provider
+		TravelTimeData noTurn = provider.getTravelTimeData(link2.getId(), link1.getId());
+		Assert.assertSame(noTurn, map.get(new Tuple<>(link2.getId(), link1.getId())));
+		Id<Link> laterLinkId = Id.create("ttc4", Link.class);
+		NetworkUtils.createAndAddLink(network, laterLinkId, node3, node2, 1000, 10, 3600, 1);
+		TravelTimeData laterTurn = provider.getTravelTimeData(laterLinkId, link3.getId());
+		Assert.assertSame(laterTurn, provider.getTravelTimeData(laterLinkId, link3.getId()));
+		Assert.assertEquals(4, map.size());
+	}
+}